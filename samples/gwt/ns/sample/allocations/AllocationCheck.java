@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.allocations;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+import gwt.ns.gwtbox2d.client.dynamics.joints.RevoluteJointDef;
+
+/**
+ * Allocation regression check, JVM only. Warms up a world of boxes,
+ * circles and jointed chains, kept awake so every step solves, then
+ * steps it and fails if any step allocates more than {@link #STEP_BUDGET}
+ * engine objects. Run with -Dgwtbox2d.profileAllocations=true; exits 0
+ * on a pass, 1 over budget and 2 if the profiler is off.
+ * <BR><BR>
+ * The world is deterministic, so the counts are the same every run. Lower
+ * the budget as hot path allocations are removed. It reaches zero once
+ * contacts are pooled.
+ */
+public class AllocationCheck {
+	static final int BODY_COUNT = 300;
+	static final int COLUMNS = 20;
+	static final int CHAIN_LENGTH = 5;
+	static final int WARMUP_STEPS = 400;
+	static final int STEPS = 300;
+
+	/**
+	 * The most engine allocations allowed in one step of this world. Once
+	 * the pools have grown, only new contacts allocate: a Contact, its
+	 * Manifold and five Vec2s each, and a few contacts appear in a step.
+	 */
+	static final int STEP_BUDGET = 64;
+
+	public static void main(String[] args) {
+		if (!AllocationProfiler.ENABLED) {
+			System.out.println("allocation profiling is off, run with -Dgwtbox2d.profileAllocations=true");
+			System.exit(2);
+		}
+
+		final World world = createWorld();
+		for (int i = 0; i < WARMUP_STEPS; i++) {
+			world.step(1.0f / 60.0f, 10);
+		}
+
+		AllocationProfiler.reset();
+		int worstStep = -1;
+		String worstReport = null;
+		int worstTotal = -1;
+		for (int i = 0; i < STEPS; i++) {
+			world.step(1.0f / 60.0f, 10);
+			if (AllocationProfiler.getStepTotal() > worstTotal) {
+				worstTotal = AllocationProfiler.getStepTotal();
+				worstStep = i;
+				worstReport = AllocationProfiler.report();
+			}
+		}
+
+		final boolean passed = AllocationProfiler.getMaxStepTotal() <= STEP_BUDGET;
+		System.out.println(STEPS + " steps after " + WARMUP_STEPS + " to warm up: at most "
+				+ AllocationProfiler.getMaxStepTotal() + " allocations per step, budget "
+				+ STEP_BUDGET + (passed ? ", passed" : ", FAILED"));
+		if (!passed) {
+			System.out.println("worst step, " + worstStep + " after warm up:");
+			System.out.println(worstReport);
+			System.exit(1);
+		}
+	}
+
+	/** A pile of boxes and circles with short chains, kept awake. */
+	static World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-100, -50), new Vec2(100, 200));
+		World w = new World(worldAABB, new Vec2(0, -10), false);
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(20, 10);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 30, new Vec2(-21, 30), 0);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 30, new Vec2(21, 30), 0);
+		ground.createShape(groundShape);
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.5f, 0.5f);
+		box.density = 1;
+		box.friction = 0.3f;
+		CircleDef circle = new CircleDef();
+		circle.radius = 0.5f;
+		circle.density = 1;
+		circle.friction = 0.3f;
+		BodyDef bd = new BodyDef();
+		RevoluteJointDef rjd = new RevoluteJointDef();
+		Body previous = null;
+		for (int i = 0; i < BODY_COUNT; i++) {
+			final int column = i % COLUMNS;
+			bd.position.set(column * 1.2f - COLUMNS * 0.6f + 0.6f, 1 + (i / COLUMNS) * 1.2f);
+			Body b = w.createBody(bd);
+			if ((i & 1) == 0) {
+				b.createShape(box);
+			} else {
+				b.createShape(circle);
+			}
+			b.setMassFromShapes();
+
+			if (column > 0 && column < CHAIN_LENGTH) {
+				rjd.initialize(previous, b, new Vec2(bd.position.x - 0.6f, bd.position.y));
+				w.createJoint(rjd);
+			}
+			previous = b;
+		}
+		return w;
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.contacts.client;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.StepProfile;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Steps a pile of boxes that is kept awake, so every frame runs the contact
+ * solver over a few thousand points, and reports the average step and solve
+ * times. The contact solver keeps its per point data in FloatArrays, typed
+ * arrays in browsers that have them, so load this page in each browser to
+ * compare. main() runs the same frames without a browser.
+ */
+public class ContactBench implements EntryPoint {
+	static final int BOX_COUNT = 1000;
+	static final int COLUMNS = 40;
+	static final int FRAMES = 600;
+	static final int REPORT_FRAMES = 60;
+
+	World world;
+	final StepProfile profile = new StepProfile();
+	Element stats;
+
+	int frame;
+
+	@Override
+	public void onModuleLoad() {
+		stats = RootPanel.get("stats").getElement();
+		world = createWorld();
+		world.setStepProfile(profile);
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!frame()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	public static void main(String[] args) {
+		ContactBench bench = new ContactBench();
+		bench.world = createWorld();
+		bench.world.setStepProfile(bench.profile);
+		while (bench.frame()) {
+		}
+	}
+
+	static World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-100, -50), new Vec2(100, 200));
+		// no sleeping, so the pile is solved every step
+		World w = new World(worldAABB, new Vec2(0, -10), false);
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(30, 10);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(-31, 40), 0);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(31, 40), 0);
+		ground.createShape(groundShape);
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.5f, 0.5f);
+		box.density = 1;
+		box.friction = 0.3f;
+		BodyDef bd = new BodyDef();
+		for (int i = 0; i < BOX_COUNT; i++) {
+			bd.position.set((i % COLUMNS) * 1.2f - COLUMNS * 0.6f + 0.6f, 1 + (i / COLUMNS) * 1.2f);
+			Body b = w.createBody(bd);
+			b.createShape(box);
+			b.setMassFromShapes();
+		}
+		return w;
+	}
+
+	boolean frame() {
+		world.step(1.0f / 60.0f, 10);
+		frame++;
+
+		if (frame % REPORT_FRAMES == 0) {
+			report("frame " + frame + ": step " + format(profile.getAverage(StepProfile.e_step))
+					+ " ms, solve " + format(profile.getAverage(StepProfile.e_solve)) + " ms, "
+					+ profile.getContactCount() + " contacts");
+			profile.reset();
+		}
+		return frame < FRAMES;
+	}
+
+	void report(String line) {
+		if (stats != null) {
+			stats.setInnerHTML(line);
+		} else {
+			System.out.println(line);
+		}
+	}
+
+	static String format(double ms) {
+		return "" + Math.round(ms * 100) / 100.0;
+	}
+}
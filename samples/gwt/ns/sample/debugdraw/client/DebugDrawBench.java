@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.debugdraw.client;
+
+import gwt.ns.graphics.canvas.client.Canvas;
+import gwt.ns.graphics.canvas.client.CanvasContext2d;
+import gwt.ns.gwtbox2d.canvas.client.CanvasDebugDraw;
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.OBBViewportTransform;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.DebugDraw;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Steps and debug draws a world of 2000 shapes, reporting the average
+ * time spent in World.drawDebugData() (including the canvas flush). The
+ * first half of the run shows the whole pile, the second half zooms in
+ * so most shapes are culled.
+ */
+public class DebugDrawBench implements EntryPoint {
+	static final int SHAPE_COUNT = 2000;
+	static final int WIDTH = 800;
+	static final int HEIGHT = 600;
+	static final int FRAMES = 600;
+	static final int REPORT_FRAMES = 60;
+
+	World world;
+	CanvasContext2d context;
+	CanvasDebugDraw debugDraw;
+	OBBViewportTransform viewport;
+	Element stats;
+
+	int frame;
+	double drawTime;
+	double stepTime;
+
+	@Override
+	public void onModuleLoad() {
+		Canvas canvas = new Canvas(WIDTH, HEIGHT);
+		RootPanel.get("canvas").add(canvas);
+		stats = RootPanel.get("stats").getElement();
+		context = canvas.getContext2d();
+
+		world = createWorld();
+
+		viewport = new OBBViewportTransform();
+		viewport.setYFlip(true);
+		viewport.setExtents(WIDTH / 2, HEIGHT / 2);
+		viewport.setCamera(0, 20, 12);
+
+		debugDraw = new CanvasDebugDraw(context, viewport);
+		debugDraw.setFlags(DebugDraw.e_shapeBit | DebugDraw.e_jointBit);
+		world.setDebugDraw(debugDraw);
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!frame()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-200, -100), new Vec2(200, 300));
+		World w = new World(worldAABB, new Vec2(0, -10), true);
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(60, 10);
+		ground.createShape(groundShape);
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.4f, 0.4f);
+		box.density = 1;
+		box.friction = 0.3f;
+		CircleDef circle = new CircleDef();
+		circle.radius = 0.4f;
+		circle.density = 1;
+
+		BodyDef bd = new BodyDef();
+		for (int i = 0; i < SHAPE_COUNT; i++) {
+			bd.position.set((i % 50) * 1.0f - 25, 1 + (i / 50) * 1.0f);
+			Body b = w.createBody(bd);
+			b.createShape((i & 1) == 0 ? box : circle);
+			b.setMassFromShapes();
+		}
+		return w;
+	}
+
+	boolean frame() {
+		double start = System.currentTimeMillis();
+		world.step(1.0f / 60.0f, 10);
+		double drawStart = System.currentTimeMillis();
+		context.clearRect(0, 0, WIDTH, HEIGHT);
+		world.drawDebugData();
+		double end = System.currentTimeMillis();
+
+		stepTime += drawStart - start;
+		drawTime += end - drawStart;
+		frame++;
+
+		if (frame % REPORT_FRAMES == 0) {
+			stats.setInnerHTML("frame " + frame + ": step " + format(stepTime / REPORT_FRAMES)
+					+ " ms, draw " + format(drawTime / REPORT_FRAMES) + " ms, "
+					+ debugDraw.getBatchCount() + " batches, "
+					+ debugDraw.getStateChangeCount() + " style changes");
+			stepTime = 0;
+			drawTime = 0;
+		}
+
+		if (frame == FRAMES / 2) {
+			// zoom in, most of the pile is now off screen
+			viewport.setCamera(0, 5, 60);
+		}
+		return frame < FRAMES;
+	}
+
+	static String format(double ms) {
+		return "" + Math.round(ms * 100) / 100.0;
+	}
+}
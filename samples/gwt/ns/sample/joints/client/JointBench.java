@@ -0,0 +1,244 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.joints.client;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+import gwt.ns.gwtbox2d.client.dynamics.joints.ConstantVolumeJointDef;
+import gwt.ns.gwtbox2d.client.dynamics.joints.PrismaticJointDef;
+import gwt.ns.gwtbox2d.client.dynamics.joints.PulleyJointDef;
+import gwt.ns.gwtbox2d.client.dynamics.joints.RevoluteJointDef;
+import gwt.ns.gwtbox2d.client.util.blob.BlobMaker;
+import gwt.ns.gwtbox2d.client.util.blob.CircularBlobContainer;
+import gwt.ns.gwtbox2d.client.util.blob.SquareLatticeStructure;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Steps a joint-heavy world and reports the average step time: ragdolls
+ * held together by limited revolute joints, soft blobs of distance joints
+ * from util.blob, constant volume rings, pulleys and motorized prismatic
+ * elevators. main() runs the same frames without a browser.
+ */
+public class JointBench implements EntryPoint {
+	static final int RAGDOLL_COUNT = 30;
+	static final int BLOB_COUNT = 2;
+	static final int RING_COUNT = 4;
+	static final int RING_SIZE = 16;
+	static final int PULLEY_COUNT = 10;
+	static final int ELEVATOR_COUNT = 10;
+	static final int FRAMES = 600;
+	static final int REPORT_FRAMES = 60;
+
+	World world;
+	Element stats;
+
+	int frame;
+	double stepTime;
+
+	@Override
+	public void onModuleLoad() {
+		stats = RootPanel.get("stats").getElement();
+		world = createWorld();
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!frame()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	public static void main(String[] args) {
+		JointBench bench = new JointBench();
+		bench.world = createWorld();
+		while (bench.frame()) {
+		}
+	}
+
+	static World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-200, -100), new Vec2(200, 300));
+		World w = new World(worldAABB, new Vec2(0, -10), true);
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(60, 10);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(-61, 40), 0);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(61, 40), 0);
+		ground.createShape(groundShape);
+
+		for (int i = 0; i < RAGDOLL_COUNT; i++) {
+			createRagdoll(w, (i % 10) * 5.0f - 22.5f, 8 + (i / 10) * 7.0f);
+		}
+
+		BlobMaker.pointRadius = 0.3f;
+		for (int i = 0; i < BLOB_COUNT; i++) {
+			BlobMaker.createBlob(new SquareLatticeStructure(),
+					new CircularBlobContainer(new Vec2(i * 14.0f - 7, 36), 4.0f), w);
+		}
+
+		CircleDef circle = new CircleDef();
+		circle.radius = 0.3f;
+		circle.density = 1;
+		circle.friction = 0.3f;
+		BodyDef bd = new BodyDef();
+		for (int i = 0; i < RING_COUNT; i++) {
+			ConstantVolumeJointDef cvjd = new ConstantVolumeJointDef();
+			cvjd.frequencyHz = 10;
+			cvjd.dampingRatio = 1;
+			for (int j = 0; j < RING_SIZE; j++) {
+				float angle = j * 2 * (float) Math.PI / RING_SIZE;
+				bd.position.set(i * 10.0f - 15 + 2.5f * (float) Math.cos(angle),
+						48 + 2.5f * (float) Math.sin(angle));
+				Body b = w.createBody(bd);
+				b.createShape(circle);
+				b.setMassFromShapes();
+				cvjd.addBody(b);
+			}
+			w.createJoint(cvjd);
+		}
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.5f, 0.5f);
+		box.density = 1;
+		box.friction = 0.3f;
+		for (int i = 0; i < PULLEY_COUNT; i++) {
+			float x = i * 10.0f - 45;
+			bd.position.set(x - 1.5f, 30);
+			Body b1 = w.createBody(bd);
+			b1.createShape(box);
+			b1.setMassFromShapes();
+			bd.position.set(x + 1.5f, 30);
+			Body b2 = w.createBody(bd);
+			b2.createShape(box);
+			b2.setMassFromShapes();
+			PulleyJointDef pjd = new PulleyJointDef();
+			pjd.initialize(b1, b2, new Vec2(x - 1.5f, 36), new Vec2(x + 1.5f, 36),
+					new Vec2(x - 1.5f, 30.5f), new Vec2(x + 1.5f, 30.5f), 1.5f);
+			w.createJoint(pjd);
+		}
+
+		for (int i = 0; i < ELEVATOR_COUNT; i++) {
+			bd.position.set(i * 10.0f - 40, 2);
+			Body b = w.createBody(bd);
+			b.createShape(box);
+			b.setMassFromShapes();
+			PrismaticJointDef pjd = new PrismaticJointDef();
+			pjd.initialize(ground, b, bd.position, new Vec2(0, 1));
+			pjd.enableLimit = true;
+			pjd.lowerTranslation = -1;
+			pjd.upperTranslation = 6;
+			pjd.enableMotor = true;
+			pjd.maxMotorForce = 200;
+			pjd.motorSpeed = (i & 1) == 0 ? 2 : -2;
+			w.createJoint(pjd);
+		}
+		return w;
+	}
+
+	static void createRagdoll(World w, float x, float y) {
+		PolygonDef box = new PolygonDef();
+		box.density = 1;
+		box.friction = 0.4f;
+		BodyDef bd = new BodyDef();
+
+		box.setAsBox(0.4f, 0.7f);
+		bd.position.set(x, y);
+		Body torso = w.createBody(bd);
+		torso.createShape(box);
+		torso.setMassFromShapes();
+
+		CircleDef head = new CircleDef();
+		head.radius = 0.35f;
+		head.density = 1;
+		head.friction = 0.4f;
+		bd.position.set(x, y + 1.1f);
+		Body b = w.createBody(bd);
+		b.createShape(head);
+		b.setMassFromShapes();
+		limb(w, torso, b, x, y + 0.75f, -0.6f, 0.6f);
+
+		box.setAsBox(0.15f, 0.4f);
+		for (int side = -1; side <= 1; side += 2) {
+			Body upperArm = limb(w, torso, box, x + side * 0.6f, y + 0.3f, x + side * 0.55f, y + 0.7f);
+			limb(w, upperArm, box, x + side * 0.6f, y - 0.5f, x + side * 0.6f, y - 0.1f);
+			Body thigh = limb(w, torso, box, x + side * 0.2f, y - 1.1f, x + side * 0.2f, y - 0.7f);
+			limb(w, thigh, box, x + side * 0.2f, y - 1.9f, x + side * 0.2f, y - 1.5f);
+		}
+	}
+
+	/** Create a limb centered at (x, y) hinged to its parent at (ax, ay). */
+	static Body limb(World w, Body parent, PolygonDef shape, float x, float y, float ax, float ay) {
+		BodyDef bd = new BodyDef();
+		bd.position.set(x, y);
+		Body b = w.createBody(bd);
+		b.createShape(shape);
+		b.setMassFromShapes();
+		limb(w, parent, b, ax, ay, -1.2f, 1.2f);
+		return b;
+	}
+
+	static void limb(World w, Body parent, Body child, float ax, float ay, float lower, float upper) {
+		RevoluteJointDef rjd = new RevoluteJointDef();
+		rjd.initialize(parent, child, new Vec2(ax, ay));
+		rjd.enableLimit = true;
+		rjd.lowerAngle = lower;
+		rjd.upperAngle = upper;
+		w.createJoint(rjd);
+	}
+
+	boolean frame() {
+		double start = System.currentTimeMillis();
+		world.step(1.0f / 60.0f, 10);
+		stepTime += System.currentTimeMillis() - start;
+		frame++;
+
+		if (frame % REPORT_FRAMES == 0) {
+			report("frame " + frame + ": step " + format(stepTime / REPORT_FRAMES) + " ms, "
+					+ world.getBodyCount() + " bodies, " + world.getJointCount() + " joints, "
+					+ world.getIslandCount() + " islands");
+			stepTime = 0;
+		}
+		return frame < FRAMES;
+	}
+
+	void report(String line) {
+		if (stats != null) {
+			stats.setInnerHTML(line);
+		} else {
+			System.out.println(line);
+		}
+	}
+
+	static String format(double ms) {
+		return "" + Math.round(ms * 100) / 100.0;
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.pools.client;
+
+import gwt.ns.gwtbox2d.client.pooling.arrays.IntegerArray;
+
+import java.util.HashMap;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Times DynamicTLArray lookups, the array pools BroadPhase and the poly
+ * contacts use, against the HashMap&lt;Integer, I[]&gt; lookup they
+ * replaced, and a take/recycle round trip against allocating. Lengths
+ * cycle through a few values, as proxy counts do. Each round runs every
+ * loop once; the first rounds are warm up and the last is reported.
+ * main() runs the same rounds without a browser.
+ */
+public class PoolBench implements EntryPoint {
+	static final int OPS = 2000000;
+	static final int ROUNDS = 5;
+	static final int[] LENGTHS = {16, 40, 100, 250, 1000, 64, 7, 500};
+
+	final IntegerArray pool = new IntegerArray();
+	final MapPool mapPool = new MapPool();
+	Element stats;
+
+	int round;
+
+	// keep the loops from being optimized away
+	int sink;
+	Integer[] held;
+
+	/** The old DynamicTLArray lookup: boxed keys, up to four map calls. */
+	static final class MapPool {
+		final HashMap<Integer, Integer[]> map = new HashMap<Integer, Integer[]>();
+
+		Integer[] get(final int argLength) {
+			if (!map.containsKey(argLength)) {
+				map.put(argLength, new Integer[argLength]);
+			}
+			assert(map.get(argLength).length == argLength);
+			return map.get(argLength);
+		}
+	}
+
+	@Override
+	public void onModuleLoad() {
+		stats = RootPanel.get("stats").getElement();
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!round()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	public static void main(String[] args) {
+		PoolBench bench = new PoolBench();
+		while (bench.round()) {
+		}
+	}
+
+	boolean round() {
+		round++;
+
+		double start = System.currentTimeMillis();
+		for (int i = 0; i < OPS; i++) {
+			sink += mapPool.get(LENGTHS[i & 7]).length;
+		}
+		final double mapTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < OPS; i++) {
+			sink += pool.get(LENGTHS[i & 7]).length;
+		}
+		final double getTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < OPS; i++) {
+			final Integer[] array = pool.take(LENGTHS[i & 7]);
+			sink += array.length;
+			pool.recycle(array);
+		}
+		final double takeTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < OPS; i++) {
+			held = new Integer[LENGTHS[i & 7]];
+			sink += held.length;
+		}
+		final double newTime = System.currentTimeMillis() - start;
+
+		report("round " + round + " of " + ROUNDS + ", ns per call: HashMap get " + format(mapTime)
+				+ ", DynamicTLArray get " + format(getTime) + ", take+recycle " + format(takeTime)
+				+ ", new array " + format(newTime) + "; pool allocations "
+				+ pool.getAllocationCount() + ", hits " + pool.getHitCount());
+		return round < ROUNDS;
+	}
+
+	void report(String line) {
+		if (stats != null) {
+			stats.setInnerHTML(line);
+		} else {
+			System.out.println(line);
+		}
+	}
+
+	/** Format the time of a loop in ns per call. */
+	static String format(double ms) {
+		return "" + Math.round(ms * 1000000 / OPS * 100) / 100.0;
+	}
+}
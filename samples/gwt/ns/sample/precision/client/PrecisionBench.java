@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.precision.client;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.FloatArray;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.BodyStateExport;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Frame time for the float and double builds. PrecisionBench.gwt.xml
+ * compiles this with the default gwtbox2d.precision of float, and
+ * PrecisionBenchDouble.gwt.xml with double; load both pages in the same
+ * browser to compare. The precision setting decides what the FloatArrays
+ * store: the contact solver's per point data, the warm start cache and the
+ * body state export, which this fills every step as a renderer would.
+ * <BR><BR>
+ * main() gives the JVM throughput, which is always the float build: a
+ * double precision JVM build is out of scope.
+ */
+public class PrecisionBench implements EntryPoint {
+	static final int BODY_COUNT = 500;
+	static final int COLUMNS = 20;
+	static final int FRAMES = 600;
+	static final int REPORT_FRAMES = 60;
+
+	World world;
+	Element stats;
+	String precision;
+
+	int frame;
+	double stepTime;
+	double totalTime;
+
+	@Override
+	public void onModuleLoad() {
+		stats = RootPanel.get("stats").getElement();
+		world = createWorld();
+		precision = storedPrecision();
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!frame()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	public static void main(String[] args) {
+		PrecisionBench bench = new PrecisionBench();
+		bench.world = createWorld();
+		bench.precision = storedPrecision();
+		while (bench.frame()) {
+		}
+	}
+
+	/**
+	 * Find what FloatArrays keep: 0.1 only survives a round trip in double
+	 * storage. Float storage, and the JVM, give back 0.1f.
+	 */
+	static String storedPrecision() {
+		final FloatArray probe = FloatArray.create(1);
+		probe.set(0, 0.1f);
+		return (double) probe.get(0) == 0.1 ? "double" : "float";
+	}
+
+	/** A pile of boxes and circles, kept awake. */
+	static World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-100, -50), new Vec2(100, 200));
+		World w = new World(worldAABB, new Vec2(0, -10), false);
+		w.setBodyStateExport(new BodyStateExport());
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(20, 10);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(-21, 40), 0);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(21, 40), 0);
+		ground.createShape(groundShape);
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.5f, 0.5f);
+		box.density = 1;
+		box.friction = 0.3f;
+		CircleDef circle = new CircleDef();
+		circle.radius = 0.5f;
+		circle.density = 1;
+		circle.friction = 0.3f;
+		BodyDef bd = new BodyDef();
+		for (int i = 0; i < BODY_COUNT; i++) {
+			bd.position.set((i % COLUMNS) * 1.2f - COLUMNS * 0.6f + 0.6f, 1 + (i / COLUMNS) * 1.2f);
+			Body b = w.createBody(bd);
+			if ((i & 1) == 0) {
+				b.createShape(box);
+			} else {
+				b.createShape(circle);
+			}
+			b.setMassFromShapes();
+		}
+		return w;
+	}
+
+	boolean frame() {
+		double start = System.currentTimeMillis();
+		world.step(1.0f / 60.0f, 10);
+		final double elapsed = System.currentTimeMillis() - start;
+		stepTime += elapsed;
+		totalTime += elapsed;
+		frame++;
+
+		if (frame % REPORT_FRAMES == 0) {
+			report(precision + " storage, frame " + frame + ": step " + format(stepTime / REPORT_FRAMES)
+					+ " ms, " + format(frame * 1000 / totalTime) + " steps/s overall, "
+					+ world.getBodyCount() + " bodies, " + world.getContactCount() + " contacts");
+			stepTime = 0;
+		}
+		return frame < FRAMES;
+	}
+
+	void report(String line) {
+		if (stats != null) {
+			stats.setInnerHTML(line);
+		} else {
+			System.out.println(line);
+		}
+	}
+
+	static String format(double ms) {
+		return "" + Math.round(ms * 100) / 100.0;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.replication.client;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.ReplicationDecoder;
+import gwt.ns.gwtbox2d.client.dynamics.ReplicationEncoder;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Steps a world of 2000 bodies falling into a pile and replicates it to
+ * a simulated receiver whose acknowledgements arrive a few frames late.
+ * Reports the average frame size (and the bandwidth at 60 frames a
+ * second) next to the size of a full frame, and the time spent stepping,
+ * encoding and decoding.
+ */
+public class ReplicationBench implements EntryPoint {
+	static final int BODY_COUNT = 2000;
+	static final int FRAMES = 600;
+	static final int REPORT_FRAMES = 60;
+	/** Frames between a frame being sent and its acknowledgement arriving. */
+	static final int ACK_LATENCY = 6;
+
+	World world;
+	ReplicationEncoder encoder;
+	ReplicationDecoder decoder;
+	final int[] acks = new int[ACK_LATENCY];
+	Element stats;
+
+	int frame;
+	int fullFrameBytes;
+	int bytes;
+	int entries;
+	double stepTime;
+	double encodeTime;
+	double decodeTime;
+
+	@Override
+	public void onModuleLoad() {
+		stats = RootPanel.get("stats").getElement();
+
+		world = createWorld();
+		encoder = new ReplicationEncoder();
+		decoder = new ReplicationDecoder();
+		for (Body b = world.getBodyList(); b != null; b = b.getNext()) {
+			if (!b.isStatic()) {
+				encoder.add(b);
+			}
+		}
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!frame()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-200, -100), new Vec2(200, 300));
+		World w = new World(worldAABB, new Vec2(0, -10), true);
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(60, 10);
+		ground.createShape(groundShape);
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.4f, 0.4f);
+		box.density = 1;
+		box.friction = 0.3f;
+		CircleDef circle = new CircleDef();
+		circle.radius = 0.4f;
+		circle.density = 1;
+
+		BodyDef bd = new BodyDef();
+		for (int i = 0; i < BODY_COUNT; i++) {
+			bd.position.set((i % 50) * 1.0f - 25, 1 + (i / 50) * 1.0f);
+			Body b = w.createBody(bd);
+			b.createShape((i & 1) == 0 ? box : circle);
+			b.setMassFromShapes();
+		}
+		return w;
+	}
+
+	boolean frame() {
+		double start = System.currentTimeMillis();
+		world.step(1.0f / 60.0f, 10);
+		double encodeStart = System.currentTimeMillis();
+		final int seq = encoder.encode();
+		final String message = encoder.toMessage();
+		double decodeStart = System.currentTimeMillis();
+		decoder.decode(message);
+		double end = System.currentTimeMillis();
+
+		// the acknowledgement of this frame arrives ACK_LATENCY frames later
+		final int slot = frame % ACK_LATENCY;
+		if (frame >= ACK_LATENCY) {
+			encoder.acknowledge(acks[slot]);
+		}
+		acks[slot] = decoder.getSequence();
+
+		if (seq == 0) {
+			fullFrameBytes = encoder.getLength();
+		}
+		stepTime += encodeStart - start;
+		encodeTime += decodeStart - encodeStart;
+		decodeTime += end - decodeStart;
+		bytes += encoder.getLength();
+		entries += encoder.getEntryCount();
+		frame++;
+
+		if (frame % REPORT_FRAMES == 0) {
+			stats.setInnerHTML("frame " + frame + ": " + bytes / REPORT_FRAMES
+					+ " bytes/frame (full frame " + fullFrameBytes + "), "
+					+ format(bytes * 60.0 * 8 / 1000 / REPORT_FRAMES) + " kbit/s, "
+					+ entries / REPORT_FRAMES + " bodies/frame, step "
+					+ format(stepTime / REPORT_FRAMES) + " ms, encode "
+					+ format(encodeTime / REPORT_FRAMES) + " ms, decode "
+					+ format(decodeTime / REPORT_FRAMES) + " ms");
+			bytes = 0;
+			entries = 0;
+			stepTime = 0;
+			encodeTime = 0;
+			decodeTime = 0;
+		}
+		return frame < FRAMES;
+	}
+
+	static String format(double ms) {
+		return "" + Math.round(ms * 100) / 100.0;
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.snapshot.client;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
+import gwt.ns.gwtbox2d.client.dynamics.joints.RevoluteJointDef;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Saves and restores a 1000 body world several times a frame, as rollback
+ * networking does, and reports the average time of each and the snapshot
+ * size. Every report it also rolls back: saves, steps, restores and steps
+ * again, and checks the two runs end in the same state. main() runs the
+ * same frames without a browser.
+ */
+public class SnapshotBench implements EntryPoint {
+	static final int BODY_COUNT = 1000;
+	static final int COLUMNS = 40;
+	static final int CHAIN_LENGTH = 10;
+	static final int SNAPSHOTS_PER_FRAME = 4;
+	static final int ROLLBACK_STEPS = 8;
+	static final int FRAMES = 600;
+	static final int REPORT_FRAMES = 60;
+
+	World world;
+	final WorldSnapshot snapshot = new WorldSnapshot();
+	Element stats;
+
+	int frame;
+	double saveTime;
+	double restoreTime;
+	boolean identical = true;
+
+	@Override
+	public void onModuleLoad() {
+		stats = RootPanel.get("stats").getElement();
+		world = createWorld();
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!frame()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	public static void main(String[] args) {
+		SnapshotBench bench = new SnapshotBench();
+		bench.world = createWorld();
+		while (bench.frame()) {
+		}
+		if (!bench.identical) {
+			throw new IllegalStateException("rollback diverged");
+		}
+	}
+
+	/** A pile of boxes and circles, with some of them chained together. */
+	static World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-100, -50), new Vec2(100, 200));
+		World w = new World(worldAABB, new Vec2(0, -10), true);
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(30, 10);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(-31, 40), 0);
+		ground.createShape(groundShape);
+		groundShape.setAsBox(1, 40, new Vec2(31, 40), 0);
+		ground.createShape(groundShape);
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.5f, 0.5f);
+		box.density = 1;
+		box.friction = 0.3f;
+		CircleDef circle = new CircleDef();
+		circle.radius = 0.5f;
+		circle.density = 1;
+		circle.friction = 0.3f;
+		BodyDef bd = new BodyDef();
+		RevoluteJointDef rjd = new RevoluteJointDef();
+		Body previous = null;
+		for (int i = 0; i < BODY_COUNT; i++) {
+			final int column = i % COLUMNS;
+			bd.position.set(column * 1.2f - COLUMNS * 0.6f + 0.6f, 1 + (i / COLUMNS) * 1.2f);
+			Body b = w.createBody(bd);
+			if ((i & 1) == 0) {
+				b.createShape(box);
+			} else {
+				b.createShape(circle);
+			}
+			b.setMassFromShapes();
+
+			// chain the first few bodies of each row
+			if (column > 0 && column < CHAIN_LENGTH) {
+				rjd.initialize(previous, b, new Vec2(bd.position.x - 0.6f, bd.position.y));
+				w.createJoint(rjd);
+			}
+			previous = b;
+		}
+		return w;
+	}
+
+	boolean frame() {
+		world.step(1.0f / 60.0f, 10);
+
+		for (int i = 0; i < SNAPSHOTS_PER_FRAME; i++) {
+			double start = System.currentTimeMillis();
+			world.saveState(snapshot);
+			saveTime += System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			world.restoreState(snapshot);
+			restoreTime += System.currentTimeMillis() - start;
+		}
+		frame++;
+
+		if (frame % REPORT_FRAMES == 0) {
+			final boolean rollbackOkay = rollback();
+			identical = identical && rollbackOkay;
+			final int count = REPORT_FRAMES * SNAPSHOTS_PER_FRAME;
+			report("frame " + frame + ": save " + format(saveTime / count) + " ms, restore "
+					+ format(restoreTime / count) + " ms, " + snapshot.getByteCount() + " bytes, "
+					+ world.getBodyCount() + " bodies, rollback "
+					+ (rollbackOkay ? "identical" : "DIVERGED"));
+			saveTime = 0;
+			restoreTime = 0;
+		}
+		return frame < FRAMES;
+	}
+
+	/**
+	 * Step ahead, roll back and step again, and check both runs end in the
+	 * same state.
+	 */
+	boolean rollback() {
+		world.saveState(snapshot);
+		for (int i = 0; i < ROLLBACK_STEPS; i++) {
+			world.step(1.0f / 60.0f, 10);
+		}
+		final int ahead = world.stateHash();
+
+		world.restoreState(snapshot);
+		for (int i = 0; i < ROLLBACK_STEPS; i++) {
+			world.step(1.0f / 60.0f, 10);
+		}
+		return world.stateHash() == ahead;
+	}
+
+	void report(String line) {
+		if (stats != null) {
+			stats.setInnerHTML(line);
+		} else {
+			System.out.println(line);
+		}
+	}
+
+	static String format(double ms) {
+		return "" + Math.round(ms * 100) / 100.0;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package gwt.ns.sample.step.client;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.BodyDef;
+import gwt.ns.gwtbox2d.client.dynamics.World;
+import gwt.ns.gwtbox2d.client.pooling.ArrayStack;
+
+import java.util.Stack;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * World.step throughput for a fixed 1000 body world, and push/pop time for
+ * the pools' ArrayStack against java.util.Stack. The world is the same
+ * every run and the step count is fixed, so building this against two
+ * revisions gives a before and after of any engine change; the hash
+ * printed at the end shows both ran the same simulation. main() runs the
+ * same frames without a browser.
+ */
+public class StepBench implements EntryPoint {
+	static final int BOX_COUNT = 1000;
+	static final int COLUMNS = 20;
+	static final int WARMUP_STEPS = 200;
+	static final int STEPS = 600;
+	static final int REPORT_STEPS = 60;
+	static final int STACK_OPS = 4000000;
+	static final int STACK_DEPTH = 8;
+
+	World world;
+	Element stats;
+	String results = "";
+
+	int frame;
+	double stepTime;
+	double totalTime;
+
+	@Override
+	public void onModuleLoad() {
+		stats = RootPanel.get("stats").getElement();
+		world = createWorld();
+
+		new Timer() {
+			@Override
+			public void run() {
+				if (!frame()) {
+					cancel();
+				}
+			}
+		}.scheduleRepeating(1);
+	}
+
+	public static void main(String[] args) {
+		StepBench bench = new StepBench();
+		bench.world = createWorld();
+		while (bench.frame()) {
+		}
+	}
+
+	static World createWorld() {
+		AABB worldAABB = new AABB(new Vec2(-100, -50), new Vec2(100, 200));
+		World w = new World(worldAABB, new Vec2(0, -10), true);
+
+		BodyDef groundDef = new BodyDef();
+		groundDef.position.set(0, -10);
+		Body ground = w.createBody(groundDef);
+		PolygonDef groundShape = new PolygonDef();
+		groundShape.setAsBox(40, 10);
+		ground.createShape(groundShape);
+
+		PolygonDef box = new PolygonDef();
+		box.setAsBox(0.5f, 0.5f);
+		box.density = 1;
+		box.friction = 0.3f;
+		BodyDef bd = new BodyDef();
+		for (int i = 0; i < BOX_COUNT; i++) {
+			// a staggered stack, so it topples and keeps the solver busy
+			bd.position.set((i % COLUMNS) * 1.5f - COLUMNS * 0.75f + (i / COLUMNS % 2) * 0.5f,
+					1 + (i / COLUMNS) * 1.1f);
+			Body b = w.createBody(bd);
+			b.createShape(box);
+			b.setMassFromShapes();
+		}
+		return w;
+	}
+
+	boolean frame() {
+		double start = System.currentTimeMillis();
+		world.step(1.0f / 60.0f, 10);
+		final double elapsed = System.currentTimeMillis() - start;
+		frame++;
+
+		if (frame < WARMUP_STEPS) {
+			if (stats != null) {
+				stats.setInnerHTML("warming up, step " + frame);
+			}
+			return true;
+		}
+		if (frame == WARMUP_STEPS) {
+			report(stackResults());
+			return true;
+		}
+
+		stepTime += elapsed;
+		totalTime += elapsed;
+		final int steps = frame - WARMUP_STEPS;
+		if (steps % REPORT_STEPS == 0) {
+			report("step " + steps + ": " + format(stepTime / REPORT_STEPS) + " ms per step");
+			stepTime = 0;
+		}
+		if (steps == STEPS) {
+			report(STEPS + " steps: " + format(totalTime / STEPS) + " ms per step, "
+					+ format(STEPS * 1000 / totalTime) + " steps/s, hash " + world.stateHash());
+			return false;
+		}
+		return true;
+	}
+
+	/** Push and pop through a few levels, as the pools do in a step. */
+	static String stackResults() {
+		final Object item = new Object();
+		final Stack<Object> stack = new Stack<Object>();
+		final ArrayStack<Object> arrayStack = new ArrayStack<Object>();
+
+		// run each twice to warm up, then time the third run
+		double stackTime = 0;
+		double arrayStackTime = 0;
+		for (int run = 0; run < 3; run++) {
+			double start = System.currentTimeMillis();
+			for (int i = 0; i < STACK_OPS; i += STACK_DEPTH) {
+				for (int j = 0; j < STACK_DEPTH; j++) {
+					stack.push(item);
+				}
+				for (int j = 0; j < STACK_DEPTH; j++) {
+					stack.pop();
+				}
+			}
+			stackTime = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			for (int i = 0; i < STACK_OPS; i += STACK_DEPTH) {
+				for (int j = 0; j < STACK_DEPTH; j++) {
+					arrayStack.push(item);
+				}
+				for (int j = 0; j < STACK_DEPTH; j++) {
+					arrayStack.pop();
+				}
+			}
+			arrayStackTime = System.currentTimeMillis() - start;
+		}
+		return "push/pop: java.util.Stack " + format(stackTime * 1000000 / STACK_OPS)
+				+ " ns, ArrayStack " + format(arrayStackTime * 1000000 / STACK_OPS) + " ns";
+	}
+
+	/** Keep the stack results on the page, above the latest step times. */
+	void report(String line) {
+		if (stats != null) {
+			if (results.length() == 0) {
+				results = line + "<br>";
+				stats.setInnerHTML(line);
+			} else {
+				stats.setInnerHTML(results + line);
+			}
+		} else {
+			System.out.println(line);
+		}
+	}
+
+	static String format(double ms) {
+		return "" + Math.round(ms * 100) / 100.0;
+	}
+}
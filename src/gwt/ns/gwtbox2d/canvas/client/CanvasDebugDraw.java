@@ -0,0 +1,394 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gwt.ns.gwtbox2d.canvas.client;
+
+import gwt.ns.graphics.canvas.client.CanvasContext2d;
+import gwt.ns.gwtbox2d.client.common.Color3f;
+import gwt.ns.gwtbox2d.client.common.IViewportTransform;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.common.XForm;
+import gwt.ns.gwtbox2d.client.dynamics.DebugDraw;
+
+/**
+ * Debug draw onto a canvas. Nothing is drawn until {@link #flush()},
+ * which {@link gwt.ns.gwtbox2d.client.dynamics.World#drawDebugData()}
+ * calls when it is done. Primitives are transformed to screen space as
+ * they come in and collected into one path per color, so a frame costs
+ * one fill or stroke per color rather than one per shape, and the
+ * context's styles are only set once per color.
+ * <BR><BR>
+ * Solid shapes are filled at half alpha and outlined. The canvas is not
+ * cleared; do that before {@link gwt.ns.gwtbox2d.client.dynamics.World#drawDebugData()}
+ * if needed.
+ */
+public class CanvasDebugDraw extends DebugDraw {
+	private static final float MOVE = 0.0f;
+	private static final float LINE = 1.0f;
+	private static final float CLOSE = 2.0f;
+	private static final float ARC = 3.0f;
+
+	private static final float TWOPI = (float) (2.0 * Math.PI);
+	private static final float AXIS_SCALE = 0.4f;
+
+	private static final Color3f AXIS_X = new Color3f(255, 0, 0);
+	private static final Color3f AXIS_Y = new Color3f(0, 255, 0);
+
+	/** Path of one color, in screen space. */
+	private static class Batch {
+		final int key;
+		final String style;
+		float[] ops = new float[64];
+		int length;
+
+		String[] text = new String[4];
+		float[] textPos = new float[8];
+		int textCount;
+
+		Batch(final int key) {
+			this.key = key;
+			style = "rgb(" + (key >> 16) + "," + ((key >> 8) & 0xFF) + "," + (key & 0xFF) + ")";
+		}
+
+		void ensure(final int count) {
+			if (length + count > ops.length) {
+				final float[] n = new float[Math.max(ops.length * 2, length + count)];
+				System.arraycopy(ops, 0, n, 0, length);
+				ops = n;
+			}
+		}
+
+		void op(final float op, final float x, final float y) {
+			ensure(3);
+			ops[length++] = op;
+			ops[length++] = x;
+			ops[length++] = y;
+		}
+
+		void close() {
+			ensure(1);
+			ops[length++] = CLOSE;
+		}
+
+		void arc(final float x, final float y, final float radius) {
+			op(MOVE, x + radius, y);
+			ensure(4);
+			ops[length++] = ARC;
+			ops[length++] = x;
+			ops[length++] = y;
+			ops[length++] = radius;
+		}
+
+		void text(final String s, final float x, final float y) {
+			if (textCount == text.length) {
+				final String[] n = new String[textCount * 2];
+				System.arraycopy(text, 0, n, 0, textCount);
+				text = n;
+				final float[] p = new float[textCount * 4];
+				System.arraycopy(textPos, 0, p, 0, textCount * 2);
+				textPos = p;
+			}
+			text[textCount] = s;
+			textPos[textCount * 2] = x;
+			textPos[textCount * 2 + 1] = y;
+			++textCount;
+		}
+
+		boolean isEmpty() {
+			return length == 0 && textCount == 0;
+		}
+
+		void clear() {
+			length = 0;
+			for (int i = 0; i < textCount; ++i) {
+				text[i] = null;
+			}
+			textCount = 0;
+		}
+	}
+
+	private final CanvasContext2d m_context;
+
+	private Batch[] m_fills = new Batch[8];
+	private int m_fillCount;
+	private Batch[] m_strokes = new Batch[8];
+	private int m_strokeCount;
+
+	private float m_fillAlpha = 0.5f;
+	private float m_lineWidth = 1.0f;
+
+	private int m_lastBatches;
+	private int m_lastStateChanges;
+
+	private final Vec2 m_screen = new Vec2();
+	private final Vec2 m_screen2 = new Vec2();
+	private final Vec2 m_temp = new Vec2();
+
+	public CanvasDebugDraw(final CanvasContext2d context, final IViewportTransform viewport) {
+		super(viewport);
+		m_context = context;
+	}
+
+	public CanvasContext2d getContext() {
+		return m_context;
+	}
+
+	/** Set the alpha solid shapes are filled with. Defaults to 0.5. */
+	public void setFillAlpha(final float alpha) {
+		m_fillAlpha = alpha;
+	}
+
+	/** Set the width of outlines, in pixels. Defaults to 1. */
+	public void setLineWidth(final float width) {
+		m_lineWidth = width;
+	}
+
+	/** Get the number of fills and strokes issued by the last flush. */
+	public int getBatchCount() {
+		return m_lastBatches;
+	}
+
+	/** Get the number of context style changes made by the last flush. */
+	public int getStateChangeCount() {
+		return m_lastStateChanges;
+	}
+
+	@Override
+	public void drawPolygon(final Vec2[] vertices, final int vertexCount, final Color3f color) {
+		addPolygon(stroke(color), vertices, vertexCount);
+	}
+
+	@Override
+	public void drawSolidPolygon(final Vec2[] vertices, final int vertexCount, final Color3f color) {
+		addPolygon(fill(color), vertices, vertexCount);
+		addPolygon(stroke(color), vertices, vertexCount);
+	}
+
+	@Override
+	public void drawCircle(final Vec2 center, final float radius, final Color3f color) {
+		viewportTransform.getWorldToScreen(center, m_screen);
+		stroke(color).arc(m_screen.x, m_screen.y, screenLength(radius));
+	}
+
+	@Override
+	public void drawSolidCircle(final Vec2 center, final float radius, final Vec2 axis, final Color3f color) {
+		viewportTransform.getWorldToScreen(center, m_screen);
+		final float r = screenLength(radius);
+		fill(color).arc(m_screen.x, m_screen.y, r);
+
+		final Batch stroke = stroke(color);
+		stroke.arc(m_screen.x, m_screen.y, r);
+		if (axis != null) {
+			m_temp.set(center.x + radius * axis.x, center.y + radius * axis.y);
+			viewportTransform.getWorldToScreen(m_temp, m_screen2);
+			stroke.op(MOVE, m_screen.x, m_screen.y);
+			stroke.op(LINE, m_screen2.x, m_screen2.y);
+		}
+	}
+
+	@Override
+	public void drawPoint(final Vec2 position, final float size, final Color3f color) {
+		viewportTransform.getWorldToScreen(position, m_screen);
+		final float h = size * 0.5f;
+		final Batch b = fill(color);
+		b.op(MOVE, m_screen.x - h, m_screen.y - h);
+		b.op(LINE, m_screen.x + h, m_screen.y - h);
+		b.op(LINE, m_screen.x + h, m_screen.y + h);
+		b.op(LINE, m_screen.x - h, m_screen.y + h);
+		b.close();
+	}
+
+	@Override
+	public void drawSegment(final Vec2 p1, final Vec2 p2, final Color3f color) {
+		viewportTransform.getWorldToScreen(p1, m_screen);
+		viewportTransform.getWorldToScreen(p2, m_screen2);
+		final Batch b = stroke(color);
+		b.op(MOVE, m_screen.x, m_screen.y);
+		b.op(LINE, m_screen2.x, m_screen2.y);
+	}
+
+	@Override
+	public void drawXForm(final XForm xf) {
+		final Vec2 p = xf.position;
+		m_temp.set(p.x + AXIS_SCALE * xf.R.col1.x, p.y + AXIS_SCALE * xf.R.col1.y);
+		drawSegment(p, m_temp, AXIS_X);
+		m_temp.set(p.x + AXIS_SCALE * xf.R.col2.x, p.y + AXIS_SCALE * xf.R.col2.y);
+		drawSegment(p, m_temp, AXIS_Y);
+	}
+
+	/** Text is placed in screen coordinates. */
+	@Override
+	public void drawString(final float x, final float y, final String s, final Color3f color) {
+		fill(color).text(s, x, y);
+	}
+
+	/**
+	 * Draw everything collected since the last flush: the fills at the
+	 * fill alpha, then the outlines and text.
+	 */
+	@Override
+	public void flush() {
+		final CanvasContext2d ctx = m_context;
+		int batches = 0;
+		int changes = 0;
+
+		if (m_fillCount > 0) {
+			ctx.setGlobalAlpha(m_fillAlpha);
+			++changes;
+			for (int i = 0; i < m_fillCount; ++i) {
+				final Batch b = m_fills[i];
+				if (b.length == 0) {
+					continue;
+				}
+				ctx.setFillStyle(b.style);
+				++changes;
+				replay(b);
+				ctx.fill();
+				++batches;
+			}
+			ctx.setGlobalAlpha(1.0);
+			++changes;
+		}
+
+		if (m_strokeCount > 0) {
+			ctx.setLineWidth(m_lineWidth);
+			++changes;
+			for (int i = 0; i < m_strokeCount; ++i) {
+				final Batch b = m_strokes[i];
+				if (b.length == 0) {
+					continue;
+				}
+				ctx.setStrokeStyle(b.style);
+				++changes;
+				replay(b);
+				ctx.stroke();
+				++batches;
+			}
+		}
+
+		for (int i = 0; i < m_fillCount; ++i) {
+			final Batch b = m_fills[i];
+			if (b.textCount == 0) {
+				continue;
+			}
+			ctx.setFillStyle(b.style);
+			++changes;
+			for (int j = 0; j < b.textCount; ++j) {
+				ctx.fillText(b.text[j], b.textPos[j * 2], b.textPos[j * 2 + 1]);
+			}
+			++batches;
+		}
+
+		// keep the batches of colors still in use, and their buffers
+		m_fillCount = retain(m_fills, m_fillCount);
+		m_strokeCount = retain(m_strokes, m_strokeCount);
+
+		m_lastBatches = batches;
+		m_lastStateChanges = changes;
+	}
+
+	private void replay(final Batch b) {
+		final CanvasContext2d ctx = m_context;
+		final float[] ops = b.ops;
+		ctx.beginPath();
+		for (int i = 0; i < b.length;) {
+			final float op = ops[i++];
+			if (op == MOVE) {
+				ctx.moveTo(ops[i], ops[i + 1]);
+				i += 2;
+			} else if (op == LINE) {
+				ctx.lineTo(ops[i], ops[i + 1]);
+				i += 2;
+			} else if (op == CLOSE) {
+				ctx.closePath();
+			} else {
+				ctx.arc(ops[i], ops[i + 1], ops[i + 2], 0.0, TWOPI, false);
+				i += 3;
+			}
+		}
+	}
+
+	/** Drop batches left empty for a frame, clear the others. */
+	private static int retain(final Batch[] batches, final int count) {
+		int n = 0;
+		for (int i = 0; i < count; ++i) {
+			final Batch b = batches[i];
+			if (b.isEmpty() == false) {
+				b.clear();
+				batches[n++] = b;
+			}
+		}
+		for (int i = n; i < count; ++i) {
+			batches[i] = null;
+		}
+		return n;
+	}
+
+	private void addPolygon(final Batch b, final Vec2[] vertices, final int vertexCount) {
+		for (int i = 0; i < vertexCount; ++i) {
+			viewportTransform.getWorldToScreen(vertices[i], m_screen);
+			b.op(i == 0 ? MOVE : LINE, m_screen.x, m_screen.y);
+		}
+		b.close();
+	}
+
+	private float screenLength(final float length) {
+		m_temp.set(length, 0.0f);
+		viewportTransform.vectorTransform(m_temp, m_screen2);
+		return m_screen2.length();
+	}
+
+	private Batch fill(final Color3f color) {
+		final int key = colorKey(color);
+		for (int i = 0; i < m_fillCount; ++i) {
+			if (m_fills[i].key == key) {
+				return m_fills[i];
+			}
+		}
+		if (m_fillCount == m_fills.length) {
+			m_fills = grow(m_fills);
+		}
+		return m_fills[m_fillCount++] = new Batch(key);
+	}
+
+	private Batch stroke(final Color3f color) {
+		final int key = colorKey(color);
+		for (int i = 0; i < m_strokeCount; ++i) {
+			if (m_strokes[i].key == key) {
+				return m_strokes[i];
+			}
+		}
+		if (m_strokeCount == m_strokes.length) {
+			m_strokes = grow(m_strokes);
+		}
+		return m_strokes[m_strokeCount++] = new Batch(key);
+	}
+
+	private static Batch[] grow(final Batch[] batches) {
+		final Batch[] n = new Batch[batches.length * 2];
+		System.arraycopy(batches, 0, n, 0, batches.length);
+		return n;
+	}
+
+	private static int colorKey(final Color3f color) {
+		return clamp(color.x) << 16 | clamp(color.y) << 8 | clamp(color.z);
+	}
+
+	private static int clamp(final float c) {
+		final int v = (int) (c + 0.5f);
+		return v < 0 ? 0 : (v > 255 ? 255 : v);
+	}
+}
@@ -89,6 +89,7 @@ public class BroadPhase {
 	int m_queryResults[];
 	float m_querySortKeys[];
 	int m_queryResultCount;
+	private final AABB m_sweptAABB = new AABB();
 
 	public AABB m_worldAABB;
 
@@ -98,6 +99,9 @@ public class BroadPhase {
 
 	int m_timeStamp;
 
+	/** Bumped whenever a proxy is created, destroyed or moved, or the origin shifts. */
+	int m_proxyVersion;
+
 	private static final boolean debugPrint = false;
 
 	public static final boolean s_validate = false;
@@ -218,6 +222,26 @@ public class BroadPhase {
 	// && (p1.categoryBits & p2.maskBits) != 0;
 	// }
 
+	/**
+	 * Get a counter that changes whenever a proxy is created, destroyed or
+	 * moved. Query results cached under one version are still valid while
+	 * it hasn't changed.
+	 */
+	public int getProxyVersion() {
+		return m_proxyVersion;
+	}
+
+	/**
+	 * Move the world bounds by -newOrigin, along with everything in them.
+	 * Bounds are kept quantized relative to the lower corner of the world,
+	 * so the proxies don't need to be touched.
+	 */
+	public void shiftOrigin( final Vec2 newOrigin) {
+		m_worldAABB.lowerBound.subLocal(newOrigin);
+		m_worldAABB.upperBound.subLocal(newOrigin);
+		++m_proxyVersion;
+	}
+
 	public Proxy getProxy( final int proxyId) {
 		if ( proxyId == PairManager.NULL_PROXY || (m_proxyPool[proxyId].isValid() == false)) {
 			return null;
@@ -243,6 +267,7 @@ public class BroadPhase {
 
 		assert (m_proxyCount < Settings.maxProxies);
 		assert (m_freeProxy != PairManager.NULL_PROXY);
+		++m_proxyVersion;
 
 		final int proxyId = m_freeProxy;
 		final Proxy proxy = m_proxyPool[proxyId];
@@ -363,6 +388,7 @@ public class BroadPhase {
 		assert (0 < m_proxyCount && m_proxyCount <= Settings.maxProxies);
 		final Proxy proxy = m_proxyPool[proxyId];
 		assert (proxy.isValid());
+		++m_proxyVersion;
 
 		final int boundCount = 2 * m_proxyCount;
 
@@ -445,6 +471,268 @@ public class BroadPhase {
 		}
 	}
 
+	// scratch for the bulk operations, allocated on first use
+	private int[] m_bulkValues;
+	private int[] m_bulkIds;
+	private boolean[] m_bulkMarks;
+	private int[] m_activeOld;
+	private int[] m_activeNew;
+	private int[] m_activeIndex;
+
+	/**
+	 * Create many proxies at once. The new bounds are sorted and merged
+	 * into the bound arrays in one pass, and new pairs are found with one
+	 * sweep, rather than shifting the arrays and committing per proxy.
+	 * @param aabbs the proxy boxes.
+	 * @param userData user data for each proxy.
+	 * @param count the number of proxies to create.
+	 * @param proxyIds out: the id of each proxy.
+	 */
+	public void createProxies( final AABB[] aabbs, final Object[] userData, final int count, final int[] proxyIds) {
+		if ( BroadPhase.debugPrint) {
+			System.out.println( "CreateProxies()");
+		}
+
+		assert (m_proxyCount + count <= Settings.maxProxies);
+		if ( count == 0) {
+			return;
+		}
+		++m_proxyVersion;
+		initBulk();
+
+		final int oldBoundCount = 2 * m_proxyCount;
+		final int newBoundCount = 2 * count;
+
+		final Integer lowerValues[] = tlLowerValues.get(2);
+		final Integer upperValues[] = tlUpperValues.get(2);
+
+		for ( int axis = 0; axis < 2; ++axis) {
+			for ( int i = 0; i < count; ++i) {
+				if ( axis == 0) {
+					assert (m_freeProxy != PairManager.NULL_PROXY);
+					final int proxyId = m_freeProxy;
+					final Proxy proxy = m_proxyPool[proxyId];
+					m_freeProxy = proxy.getNext();
+					proxy.overlapCount = 0;
+					proxy.userData = userData[i];
+					proxyIds[i] = proxyId;
+					m_bulkMarks[proxyId] = true;
+				}
+
+				computeBounds( lowerValues, upperValues, aabbs[i]);
+				m_bulkValues[2 * i] = lowerValues[axis];
+				m_bulkIds[2 * i] = proxyIds[i];
+				m_bulkValues[2 * i + 1] = upperValues[axis];
+				m_bulkIds[2 * i + 1] = proxyIds[i];
+			}
+			sortBulk( newBoundCount);
+
+			// Merge from the back, so nothing is overwritten before it is moved.
+			final Bound[] bounds = m_bounds[axis];
+			int i = oldBoundCount - 1;
+			int j = newBoundCount - 1;
+			for ( int w = oldBoundCount + newBoundCount - 1; j >= 0; --w) {
+				if ( i >= 0 && bounds[i].value > m_bulkValues[j]) {
+					bounds[w].set( bounds[i]);
+					--i;
+				}
+				else {
+					bounds[w].value = m_bulkValues[j];
+					bounds[w].proxyId = m_bulkIds[j];
+					--j;
+				}
+			}
+			fixBounds( axis, oldBoundCount + newBoundCount);
+		}
+
+		m_proxyCount += count;
+
+		sweepBulk( true);
+
+		for ( int i = 0; i < count; ++i) {
+			m_bulkMarks[proxyIds[i]] = false;
+		}
+
+		m_pairManager.commit();
+
+		if ( BroadPhase.s_validate) {
+			validate();
+		}
+	}
+
+	/**
+	 * Destroy many proxies at once, removing their bounds in one pass.
+	 * @param proxyIds the proxies to destroy.
+	 * @param count the number of proxies.
+	 */
+	public void destroyProxies( final int[] proxyIds, final int count) {
+		if ( BroadPhase.debugPrint) {
+			System.out.println( "DestroyProxies()");
+		}
+
+		assert (count <= m_proxyCount);
+		if ( count == 0) {
+			return;
+		}
+		++m_proxyVersion;
+		initBulk();
+
+		for ( int i = 0; i < count; ++i) {
+			assert (m_proxyPool[proxyIds[i]].isValid());
+			m_bulkMarks[proxyIds[i]] = true;
+		}
+
+		// Report the removed pairs while the bounds are still in place.
+		sweepBulk( false);
+		m_pairManager.commit();
+
+		final int boundCount = 2 * m_proxyCount;
+		for ( int axis = 0; axis < 2; ++axis) {
+			final Bound[] bounds = m_bounds[axis];
+			int w = 0;
+			for ( int i = 0; i < boundCount; ++i) {
+				if ( m_bulkMarks[bounds[i].proxyId] == false) {
+					if ( w != i) {
+						bounds[w].set( bounds[i]);
+					}
+					++w;
+				}
+			}
+			assert (w == boundCount - 2 * count);
+			fixBounds( axis, w);
+		}
+
+		for ( int i = 0; i < count; ++i) {
+			final int proxyId = proxyIds[i];
+			final Proxy proxy = m_proxyPool[proxyId];
+			m_bulkMarks[proxyId] = false;
+
+			proxy.userData = null;
+			proxy.overlapCount = BroadPhase.INVALID;
+			proxy.lowerBounds[0] = BroadPhase.INVALID;
+			proxy.lowerBounds[1] = BroadPhase.INVALID;
+			proxy.upperBounds[0] = BroadPhase.INVALID;
+			proxy.upperBounds[1] = BroadPhase.INVALID;
+
+			proxy.setNext( m_freeProxy);
+			m_freeProxy = proxyId;
+		}
+		m_proxyCount -= count;
+
+		if ( BroadPhase.s_validate) {
+			validate();
+		}
+	}
+
+	private void initBulk() {
+		if ( m_bulkValues == null) {
+			m_bulkValues = new int[2 * Settings.maxProxies];
+			m_bulkIds = new int[2 * Settings.maxProxies];
+			m_bulkMarks = new boolean[Settings.maxProxies];
+			m_activeOld = new int[Settings.maxProxies];
+			m_activeNew = new int[Settings.maxProxies];
+			m_activeIndex = new int[Settings.maxProxies];
+		}
+	}
+
+	/** Shell sort the bulk bounds by value. */
+	private void sortBulk( final int n) {
+		int gap = 1;
+		while ( gap < n / 3) {
+			gap = gap * 3 + 1;
+		}
+		for ( ; gap > 0; gap /= 3) {
+			for ( int i = gap; i < n; ++i) {
+				final int value = m_bulkValues[i];
+				final int id = m_bulkIds[i];
+				int j = i;
+				while ( j >= gap && m_bulkValues[j - gap] > value) {
+					m_bulkValues[j] = m_bulkValues[j - gap];
+					m_bulkIds[j] = m_bulkIds[j - gap];
+					j -= gap;
+				}
+				m_bulkValues[j] = value;
+				m_bulkIds[j] = id;
+			}
+		}
+	}
+
+	/** Recompute stabbing counts and the proxies' bound indices on an axis. */
+	private void fixBounds( final int axis, final int boundCount) {
+		final Bound[] bounds = m_bounds[axis];
+		int stabbingCount = 0;
+		for ( int index = 0; index < boundCount; ++index) {
+			final Bound bound = bounds[index];
+			final Proxy proxy = m_proxyPool[bound.proxyId];
+			if ( bound.isLower()) {
+				proxy.lowerBounds[axis] = index;
+				++stabbingCount;
+			}
+			else {
+				proxy.upperBounds[axis] = index;
+				--stabbingCount;
+			}
+			bound.stabbingCount = stabbingCount;
+		}
+	}
+
+	/**
+	 * Sweep the x axis and buffer every overlapping pair that has a marked
+	 * proxy in it, as added or removed. Unmarked proxies are only tested
+	 * against the marked ones.
+	 */
+	private void sweepBulk( final boolean add) {
+		final Bound[] bounds = m_bounds[0];
+		final int boundCount = 2 * m_proxyCount;
+		int oldCount = 0;
+		int newCount = 0;
+
+		for ( int index = 0; index < boundCount; ++index) {
+			final Bound bound = bounds[index];
+			final int proxyId = bound.proxyId;
+			final boolean marked = m_bulkMarks[proxyId];
+
+			if ( bound.isUpper()) {
+				final int[] active = marked ? m_activeNew : m_activeOld;
+				final int last = active[marked ? --newCount : --oldCount];
+				final int slot = m_activeIndex[proxyId];
+				active[slot] = last;
+				m_activeIndex[last] = slot;
+				continue;
+			}
+
+			final Proxy proxy = m_proxyPool[proxyId];
+			for ( int i = 0; i < newCount; ++i) {
+				bufferBulkPair( proxy, proxyId, m_activeNew[i], add);
+			}
+			if ( marked) {
+				for ( int i = 0; i < oldCount; ++i) {
+					bufferBulkPair( proxy, proxyId, m_activeOld[i], add);
+				}
+				m_activeIndex[proxyId] = newCount;
+				m_activeNew[newCount++] = proxyId;
+			}
+			else {
+				m_activeIndex[proxyId] = oldCount;
+				m_activeOld[oldCount++] = proxyId;
+			}
+		}
+		assert (oldCount == 0 && newCount == 0);
+	}
+
+	private void bufferBulkPair( final Proxy proxy, final int proxyId, final int otherId, final boolean add) {
+		// x overlap is given by the sweep, bound order on y tells the rest
+		final Proxy other = m_proxyPool[otherId];
+		if ( proxy.lowerBounds[1] < other.upperBounds[1] && other.lowerBounds[1] < proxy.upperBounds[1]) {
+			if ( add) {
+				m_pairManager.addBufferedPair( proxyId, otherId);
+			}
+			else {
+				m_pairManager.removeBufferedPair( proxyId, otherId);
+			}
+		}
+	}
+
 	// djm gwt.ns.gwtbox2d.pooling
 	private static final TLBoundValues tlNewValues = new TLBoundValues();
 	private static final TLBoundValues tlOldValues = new TLBoundValues();
@@ -463,6 +751,7 @@ public class BroadPhase {
 		if ( proxyId == PairManager.NULL_PROXY || Settings.maxProxies <= proxyId) { return; }
 
 		assert (aabb.isValid()) : "invalid AABB";
+		++m_proxyVersion;
 
 		final int boundCount = 2 * m_proxyCount;
 
@@ -682,6 +971,143 @@ public class BroadPhase {
 		return copy;// results;
 	}
 
+	/**
+	 * Query an AABB for overlapping proxies, writing their user data into
+	 * the supplied array, up to maxCount. Allocates nothing.
+	 * @return the number of proxies found.
+	 */
+	public int query( final AABB aabb, final Object[] userData, final int maxCount) {
+		final Integer lowerValues[] = tlUpperValues.get(2);
+		final Integer upperValues[] = tlLowerValues.get(2);
+		computeBounds( lowerValues, upperValues, aabb);
+
+		final Integer indexes[] = tlIndexes.get(2);
+		query( indexes, lowerValues[0], upperValues[0], m_bounds[0], 2 * m_proxyCount, 0);
+		query( indexes, lowerValues[1], upperValues[1], m_bounds[1], 2 * m_proxyCount, 1);
+
+		assert m_queryResultCount < Settings.maxProxies;
+
+		int count = 0;
+		for ( int i = 0; i < m_queryResultCount && count < maxCount; ++i, ++count) {
+			userData[count] = m_proxyPool[m_queryResults[i]].userData;
+		}
+
+		// Prepare for next query.
+		m_queryResultCount = 0;
+		incrementTimeStamp();
+
+		return count;
+	}
+
+	/**
+	 * Query for proxies that a box would touch while moving along a
+	 * translation. This is a segment query from the box's center against
+	 * proxies grown by the box's half extents. The proxies' user data are
+	 * written in the order the box enters them, along with the fraction
+	 * of the translation at which it does; if there are more than
+	 * maxCount, the first ones entered are kept. Allocates nothing.
+	 * @return the number of proxies found.
+	 */
+	public int querySweptAABB(final AABB aabb, final Vec2 translation, final Object[] userData,
+	                          final float[] fractions, final int maxCount) {
+		final float tx = translation.x;
+		final float ty = translation.y;
+
+		// box around the whole sweep
+		final Integer lowerValues[] = tlUpperValues.get(2);
+		final Integer upperValues[] = tlLowerValues.get(2);
+		final AABB swept = m_sweptAABB;
+		swept.lowerBound.x = aabb.lowerBound.x + Math.min(tx, 0.0f);
+		swept.lowerBound.y = aabb.lowerBound.y + Math.min(ty, 0.0f);
+		swept.upperBound.x = aabb.upperBound.x + Math.max(tx, 0.0f);
+		swept.upperBound.y = aabb.upperBound.y + Math.max(ty, 0.0f);
+		computeBounds( lowerValues, upperValues, swept);
+
+		final Integer indexes[] = tlIndexes.get(2);
+		query( indexes, lowerValues[0], upperValues[0], m_bounds[0], 2 * m_proxyCount, 0);
+		query( indexes, lowerValues[1], upperValues[1], m_bounds[1], 2 * m_proxyCount, 1);
+
+		final float hx = 0.5f * (aabb.upperBound.x - aabb.lowerBound.x);
+		final float hy = 0.5f * (aabb.upperBound.y - aabb.lowerBound.y);
+		final float cx = aabb.lowerBound.x + hx;
+		final float cy = aabb.lowerBound.y + hy;
+		final float invQx = 1.0f / m_quantizationFactor.x;
+		final float invQy = 1.0f / m_quantizationFactor.y;
+		final Vec2 worldLower = m_worldAABB.lowerBound;
+
+		int count = 0;
+		for ( int i = 0; i < m_queryResultCount; ++i) {
+			final Proxy proxy = m_proxyPool[m_queryResults[i]];
+
+			// slab test of the center against the grown proxy box
+			final float lx = worldLower.x + invQx * m_bounds[0][proxy.lowerBounds[0]].value - hx;
+			final float ux = worldLower.x + invQx * m_bounds[0][proxy.upperBounds[0]].value + hx;
+			final float ly = worldLower.y + invQy * m_bounds[1][proxy.lowerBounds[1]].value - hy;
+			final float uy = worldLower.y + invQy * m_bounds[1][proxy.upperBounds[1]].value + hy;
+
+			float enter = 0.0f;
+			float exit = 1.0f;
+			if ( Math.abs( tx) < Settings.EPSILON) {
+				if ( cx < lx || cx > ux) {
+					continue;
+				}
+			}
+			else {
+				float t1 = (lx - cx) / tx;
+				float t2 = (ux - cx) / tx;
+				if ( t1 > t2) {
+					final float t = t1;
+					t1 = t2;
+					t2 = t;
+				}
+				enter = Math.max( enter, t1);
+				exit = Math.min( exit, t2);
+			}
+			if ( Math.abs( ty) < Settings.EPSILON) {
+				if ( cy < ly || cy > uy) {
+					continue;
+				}
+			}
+			else {
+				float t1 = (ly - cy) / ty;
+				float t2 = (uy - cy) / ty;
+				if ( t1 > t2) {
+					final float t = t1;
+					t1 = t2;
+					t2 = t;
+				}
+				enter = Math.max( enter, t1);
+				exit = Math.min( exit, t2);
+			}
+			if ( enter > exit) {
+				continue;
+			}
+
+			// insert by entry fraction
+			if ( count == maxCount) {
+				if ( maxCount == 0 || enter >= fractions[count - 1]) {
+					continue;
+				}
+				--count;
+			}
+			int j = count;
+			while ( j > 0 && fractions[j - 1] > enter) {
+				fractions[j] = fractions[j - 1];
+				userData[j] = userData[j - 1];
+				--j;
+			}
+			fractions[j] = enter;
+			userData[j] = proxy.userData;
+			++count;
+		}
+
+		// Prepare for next query.
+		m_queryResultCount = 0;
+		incrementTimeStamp();
+
+		return count;
+	}
+
 	public void validate() {
 		if ( BroadPhase.debugPrint) {
 			System.out.println( "Validate()");
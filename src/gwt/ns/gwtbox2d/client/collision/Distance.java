@@ -69,6 +69,7 @@ import gwt.ns.gwtbox2d.client.collision.shapes.ShapeType;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.common.XForm;
+import gwt.ns.gwtbox2d.client.pooling.StackAllocator;
 
 //updated to rev 108->139 of b2cpp
 
@@ -76,17 +77,20 @@ import gwt.ns.gwtbox2d.client.common.XForm;
 public final class Distance {
 	public int g_GJK_Iterations = 0;
 
-	// These are used to avoid allocations on hot paths:
+	// The GJK simplex, kept to avoid allocations on hot paths:
 	private final Vec2 p1s[] = new Vec2[3];
 	private final Vec2 p2s[] = new Vec2[3];
 	private final Vec2 points[] = new Vec2[3];
-	private final Vec2 v = new Vec2();
-	private final Vec2 vNeg = new Vec2();
-	private final Vec2 w = new Vec2();
-	private final Vec2 w1 = new Vec2();
-	private final Vec2 w2 = new Vec2();
+
+	// temporaries come from here
+	private final StackAllocator m_stack;
 
 	public Distance() {
+		this(new StackAllocator());
+	}
+
+	public Distance(final StackAllocator stack) {
+		m_stack = stack;
 		for (int i = 0; i < 3; ++i) {
 			p1s[i] = new Vec2();
 			p2s[i] = new Vec2();
@@ -101,19 +105,21 @@ public final class Distance {
 	// The origin is
 	// not in region of points[0] because that is the old point.
 
-	// djm pooled
-	private final Vec2 p2r = new Vec2();
-	private final Vec2 p2d = new Vec2();
-
 	protected final int ProcessTwo(final Vec2 x1, final Vec2 x2, final Vec2[] p1s,
 			final Vec2[] p2s, final Vec2[] points) {
 		// If in point[1] region
-		p2r.x = -points[1].x;
-		p2r.y = -points[1].y;
-		p2d.x = points[0].x - points[1].x;
-		p2d.y = points[0].y - points[1].y;
-		final float length = p2d.normalize();
-		float lambda = Vec2.dot(p2r, p2d);
+		final float p2rx = -points[1].x;
+		final float p2ry = -points[1].y;
+		float p2dx = points[0].x - points[1].x;
+		float p2dy = points[0].y - points[1].y;
+		// INLINED p2d.normalize()
+		final float length = (float) Math.sqrt(p2dx * p2dx + p2dy * p2dy);
+		if (length >= Settings.EPSILON) {
+			final float invLength = 1.0f / length;
+			p2dx *= invLength;
+			p2dy *= invLength;
+		}
+		float lambda = p2rx * p2dx + p2ry * p2dy;
 		if (lambda <= 0.0f || length < Settings.EPSILON) {
 			// The simplex is reduced to a point.
 			x1.set(p1s[1]);
@@ -272,6 +278,13 @@ public final class Distance {
 
 		int pointCount = 0;
 
+		final int mark = m_stack.mark();
+		final Vec2 v = m_stack.getVec2();
+		final Vec2 vNeg = m_stack.getVec2();
+		final Vec2 w = m_stack.getVec2();
+		final Vec2 w1 = m_stack.getVec2();
+		final Vec2 w2 = m_stack.getVec2();
+
 		shape1.getFirstVertexToOut(xf1, x1);
 		shape2.getFirstVertexToOut(xf2, x2);
 
@@ -296,6 +309,7 @@ public final class Distance {
 					x2.set(w2);
 				}
 				g_GJK_Iterations = iter;
+				m_stack.release(mark);
 				return (float) Math.sqrt(vSqr);
 			}
 
@@ -328,6 +342,7 @@ public final class Distance {
 			// triangle.
 			if (pointCount == 3) {
 				g_GJK_Iterations = iter;
+				m_stack.release(mark);
 				return 0.0f;
 				//
 			}
@@ -343,21 +358,18 @@ public final class Distance {
 				final float vy = x2.y - x1.y;
 				vSqr = vx * vx + vy * vy;
 
+				m_stack.release(mark);
 				return (float) Math.sqrt(vSqr);
 				//
 			}
 		}
 
 		g_GJK_Iterations = maxIterations;
+		m_stack.release(mark);
 		return (float) Math.sqrt(vSqr);
 		//
 	}
 
-	// djm pooled
-	private final Vec2 distCCp1 = new Vec2();
-	private final Vec2 distCCp2 = new Vec2();
-	private final Vec2 distCCd = new Vec2();
-
 	/**
 	 * distance between two circle shapes
 	 * 
@@ -376,6 +388,11 @@ public final class Distance {
 	public final float DistanceCC(final Vec2 x1, final Vec2 x2, final CircleShape circle1,
 			final XForm xf1, final CircleShape circle2, final XForm xf2) {
 
+		final int mark = m_stack.mark();
+		final Vec2 distCCp1 = m_stack.getVec2();
+		final Vec2 distCCp2 = m_stack.getVec2();
+		final Vec2 distCCd = m_stack.getVec2();
+
 		XForm.mulToOut(xf1, circle1.getMemberLocalPosition(), distCCp1);
 		XForm.mulToOut(xf2, circle2.getMemberLocalPosition(), distCCp2);
 
@@ -390,29 +407,23 @@ public final class Distance {
 			final float distance = dLen - r;
 			x1.set(distCCp1.x + r1 * distCCd.x, distCCp1.y + r1 * distCCd.y);
 			x2.set(distCCp2.x - r2 * distCCd.x, distCCp2.y - r2 * distCCd.y);
+			m_stack.release(mark);
 			return distance;
 		}
 		else if (dSqr > Settings.EPSILON * Settings.EPSILON) {
 			distCCd.normalize();
 			x1.set(distCCp1.x + r1 * distCCd.x, distCCp1.y + r1 * distCCd.y);
 			x2.set(x1);
+			m_stack.release(mark);
 			return 0.0f;
 		}
 
 		x1.set(distCCp1);
 		x2.set(x1);
+		m_stack.release(mark);
 		return 0.0f;
 	}
 
-	// djm pooled
-	private final Vec2 cWorld = new Vec2(); // just like sea world but with less
-	// water and more chlorine
-	// private Vec2 shamoo = new Vec2();
-	private final Vec2 ECcLocal = new Vec2();
-	private final Vec2 ECvWorld = new Vec2();
-	private final Vec2 ECd = new Vec2();
-	private final Vec2 ECtemp = new Vec2();
-
 	/**
 	 * Distance bewteen an edge and a circle
 	 * 
@@ -434,10 +445,20 @@ public final class Distance {
 		float dSqr;
 		float dLen;
 		final float r = circle.getRadius() - Settings.toiSlop;
+
+		final int mark = m_stack.mark();
+		final Vec2 cWorld = m_stack.getVec2(); // just like sea world but with less
+		// water and more chlorine
+		final Vec2 ECcLocal = m_stack.getVec2();
+		final Vec2 ECvWorld = m_stack.getVec2();
+		final Vec2 ECd = m_stack.getVec2();
+		final Vec2 ECtemp = m_stack.getVec2();
+
 		XForm.mulToOut(xf2, circle.getMemberLocalPosition(), cWorld);
 		XForm.mulTransToOut(xf1, cWorld, ECcLocal);
-		final float dirDist = Vec2.dot(ECcLocal.sub(edge.getCoreVertex1()), edge
-				.getDirectionVector());
+		ECtemp.set(ECcLocal);
+		ECtemp.subLocal(edge.getCoreVertex1());
+		final float dirDist = Vec2.dot(ECtemp, edge.getDirectionVector());
 
 		if (dirDist <= 0.0f) {
 			XForm.mulToOut(xf1, edge.getCoreVertex1(), ECvWorld);
@@ -462,10 +483,12 @@ public final class Distance {
 					XForm.mulToOut(xf1, x2, x2);
 					// x2.set(XForm.mul(xf1,
 					// ECcLocal.add(edge.getNormalVector().mul(r))));
+					m_stack.release(mark);
 					return -dLen - r;
 				}
 				else {
 					x2.set(x1);
+					m_stack.release(mark);
 					return 0.0f;
 				}
 			}
@@ -477,10 +500,12 @@ public final class Distance {
 					// x2.set(XForm.mul(xf1,
 					// ECcLocal.sub(edge.getNormalVector().mul(r))));
 					// System.out.println("dlen - r: "+(dLen - r));
+					m_stack.release(mark);
 					return dLen - r;
 				}
 				else {
 					x2.set(x1);
+					m_stack.release(mark);
 					return 0.0f;
 				}
 			}
@@ -495,10 +520,12 @@ public final class Distance {
 			x2.set(ECd);
 			x2.mulLocal(r).subLocal(cWorld).negateLocal();
 			// x2.set(ECcWorld.sub(ECd.mul(r)));
+			m_stack.release(mark);
 			return dLen - r;
 		}
 		else {
 			x2.set(ECvWorld);
+			m_stack.release(mark);
 			return 0.0f;
 		}
 	}
@@ -611,11 +638,6 @@ public final class Distance {
 		return distance;
 	}
 
-	// djm pooled
-	private final Vec2 CPp1 = new Vec2();
-	private final Vec2 CPp2 = new Vec2();
-	private final Vec2 CPd = new Vec2();
-
 	/**
 	 * Distance between a circle and a point
 	 * 
@@ -634,6 +656,11 @@ public final class Distance {
 	public final float DistanceCirclePoint(final Vec2 x1, final Vec2 x2, final CircleShape circle1,
 			final XForm xf1, final PointShape pt2, final XForm xf2) {
 
+		final int mark = m_stack.mark();
+		final Vec2 CPp1 = m_stack.getVec2();
+		final Vec2 CPp2 = m_stack.getVec2();
+		final Vec2 CPd = m_stack.getVec2();
+
 		XForm.mulToOut(xf1, circle1.getMemberLocalPosition(), CPp1);
 		XForm.mulToOut(xf2, pt2.getMemberLocalPosition(), CPp2);
 
@@ -650,17 +677,20 @@ public final class Distance {
 			final float distance = dLen - r;
 			x1.set(CPp1.x + r1 * CPd.x, CPp1.y + r1 * CPd.y);
 			x2.set(CPp2.x - r2 * CPd.x, CPp2.y - r2 * CPd.y);
+			m_stack.release(mark);
 			return distance;
 		}
 		else if (dSqr > Settings.EPSILON * Settings.EPSILON) {
 			CPd.normalize();
 			x1.set(CPp1.x + r1 * CPd.x, CPp1.y + r1 * CPd.y);
 			x2.set(x1);
+			m_stack.release(mark);
 			return 0.0f;
 		}
 
 		x1.set(CPp1);
 		x2.set(x1);
+		m_stack.release(mark);
 		return 0.0f;
 	}
 
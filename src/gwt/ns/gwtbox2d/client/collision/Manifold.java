@@ -25,6 +25,7 @@ package gwt.ns.gwtbox2d.client.collision;
 
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
 
 //Updated to rev 56->108->139 of b2Collision.h
 
@@ -42,6 +43,9 @@ public class Manifold {
      * full of instantiated ManifoldPoints.
      */
     public Manifold() {
+        if (AllocationProfiler.ENABLED) {
+            AllocationProfiler.count(AllocationProfiler.e_manifold);
+        }
         points = new ManifoldPoint[Settings.maxManifoldPoints];
         for (int i = 0; i < Settings.maxManifoldPoints; i++) {
             points[i] = new ManifoldPoint();
@@ -55,6 +59,9 @@ public class Manifold {
      * @param other
      */
     public Manifold(Manifold other) {
+        if (AllocationProfiler.ENABLED) {
+            AllocationProfiler.count(AllocationProfiler.e_manifold);
+        }
         points = new ManifoldPoint[Settings.maxManifoldPoints];
         normal = other.normal.clone();
         pointCount = other.pointCount;
@@ -23,6 +23,7 @@
 
 package gwt.ns.gwtbox2d.client.collision;
 
+import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
 import gwt.ns.gwtbox2d.client.common.MathUtils;
 import gwt.ns.gwtbox2d.client.common.Settings;
 
@@ -260,6 +261,49 @@ public class PairManager {
 		}
 	}
 
+	/**
+	 * Shell sort the pair buffer by the uids of the shapes, so pairs are
+	 * reported in the same order regardless of which proxy ids the shapes
+	 * were given or the order the proxies moved in.
+	 */
+	private void sortBuffer(final Proxy[] proxies) {
+		final int n = m_pairBufferCount;
+		int gap = 1;
+		while (gap < n / 3) {
+			gap = gap * 3 + 1;
+		}
+		for (; gap > 0; gap /= 3) {
+			for (int i = gap; i < n; ++i) {
+				final BufferedPair p = m_pairBuffer[i];
+				final long key = sortKey(proxies, p);
+				int j = i;
+				while (j >= gap && sortKey(proxies, m_pairBuffer[j - gap]) > key) {
+					m_pairBuffer[j] = m_pairBuffer[j - gap];
+					j -= gap;
+				}
+				m_pairBuffer[j] = p;
+			}
+		}
+	}
+
+	private static long sortKey(final Proxy[] proxies, final BufferedPair p) {
+		int k1 = uidOf(proxies[p.proxyId1], p.proxyId1);
+		int k2 = uidOf(proxies[p.proxyId2], p.proxyId2);
+		if (k1 > k2) {
+			final int t = k1;
+			k1 = k2;
+			k2 = t;
+		}
+		return ((long) k1 << 32) | (k2 & 0xFFFFFFFFL);
+	}
+
+	private static int uidOf(final Proxy proxy, final int proxyId) {
+		if (proxy.userData instanceof Shape) {
+			return ((Shape) proxy.userData).uid;
+		}
+		return proxyId;
+	}
+
 	/**
 	 * commits the proxies
 	 */
@@ -269,6 +313,10 @@ public class PairManager {
 
 		final Proxy[] proxies = m_broadPhase.m_proxyPool;
 
+		if (Settings.deterministic) {
+			sortBuffer(proxies);
+		}
+
 		for (int i = 0; i < m_pairBufferCount; ++i) {
 			final Pair pair = find(m_pairBuffer[i].proxyId1, m_pairBuffer[i].proxyId2);
 			assert(pair.isBuffered());
@@ -299,7 +347,13 @@ public class PairManager {
 				assert(m_broadPhase.testOverlap(proxy1, proxy2) == true);
 
 				if (pair.isFinal() == false) {
-					pair.userData = m_callback.pairAdded(proxy1.userData, proxy2.userData);
+					// Pairs are keyed by proxy id; hand the shapes over in a stable order.
+					if (Settings.deterministic
+							&& uidOf(proxy1, pair.proxyId1) > uidOf(proxy2, pair.proxyId2)) {
+						pair.userData = m_callback.pairAdded(proxy2.userData, proxy1.userData);
+					} else {
+						pair.userData = m_callback.pairAdded(proxy1.userData, proxy2.userData);
+					}
 					pair.setFinal();
 				}
 
@@ -43,6 +43,7 @@
 package gwt.ns.gwtbox2d.client.collision;
 
 import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
+import gwt.ns.gwtbox2d.client.collision.shapes.ShapeType;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Sweep;
 import gwt.ns.gwtbox2d.client.common.Vec2;
@@ -174,4 +175,106 @@ public class TOI {
 		
 		return alpha;
 	}
+
+	// djm gwt.ns.gwtbox2d.pooling
+	private static final TLXForm tlCastXf = new TLXForm();
+	/**
+	 * Compute when shape1, moved from xf1 by a translation without
+	 * rotating, first touches shape2 held at xf2. This is the conservative
+	 * advancement of {@link #timeOfImpact(Shape, Sweep, Shape, Sweep)}
+	 * with fixed transforms, so no sweeps or trigonometry are involved.
+	 * @param normal receives the hit normal, pointing from shape2 towards shape1.
+	 * @param point receives the point of shape2's core closest to shape1 at the hit.
+	 * @return the fraction of the translation in [0,1) at which the shapes
+	 * touch, 0 if they already overlap, or 1 if they don't touch.
+	 */
+	public static final float castShape(final Shape shape1, final XForm xf1, final Vec2 translation,
+	                                    final Shape shape2, final XForm xf2,
+	                                    final Vec2 normal, final Vec2 point) {
+		if (isCastable(shape1.getType(), shape2.getType()) == false) {
+			return 1.0f;
+		}
+
+		final XForm xf = tlCastXf.get();
+		final Vec2 p1 = tlP1.get();
+		final Vec2 p2 = tlP2.get();
+		xf.R.set(xf1.R);
+
+		final float tx = translation.x;
+		final float ty = translation.y;
+
+		float alpha = 0.0f;
+		final int k_maxIterations = 20;
+		int iter = 0;
+		float distance;
+		float targetDistance = 0.0f;
+		float normalx;
+		float normaly;
+		while(true){
+			xf.position.x = xf1.position.x + alpha * tx;
+			xf.position.y = xf1.position.y + alpha * ty;
+
+			distance = SingletonPool.getDistance().distance(p1, p2, shape1, xf, shape2, xf2);
+
+			if (iter == 0) {
+				if (distance > 2.0f * Settings.toiSlop) {
+					targetDistance = 1.5f * Settings.toiSlop;
+				} else {
+					targetDistance = Math.max(0.05f * Settings.toiSlop, distance - 0.5f * Settings.toiSlop);
+				}
+			}
+
+			normalx = p2.x - p1.x;
+			normaly = p2.y - p1.y;
+			final float lenSqrd = normalx * normalx + normaly * normaly;
+			if (lenSqrd >= Settings.EPSILON*Settings.EPSILON) {
+				final float invLength = 1.0f / (float) Math.sqrt(lenSqrd);
+				normalx *= invLength;
+				normaly *= invLength;
+			} else {
+				// touching or overlapping, oppose the motion
+				final float length = (float) Math.sqrt(tx * tx + ty * ty);
+				if (length < Settings.EPSILON) {
+					return 1.0f;
+				}
+				normalx = tx / length;
+				normaly = ty / length;
+			}
+
+			if (distance - targetDistance < 0.05f * Settings.toiSlop || iter == k_maxIterations) {
+				break;
+			}
+
+			// Only the translation brings the shapes together.
+			final float approach = normalx * tx + normaly * ty;
+			if (approach < Settings.EPSILON) {
+				return 1.0f;
+			}
+
+			final float newAlpha = alpha + (distance - targetDistance) / approach;
+			if (newAlpha < 0.0f || 1.0f <= newAlpha) {
+				return 1.0f;
+			}
+
+			// Ensure significant advancement.
+			if (newAlpha < (1.0f + 100.0f * Settings.EPSILON) * alpha) {
+				break;
+			}
+
+			alpha = newAlpha;
+			++iter;
+		}
+
+		normal.x = -normalx;
+		normal.y = -normaly;
+		point.set(p2);
+		return alpha;
+	}
+
+	/** Can the distance between these shape types be computed. */
+	private static final boolean isCastable(final ShapeType type1, final ShapeType type2) {
+		final boolean solid1 = type1 == ShapeType.CIRCLE_SHAPE || type1 == ShapeType.POLYGON_SHAPE;
+		final boolean solid2 = type2 == ShapeType.CIRCLE_SHAPE || type2 == ShapeType.POLYGON_SHAPE;
+		return solid1 || solid2;
+	}
 }
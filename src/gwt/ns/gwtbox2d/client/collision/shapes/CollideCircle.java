@@ -48,6 +48,7 @@ import gwt.ns.gwtbox2d.client.common.Mat22;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.common.XForm;
+import gwt.ns.gwtbox2d.client.pooling.StackAllocator;
 
 //Updated to rev 139 of b2CollideCircle.cpp
 
@@ -57,11 +58,16 @@ import gwt.ns.gwtbox2d.client.common.XForm;
  */
 public class CollideCircle {
 
-	// djm pooled
-	private final Vec2 colCCP1 = new Vec2();
-	private final Vec2 colCCP2 = new Vec2();
-	private final Vec2 colCCD = new Vec2();
-	private final Vec2 colCCP = new Vec2();
+	// temporaries come from here
+	private final StackAllocator m_stack;
+
+	public CollideCircle() {
+		this(new StackAllocator());
+	}
+
+	public CollideCircle(final StackAllocator stack) {
+		m_stack = stack;
+	}
 
 	/**
 	 * puts gwt.ns.gwtbox2d.collision information of the two circles in the manifold
@@ -77,6 +83,12 @@ public class CollideCircle {
 	                                        final CircleShape circle2, final XForm xf2) {
 		manifold.pointCount = 0;
 
+		final int mark = m_stack.mark();
+		final Vec2 colCCP1 = m_stack.getVec2();
+		final Vec2 colCCP2 = m_stack.getVec2();
+		final Vec2 colCCD = m_stack.getVec2();
+		final Vec2 colCCP = m_stack.getVec2();
+
 		XForm.mulToOut(xf1, circle1.getMemberLocalPosition(), colCCP1);
 		XForm.mulToOut(xf2, circle2.getMemberLocalPosition(), colCCP2);
 
@@ -89,6 +101,7 @@ public class CollideCircle {
 		final float r2 = circle2.getRadius();
 		final float radiusSum = r1+r2;
 		if (distSqr > radiusSum * radiusSum) {
+			m_stack.release(mark);
 			return;
 		}
 
@@ -110,23 +123,19 @@ public class CollideCircle {
 		manifold.points[0].id.zero(); //use this instead of zeroing through key
 		manifold.points[0].separation = separation;
 
-		// let this one slide
-		colCCP1.addLocal(manifold.normal.mul(r1));
-		colCCP2.subLocal(manifold.normal.mul(r2));
+		colCCP1.x += r1 * manifold.normal.x;
+		colCCP1.y += r1 * manifold.normal.y;
+		colCCP2.x -= r2 * manifold.normal.x;
+		colCCP2.y -= r2 * manifold.normal.y;
 
 		colCCP.x = 0.5f * (colCCP1.x + colCCP2.x);
 		colCCP.y = 0.5f * (colCCP1.y + colCCP2.y);
 
 		XForm.mulTransToOut(xf1, colCCP, manifold.points[0].localPoint1);
 		XForm.mulTransToOut(xf2, colCCP, manifold.points[0].localPoint2);
+		m_stack.release(mark);
 	}
 
-	// djm pooled
-	private final Vec2 colPCP1 = new Vec2();
-	private final Vec2 colPCP2 = new Vec2();
-	private final Vec2 colPCD = new Vec2();
-	private final Vec2 colPCP = new Vec2();
-
 	/**
 	 * Puts gwt.ns.gwtbox2d.collision information in the manifold about a gwt.ns.gwtbox2d.collision between a point and a circle
 	 * @param manifold
@@ -141,6 +150,12 @@ public class CollideCircle {
 	                                               final CircleShape circle2, final XForm xf2) {
 		manifold.pointCount = 0;
 
+		final int mark = m_stack.mark();
+		final Vec2 colPCP1 = m_stack.getVec2();
+		final Vec2 colPCP2 = m_stack.getVec2();
+		final Vec2 colPCD = m_stack.getVec2();
+		final Vec2 colPCP = m_stack.getVec2();
+
 		XForm.mulToOut(xf1, point1.getMemberLocalPosition(), colPCP1);
 		XForm.mulToOut(xf2, circle2.getMemberLocalPosition(), colPCP2);
 
@@ -152,6 +167,7 @@ public class CollideCircle {
 		final float r2 = circle2.getRadius();
 
 		if (distSqr > r2*r2) {
+			m_stack.release(mark);
 			return;
 		}
 
@@ -173,14 +189,15 @@ public class CollideCircle {
 		manifold.points[0].id.zero(); //use this instead of zeroing through key
 		manifold.points[0].separation = separation;
 
-		// leave this for now
-		colPCP2.subLocal(manifold.normal.mul(r2));
+		colPCP2.x -= r2 * manifold.normal.x;
+		colPCP2.y -= r2 * manifold.normal.y;
 
 		colPCP.x = 0.5f * (colPCP1.x + colPCP2.x);
 		colPCP.y = 0.5f * (colPCP1.y + colPCP2.y);
 
 		XForm.mulTransToOut(xf1, colPCP, manifold.points[0].localPoint1);
 		XForm.mulTransToOut(xf2, colPCP, manifold.points[0].localPoint2);
+		m_stack.release(mark);
 	}
 
 	/**
@@ -349,11 +366,6 @@ public class CollideCircle {
 		manifold.points[0].id.features.flip = 0;
 	}
 
-	private final Vec2 ECd = new Vec2();
-	private final Vec2 ECc = new Vec2();
-	//private Vec2 ECcLocalSubV1 = new Vec2();
-	private final Vec2 ECcLocal = new Vec2();
-
 	/**
 	 * puts gwt.ns.gwtbox2d.collision information into the manifold from a circle and edge gwt.ns.gwtbox2d.collision
 	 * @param manifold
@@ -367,6 +379,11 @@ public class CollideCircle {
 	                                              final CircleShape circle, final XForm xf2) {
 		manifold.pointCount = 0;
 
+		final int mark = m_stack.mark();
+		final Vec2 ECd = m_stack.getVec2();
+		final Vec2 ECc = m_stack.getVec2();
+		final Vec2 ECcLocal = m_stack.getVec2();
+
 		XForm.mulToOut(xf2, circle.getMemberLocalPosition(), ECc);
 		XForm.mulTransToOut(xf1, ECc, ECcLocal);
 
@@ -383,6 +400,7 @@ public class CollideCircle {
 		if (dirDist <= 0) {
 
 			if (Vec2.dot(ECd, edge.getCorner1Vector()) < 0) {
+				m_stack.release(mark);
 				return;
 			}
 			XForm.mulToOut(xf1, v1, ECd);
@@ -393,6 +411,7 @@ public class CollideCircle {
 			ECd.set(ECcLocal);
 			ECd.subLocal(v2);
 			if (Vec2.dot(ECd, edge.getCorner2Vector()) > 0) {
+				m_stack.release(mark);
 				return;
 			}
 			XForm.mulToOut(xf1, v2, ECd);
@@ -402,6 +421,7 @@ public class CollideCircle {
 		} else {
 			separation = Vec2.dot(ECd, n);
 			if (separation > radius || separation < -radius) {
+				m_stack.release(mark);
 				return;
 			}
 			separation -= radius;
@@ -415,11 +435,13 @@ public class CollideCircle {
 			ECc.subLocal(ECd);
 			XForm.mulTransToOut(xf1, ECc, manifold.points[0].localPoint1);
 			XForm.mulTransToOut(xf2, ECc, manifold.points[0].localPoint2);
+			m_stack.release(mark);
 			return;
 		}
 
 		final float distSqr = Vec2.dot(ECd,ECd);
 		if (distSqr > radius * radius) {
+			m_stack.release(mark);
 			return;
 		}
 
@@ -441,6 +463,6 @@ public class CollideCircle {
 		//c.subLocal(manifold.normal.mul(radius));
 		XForm.mulTransToOut(xf1, ECc, manifold.points[0].localPoint1);
 		XForm.mulTransToOut(xf2, ECc, manifold.points[0].localPoint2);
-
+		m_stack.release(mark);
 	}
 }
\ No newline at end of file
@@ -50,6 +50,7 @@ import gwt.ns.gwtbox2d.client.common.Mat22;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.common.XForm;
+import gwt.ns.gwtbox2d.client.pooling.StackAllocator;
 
 //Updated to rev 55->108->139 of b2cpp
 
@@ -67,6 +68,27 @@ public class CollidePoly {
 		}
 	}
 
+	// temporaries come from here
+	private final StackAllocator m_stack;
+
+	public CollidePoly() {
+		this(new StackAllocator());
+	}
+
+	public CollidePoly(final StackAllocator stack) {
+		m_stack = stack;
+		for (int i = 0; i < 2; ++i) {
+			incidentEdge[i] = new ClipVertex();
+			clipPoints1[i] = new ClipVertex();
+			clipPoints2[i] = new ClipVertex();
+		}
+	}
+
+	/**
+	 * Clip a segment to a line. The points of vOut are overwritten, not
+	 * replaced, so it must be filled and not share any with vIn.
+	 */
+
 	public final int clipSegmentToLine(final ClipVertex vOut[], final ClipVertex vIn[],
 	                                          final Vec2 normal, final float offset) {
 		// Start with no output points
@@ -78,12 +100,10 @@ public class CollidePoly {
 
 		// If the points are behind the plane
 		if (distance0 <= 0.0f) {
-			vOut[numOut] = new ClipVertex();
 			vOut[numOut].id.set(vIn[0].id);
 			vOut[numOut++].v.set(vIn[0].v);
 		}
 		if (distance1 <= 0.0f) {
-			vOut[numOut] = new ClipVertex();
 			vOut[numOut].id.set(vIn[1].id);
 			vOut[numOut++].v.set(vIn[1].v);
 		}
@@ -92,7 +112,6 @@ public class CollidePoly {
 		if (distance0 * distance1 < 0.0f) {
 			// Find intersection point of edge and plane
 			final float interp = distance0 / (distance0 - distance1);
-			vOut[numOut] = new ClipVertex();
 			vOut[numOut].v.x = vIn[0].v.x + interp * (vIn[1].v.x - vIn[0].v.x);
 			vOut[numOut].v.y = vIn[0].v.y + interp * (vIn[1].v.y - vIn[0].v.y);
 
@@ -108,8 +127,6 @@ public class CollidePoly {
 		return numOut;
 	}
 
-	// djm pooled
-	private final Vec2 normal1World = new Vec2();
 	public final float edgeSeparation(final PolygonShape poly1, final XForm xf1,
 	                                         final int edge1,
 	                                         final PolygonShape poly2, final XForm xf2) {
@@ -123,6 +140,9 @@ public class CollidePoly {
 
 		assert(0 <= edge1 && edge1 < count1);
 
+		final int mark = m_stack.mark();
+		final Vec2 normal1World = m_stack.getVec2();
+
 		// Convert normal from poly1's frame into poly2's frame.
 		Mat22.mulToOut(xf1.R, normals1[edge1], normal1World);
 		final float normal1x = Vec2.dot(normal1World, xf2.R.col1);
@@ -151,29 +171,30 @@ public class CollidePoly {
 		//float separation = Vec2.dot(v2.sub(v1), normal1World);
 		final float separation = (v2x-v1x) * normal1World.x + (v2y-v1y) * normal1World.y;
 
+		m_stack.release(mark);
 		return separation;
 	}
 
-	// djm pooled
-	private Vec2 dLocal1 = new Vec2();
 	/**
 	 * Find the max separation between poly1 and poly2 using face normals
 	 * from poly1.
+	 * @param separation the result is put here
 	 * @param poly1
 	 * @param xf1
 	 * @param poly2
 	 * @param xf2
-	 * @return
+	 * @return separation
 	 */
-	public final MaxSeparation findMaxSeparation(final PolygonShape poly1, final XForm xf1,
+	public final MaxSeparation findMaxSeparation(final MaxSeparation separation,
+	                                                    final PolygonShape poly1, final XForm xf1,
 	                                                    final PolygonShape poly2, final XForm xf2) {
-		final MaxSeparation separation = new MaxSeparation();
+		separation.bestFaceIndex = 0;
 
 		final int count1 = poly1.getVertexCount();
 		final Vec2[] normals1 = poly1.getNormals();
 
-		final Vec2 v = poly1.getCentroid();
-		final Vec2 v1 = poly2.getCentroid();
+		final Vec2 v = poly1.m_centroid;
+		final Vec2 v1 = poly2.m_centroid;
 
 		// Vector pointing from the centroid of poly1 to the centroid of poly2.
 		//Vec2 d = XForm.mul(xf2, poly2.m_centroid).subLocal(XForm.mul(xf1, poly1.m_centroid));
@@ -184,14 +205,14 @@ public class CollidePoly {
 		- (xf1.position.y + xf1.R.col1.y * v.x + xf1.R.col2.y * v.y);
 		final Vec2 b = xf1.R.col1;
 		final Vec2 b1 = xf1.R.col2;
-		dLocal1.x = (dx * b.x + dy * b.y);
-		dLocal1.y = (dx * b1.x + dy * b1.y);
+		final float dLocal1x = (dx * b.x + dy * b.y);
+		final float dLocal1y = (dx * b1.x + dy * b1.y);
 
 		// Find edge normal on poly1 that has the largest projection onto d.
 		int edge = 0;
 		float maxDot = -Float.MAX_VALUE;
 		for (int i = 0; i < count1; ++i) {
-			final float dot = Vec2.dot(normals1[i], dLocal1);
+			final float dot = normals1[i].x * dLocal1x + normals1[i].y * dLocal1y;
 			if (dot > maxDot) {
 				maxDot = dot;
 				edge = i;
@@ -268,9 +289,6 @@ public class CollidePoly {
 		return separation;
 	}
 
-	// djm pooled
-	private Vec2 mulTemp = new Vec2();
-	private Vec2 normal1 = new Vec2();
 	// djm optimized
 	public final void findIncidentEdge(final ClipVertex c[],
 	                                          final PolygonShape poly1, final XForm xf1, final int edge1,
@@ -285,6 +303,10 @@ public class CollidePoly {
 
 		assert(0 <= edge1 && edge1 < count1);
 
+		final int mark = m_stack.mark();
+		final Vec2 mulTemp = m_stack.getVec2();
+		final Vec2 normal1 = m_stack.getVec2();
+
 		// Get the normal of the reference edge in poly2's frame.
 		Mat22.mulToOut( xf1.R, normals1[edge1], mulTemp);
 		Mat22.mulTransToOut(xf2.R, mulTemp, normal1);
@@ -304,9 +326,6 @@ public class CollidePoly {
 		final int i1 = index;
 		final int i2 = i1 + 1 < count2 ? i1 + 1 : 0;
 
-		c[0] = new ClipVertex();
-		c[1] = new ClipVertex();
-
 		XForm.mulToOut(xf2, vertices2[i1], c[0].v);
 		c[0].id.features.referenceEdge = edge1;
 		c[0].id.features.incidentEdge = i1;
@@ -318,6 +337,7 @@ public class CollidePoly {
 		c[1].id.features.referenceEdge = edge1;
 		c[1].id.features.incidentEdge = i2;
 		c[1].id.features.incidentVertex = 1;
+		m_stack.release(mark);
 	}
 
 	// Find edge normal of max separation on A - return if separating axis is
@@ -328,9 +348,11 @@ public class CollidePoly {
 	// Find incident edge
 	// Clip
 	// pooling variables to reduce array creation
-	private ClipVertex incidentEdge[] = new ClipVertex[2];
-	private ClipVertex clipPoints1[] = new ClipVertex[2];
-	private ClipVertex clipPoints2[] = new ClipVertex[2];
+	private final ClipVertex incidentEdge[] = new ClipVertex[2];
+	private final ClipVertex clipPoints1[] = new ClipVertex[2];
+	private final ClipVertex clipPoints2[] = new ClipVertex[2];
+	private final MaxSeparation sepA = new MaxSeparation();
+	private final MaxSeparation sepB = new MaxSeparation();
 	
 	
 	// The normal points from 1 to 2
@@ -341,20 +363,25 @@ public class CollidePoly {
 
 		//testbed.PTest.debugCount++;
 		manif.pointCount = 0; // Fixed a problem with contacts
-		final MaxSeparation sepA = findMaxSeparation(polyA, xfA, polyB, xfB);
+		findMaxSeparation(sepA, polyA, xfA, polyB, xfB);
 		if (sepA.bestSeparation > 0.0f) {
 			return;
 		}
 
-		final MaxSeparation sepB = findMaxSeparation(polyB, xfB, polyA, xfA);
+		findMaxSeparation(sepB, polyB, xfB, polyA, xfA);
 		if (sepB.bestSeparation > 0.0f) {
 			return;
 		}
 
+		final int mark = m_stack.mark();
+		final Vec2 sideNormal = m_stack.getVec2();
+		final Vec2 frontNormal = m_stack.getVec2();
+		final Vec2 negSideNormal = m_stack.getVec2();
+
 		PolygonShape poly1; // reference poly
 		PolygonShape poly2; // incident poly
-		final XForm xf1 = p_xf1;
-		final XForm xf2 = p_xf2;
+		final XForm xf1 = m_stack.getXForm();
+		final XForm xf2 = m_stack.getXForm();
 		int edge1; // reference edge
 		byte flip;
 		final float k_relativeTol = 0.98f;
@@ -413,9 +440,11 @@ public class CollidePoly {
 		int np;
 
 		// Clip to box side 1
-		np = clipSegmentToLine(clipPoints1, incidentEdge, sideNormal.negate(), sideOffset1);
+		negSideNormal.set(-sideNormal.x, -sideNormal.y);
+		np = clipSegmentToLine(clipPoints1, incidentEdge, negSideNormal, sideOffset1);
 
 		if (np < 2) {
+			m_stack.release(mark);
 			return;
 		}
 
@@ -424,6 +453,7 @@ public class CollidePoly {
 		                                   sideOffset2);
 
 		if (np < 2) {
+			m_stack.release(mark);
 			return;
 		}
 
@@ -462,18 +492,10 @@ public class CollidePoly {
 
 		manif.pointCount = pointCount;
 
+		m_stack.release(mark);
 		return;
 	}
 
-
-	// djm pooled
-	private final Vec2 colPPc = new Vec2();
-	private final Vec2 colPPcLocal = new Vec2();
-	private final Vec2 colPPsub = new Vec2();
-	private final Vec2 colPPe = new Vec2();
-	private final Vec2 colPPp = new Vec2();
-	private final Vec2 colPPd = new Vec2();
-
 	/**
 	 * puts gwt.ns.gwtbox2d.collision information into the manifold about the gwt.ns.gwtbox2d.collision between a polygon and a point
 	 * @param manifold
@@ -488,6 +510,14 @@ public class CollidePoly {
 
 		manifold.pointCount = 0;
 
+		final int mark = m_stack.mark();
+		final Vec2 colPPc = m_stack.getVec2();
+		final Vec2 colPPcLocal = m_stack.getVec2();
+		final Vec2 colPPsub = m_stack.getVec2();
+		final Vec2 colPPe = m_stack.getVec2();
+		final Vec2 colPPp = m_stack.getVec2();
+		final Vec2 colPPd = m_stack.getVec2();
+
 		// Compute circle position in the frame of the polygon.
 		XForm.mulToOut(xf2, point.getMemberLocalPosition(), colPPc);
 		XForm.mulTransToOut(xf1, colPPc, colPPcLocal);
@@ -505,6 +535,7 @@ public class CollidePoly {
 			final float s = Vec2.dot(normals[i], colPPsub);
 			if (s > 0) {
 				// Early out.
+				m_stack.release(mark);
 				return;
 			}
 
@@ -525,6 +556,7 @@ public class CollidePoly {
 			XForm.mulTransToOut(xf1, position, manifold.points[0].localPoint1);
 			XForm.mulTransToOut(xf2, position, manifold.points[0].localPoint2);
 			manifold.points[0].separation = separation;
+			m_stack.release(mark);
 			return;
 		}
 
@@ -565,6 +597,7 @@ public class CollidePoly {
 
 		final float dist = colPPd.normalize();
 		if (dist > 0) {
+			m_stack.release(mark);
 			return;
 		}
 
@@ -577,17 +610,9 @@ public class CollidePoly {
 		manifold.points[0].separation = dist;
 		manifold.points[0].id.features.referenceEdge = 0;
 		manifold.points[0].id.features.flip = 0;
+		m_stack.release(mark);
 	}
 
-	// djm pooled
-	private final Vec2 PEv1 = new Vec2();
-	private final Vec2 PEv2 = new Vec2();
-	private final Vec2 PEn = new Vec2();
-	private final Vec2 PEv1Local = new Vec2();
-	private final Vec2 PEv2Local = new Vec2();
-	private final Vec2 PEnLocal = new Vec2();
-	private final Vec2 temp = new Vec2();
-	private final Vec2 temp2 = new Vec2();
 	/**
 	 * puts gwt.ns.gwtbox2d.collision information into the manifold about a gwt.ns.gwtbox2d.collision between
 	 * a polygon and an edge
@@ -603,6 +628,18 @@ public class CollidePoly {
 	                                            final EdgeShape edge,
 	                                            final XForm xf2) {
 		manifold.pointCount = 0;
+
+		final int mark = m_stack.mark();
+		final Vec2 PEv1 = m_stack.getVec2();
+		final Vec2 PEv2 = m_stack.getVec2();
+		final Vec2 PEn = m_stack.getVec2();
+		final Vec2 PEv1Local = m_stack.getVec2();
+		final Vec2 PEv2Local = m_stack.getVec2();
+		final Vec2 PEnLocal = m_stack.getVec2();
+		final Vec2 temp = m_stack.getVec2();
+		final Vec2 temp2 = m_stack.getVec2();
+		final Vec2 world = m_stack.getVec2();
+
 		XForm.mulToOut(xf2, edge.getVertex1(), PEv1);
 		XForm.mulToOut(xf2, edge.getVertex2(), PEv2);
 		Mat22.mulToOut(xf2.R, edge.getNormalVector(), PEn);
@@ -698,10 +735,12 @@ public class CollidePoly {
 
 		if (enterStartIndex == -1) {
 			// poly is entirely below or entirely above edge, return with no contact:
+			m_stack.release(mark);
 			return;
 		}
 		if (separationMax > 0.0f) {
 			// poly is laterally disjoint with edge, return with no contact:
+			m_stack.release(mark);
 			return;
 		}
 
@@ -716,12 +755,14 @@ public class CollidePoly {
 					Mat22.mulToOut( xf2.R, edge.getCorner1Vector(), temp);
 					Mat22.mulTransToOut(xf1.R, temp, temp);
 					if (Vec2.dot(normals[separationIndex1], temp) >= 0.0f) {
+						m_stack.release(mark);
 						return;
 					}
 				} else {
 					Mat22.mulToOut( xf2.R, edge.getCorner2Vector(), temp);
 					Mat22.mulTransToOut(xf1.R, temp, temp);
 					if (Vec2.dot(normals[separationIndex2], temp) <= 0.0f) {
+						m_stack.release(mark);
 						return;
 					}
 				}
@@ -740,6 +781,7 @@ public class CollidePoly {
 					manifold.points[0].localPoint1.set(PEv2Local);
 					manifold.points[0].localPoint2.set(edge.getVertex2());
 				}
+				m_stack.release(mark);
 				return;
 			}
 		}
@@ -758,8 +800,10 @@ public class CollidePoly {
 			manifold.points[0].id.features.referenceEdge = 0;
 			manifold.points[0].id.features.flip = 0;
 			manifold.points[0].localPoint1.set(vertices[enterEndIndex]);
-			XForm.mulTransToOut(xf2, XForm.mul(xf1, vertices[enterEndIndex]), manifold.points[0].localPoint2);
+			XForm.mulToOut(xf1, vertices[enterEndIndex], world);
+			XForm.mulTransToOut(xf2, world, manifold.points[0].localPoint2);
 			manifold.points[0].separation = enterSepN;
+			m_stack.release(mark);
 			return;
 		}
 
@@ -804,7 +848,8 @@ public class CollidePoly {
 			}
 		} else {
 			manifold.points[0].localPoint1.set(vertices[enterEndIndex]);
-			XForm.mulTransToOut(xf2, XForm.mul(xf1, vertices[enterEndIndex]), manifold.points[0].localPoint2);
+			XForm.mulToOut(xf1, vertices[enterEndIndex], world);
+			XForm.mulTransToOut(xf2, world, manifold.points[0].localPoint2);
 			manifold.points[0].separation = enterSepN;
 		}
 
@@ -824,17 +869,12 @@ public class CollidePoly {
 			}
 		} else {
 			manifold.points[1].localPoint1.set(vertices[exitStartIndex]);
-			XForm.mulTransToOut(xf2, XForm.mul(xf1, vertices[exitStartIndex]), manifold.points[1].localPoint2);
+			XForm.mulToOut(xf1, vertices[exitStartIndex], world);
+			XForm.mulTransToOut(xf2, world, manifold.points[1].localPoint2);
 			manifold.points[1].separation = exitSepN;
 		}
+		m_stack.release(mark);
 	}
-
-	// "Pool" objects
-	private final Vec2 sideNormal = new Vec2();
-	private final Vec2 frontNormal = new Vec2();
-
-	private final XForm p_xf1 = new XForm();
-	private final XForm p_xf2 = new XForm();
 }
 
 /** Holder class used internally in CollidePoly */
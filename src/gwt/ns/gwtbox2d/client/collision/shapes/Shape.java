@@ -26,6 +26,7 @@ package gwt.ns.gwtbox2d.client.collision.shapes;
 import gwt.ns.gwtbox2d.client.collision.AABB;
 import gwt.ns.gwtbox2d.client.collision.BroadPhase;
 import gwt.ns.gwtbox2d.client.collision.FilterData;
+import gwt.ns.gwtbox2d.client.collision.Manifold;
 import gwt.ns.gwtbox2d.client.collision.MassData;
 import gwt.ns.gwtbox2d.client.collision.PairManager;
 import gwt.ns.gwtbox2d.client.collision.Segment;
@@ -36,7 +37,9 @@ import gwt.ns.gwtbox2d.client.common.XForm;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.Contact;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.ContactEdge;
+import gwt.ns.gwtbox2d.client.pooling.SingletonPool;
 import gwt.ns.gwtbox2d.client.pooling.TLAABB;
+import gwt.ns.gwtbox2d.client.pooling.TLManifold;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -59,6 +62,7 @@ public abstract class Shape {
 	 * but that's okay since these just have to be unique.
 	 */
 	static private int uidcount = 0;
+	private static final Object uidLock = new Object();
 
 	public ShapeType m_type;
 	public Shape m_next;
@@ -74,6 +78,9 @@ public abstract class Shape {
 
 	public int m_proxyId;
 
+	/** The AABB last handed to the broad-phase, so a snapshot can put the proxy back exactly. */
+	public final AABB m_proxyAABB;
+
 	public FilterData m_filter;
 
 	public boolean m_isSensor;
@@ -81,7 +88,9 @@ public abstract class Shape {
 
 	public Shape(final ShapeDef def) {
 
-		uid = uidcount++; //Java version only (C++ version sorts by memory location)
+		synchronized (uidLock) {
+			uid = uidcount++; //Java version only (C++ version sorts by memory location)
+		}
 
 		m_userData = def.userData;
 		m_friction = def.friction;
@@ -91,6 +100,7 @@ public abstract class Shape {
 		m_sweepRadius = 0.0f;
 		m_next = null;
 		m_proxyId = PairManager.NULL_PROXY;
+		m_proxyAABB = new AABB();
 		m_filter = new FilterData();
 		m_filter.categoryBits = def.filter.categoryBits;
 		m_filter.maskBits = def.filter.maskBits;
@@ -257,6 +267,7 @@ public abstract class Shape {
 		//}
 		if (broadPhase.inRange(aabb)) {
 			broadPhase.moveProxy(m_proxyId, aabb);
+			m_proxyAABB.set(aabb);
 			return true;
 		} else {
 			return false;
@@ -279,6 +290,7 @@ public abstract class Shape {
 
 		if (inRange) {
 			m_proxyId = broadPhase.createProxy(aabb, this);
+			m_proxyAABB.set(aabb);
 		} else {
 			m_proxyId = PairManager.NULL_PROXY;
 		}
@@ -300,6 +312,48 @@ public abstract class Shape {
 		return null;
 	}
 
+	// djm pooled
+	private static final TLManifold tlOverlapManifold = new TLManifold();
+
+	/**
+	 * Test two shapes for overlap, using the same narrow phase as contacts,
+	 * so shapes that would touch in the world overlap here. Pairs that never
+	 * collide in the world (edges, points against each other) don't overlap.
+	 * @param xfa the first shape's world transform.
+	 * @param xfb the second shape's world transform.
+	 */
+	public static boolean testOverlap(final Shape a, final XForm xfa, final Shape b, final XForm xfb) {
+		final Manifold manifold = tlOverlapManifold.get();
+		manifold.pointCount = 0;
+
+		final ShapeType ta = a.getType();
+		final ShapeType tb = b.getType();
+		if (ta == ShapeType.CIRCLE_SHAPE) {
+			if (tb == ShapeType.CIRCLE_SHAPE) {
+				SingletonPool.getCollideCircle().collideCircles(manifold, (CircleShape) a, xfa, (CircleShape) b, xfb);
+			} else if (tb == ShapeType.POLYGON_SHAPE) {
+				SingletonPool.getCollideCircle().collidePolygonAndCircle(manifold, (PolygonShape) b, xfb, (CircleShape) a, xfa);
+			} else if (tb == ShapeType.POINT_SHAPE) {
+				SingletonPool.getCollideCircle().collidePointAndCircle(manifold, (PointShape) b, xfb, (CircleShape) a, xfa);
+			} else if (tb == ShapeType.EDGE_SHAPE) {
+				SingletonPool.getCollideCircle().collideEdgeAndCircle(manifold, (EdgeShape) b, xfb, (CircleShape) a, xfa);
+			}
+		} else if (ta == ShapeType.POLYGON_SHAPE) {
+			if (tb == ShapeType.CIRCLE_SHAPE) {
+				SingletonPool.getCollideCircle().collidePolygonAndCircle(manifold, (PolygonShape) a, xfa, (CircleShape) b, xfb);
+			} else if (tb == ShapeType.POLYGON_SHAPE) {
+				SingletonPool.getCollidePoly().collidePolygons(manifold, (PolygonShape) a, xfa, (PolygonShape) b, xfb);
+			} else if (tb == ShapeType.POINT_SHAPE) {
+				SingletonPool.getCollidePoly().collidePolygonAndPoint(manifold, (PolygonShape) a, xfa, (PointShape) b, xfb);
+			} else if (tb == ShapeType.EDGE_SHAPE) {
+				SingletonPool.getCollidePoly().collidePolyAndEdge(manifold, (PolygonShape) a, xfa, (EdgeShape) b, xfb);
+			}
+		} else if (tb == ShapeType.CIRCLE_SHAPE || tb == ShapeType.POLYGON_SHAPE) {
+			return testOverlap(b, xfb, a, xfa);
+		}
+		return manifold.pointCount > 0;
+	}
+
 	/** Internal */
 	public static void destroy(final Shape s) {
 		if (s.getType() == ShapeType.EDGE_SHAPE) {
@@ -336,6 +390,7 @@ public abstract class Shape {
 
 		if (inRange){
 			m_proxyId = broadPhase.createProxy(aabb, this);
+			m_proxyAABB.set(aabb);
 		} else {
 			m_proxyId = PairManager.NULL_PROXY;
 		}
@@ -0,0 +1,170 @@
+package gwt.ns.gwtbox2d.client.common;
+
+/**
+ * Counts the engine's allocations of its common types, by the phase of
+ * World.step() they happened in, to find and keep out allocations on
+ * the hot path. Counting is compiled in only when
+ * {@link Profiling#ALLOCATIONS} is on (-Dgwtbox2d.profileAllocations=true
+ * on the JVM); otherwise {@link #ENABLED} is false, every hook is dead
+ * code and all counts stay zero.
+ * <BR><BR>
+ * Phases are ints below {@link #MAX_PHASES} passed in by the caller;
+ * the world uses those of its StepProfile. Anything allocated between
+ * steps goes to {@link #e_outside}. The counts are global, so profile
+ * one world on one thread at a time. The AllocationCheck sample steps a
+ * warmed up world and fails if {@link #getStepTotal()} goes over a fixed
+ * budget.
+ */
+public final class AllocationProfiler {
+	/** Is allocation counting compiled in. */
+	public static final boolean ENABLED = Profiling.ALLOCATIONS;
+
+	public static final int e_vec2 = 0;
+	public static final int e_mat22 = 1;
+	public static final int e_xform = 2;
+	public static final int e_manifold = 3;
+	public static final int e_contact = 4;
+	public static final int e_island = 5;
+	/** Arrays allocated by the engine's own code. */
+	public static final int e_array = 6;
+	public static final int e_typeCount = 7;
+
+	/** One past the largest phase a step may use. */
+	public static final int MAX_PHASES = 8;
+	/** The phase of allocations between steps. */
+	public static final int e_outside = MAX_PHASES;
+	private static final int s_slotCount = e_outside + 1;
+
+	private static final String[] s_names = {
+		"Vec2", "Mat22", "XForm", "Manifold", "Contact", "Island", "array"
+	};
+
+	private static final int[][] s_total = new int[s_slotCount][e_typeCount];
+	private static final int[][] s_step = new int[s_slotCount][e_typeCount];
+	private static final int[][] s_lastStep = new int[s_slotCount][e_typeCount];
+	private static String[] s_phaseNames;
+	private static int s_phase = e_outside;
+	private static int s_stepCount;
+	private static int s_lastStepTotal;
+	private static int s_maxStepTotal;
+
+	private AllocationProfiler() {
+	}
+
+	/** Get a type's name, for reports. */
+	public static String getTypeName(final int type) {
+		return s_names[type];
+	}
+
+	/** Get the allocations of a type since the last reset, in and out of steps. */
+	public static int getCount(final int type) {
+		int count = 0;
+		for (int i = 0; i < s_slotCount; ++i) {
+			count += s_total[i][type];
+		}
+		return count;
+	}
+
+	/** Get the allocations of a type in a phase since the last reset. */
+	public static int getCount(final int phase, final int type) {
+		return s_total[phase][type];
+	}
+
+	/** Get the allocations of a type in a phase of the last step. */
+	public static int getStepCount(final int phase, final int type) {
+		return s_lastStep[phase][type];
+	}
+
+	/** Name the phases in {@link #report()}, by index. */
+	public static void setPhaseNames(final String[] names) {
+		assert(names.length <= MAX_PHASES);
+		s_phaseNames = names;
+	}
+
+	/** Get all the allocations of the last step. */
+	public static int getStepTotal() {
+		return s_lastStepTotal;
+	}
+
+	/** Get the most allocations in one step since the last reset. */
+	public static int getMaxStepTotal() {
+		return s_maxStepTotal;
+	}
+
+	/** Get the number of steps since the last reset. */
+	public static int getStepCount() {
+		return s_stepCount;
+	}
+
+	/** Forget all counts. */
+	public static void reset() {
+		for (int i = 0; i < s_slotCount; ++i) {
+			for (int j = 0; j < e_typeCount; ++j) {
+				s_total[i][j] = 0;
+				s_step[i][j] = 0;
+				s_lastStep[i][j] = 0;
+			}
+		}
+		s_stepCount = 0;
+		s_lastStepTotal = 0;
+		s_maxStepTotal = 0;
+	}
+
+	/** The last step's allocations by phase and type, nonzero ones only. */
+	public static String report() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("step ").append(s_stepCount).append(": ").append(s_lastStepTotal)
+			.append(" allocations, max ").append(s_maxStepTotal);
+		for (int i = 0; i < e_outside; ++i) {
+			for (int j = 0; j < e_typeCount; ++j) {
+				if (s_lastStep[i][j] != 0) {
+					sb.append('\n').append(getPhaseName(i)).append(' ')
+						.append(s_names[j]).append(": ").append(s_lastStep[i][j]);
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String getPhaseName(final int phase) {
+		return s_phaseNames != null && phase < s_phaseNames.length
+			? s_phaseNames[phase] : "phase " + phase;
+	}
+
+	/**
+	 * Count an allocation. Call only behind a check of {@link #ENABLED},
+	 * so that the call is removed with it.
+	 */
+	public static void count(final int type) {
+		++s_step[s_phase][type];
+		++s_total[s_phase][type];
+	}
+
+	/** Start counting a step, charging allocations to its first phase. */
+	public static void beginStep(final int phase) {
+		setPhase(phase);
+	}
+
+	/** Charge the following allocations to a phase. */
+	public static void setPhase(final int phase) {
+		assert(phase >= 0 && phase < MAX_PHASES);
+		s_phase = phase;
+	}
+
+	/** Finish counting a step, charging later allocations to {@link #e_outside}. */
+	public static void endStep() {
+		int total = 0;
+		for (int i = 0; i < e_outside; ++i) {
+			for (int j = 0; j < e_typeCount; ++j) {
+				final int n = s_step[i][j];
+				s_lastStep[i][j] = n;
+				s_step[i][j] = 0;
+				total += n;
+			}
+		}
+		s_lastStepTotal = total;
+		s_maxStepTotal = Math.max(s_maxStepTotal, total);
+		++s_stepCount;
+		s_phase = e_outside;
+	}
+}
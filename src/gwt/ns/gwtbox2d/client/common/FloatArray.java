@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gwt.ns.gwtbox2d.client.common;
+
+/**
+ * A fixed length array of floats, for packed per-body data read and written
+ * in tight loops. On the JVM it is a plain float[] the JIT sees through.
+ * The browser version under translatable/ is an overlay on a native array
+ * instead: a Float32Array where the browser has typed arrays, chosen by
+ * deferred binding, and a zero-filled JavaScript Array elsewhere. Use
+ * {@link #get(int)} and {@link #set(int, float)} rather than keeping the
+ * storage, so the same code runs on both.
+ */
+public final class FloatArray {
+	private final float[] m_data;
+
+	private FloatArray(final int length) {
+		m_data = new float[length];
+	}
+
+	/** Create an array of the given length, all zeros. */
+	public static FloatArray create(final int length) {
+		return new FloatArray(length);
+	}
+
+	public final int length() {
+		return m_data.length;
+	}
+
+	public final float get(final int index) {
+		return m_data[index];
+	}
+
+	public final void set(final int index, final float value) {
+		m_data[index] = value;
+	}
+
+	/** Copy count entries of src, starting at srcIndex, into this array at index. */
+	public final void copy(final int index, final FloatArray src, final int srcIndex, final int count) {
+		System.arraycopy(src.m_data, srcIndex, m_data, index, count);
+	}
+}
@@ -42,6 +42,7 @@
 
 package gwt.ns.gwtbox2d.client.common;
 
+
 /**
  * A 2x2 matrix class.
  * djm: added ToOut methods
@@ -63,6 +64,9 @@ public class Mat22 {
 	/** Construct zero matrix.  Note: this is NOT an identity matrix!
 	 * djm fixed double allocation problem*/
 	public Mat22() {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_mat22);
+		}
 		col1 = new Vec2();
 		col2 = new Vec2();
 	}
@@ -73,6 +77,9 @@ public class Mat22 {
 	 * @param c2 Column 2 of matrix
 	 */
 	public Mat22(final Vec2 c1, final Vec2 c2) {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_mat22);
+		}
 		col1 = c1.clone();
 		col2 = c2.clone();
 	}
@@ -85,6 +92,9 @@ public class Mat22 {
 	 * @param col2y
 	 */
 	public Mat22(final float col1x, final float col2x, final float col1y, final float col2y) {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_mat22);
+		}
 		col1 = new Vec2(col1x, col1y);
 		col2 = new Vec2(col2x, col2y);
 	}
@@ -122,7 +132,7 @@ public class Mat22 {
 	 * @param angle Rotation (in radians) that matrix represents.
 	 */
 	public final void set(final float angle) {
-		final float c = (float) Math.cos(angle), s = (float) Math.sin(angle);
+		final float c = MathUtils.cos(angle), s = MathUtils.sin(angle);
 		col1.x = c; col2.x = -s;
 		col1.y = s; col2.y = c;
 	}
@@ -478,8 +488,8 @@ public class Mat22 {
 	
 	public final static Mat22 createRotationalTransform(float angle){
 		Mat22 mat = new Mat22();
-		final float c = (float) Math.cos(angle);
-		final float s = (float) Math.sin(angle);
+		final float c = MathUtils.cos(angle);
+		final float s = MathUtils.sin(angle);
 		mat.col1.x = c;
 		mat.col2.x = -s;
 		mat.col1.y = s;
@@ -488,8 +498,8 @@ public class Mat22 {
 	}
 	
 	public final static void createRotationalTransform(float angle, Mat22 out){
-		final float c = (float) Math.cos(angle);
-		final float s = (float) Math.sin(angle);
+		final float c = MathUtils.cos(angle);
+		final float s = MathUtils.sin(angle);
 		out.col1.x = c;
 		out.col2.x = -s;
 		out.col1.y = s;
@@ -47,6 +47,75 @@ package gwt.ns.gwtbox2d.client.common;
  * method
  */
 public class MathUtils {
+	public static final float PI = (float) Math.PI;
+	public static final float TWOPI = (float) (Math.PI * 2);
+	public static final float HALF_PI = (float) (Math.PI / 2);
+	private static final float INV_TWOPI = (float) (1 / (Math.PI * 2));
+
+	/**
+	 * Sine. This is Math.sin, unless {@link Settings#deterministic} is set,
+	 * in which case a polynomial is evaluated that doesn't depend on the
+	 * platform's Math library.
+	 */
+	public final static float sin(final float x) {
+		if (!Settings.deterministic) {
+			return (float) Math.sin(x);
+		}
+		return sinPoly(x);
+	}
+
+	/** Cosine, see {@link #sin(float)}. */
+	public final static float cos(final float x) {
+		if (!Settings.deterministic) {
+			return (float) Math.cos(x);
+		}
+		return sinPoly(x + HALF_PI);
+	}
+
+	/**
+	 * Fast sine, within 1e-5 of Math.sin for angles up to 100 radians (the
+	 * float argument itself limits accuracy further out). Float arithmetic
+	 * only, so it is as repeatable as {@link #sin(float)} in deterministic
+	 * mode. Used for TOI sub-iterations when {@link Settings#fastTOIRotation}
+	 * is set.
+	 */
+	public final static float fastSin(float x) {
+		x -= TWOPI * (float) Math.floor(x * INV_TWOPI + 0.5f);
+		if (x > HALF_PI) {
+			x = PI - x;
+		} else if (x < -HALF_PI) {
+			x = -PI - x;
+		}
+		final float x2 = x * x;
+		return x * (1.0f + x2 * (-1.0f / 6 + x2 * (1.0f / 120 + x2 * (-1.0f / 5040
+			+ x2 * (1.0f / 362880)))));
+	}
+
+	/** Fast cosine, see {@link #fastSin(float)}. */
+	public final static float fastCos(final float x) {
+		return fastSin(x + HALF_PI);
+	}
+
+	/**
+	 * Sine from a degree 11 Taylor polynomial after reducing to
+	 * [-pi/2, pi/2], accurate to about 1e-7. Only uses float arithmetic
+	 * and floor, so it is identical within one build. The JVM and GWT
+	 * builds differ, see {@link Settings#deterministic}.
+	 */
+	private final static float sinPoly(float x) {
+		// reduce to [-pi, pi]
+		x -= TWOPI * (float) Math.floor(x * INV_TWOPI + 0.5f);
+		// fold to [-pi/2, pi/2]
+		if (x > HALF_PI) {
+			x = PI - x;
+		} else if (x < -HALF_PI) {
+			x = -PI - x;
+		}
+		final float x2 = x * x;
+		return x * (1.0f + x2 * (-1.0f / 6 + x2 * (1.0f / 120 + x2 * (-1.0f / 5040
+			+ x2 * (1.0f / 362880 + x2 * (-1.0f / 39916800))))));
+	}
+
 	public final static float map(final float val, final float fromMin, final float fromMax,
 			final float toMin, final float toMax) {
 		final float mult = (val - fromMin) / (fromMax - fromMin);
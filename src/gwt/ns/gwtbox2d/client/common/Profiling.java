@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gwt.ns.gwtbox2d.client.common;
+
+/**
+ * Switches for profiling code that must cost nothing when off. On the
+ * JVM they are read from system properties once, and the JIT folds them
+ * away; the browser version under translatable/ has them as constants,
+ * so the GWT compiler removes the profiling code entirely.
+ */
+public final class Profiling {
+	private Profiling() {
+	}
+
+	/**
+	 * Count allocations in the engine, see
+	 * {@link AllocationProfiler}.
+	 * Set with -Dgwtbox2d.profileAllocations=true.
+	 */
+	public static final boolean ALLOCATIONS = Boolean.getBoolean("gwtbox2d.profileAllocations");
+}
@@ -0,0 +1,78 @@
+package gwt.ns.gwtbox2d.client.common;
+
+/**
+ * A rotation kept as its cosine and sine along with its angle. Setting
+ * the angle splits it into the nearest multiple of 1/8 radian, whose
+ * cosine and sine are computed exactly and kept, and a remainder of at
+ * most 1/16 radian applied with a short polynomial. Integration and
+ * position correction move a body's angle a little at a time, so most
+ * updates reuse the kept multiple and need no Math.sin/cos.
+ * <BR><BR>
+ * The result only depends on the angle, not on the previous ones, and is
+ * within a few float roundings of {@link Mat22#set(float)}. Only float
+ * arithmetic is added, so {@link Settings#deterministic} mode stays
+ * repeatable.
+ */
+public class Rot {
+	private static final float STEP = 0.125f;
+	private static final float INV_STEP = 8.0f;
+
+	/** Cosine of the angle. */
+	public float c;
+	/** Sine of the angle. */
+	public float s;
+	/** The angle in radians. */
+	public float angle;
+
+	// the kept multiple of STEP
+	private int m_base;
+	private float m_baseC;
+	private float m_baseS;
+
+	/** The identity rotation. */
+	public Rot() {
+		c = 1.0f;
+		s = 0.0f;
+		angle = 0.0f;
+		m_base = 0;
+		m_baseC = 1.0f;
+		m_baseS = 0.0f;
+	}
+
+	/** Set from an angle in radians. */
+	public final void set(final float angle) {
+		final int base = (int) Math.floor(angle * INV_STEP + 0.5f);
+		if (base != m_base) {
+			m_base = base;
+			m_baseC = MathUtils.cos(base * STEP);
+			m_baseS = MathUtils.sin(base * STEP);
+		}
+
+		// |d| <= 1/16, the dropped terms are below 1e-10
+		final float d = angle - base * STEP;
+		final float d2 = d * d;
+		final float cd = 1.0f - d2 * (0.5f - d2 * (1.0f / 24));
+		final float sd = d * (1.0f - d2 * (1.0f / 6 - d2 * (1.0f / 120)));
+		c = m_baseC * cd - m_baseS * sd;
+		s = m_baseS * cd + m_baseC * sd;
+		this.angle = angle;
+	}
+
+	public final void set(final Rot r) {
+		c = r.c;
+		s = r.s;
+		angle = r.angle;
+	}
+
+	/** Write this rotation into a matrix. */
+	public final void toMat22(final Mat22 R) {
+		R.col1.x = c;
+		R.col2.x = -s;
+		R.col1.y = s;
+		R.col2.y = c;
+	}
+
+	public String toString() {
+		return "Rot(" + angle + ": " + c + ", " + s + ")";
+	}
+}
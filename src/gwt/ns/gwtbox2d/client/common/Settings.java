@@ -44,7 +44,16 @@ package gwt.ns.gwtbox2d.client.common;
 
 //Updated to rev. 142 of b2Settings.cpp/.h
 
-/** Global tuning constants based on MKS units and various integer maximums (vertices per shape, pairs, etc.). */
+/**
+ * Global tuning constants based on MKS units and various integer maximums (vertices per shape, pairs, etc.).
+ * <BR><BR>
+ * The engine is float throughout. A double precision JVM build is out of
+ * scope; large worlds keep their floats precise with
+ * {@link gwt.ns.gwtbox2d.client.dynamics.World#shiftOrigin World.shiftOrigin}.
+ * In the browser every float is a JavaScript double already, and the
+ * gwtbox2d.precision property only chooses whether {@link FloatArray}s
+ * store float or double.
+ */
 public class Settings {
 
     /** A "close to zero" float epsilon value for use */
@@ -154,5 +163,36 @@ public class Settings {
     /** Maximum number of joints to be handled to solve a TOI island. */
     public static int maxTOIJointsPerIsland = 0;//16;
 
+    /**
+     * Use {@link MathUtils#fastSin(float)}/{@link MathUtils#fastCos(float)}
+     * for the rotations tried during time of impact iterations. Their error
+     * is far below the TOI slop, so impacts are found at the same times to
+     * within the tolerance the solver works to anyway.
+     */
+    public static boolean fastTOIRotation = false;
+
+    /**
+     * Solve two-point contact manifolds as a 2x2 block LCP instead of one point
+     * at a time. This converges much faster for resting polygon stacks.
+     */
+    public static boolean blockSolve = true;
+
+    /**
+     * Two-point manifolds whose effective mass matrix has a larger condition
+     * number than this fall back to the sequential solver.
+     */
+    public static final float maxBlockConditionNumber = 100.0f;
+
+    /**
+     * Deterministic mode. Broad-phase pairs are reported in shape order rather
+     * than in the order proxies happened to move, and rotations use
+     * {@link MathUtils#sin(float)}/{@link MathUtils#cos(float)} in plain float
+     * arithmetic instead of the platform's Math.sin/cos. Identical inputs
+     * then give identical results within one build, whatever the history of
+     * proxy ids. Results still differ between the JVM and GWT builds, which
+     * don't round float arithmetic the same way.
+     */
+    public static boolean deterministic = false;
+
 
 }
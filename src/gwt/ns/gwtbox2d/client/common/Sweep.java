@@ -82,7 +82,13 @@ public class Sweep {
 			xf.position.x = (1.0f - alpha) * c0.x + alpha * c.x;
 			xf.position.y = (1.0f - alpha) * c0.y + alpha * c.y;
 			float angle = (1.0f - alpha) * a0 + alpha * a;
-			xf.R.set(angle);
+			if (Settings.fastTOIRotation) {
+				final float c = MathUtils.fastCos(angle), s = MathUtils.fastSin(angle);
+				xf.R.col1.x = c; xf.R.col2.x = -s;
+				xf.R.col1.y = s; xf.R.col2.y = c;
+			} else {
+				xf.R.set(angle);
+			}
 		} else {
 			xf.position.set(c);
 			xf.R.set(a);
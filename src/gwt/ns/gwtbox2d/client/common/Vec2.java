@@ -42,23 +42,12 @@
 
 package gwt.ns.gwtbox2d.client.common;
 
+
 /**
  * A 2-dimensional vector class.  Used heavily in JBox2d.
  * djm: added ToOut methods
  */
 public class Vec2 {
-	/** Should we count Vec2 creations? */
-	static public boolean watchCreations = true;
-	/**
-	 * Running count of Vec2 creations.  Must be zeroed out
-	 * manually (perhaps at start of time step).  Incremented
-	 * in Vec2 constructor if watchCreations flag is true.
-	 * <BR><BR>
-	 * Mainly used for optimization purposes, since temporary
-	 * Vec2 creation is often a bottleneck.
-	 */
-	static public int creationCount = 0;
-
 	public float x, y;
 
 	public Vec2() {
@@ -66,8 +55,8 @@ public class Vec2 {
 	}
 
 	public Vec2(float x, float y) {
-		if (Vec2.watchCreations) {
-			++Vec2.creationCount;
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_vec2);
 		}
 		this.x = x;
 		this.y = y;
@@ -23,6 +23,7 @@
 
 package gwt.ns.gwtbox2d.client.common;
 
+
 /**
  * A transform contains translation and rotation. It is used to represent
  * the position and orientation of rigid frames.
@@ -44,18 +45,27 @@ public class XForm {
 
 	/** The default constructor. */
 	public XForm() {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_xform);
+		}
 		position = new Vec2();
 		R = new Mat22();
 	}
 
 	/** Initialize as a copy of another transform. */
 	public XForm(final XForm xf) {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_xform);
+		}
 		position = xf.position.clone();
 		R = xf.R.clone();
 	}
 
 	/** Initialize using a position vector and a rotation matrix. */
 	public XForm(final Vec2 _position, final Mat22 _R){
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_xform);
+		}
 		position = _position.clone();
 		R = _R.clone();
 	}
@@ -49,6 +49,7 @@ import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
 import gwt.ns.gwtbox2d.client.collision.shapes.ShapeDef;
 import gwt.ns.gwtbox2d.client.collision.shapes.ShapeType;
 import gwt.ns.gwtbox2d.client.common.Mat22;
+import gwt.ns.gwtbox2d.client.common.Rot;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Sweep;
 import gwt.ns.gwtbox2d.client.common.Vec2;
@@ -104,6 +105,12 @@ public class Body {
 	/** The body origin transform */
 	public final XForm m_xf;
 
+	/** The body origin transform before the last fixed sub-step, for render interpolation */
+	public final XForm m_xf0;
+
+	/** Computes the rotations of the sweep angles, reusing trig between nearby angles */
+	public final Rot m_rot;
+
 	/** The swept motion for CCD */
 	public Sweep m_sweep;
 
@@ -117,6 +124,10 @@ public class Body {
 	public Body m_prev;
 	public Body m_next;
 
+	/** The chunk this body was created in and its index there, or null. */
+	Chunk m_chunk;
+	int m_chunkIndex;
+
 	public Shape m_shapeList;
 	public int m_shapeCount;
 
@@ -131,6 +142,16 @@ public class Body {
 
 	public float m_sleepTime;
 
+	/** This body's share of {@link World#stateHash()}. */
+	int m_stateHash;
+
+	/** This body's index in the world's {@link BodyStateExport}, or -1. */
+	int m_stateIndex = -1;
+
+	/** Per-body sleep tolerances. Negative values defer to the world. */
+	public float m_linearSleepTolerance;
+	public float m_angularSleepTolerance;
+
 	/**
 	 * A holder to attach external data to a body.
 	 * Useful to keep track of what game entity
@@ -183,7 +204,12 @@ public class Body {
 		m_xf = new XForm();
 
 		m_xf.position.set(bd.position);
-		m_xf.R.set(bd.angle);
+		m_rot = new Rot();
+		m_rot.set(bd.angle);
+		m_rot.toMat22(m_xf.R);
+
+		m_xf0 = new XForm();
+		m_xf0.set(m_xf);
 
 		m_sweep = new Sweep();
 		m_sweep.localCenter.set(bd.massData.center);
@@ -207,6 +233,8 @@ public class Body {
 		m_angularVelocity = 0.0f;
 
 		m_sleepTime = 0.0f;
+		m_linearSleepTolerance = bd.linearSleepTolerance;
+		m_angularSleepTolerance = bd.angularSleepTolerance;
 
 		m_invMass = 0.0f;
 		m_I = 0.0f;
@@ -263,6 +291,14 @@ public class Body {
 	 */
 	// djm not a hot method, allocations are fine
 	public Shape createShape(final ShapeDef def){
+		return createShape(def, true);
+	}
+
+	/**
+	 * Create a shape, optionally leaving it out of the broad-phase so
+	 * proxies can be added in bulk later.
+	 */
+	Shape createShape(final ShapeDef def, final boolean createProxy){
 		assert(m_world.m_lock == false);
 
 		if (m_world.m_lock == true){
@@ -298,7 +334,9 @@ public class Body {
 				m_shapeList = s2;
 				++m_shapeCount;
 				s2.m_body = this;
-				s2.createProxy(m_world.m_broadPhase, m_xf);
+				if (createProxy) {
+					s2.createProxy(m_world.m_broadPhase, m_xf);
+				}
 				s2.updateSweepRadius(m_sweep.localCenter);
 
 				if (s1 == null) {
@@ -326,7 +364,9 @@ public class Body {
 		s.m_body = this;
 
 		// Add the shape to the world's broad-phase.
-		s.createProxy(m_world.m_broadPhase, m_xf);
+		if (createProxy) {
+			s.createProxy(m_world.m_broadPhase, m_xf);
+		}
 
 		// Compute the sweep radius for CCD.
 		s.updateSweepRadius(m_sweep.localCenter);
@@ -432,6 +472,7 @@ public class Body {
 		m_sweep.localCenter.set(massData.center);
 		XForm.mulToOut(m_xf, m_sweep.localCenter,m_sweep.c);
 		m_sweep.c0.set(m_sweep.c);
+		updateStateHash();
 
 		// Update the sweep radii of all child shapes
 		for (Shape s = m_shapeList; s != null; s = s.m_next) {
@@ -505,6 +546,7 @@ public class Body {
 		m_sweep.localCenter.set(center);
 		XForm.mulToOut(m_xf, m_sweep.localCenter, m_sweep.c);
 		m_sweep.c0.set(m_sweep.c);
+		updateStateHash();
 
 		// Update the sweep radii of all child shapes
 		for (Shape s = m_shapeList; s != null; s = s.m_next) {
@@ -544,12 +586,14 @@ public class Body {
 			return false;
 		}
 
-		m_xf.R.set(angle);
+		m_rot.set(angle);
+		m_rot.toMat22(m_xf.R);
 		m_xf.position.set(position);
 
 		XForm.mulToOut(m_xf, m_sweep.localCenter, m_sweep.c);
 		m_sweep.c0.set(m_sweep.c);
 		m_sweep.a0 = m_sweep.a = angle;
+		updateStateHash();
 
 		boolean freeze = false;
 
@@ -566,6 +610,7 @@ public class Body {
 			m_flags |= e_frozenFlag;
 			m_linearVelocity.setZero();
 			m_angularVelocity = 0.0f;
+			updateStateHash();
 			for (Shape s = m_shapeList; s != null; s = s.m_next) {
 				s.destroyProxy(m_world.m_broadPhase);
 			}
@@ -577,6 +622,9 @@ public class Body {
 		// Success
 		m_world.m_broadPhase.commit();
 
+		// Teleports aren't interpolated.
+		m_xf0.set(m_xf);
+
 		return true;
 	}
 
@@ -603,6 +651,36 @@ public class Body {
 		return m_xf;
 	}
 
+	/**
+	 * Get the body origin transform interpolated between the last two fixed
+	 * sub-steps, for rendering between physics steps. Only meaningful when
+	 * the world is advanced with {@link World#update(float)}; no trig is
+	 * needed since the rotation is normalized-lerped.
+	 * @param out where to put the interpolated transform.
+	 */
+	public void getInterpolatedXFormToOut(final XForm out){
+		final float alpha = m_world.m_interpolationAlpha;
+		final float beta = 1.0f - alpha;
+		out.position.x = beta * m_xf0.position.x + alpha * m_xf.position.x;
+		out.position.y = beta * m_xf0.position.y + alpha * m_xf.position.y;
+
+		float c = beta * m_xf0.R.col1.x + alpha * m_xf.R.col1.x;
+		float s = beta * m_xf0.R.col1.y + alpha * m_xf.R.col1.y;
+		final float length = (float) Math.sqrt(c * c + s * s);
+		if (length > Settings.EPSILON) {
+			final float invLength = 1.0f / length;
+			c *= invLength;
+			s *= invLength;
+		} else {
+			c = m_xf.R.col1.x;
+			s = m_xf.R.col1.y;
+		}
+		out.R.col1.x = c;
+		out.R.col1.y = s;
+		out.R.col2.x = -s;
+		out.R.col2.y = c;
+	}
+
 	/**
 	 * You probably don't want to use this
 	 * function.  What you really want is getWorldCenter(),
@@ -634,6 +712,15 @@ public class Body {
 		return m_xf.position;
 	}
 
+	/**
+	 * Get this body's index in the world's {@link BodyStateExport}, or -1
+	 * if it hasn't been captured yet.
+	 * @see World#setBodyStateExport(BodyStateExport)
+	 */
+	public int getStateIndex() {
+		return m_stateIndex;
+	}
+
 	/**
 	 * Get the angle in radians.
 	 * @return the current world rotation angle in radians.
@@ -684,6 +771,7 @@ public class Body {
 	 */
 	public void setLinearVelocity(final Vec2 v){
 		m_linearVelocity.set(v);
+		updateStateHash();
 	}
 
 	/**
@@ -701,6 +789,7 @@ public class Body {
 	 */
 	public void setAngularVelocity(final float omega){
 		m_angularVelocity = omega;
+		updateStateHash();
 	}
 
 	/**
@@ -757,6 +846,7 @@ public class Body {
 		m_linearVelocity.y += m_invMass * impulse.y;
 		//m_angularVelocity += m_invI * Vec2.cross(point.sub(m_sweep.c), impulse);
 		m_angularVelocity += m_invI * ((point.x - m_sweep.c.x) * impulse.y - (point.y - m_sweep.c.y) * impulse.x);
+		updateStateHash();
 	}
 
 	/**
@@ -918,10 +1008,53 @@ public class Body {
 
 	/** Wake up this body so it will begin simulating. */
 	public void wakeUp(){
+		if ((m_flags & e_sleepFlag) != 0 && m_world != null) {
+			++m_world.m_userWakeCount;
+		}
+		m_flags &= ~e_sleepFlag;
+		m_sleepTime = 0.0f;
+	}
+
+	/**
+	 * For internal use only. Wakes this body because a contact
+	 * began, ended or was destroyed, so it is counted separately
+	 * from user wake-ups.
+	 * @see World#getContactWakeCount()
+	 */
+	public void wakeUpFromContact(){
+		if ((m_flags & e_sleepFlag) != 0 && m_world != null) {
+			++m_world.m_contactWakeCount;
+		}
 		m_flags &= ~e_sleepFlag;
 		m_sleepTime = 0.0f;
 	}
 
+	/**
+	 * Set the linear velocity below which this body may fall asleep.
+	 * @param tolerance the tolerance, or a negative value to use the world's.
+	 */
+	public void setLinearSleepTolerance(final float tolerance) {
+		m_linearSleepTolerance = tolerance;
+	}
+
+	/** Get the linear sleep tolerance, negative if the world's is used. */
+	public float getLinearSleepTolerance() {
+		return m_linearSleepTolerance;
+	}
+
+	/**
+	 * Set the angular velocity below which this body may fall asleep.
+	 * @param tolerance the tolerance, or a negative value to use the world's.
+	 */
+	public void setAngularSleepTolerance(final float tolerance) {
+		m_angularSleepTolerance = tolerance;
+	}
+
+	/** Get the angular sleep tolerance, negative if the world's is used. */
+	public float getAngularSleepTolerance() {
+		return m_angularSleepTolerance;
+	}
+
 	/**
 	 * Get the linked list of all shapes attached to this body.
 	 * @return first Shape in linked list
@@ -971,7 +1104,8 @@ public class Body {
 	public boolean synchronizeShapes(){
 		// INLINED
 		final XForm xf1 = tlXf1.get();
-		xf1.R.set(m_sweep.a0);
+		m_rot.set(m_sweep.a0);
+		m_rot.toMat22(xf1.R);
 		Mat22 R = xf1.R;
 		Vec2 v = m_sweep.localCenter;
 		xf1.position.set(m_sweep.c0.x - (R.col1.x * v.x + R.col2.x * v.y),
@@ -1003,7 +1137,8 @@ public class Body {
 
 	/** For internal use only. */
 	public void synchronizeTransform(){
-		m_xf.R.set(m_sweep.a);
+		m_rot.set(m_sweep.a);
+		m_rot.toMat22(m_xf.R);
 		//m_xf.position.set(m_sweep.c.sub(Mat22.mul(m_xf.R,m_sweep.localCenter)));
 		final Vec2 v1 = m_sweep.localCenter;
 		m_xf.position.x = m_sweep.c.x - (m_xf.R.col1.x * v1.x + m_xf.R.col2.x * v1.y);
@@ -1033,6 +1168,7 @@ public class Body {
 		m_sweep.c.set(m_sweep.c0);
 		m_sweep.a = m_sweep.a0;
 		synchronizeTransform();
+		updateStateHash();
 	}
 
 	/**
@@ -1125,6 +1261,47 @@ public class Body {
 		m_angularVelocity = 0.0f;
 		m_force.setZero();
 		m_torque = 0.0f;
+		updateStateHash();
+	}
+
+	/**
+	 * Recompute this body's share of the world state hash and fold
+	 * the difference into the world's running total. Called wherever
+	 * the solver or the public setters move the body.
+	 */
+	void updateStateHash() {
+		final int h = computeStateHash();
+		m_world.m_stateHash += h - m_stateHash;
+		m_stateHash = h;
+	}
+
+	/**
+	 * Hash of the position, angle and velocities. The floats are quantized
+	 * through int casts rather than Float.floatToIntBits, which GWT doesn't
+	 * have, so the hash is the same in both builds for the same state.
+	 */
+	int computeStateHash() {
+		int h = 0x9747b28c;
+		h = mixStateHash(h, m_sweep.c.x);
+		h = mixStateHash(h, m_sweep.c.y);
+		h = mixStateHash(h, m_sweep.a);
+		h = mixStateHash(h, m_linearVelocity.x);
+		h = mixStateHash(h, m_linearVelocity.y);
+		h = mixStateHash(h, m_angularVelocity);
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	private static int mixStateHash(int h, final float x) {
+		final int whole = (int) x;
+		final int frac = (int) ((x - whole) * 16777216.0f);
+		h = (h ^ whole) * 0x5bd1e995;
+		h = (h ^ frac) * 0x5bd1e995;
+		return h ^ (h >>> 15);
 	}
 
 	public void setUserData(final Object data) {
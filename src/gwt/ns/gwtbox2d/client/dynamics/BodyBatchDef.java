@@ -0,0 +1,79 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+/**
+ * Many single-shape bodies as parallel arrays, for loading levels with
+ * {@link World#createBodies(BodyBatchDef)}. Body i is described by entry
+ * i of each array (entries 2i and 2i+1 of the paired ones). All data is
+ * public, and may be set directly; the optional arrays may be left null.
+ * <BR><BR>
+ * A body with zero density is static, otherwise its mass is computed
+ * from its shape once all the bodies are made.
+ */
+public class BodyBatchDef {
+	/** A box, dimensions are the half-width and half-height. */
+	public static final int e_box = 0;
+	/** A circle, the first dimension is the radius, the second is unused. */
+	public static final int e_circle = 1;
+
+	/** The number of bodies. */
+	public int count;
+
+	/** World positions, x and y per body. */
+	public float[] positions;
+
+	/** World angles in radians, or null for none. */
+	public float[] angles;
+
+	/** Shape types, {@link #e_box} or {@link #e_circle}, or null for all boxes. */
+	public int[] shapeTypes;
+
+	/** Shape dimensions, two per body, see the shape types. */
+	public float[] dimensions;
+
+	/** Shape densities, or null for all static. */
+	public float[] densities;
+
+	/** Collision category bits, or null for the default 0x0001. */
+	public int[] categoryBits;
+
+	/** Collision mask bits, or null for the default 0xFFFF. */
+	public int[] maskBits;
+
+	/** Collision group indices, or null for none. */
+	public int[] groupIndices;
+
+	/** Body user data, or null. */
+	public Object[] userData;
+
+	/** The friction of all the shapes. */
+	public float friction;
+
+	/** The restitution of all the shapes. */
+	public float restitution;
+
+	/** The linear damping of all the bodies. */
+	public float linearDamping;
+
+	/** The angular damping of all the bodies. */
+	public float angularDamping;
+
+	/**
+	 * An empty batch. Shapes get the usual friction of 0.2 and no
+	 * restitution, bodies no damping.
+	 */
+	public BodyBatchDef() {
+		count = 0;
+		friction = 0.2f;
+		restitution = 0.0f;
+		linearDamping = 0.0f;
+		angularDamping = 0.0f;
+	}
+
+	/** A batch of count bodies, with the required arrays allocated. */
+	public BodyBatchDef(final int count) {
+		this();
+		this.count = count;
+		positions = new float[2 * count];
+		dimensions = new float[2 * count];
+	}
+}
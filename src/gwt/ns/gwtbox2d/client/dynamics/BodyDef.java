@@ -77,6 +77,18 @@ public class BodyDef {
 	 */
     public boolean allowSleep;
 
+    /**
+     * Linear velocity below which this body may fall asleep. A negative
+     * value (the default) uses the world's tolerance.
+     */
+    public float linearSleepTolerance;
+
+    /**
+     * Angular velocity below which this body may fall asleep. A negative
+     * value (the default) uses the world's tolerance.
+     */
+    public float angularSleepTolerance;
+
     /** Is this body initially sleeping? */
     public boolean isSleeping;
     
@@ -100,6 +112,7 @@ public class BodyDef {
 	 * <LI>Zero rotation
 	 * <LI>Zero damping (linear + angular)
 	 * <LI>Able to sleep, but not sleeping to start
+	 * <LI>World sleep tolerances
 	 * <LI>Able to rotate
 	 * <LI>Not a bullet
 	 * </UL>
@@ -115,6 +128,8 @@ public class BodyDef {
         linearDamping = 0.0f;
         angularDamping = 0.0f;
         allowSleep = true;
+        linearSleepTolerance = -1.0f;
+        angularSleepTolerance = -1.0f;
         isSleeping = false;
         fixedRotation = false;
         isBullet = false;
@@ -0,0 +1,140 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.common.FloatArray;
+
+/**
+ * A copy of the body state in packed arrays, one entry per body, for code
+ * that reads all the bodies at once: renderers, network encoders, AI. This
+ * is an export, not where the state lives: the solver still works on the
+ * bodies' own fields, and writing positions or velocities here changes
+ * nothing. Register one with {@link World#setBodyStateExport(BodyStateExport)}
+ * and the world copies into it in one pass at the end of each step; each
+ * body's entry is then at {@link Body#getStateIndex()}. All data is public, and may be read
+ * directly; the arrays grow as needed and are reused. The float data is in
+ * {@link FloatArray}s, which are typed arrays in browsers that have them.
+ * <BR><BR>
+ * Forces go the other way: values written into {@link #fx}, {@link #fy}
+ * and {@link #torque} are applied at the bodies' centers of mass at the
+ * start of the next step, then cleared. Indices only stay valid until the
+ * next step, as bodies are created and destroyed.
+ */
+public class BodyStateExport {
+	/** The number of bodies. */
+	public int count;
+
+	/** The bodies, by index. */
+	public Body[] bodies;
+
+	/** Body origin positions and angles. */
+	public FloatArray x, y, angle;
+
+	/** Center of mass positions. */
+	public FloatArray cx, cy;
+
+	/** Linear and angular velocities. */
+	public FloatArray vx, vy, w;
+
+	/** Inverse masses and rotational inertias, zero for static bodies. */
+	public FloatArray invMass, invI;
+
+	/** Body flags, see {@link Body#e_sleepFlag} and the others. */
+	public int[] flags;
+
+	/** Forces and torques to apply at the start of the next step. */
+	public FloatArray fx, fy, torque;
+
+	public BodyStateExport() {
+		count = 0;
+		allocate(16);
+	}
+
+	public Body getBody(final int index) {
+		assert(index < count);
+		return bodies[index];
+	}
+
+	/** Copy the state of all the world's bodies. Called by the world after each step. */
+	public void capture(final World world) {
+		if (bodies.length < world.m_bodyCount) {
+			allocate(world.m_bodyCount * 2);
+		}
+
+		int i = 0;
+		for (Body b = world.m_bodyList; b != null; b = b.m_next, ++i) {
+			bodies[i] = b;
+			b.m_stateIndex = i;
+			x.set(i, b.m_xf.position.x);
+			y.set(i, b.m_xf.position.y);
+			angle.set(i, b.m_sweep.a);
+			cx.set(i, b.m_sweep.c.x);
+			cy.set(i, b.m_sweep.c.y);
+			vx.set(i, b.m_linearVelocity.x);
+			vy.set(i, b.m_linearVelocity.y);
+			w.set(i, b.m_angularVelocity);
+			invMass.set(i, b.m_invMass);
+			invI.set(i, b.m_invI);
+			flags[i] = b.m_flags;
+		}
+		for (int j = i; j < count; ++j) {
+			bodies[j] = null;
+		}
+		count = i;
+	}
+
+	/**
+	 * Apply and clear the pending forces, waking the bodies they act on.
+	 * Called by the world before each step.
+	 */
+	public void applyForces() {
+		for (int i = 0; i < count; ++i) {
+			final float px = fx.get(i);
+			final float py = fy.get(i);
+			final float t = torque.get(i);
+			if (px == 0.0f && py == 0.0f && t == 0.0f) {
+				continue;
+			}
+			fx.set(i, 0.0f);
+			fy.set(i, 0.0f);
+			torque.set(i, 0.0f);
+
+			final Body b = bodies[i];
+			if (b.isStatic() || b.isFrozen()) {
+				continue;
+			}
+			if (b.isSleeping()) {
+				b.wakeUp();
+			}
+			b.m_force.x += px;
+			b.m_force.y += py;
+			b.m_torque += t;
+		}
+	}
+
+	private void allocate(final int capacity) {
+		final Body[] oldBodies = bodies;
+		final FloatArray oldFx = fx, oldFy = fy, oldTorque = torque;
+
+		bodies = new Body[capacity];
+		x = FloatArray.create(capacity);
+		y = FloatArray.create(capacity);
+		angle = FloatArray.create(capacity);
+		cx = FloatArray.create(capacity);
+		cy = FloatArray.create(capacity);
+		vx = FloatArray.create(capacity);
+		vy = FloatArray.create(capacity);
+		w = FloatArray.create(capacity);
+		invMass = FloatArray.create(capacity);
+		invI = FloatArray.create(capacity);
+		flags = new int[capacity];
+		fx = FloatArray.create(capacity);
+		fy = FloatArray.create(capacity);
+		torque = FloatArray.create(capacity);
+
+		// pending forces survive the move, the rest is captured again
+		if (oldBodies != null) {
+			fx.copy(0, oldFx, 0, count);
+			fy.copy(0, oldFy, 0, count);
+			torque.copy(0, oldTorque, 0, count);
+		}
+	}
+}
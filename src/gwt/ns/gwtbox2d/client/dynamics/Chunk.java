@@ -0,0 +1,62 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.dynamics.joints.Joint;
+
+/**
+ * The bodies and joints created from a {@link ChunkDef}. A chunk is
+ * removed as a whole with {@link World#destroyChunk(Chunk)}, or taken
+ * out of the simulation with {@link World#freezeChunk(Chunk)} and put
+ * back as it was with {@link World#thawChunk(Chunk)}.
+ */
+public class Chunk {
+	final World m_world;
+	final Body[] m_bodies;
+	final Joint[] m_joints;
+
+	/** Body flags and sleep times from before the chunk was frozen. */
+	final int[] m_savedFlags;
+	final float[] m_savedSleepTimes;
+
+	boolean m_frozen;
+	boolean m_destroyed;
+
+	Chunk(final World world, final int bodyCount, final int jointCount) {
+		m_world = world;
+		m_bodies = new Body[bodyCount];
+		m_joints = new Joint[jointCount];
+		m_savedFlags = new int[bodyCount];
+		m_savedSleepTimes = new float[bodyCount];
+	}
+
+	public World getWorld() {
+		return m_world;
+	}
+
+	public int getBodyCount() {
+		return m_bodies.length;
+	}
+
+	/** Get a body by its index in the chunk definition, null once it is destroyed. */
+	public Body getBody(final int index) {
+		return m_bodies[index];
+	}
+
+	public int getJointCount() {
+		return m_joints.length;
+	}
+
+	/** Get a joint by its index in the chunk definition, null once it is destroyed. */
+	public Joint getJoint(final int index) {
+		return m_joints[index];
+	}
+
+	/** Is the chunk frozen out of the simulation. */
+	public boolean isFrozen() {
+		return m_frozen;
+	}
+
+	/** Has the chunk been destroyed. */
+	public boolean isDestroyed() {
+		return m_destroyed;
+	}
+}
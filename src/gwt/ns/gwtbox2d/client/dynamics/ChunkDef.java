@@ -0,0 +1,61 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.collision.shapes.ShapeDef;
+import gwt.ns.gwtbox2d.client.dynamics.joints.JointDef;
+
+import java.util.ArrayList;
+
+/**
+ * A prebuilt batch of body, shape and joint definitions, for streaming
+ * level pieces in and out with {@link World#createChunk(ChunkDef, gwt.ns.gwtbox2d.client.common.Vec2)}.
+ * A definition can be instantiated any number of times.
+ * <BR><BR>
+ * Joints refer to bodies by their index in this definition; the
+ * definitions' body1 and body2 are filled in when the chunk is created.
+ * After its shapes are added, a body's mass is computed from them unless
+ * its BodyDef gives a mass.
+ */
+public class ChunkDef {
+	final ArrayList<BodyDef> m_bodies = new ArrayList<BodyDef>();
+	final ArrayList<ShapeDef> m_shapes = new ArrayList<ShapeDef>();
+	final ArrayList<Integer> m_shapeBodies = new ArrayList<Integer>();
+	final ArrayList<JointDef> m_joints = new ArrayList<JointDef>();
+	final ArrayList<Integer> m_jointBodies = new ArrayList<Integer>();
+
+	/**
+	 * Add a body.
+	 * @return the body's index, for shapes and joints.
+	 */
+	public int addBody(final BodyDef def) {
+		m_bodies.add(def);
+		return m_bodies.size() - 1;
+	}
+
+	/** Add a shape to a body added before. */
+	public void addShape(final int body, final ShapeDef def) {
+		assert(body >= 0 && body < m_bodies.size());
+		m_shapes.add(def);
+		m_shapeBodies.add(body);
+	}
+
+	/** Add a joint between two bodies added before. */
+	public void addJoint(final JointDef def, final int body1, final int body2) {
+		assert(body1 >= 0 && body1 < m_bodies.size());
+		assert(body2 >= 0 && body2 < m_bodies.size());
+		m_joints.add(def);
+		m_jointBodies.add(body1);
+		m_jointBodies.add(body2);
+	}
+
+	public int getBodyCount() {
+		return m_bodies.size();
+	}
+
+	public int getShapeCount() {
+		return m_shapes.size();
+	}
+
+	public int getJointCount() {
+		return m_joints.size();
+	}
+}
@@ -31,6 +31,7 @@ import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.Contact;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.ContactPoint;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.NullContact;
+import gwt.ns.gwtbox2d.client.dynamics.contacts.WarmStartCache;
 import gwt.ns.gwtbox2d.client.pooling.TLContactPoint;
 import gwt.ns.gwtbox2d.client.pooling.TLVec2;
 
@@ -190,6 +191,18 @@ public class ContactManager implements PairCallback {
 			}
 		}
 
+		// Keep the impulses in case the pair touches again soon.
+		final WarmStartCache cache = m_world.m_warmStartCache;
+		if (manifoldCount > 0 && cache != null) {
+			final List<Manifold> manifolds = c.getManifolds();
+			for (int i = 0; i < manifoldCount; ++i) {
+				final Manifold manifold = manifolds.get(i);
+				for (int j = 0; j < manifold.pointCount; ++j) {
+					cache.store(shape1.uid, shape2.uid, manifold.points[j]);
+				}
+			}
+		}
+
 		// Remove from the world.
 		if (c.m_prev != null) {
 			c.m_prev.m_next = c.m_next;
@@ -84,8 +84,8 @@ public abstract class DebugDraw {
 	/// Draw a solid circle.
 	public abstract void drawSolidCircle(Vec2 center, float radius, Vec2 axis, Color3f color);
 	
-	/// Draw a point.
-	public abstract void drawPoint(Vec2 position, float f, Color3f color3f);
+	/// Draw a point, size across on screen.
+	public abstract void drawPoint(Vec2 position, float size, Color3f color3f);
 	
 	/// Draw a line segment.
 	public abstract void drawSegment(Vec2 p1, Vec2 p2, Color3f color);
@@ -95,6 +95,13 @@ public abstract class DebugDraw {
 	public abstract void drawXForm(XForm xf);
 
 	public abstract void drawString(float x, float y, String s, Color3f color);
+
+	/**
+	 * Called at the end of {@link World#drawDebugData()}, for implementations
+	 * that batch their drawing. Does nothing by default.
+	 */
+	public void flush() {
+	}
 	
 	public IViewportTransform getViewportTranform(){
 		return viewportTransform;
@@ -44,6 +44,7 @@ package gwt.ns.gwtbox2d.client.dynamics;
 
 import gwt.ns.gwtbox2d.client.collision.Manifold;
 import gwt.ns.gwtbox2d.client.collision.ManifoldPoint;
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
 import gwt.ns.gwtbox2d.client.common.MathUtils;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
@@ -54,6 +55,7 @@ import gwt.ns.gwtbox2d.client.dynamics.contacts.ContactConstraintPoint;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.ContactResult;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.ContactSolver;
 import gwt.ns.gwtbox2d.client.dynamics.joints.Joint;
+import gwt.ns.gwtbox2d.client.dynamics.joints.JointType;
 import gwt.ns.gwtbox2d.client.pooling.stacks.ContactSolverStack;
 
 import java.util.List;
@@ -83,12 +85,30 @@ public class Island {
 
 	public int m_jointCapacity;
 
-	public static int m_positionIterationCount = 0;
+	public int m_positionIterationCount;
 
 	public float m_positionError;
 
 	public ContactListener m_listener;
 
+	/** Time the island must be at rest before it is put to sleep. Set by the world before solving. */
+	public float m_timeToSleep;
+
+	/** Default linear sleep tolerance for bodies that don't override it. */
+	public float m_linearSleepTolerance;
+
+	/** Default angular sleep tolerance for bodies that don't override it. */
+	public float m_angularSleepTolerance;
+
+	/**
+	 * The island-level sleep timer: the shortest time any body in the
+	 * island has been at rest, as of the last solve.
+	 */
+	public float m_sleepTime;
+
+	/** True if the last solve put this island to sleep. */
+	public boolean m_sleeping;
+
 	//begin .h methods
 	public void clear() {
 		m_bodyCount = 0;
@@ -117,7 +137,12 @@ public class Island {
 	 * TODO djm: make this so it isn't created every time step
 	 */
 	public Island(){
-		
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_island);
+		}
+		m_timeToSleep = Settings.timeToSleep;
+		m_linearSleepTolerance = Settings.linearSleepTolerance;
+		m_angularSleepTolerance = Settings.angularSleepTolerance;
 	}
 	
 	public final void init(final int bodyCapacity,
@@ -134,15 +159,109 @@ public class Island {
 
 		m_listener = listener;
 
-		m_bodies = new Body[bodyCapacity];
-		m_contacts = new Contact[contactCapacity];
-		m_joints = new Joint[jointCapacity];
+		// djm islands are pooled, so keep the arrays if they are long enough
+		if (m_bodies == null || m_bodies.length < bodyCapacity) {
+			m_bodies = new Body[bodyCapacity];
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+		}
+		if (m_contacts == null || m_contacts.length < contactCapacity) {
+			m_contacts = new Contact[contactCapacity];
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+		}
+		if (m_joints == null || m_joints.length < jointCapacity) {
+			m_joints = new Joint[jointCapacity];
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+		}
 
 		m_positionIterationCount = 0;
 	}
 
 	// djm gwt.ns.gwtbox2d.pooling
 	private static final ContactSolverStack contactSolvers = new ContactSolverStack();
+
+	// scratch for groupJoints, grown as needed. Per island rather than
+	// static, as islands are pooled per thread.
+	private static final int JOINT_TYPES = JointType.values().length;
+	private final int[] m_typeNext = new int[JOINT_TYPES];
+	private final int[] m_runStarts = new int[JOINT_TYPES + 1];
+	private int m_runCount;
+	private Joint[] m_jointScratch = new Joint[16];
+
+	/**
+	 * Stable sort of the island's joints by type, into runs of one type
+	 * each. The joint solver then makes one call per run, to the run's
+	 * first joint, which fetches its type's scratch once and solves the
+	 * run with direct calls. Within a type the Gauss-Seidel order stays
+	 * that of the island, or its reverse; the types are solved one after
+	 * another.
+	 */
+	private void groupJoints(final boolean reverse) {
+		final int count = m_jointCount;
+		final int[] next = m_typeNext;
+		for (int i = 0; i < JOINT_TYPES; ++i) {
+			next[i] = 0;
+		}
+		for (int i = 0; i < count; ++i) {
+			++next[m_joints[i].m_type.ordinal()];
+		}
+		m_runCount = 0;
+		int start = 0;
+		for (int i = 0; i < JOINT_TYPES; ++i) {
+			final int n = next[i];
+			next[i] = start;
+			if (n > 0) {
+				m_runStarts[m_runCount++] = start;
+			}
+			start += n;
+		}
+		m_runStarts[m_runCount] = start;
+
+		if (m_jointScratch.length < count) {
+			m_jointScratch = new Joint[count * 2];
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+		}
+		final Joint[] scratch = m_jointScratch;
+		for (int i = 0; i < count; ++i) {
+			final Joint j = m_joints[reverse ? count - 1 - i : i];
+			scratch[next[j.m_type.ordinal()]++] = j;
+		}
+		for (int i = 0; i < count; ++i) {
+			m_joints[i] = scratch[i];
+			scratch[i] = null;
+		}
+	}
+
+	private void initJointVelocities(final TimeStep step) {
+		for (int r = 0; r < m_runCount; ++r) {
+			final int start = m_runStarts[r];
+			m_joints[start].initVelocityConstraints(m_joints, start, m_runStarts[r + 1], step);
+		}
+	}
+
+	private void solveJointVelocities(final TimeStep step) {
+		for (int r = 0; r < m_runCount; ++r) {
+			final int start = m_runStarts[r];
+			m_joints[start].solveVelocityConstraints(m_joints, start, m_runStarts[r + 1], step);
+		}
+	}
+
+	private boolean solveJointPositions() {
+		boolean okay = true;
+		for (int r = 0; r < m_runCount; ++r) {
+			final int start = m_runStarts[r];
+			final boolean runOkay = m_joints[start].solvePositionConstraints(m_joints, start, m_runStarts[r + 1]);
+			okay = okay && runOkay;
+		}
+		return okay;
+	}
 	
 	public void solve(final TimeStep step, final Vec2 gravity, final boolean correctPositions, final boolean allowSleep) {
 		// Integrate velocities and apply damping.
@@ -193,17 +312,13 @@ public class Island {
 		// Initialize velocity constraints.
 		contactSolver.initVelocityConstraints(step);
 
-		for (int i = 0; i < m_jointCount; ++i) {
-			m_joints[i].initVelocityConstraints(step);
-		}
+		groupJoints(false);
+		initJointVelocities(step);
 
 		// Solve velocity constraints.
 		for (int i = 0; i < step.maxIterations; ++i) {
 			contactSolver.solveVelocityConstraints();
-
-			for (int j = 0; j < m_jointCount; ++j) {
-				m_joints[j].solveVelocityConstraints(step);
-			}
+			solveJointVelocities(step);
 		}
 
 
@@ -246,11 +361,7 @@ public class Island {
 			for (m_positionIterationCount = 0; m_positionIterationCount < step.maxIterations; ++m_positionIterationCount) {
 				final boolean contactsOkay = contactSolver.solvePositionConstraints(Settings.contactBaumgarte);
 
-				boolean jointsOkay = true;
-				for (int i = 0; i < m_jointCount; ++i) {
-					final boolean jointOkay = m_joints[i].solvePositionConstraints();
-					jointsOkay = jointsOkay && jointOkay;
-				}
+				final boolean jointsOkay = solveJointPositions();
 
 				if (contactsOkay && jointsOkay) {
 					break;
@@ -261,18 +372,24 @@ public class Island {
 
 		report(contactSolver.m_constraints);
 
+		m_sleepTime = 0.0f;
+		m_sleeping = false;
+
 		if (allowSleep) {
 			float minSleepTime = Float.MAX_VALUE;
 
-			final float linTolSqr = Settings.linearSleepTolerance * Settings.linearSleepTolerance;
-			final float angTolSqr = Settings.angularSleepTolerance * Settings.angularSleepTolerance;
-
 			for (int i = 0; i < m_bodyCount; ++i) {
 				final Body b = m_bodies[i];
 				if (b.m_invMass == 0.0f) {
 					continue;
 				}
 
+				// Bodies may override the island's tolerances; negative means inherit.
+				final float linTol = b.m_linearSleepTolerance < 0.0f ? m_linearSleepTolerance : b.m_linearSleepTolerance;
+				final float angTol = b.m_angularSleepTolerance < 0.0f ? m_angularSleepTolerance : b.m_angularSleepTolerance;
+				final float linTolSqr = linTol * linTol;
+				final float angTolSqr = angTol * angTol;
+
 				/*if ((b.m_flags & Body.e_allowSleepFlag) == 0) {
 					b.m_sleepTime = 0.0f;
 					minSleepTime = 0.0f;
@@ -290,7 +407,10 @@ public class Island {
 				}
 			}
 
-			if (minSleepTime >= Settings.timeToSleep) {
+			m_sleepTime = minSleepTime;
+
+			if (minSleepTime >= m_timeToSleep) {
+				m_sleeping = true;
 				for (int i = 0; i < m_bodyCount; ++i) {
 					final Body b = m_bodies[i];
 					b.m_flags |= Body.e_sleepFlag;
@@ -300,6 +420,13 @@ public class Island {
 				}
 			}
 		}
+
+		for (int i = 0; i < m_bodyCount; ++i) {
+			final Body b = m_bodies[i];
+			if (b.isStatic() == false) {
+				b.updateStateHash();
+			}
+		}
 		
 		contactSolvers.recycle(contactSolver);
 	}
@@ -314,12 +441,11 @@ public class Island {
 		// No warm starting needed for TOI contact events.
 
 		// For joints, initialize with the last full step warm starting values
+		// Joints are solved in reverse island order.
+		groupJoints(true);
 		if (Settings.maxTOIJointsPerIsland > 0) {
 			subStep.warmStarting = true;
-			//for (int i=0; i<m_jointCount; ++i) {
-			for (int i = m_jointCount-1; i >= 0; --i) {
-				m_joints[i].initVelocityConstraints(subStep);
-			}
+			initJointVelocities(subStep);
 
 			// ...but don't update the warm starting value during solving
 			subStep.warmStarting = false;
@@ -328,14 +454,12 @@ public class Island {
 		// Solve velocity constraints.
 		for (int i = 0; i < subStep.maxIterations; ++i) {
 			contactSolver.solveVelocityConstraints();
-			//for (int j = 0; j < m_jointCount; ++j) {
-			for (int j = m_jointCount-1; j >= 0; --j) {
-				m_joints[j].solveVelocityConstraints(subStep);
-			}
+			solveJointVelocities(subStep);
 		}
 
 		// Don't store the TOI contact forces for warm starting
 		// because they can be quite large.
+		contactSolver.storeImpulses();
 
 		// Integrate positions.
 		for (int i = 0; i < m_bodyCount; ++i) {
@@ -367,13 +491,7 @@ public class Island {
 		for (int i = 0; i < subStep.maxIterations; ++i) {
 			final boolean contactsOkay = contactSolver.solvePositionConstraints(k_toiBaumgarte);
 
-			boolean jointsOkay = true;
-			//for (int j = 0; j < m_jointCount; ++j) {
-			for (int j = m_jointCount-1; j >= 0; --j) {
-				final boolean jointOkay = m_joints[j].solvePositionConstraints();
-				//System.out.println("iter "+i + ": "+j + " " + jointOkay);
-				jointsOkay = jointsOkay && jointOkay;
-			}
+			final boolean jointsOkay = solveJointPositions();
 
 			if (contactsOkay && jointsOkay) {
 				break;
@@ -388,6 +506,9 @@ public class Island {
 	public void report(final List<ContactConstraint> constraints) {
 		//TODO: optimize this, it's crummy
 		final ContactConstraint[] cc = new ContactConstraint[constraints.size()];
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_array);
+		}
 		for (int i=0; i<cc.length; ++i) {
 			cc[i] = constraints.get(i);
 		}
@@ -0,0 +1,278 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.collision.BroadPhase;
+import gwt.ns.gwtbox2d.client.collision.PairManager;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonShape;
+import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
+import gwt.ns.gwtbox2d.client.collision.shapes.ShapeType;
+import gwt.ns.gwtbox2d.client.common.MathUtils;
+import gwt.ns.gwtbox2d.client.common.Settings;
+import gwt.ns.gwtbox2d.client.dynamics.contacts.Contact;
+import gwt.ns.gwtbox2d.client.dynamics.contacts.NullContact;
+import gwt.ns.gwtbox2d.client.dynamics.joints.Joint;
+import gwt.ns.gwtbox2d.client.pooling.SingletonPool;
+import gwt.ns.gwtbox2d.client.pooling.StackAllocator;
+
+import java.util.List;
+
+/**
+ * What a world holds on to, from {@link World#memoryReport()}: for each
+ * subsystem the number of objects in use, an estimate of the bytes it
+ * retains, and how many of those bytes are capacity allocated ahead of
+ * need: free slots of the fixed broad-phase tables, spare manifolds, and
+ * scratch and pools that sit idle between steps.
+ * <BR><BR>
+ * Bytes are estimated from the classes' fields, as on a 32 bit JVM: an 8
+ * byte header and 4 bytes a field, arrays a 12 byte header, all rounded
+ * up to 8. Browsers lay objects out differently, so take the numbers as
+ * relative sizes, for sizing pools and watching for growth (a proxy or
+ * contact count that climbs as bodies are created and destroyed is a
+ * leak), not as exact heap use. Pools are those of the calling thread.
+ */
+public class MemoryReport {
+	public static final int e_bodies = 0;
+	public static final int e_shapes = 1;
+	/** Broad-phase proxy pool and query scratch. */
+	public static final int e_proxies = 2;
+	/** Broad-phase sorted bounds. */
+	public static final int e_bounds = 3;
+	/** Pair table, hash table and pair buffers. */
+	public static final int e_pairs = 4;
+	public static final int e_contacts = 5;
+	public static final int e_manifolds = 6;
+	public static final int e_joints = 7;
+	/** Pooled islands, with the arrays of the last step they solved. */
+	public static final int e_islands = 8;
+	/** Stack allocator, warm start cache and body state export. */
+	public static final int e_pools = 9;
+	public static final int e_subsystemCount = 10;
+
+	private static final String[] s_names = {
+		"bodies", "shapes", "proxies", "bounds", "pairs", "contacts", "manifolds",
+		"joints", "islands", "pools"
+	};
+
+	// estimated sizes, see the class comment
+	private static final int VEC2 = 16;
+	private static final int MAT22 = 48;
+	private static final int XFORM = 80;
+	private static final int BODY = 440;
+	private static final int CIRCLE = 160;
+	private static final int POINT = 160;
+	private static final int EDGE = 312;
+	/** Without its vertex, normal and core vertex arrays. */
+	private static final int POLYGON = 280;
+	/** A contact with its edges and manifold list, without the manifolds. */
+	private static final int CONTACT = 192;
+	/** With its {@link Settings#maxManifoldPoints} points. */
+	private static final int MANIFOLD = 288;
+	private static final int PROXY = 88;
+	private static final int BOUND = 24;
+	private static final int PAIR = 32;
+	private static final int BUFFERED_PAIR = 16;
+	private static final int ISLAND = 272;
+	/** Per warm start cache entry, and per bucket. */
+	private static final int WARM_START_ENTRY = 36;
+	private static final int WARM_START_BUCKET = 4;
+	/** Per body state export entry. */
+	private static final int STATE_ENTRY = 60;
+	/** By JointType, constant volume joints without their per body arrays. */
+	private static final int[] JOINT = {
+		0, 280, 264, 192, 288, 248, 232, 136
+	};
+
+	private static final int SHAPE_TYPES = ShapeType.SHAPE_TYPE_COUNT.ordinal();
+
+	private final int[] m_count = new int[e_subsystemCount];
+	private final int[] m_bytes = new int[e_subsystemCount];
+	private final int[] m_unused = new int[e_subsystemCount];
+	private final int[][] m_contactTypes = new int[SHAPE_TYPES][SHAPE_TYPES];
+
+	/** Get a subsystem's name, for reports. */
+	public static String getSubsystemName(final int subsystem) {
+		return s_names[subsystem];
+	}
+
+	/** Get the number of objects a subsystem has in use. */
+	public int getCount(final int subsystem) {
+		return m_count[subsystem];
+	}
+
+	/** Get the estimated bytes a subsystem retains, used or not. */
+	public int getBytes(final int subsystem) {
+		return m_bytes[subsystem];
+	}
+
+	/** Get the estimated bytes of a subsystem's capacity that is not in use. */
+	public int getUnusedBytes(final int subsystem) {
+		return m_unused[subsystem];
+	}
+
+	public int getTotalBytes() {
+		int total = 0;
+		for (int i = 0; i < e_subsystemCount; ++i) {
+			total += m_bytes[i];
+		}
+		return total;
+	}
+
+	public int getTotalUnusedBytes() {
+		int total = 0;
+		for (int i = 0; i < e_subsystemCount; ++i) {
+			total += m_unused[i];
+		}
+		return total;
+	}
+
+	/** Get the number of contacts between two types of shapes, in either order. */
+	public int getContactCount(final ShapeType type1, final ShapeType type2) {
+		final int i = type1.ordinal();
+		final int j = type2.ordinal();
+		return i == j ? m_contactTypes[i][j] : m_contactTypes[i][j] + m_contactTypes[j][i];
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < e_subsystemCount; ++i) {
+			sb.append(s_names[i]).append(": ").append(m_count[i])
+				.append(", ").append(m_bytes[i]).append(" bytes, ")
+				.append(m_unused[i]).append(" unused\n");
+		}
+		sb.append("total ").append(getTotalBytes()).append(" bytes, ")
+			.append(getTotalUnusedBytes()).append(" unused");
+		final ShapeType[] types = ShapeType.values();
+		for (int i = 1; i < SHAPE_TYPES; ++i) {
+			for (int j = i; j < SHAPE_TYPES; ++j) {
+				final int n = getContactCount(types[i], types[j]);
+				if (n != 0) {
+					sb.append("\ncontacts ").append(types[i]).append('/').append(types[j])
+						.append(": ").append(n);
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	void measure(final World world) {
+		for (int i = 0; i < e_subsystemCount; ++i) {
+			m_count[i] = 0;
+			m_bytes[i] = 0;
+			m_unused[i] = 0;
+		}
+		for (int i = 0; i < SHAPE_TYPES; ++i) {
+			for (int j = 0; j < SHAPE_TYPES; ++j) {
+				m_contactTypes[i][j] = 0;
+			}
+		}
+
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			add(e_bodies, 1, BODY, 0);
+			for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+				add(e_shapes, 1, shapeBytes(s), 0);
+			}
+		}
+
+		measureBroadPhase(world.m_broadPhase);
+
+		for (Contact c = world.m_contactList; c != null; c = c.m_next) {
+			add(e_contacts, 1, CONTACT, 0);
+			++m_contactTypes[c.m_shape1.getType().ordinal()][c.m_shape2.getType().ordinal()];
+			if (c instanceof NullContact) {
+				continue;
+			}
+			final List<?> manifolds = c.getManifolds();
+			final int allocated = manifolds == null ? 0 : manifolds.size();
+			final int used = c.getManifoldCount();
+			add(e_manifolds, used, allocated * MANIFOLD, (allocated - used) * MANIFOLD);
+		}
+
+		for (Joint j = world.m_jointList; j != null; j = j.m_next) {
+			add(e_joints, 1, JOINT[j.getType().ordinal()], 0);
+		}
+
+		// each pooled island keeps the arrays of its last init, at most
+		// those of a full solve
+		final int islands = World.islands.getPooledCount();
+		final int island = ISLAND + array(world.m_bodyCount) + array(world.m_contactCount)
+			+ array(world.m_jointCount);
+		add(e_islands, islands, islands * island, islands * island);
+
+		measurePools(world);
+	}
+
+	private void measureBroadPhase(final BroadPhase broadPhase) {
+		final int maxProxies = Settings.maxProxies;
+		final int maxPairs = Settings.maxPairs;
+		final int proxies = broadPhase.m_proxyCount;
+
+		// proxy pool, query results and sort keys
+		add(e_proxies, proxies, maxProxies * PROXY + 3 * array(maxProxies),
+			(maxProxies - proxies) * PROXY);
+
+		// two bounds per proxy on each axis
+		add(e_bounds, 4 * proxies, 4 * maxProxies * BOUND + 2 * array(2 * maxProxies),
+			4 * (maxProxies - proxies) * BOUND);
+
+		// the pair manager's pairs, hash table and pair buffer, and the
+		// broad-phase's own pair buffer, which only has maxProxies filled
+		final PairManager pairManager = broadPhase.m_pairManager;
+		final int pairs = pairManager.m_pairCount;
+		final int buffered = pairManager.m_pairBufferCount;
+		final int broadPhaseBuffer = array(maxPairs) + maxProxies * BUFFERED_PAIR;
+		add(e_pairs, pairs,
+			maxPairs * PAIR + array(maxPairs) + array(PairManager.TABLE_CAPACITY)
+				+ maxPairs * BUFFERED_PAIR + array(maxPairs) + broadPhaseBuffer,
+			(maxPairs - pairs) * PAIR + (maxPairs - buffered) * BUFFERED_PAIR + broadPhaseBuffer);
+	}
+
+	private void measurePools(final World world) {
+		// the stack allocator is all idle between steps
+		final StackAllocator stack = SingletonPool.getStackAllocator();
+		final int stackBytes = stack.getVec2Count() * VEC2 + stack.getMat22Count() * MAT22
+			+ stack.getXFormCount() * XFORM + stack.getFloatArrayCount() * array(0)
+			+ 4 * stack.getFloatCount();
+		add(e_pools, stack.getObjectCount(), stackBytes, stackBytes);
+
+		if (world.m_warmStartCache != null) {
+			final int capacity = world.m_warmStartCache.getCapacity();
+			final int count = world.m_warmStartCache.getCount();
+			final int buckets = MathUtils.nextPowerOfTwo(capacity);
+			add(e_pools, count, capacity * WARM_START_ENTRY + buckets * WARM_START_BUCKET,
+				(capacity - count) * WARM_START_ENTRY);
+		}
+
+		if (world.m_stateExport != null) {
+			final int capacity = world.m_stateExport.bodies.length;
+			final int count = world.m_stateExport.count;
+			add(e_pools, count, capacity * STATE_ENTRY, (capacity - count) * STATE_ENTRY);
+		}
+	}
+
+	private void add(final int subsystem, final int count, final int bytes, final int unused) {
+		m_count[subsystem] += count;
+		m_bytes[subsystem] += bytes;
+		m_unused[subsystem] += unused;
+	}
+
+	private static int shapeBytes(final Shape s) {
+		switch (s.getType()) {
+		case CIRCLE_SHAPE:
+			return CIRCLE;
+		case POINT_SHAPE:
+			return POINT;
+		case EDGE_SHAPE:
+			return EDGE;
+		case POLYGON_SHAPE:
+			final int n = ((PolygonShape) s).m_vertexCount;
+			return POLYGON + 3 * (array(n) + n * VEC2);
+		default:
+			return 0;
+		}
+	}
+
+	/** The estimated size of an array of 4 byte elements. */
+	private static int array(final int length) {
+		return (12 + 4 * length + 7) & ~7;
+	}
+}
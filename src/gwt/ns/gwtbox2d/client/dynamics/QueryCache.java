@@ -0,0 +1,110 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.BroadPhase;
+import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
+import gwt.ns.gwtbox2d.client.common.Settings;
+
+/**
+ * Broad-phase results for square cells of the world, for repeated small
+ * queries such as picking on every mouse move. A cell's candidates are
+ * kept until any proxy is created, destroyed or moved, which for a world
+ * that isn't asleep is once per step. The table is direct-mapped, so a
+ * cell only pushes out the one sharing its slot.
+ */
+final class QueryCache {
+	private static final int SIZE = 64;
+
+	private final float m_cellSize;
+	private final float m_invCellSize;
+
+	private final int[] m_cellX = new int[SIZE];
+	private final int[] m_cellY = new int[SIZE];
+	/** Proxy version the entry was filled at, or -1 when empty. */
+	private final int[] m_version = new int[SIZE];
+	private final Shape[][] m_shapes = new Shape[SIZE][];
+	private final int[] m_counts = new int[SIZE];
+
+	private final AABB m_cellAABB = new AABB();
+	private Object[] m_results;
+
+	int m_hits;
+	int m_misses;
+
+	// the cell found by the last call to lookup
+	Shape[] m_lastShapes;
+	int m_lastCount;
+
+	QueryCache(final float cellSize) {
+		assert(cellSize > 0.0f);
+		m_cellSize = cellSize;
+		m_invCellSize = 1.0f / cellSize;
+		clear();
+	}
+
+	float getCellSize() {
+		return m_cellSize;
+	}
+
+	void clear() {
+		for (int i = 0; i < SIZE; ++i) {
+			m_version[i] = -1;
+			m_shapes[i] = null;
+			m_counts[i] = 0;
+		}
+		m_lastShapes = null;
+		m_lastCount = 0;
+	}
+
+	/**
+	 * Find the candidates of the cell holding an AABB, from the table or
+	 * the broad-phase, into m_lastShapes and m_lastCount.
+	 * @return false if the AABB isn't inside a single cell.
+	 */
+	boolean lookup(final BroadPhase broadPhase, final AABB aabb) {
+		final int ix = (int) Math.floor(aabb.lowerBound.x * m_invCellSize);
+		final int iy = (int) Math.floor(aabb.lowerBound.y * m_invCellSize);
+		if (ix != (int) Math.floor(aabb.upperBound.x * m_invCellSize)
+				|| iy != (int) Math.floor(aabb.upperBound.y * m_invCellSize)) {
+			return false;
+		}
+
+		final int slot = ((ix * 73856093) ^ (iy * 19349663)) & (SIZE - 1);
+		final int version = broadPhase.getProxyVersion();
+		if (m_version[slot] == version && m_cellX[slot] == ix && m_cellY[slot] == iy) {
+			++m_hits;
+			m_lastShapes = m_shapes[slot];
+			m_lastCount = m_counts[slot];
+			return true;
+		}
+		++m_misses;
+
+		if (m_results == null) {
+			m_results = new Object[Settings.maxProxies];
+		}
+		m_cellAABB.lowerBound.set(ix * m_cellSize, iy * m_cellSize);
+		m_cellAABB.upperBound.set((ix + 1) * m_cellSize, (iy + 1) * m_cellSize);
+		final int count = broadPhase.query(m_cellAABB, m_results, Settings.maxProxies);
+
+		Shape[] shapes = m_shapes[slot];
+		if (shapes == null || shapes.length < count) {
+			shapes = new Shape[Math.max(count, 8)];
+			m_shapes[slot] = shapes;
+		}
+		for (int i = 0; i < count; ++i) {
+			shapes[i] = (Shape) m_results[i];
+			m_results[i] = null;
+		}
+		for (int i = count; i < m_counts[slot]; ++i) {
+			shapes[i] = null;
+		}
+
+		m_cellX[slot] = ix;
+		m_cellY[slot] = iy;
+		m_version[slot] = version;
+		m_counts[slot] = count;
+		m_lastShapes = shapes;
+		m_lastCount = count;
+		return true;
+	}
+}
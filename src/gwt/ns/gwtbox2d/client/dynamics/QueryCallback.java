@@ -0,0 +1,16 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
+
+/**
+ * Receives the shapes found by {@link World#queryPoint(gwt.ns.gwtbox2d.client.common.Vec2, QueryCallback)}
+ * and {@link World#overlapShape(Shape, gwt.ns.gwtbox2d.client.common.XForm, QueryCallback)}.
+ */
+public interface QueryCallback {
+	/**
+	 * Called for each shape found, in no particular order.
+	 * <BR><BR><em>Warning</em>: you can't modify the world inside this callback.
+	 * @return false to stop the query.
+	 */
+	public boolean reportShape(Shape shape);
+}
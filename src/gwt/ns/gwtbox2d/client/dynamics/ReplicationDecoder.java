@@ -0,0 +1,326 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.common.Vec2;
+
+/**
+ * Decodes frames written by a {@link ReplicationEncoder}. After each
+ * successful {@link #decode(byte[], int)}, send {@link #getSequence()}
+ * back to the encoder as the acknowledgement, and read the poses of the
+ * bodies that changed or were removed.
+ * <BR><BR>
+ * The decoder keeps the last {@link ReplicationEncoder#HISTORY} frames
+ * so any of them can serve as a baseline. A frame whose baseline is
+ * unknown, or that is older than the latest one, is rejected; the
+ * encoder falls back to a full frame once acknowledgements stop.
+ * <BR><BR>
+ * Frames come off the network, so each one is checked in full before
+ * anything is changed: reads past its length, varints longer than 5
+ * bytes, ids out of order or past {@link ReplicationEncoder#MAX_IDS}
+ * reject it like a stale frame.
+ */
+public class ReplicationDecoder {
+	private static final int HISTORY = ReplicationEncoder.HISTORY;
+	private static final int NO_FRAME = ReplicationEncoder.NO_FRAME;
+	private static final float INV_ANGLE_SCALE = 1.0f / ReplicationEncoder.ANGLE_SCALE;
+
+	private final float m_invPositionScale;
+
+	private int m_capacity;
+	private final int[][] m_frames;
+	private final boolean[][] m_present;
+	private final int[] m_frameSeq;
+	private int m_current;
+	private int m_sequence;
+
+	private int[] m_changed;
+	private int m_changedCount;
+	private int[] m_removed;
+	private int m_removedCount;
+
+	private byte[] m_buffer;
+	private byte[] m_data;
+	private int m_pos;
+	private int m_end;
+	private boolean m_error;
+
+	private final Vec2 m_position = new Vec2();
+
+	public ReplicationDecoder() {
+		this(ReplicationEncoder.DEFAULT_POSITION_SCALE);
+	}
+
+	/**
+	 * @param positionScale position units per meter, as given to the encoder.
+	 */
+	public ReplicationDecoder(final float positionScale) {
+		assert(positionScale > 0.0f);
+		m_invPositionScale = 1.0f / positionScale;
+
+		m_capacity = 64;
+		m_frames = new int[HISTORY][];
+		m_present = new boolean[HISTORY][];
+		m_frameSeq = new int[HISTORY];
+		for (int i = 0; i < HISTORY; ++i) {
+			m_frames[i] = new int[m_capacity * 3];
+			m_present[i] = new boolean[m_capacity];
+			m_frameSeq[i] = NO_FRAME;
+		}
+		m_current = 0;
+		m_sequence = NO_FRAME;
+
+		m_changed = new int[m_capacity];
+		m_removed = new int[m_capacity];
+		m_buffer = new byte[256];
+	}
+
+	/**
+	 * Decode a frame received as a string of one char per byte.
+	 * @see ReplicationEncoder#toMessage()
+	 */
+	public boolean decode(final String message) {
+		final int length = message.length();
+		if (m_buffer.length < length) {
+			m_buffer = new byte[Math.max(length, m_buffer.length * 2)];
+		}
+		for (int i = 0; i < length; ++i) {
+			m_buffer[i] = (byte) message.charAt(i);
+		}
+		return decode(m_buffer, length);
+	}
+
+	/**
+	 * Decode a frame.
+	 * @return false if the frame was old, malformed or its baseline is
+	 * unknown, in which case nothing changes.
+	 */
+	public boolean decode(final byte[] data, final int length) {
+		m_data = data;
+		m_pos = 0;
+		m_end = Math.min(length, data.length);
+		m_error = false;
+
+		final int seq = readVarint();
+		final int baseline = readVarint() - 1;
+		if (m_error || seq <= m_sequence) {
+			m_data = null;
+			return false;
+		}
+		if (baseline != NO_FRAME && (seq - baseline >= HISTORY
+				|| m_frameSeq[baseline & (HISTORY - 1)] != baseline)) {
+			m_data = null;
+			return false;
+		}
+
+		final int start = m_pos;
+		if (check() == false) {
+			m_data = null;
+			return false;
+		}
+		m_pos = start;
+
+		final int slot = seq & (HISTORY - 1);
+		final int[] frame = m_frames[slot];
+		final boolean[] present = m_present[slot];
+		m_removedCount = 0;
+		if (baseline == NO_FRAME) {
+			// everything not in a full frame is gone
+			if (m_sequence != NO_FRAME) {
+				final boolean[] old = m_present[m_current];
+				for (int i = 0; i < m_capacity; ++i) {
+					if (old[i]) {
+						addRemoved(i);
+					}
+				}
+			}
+			for (int i = 0; i < m_capacity; ++i) {
+				present[i] = false;
+			}
+		} else {
+			final int bslot = baseline & (HISTORY - 1);
+			System.arraycopy(m_frames[bslot], 0, frame, 0, m_capacity * 3);
+			System.arraycopy(m_present[bslot], 0, present, 0, m_capacity);
+		}
+		// don't let a half decoded frame serve as a baseline
+		m_frameSeq[slot] = NO_FRAME;
+
+		int id = -1;
+		for (int delta = readVarint(); delta != 0; delta = readVarint()) {
+			id += delta;
+			if (id < m_capacity && present[id]) {
+				present[id] = false;
+				addRemoved(id);
+			}
+		}
+
+		m_changedCount = 0;
+		id = -1;
+		for (int key = readVarint(); key != 0; key = readVarint()) {
+			id += key >>> 1;
+			if (id >= m_capacity) {
+				grow(Math.min(Math.max(id + 1, m_capacity * 2), ReplicationEncoder.MAX_IDS));
+			}
+			final int[] f = m_frames[slot];
+			final int k = id * 3;
+			final int x = readZigzag();
+			final int y = readZigzag();
+			final int a = readZigzag();
+			if ((key & 1) != 0) {
+				f[k] = x;
+				f[k + 1] = y;
+				f[k + 2] = a;
+			} else {
+				f[k] += x;
+				f[k + 1] += y;
+				f[k + 2] = (f[k + 2] + a) & ReplicationEncoder.ANGLE_MASK;
+			}
+			m_present[slot][id] = true;
+			if (m_changedCount == m_changed.length) {
+				m_changed = ReplicationEncoder.growInts(m_changed, m_changedCount * 2, m_changedCount);
+			}
+			m_changed[m_changedCount++] = id;
+		}
+		assert(m_error == false);
+
+		if (baseline == NO_FRAME) {
+			int n = 0;
+			for (int i = 0; i < m_removedCount; ++i) {
+				if (m_present[slot][m_removed[i]] == false) {
+					m_removed[n++] = m_removed[i];
+				}
+			}
+			m_removedCount = n;
+		}
+
+		m_frameSeq[slot] = seq;
+		m_sequence = seq;
+		m_current = slot;
+		m_data = null;
+		return true;
+	}
+
+	/** Get the sequence number of the last decoded frame, to acknowledge. */
+	public int getSequence() {
+		return m_sequence;
+	}
+
+	/** Get the number of bodies added or moved by the last frame. */
+	public int getChangedCount() {
+		return m_changedCount;
+	}
+
+	/** Get the id of a body added or moved by the last frame. */
+	public int getChangedId(final int index) {
+		return m_changed[index];
+	}
+
+	/** Get the number of bodies removed by the last frame. */
+	public int getRemovedCount() {
+		return m_removedCount;
+	}
+
+	/** Get the id of a body removed by the last frame. */
+	public int getRemovedId(final int index) {
+		return m_removed[index];
+	}
+
+	/** Get one past the largest id seen. */
+	public int getIdCapacity() {
+		return m_capacity;
+	}
+
+	/** Is there a body with this id. */
+	public boolean isPresent(final int id) {
+		return id < m_capacity && m_present[m_current][id];
+	}
+
+	/** Get the x position of a body's origin, in meters. */
+	public float getX(final int id) {
+		return m_frames[m_current][id * 3] * m_invPositionScale;
+	}
+
+	/** Get the y position of a body's origin, in meters. */
+	public float getY(final int id) {
+		return m_frames[m_current][id * 3 + 1] * m_invPositionScale;
+	}
+
+	/** Get a body's angle in radians, in [-pi, pi). */
+	public float getAngle(final int id) {
+		return ReplicationEncoder.wrapAngle(m_frames[m_current][id * 3 + 2]) * INV_ANGLE_SCALE;
+	}
+
+	/**
+	 * Move a body to the decoded pose, for mirroring into a local world.
+	 * @see Body#setXForm(gwt.ns.gwtbox2d.client.common.Vec2, float)
+	 */
+	public void apply(final int id, final Body body) {
+		m_position.set(getX(id), getY(id));
+		body.setXForm(m_position, getAngle(id));
+	}
+
+	private void addRemoved(final int id) {
+		if (m_removedCount == m_removed.length) {
+			m_removed = ReplicationEncoder.growInts(m_removed, m_removedCount * 2, m_removedCount);
+		}
+		m_removed[m_removedCount++] = id;
+	}
+
+	/**
+	 * Walk the removals and entries of a frame, checking every read and id.
+	 * @return false if the frame is malformed.
+	 */
+	private boolean check() {
+		int id = -1;
+		for (int delta = readVarint(); delta != 0; delta = readVarint()) {
+			if (delta < 0 || delta >= ReplicationEncoder.MAX_IDS - id) {
+				return false;
+			}
+			id += delta;
+		}
+
+		id = -1;
+		for (int key = readVarint(); key != 0; key = readVarint()) {
+			final int delta = key >>> 1;
+			if (delta == 0 || delta >= ReplicationEncoder.MAX_IDS - id) {
+				return false;
+			}
+			id += delta;
+			readVarint();
+			readVarint();
+			readVarint();
+		}
+		return m_error == false;
+	}
+
+	/** Read a varint of at most 5 bytes. On a bad one, set m_error and return 0. */
+	private int readVarint() {
+		int v = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			if (m_pos >= m_end) {
+				m_error = true;
+				return 0;
+			}
+			final int b = m_data[m_pos++];
+			v |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return v;
+			}
+		}
+		m_error = true;
+		return 0;
+	}
+
+	private int readZigzag() {
+		final int v = readVarint();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private void grow(final int capacity) {
+		for (int i = 0; i < HISTORY; ++i) {
+			m_frames[i] = ReplicationEncoder.growInts(m_frames[i], capacity * 3, m_capacity * 3);
+			final boolean[] present = new boolean[capacity];
+			System.arraycopy(m_present[i], 0, present, 0, m_capacity);
+			m_present[i] = present;
+		}
+		m_capacity = capacity;
+	}
+}
@@ -0,0 +1,346 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.common.MathUtils;
+
+/**
+ * Encodes body positions and angles into compact delta frames for
+ * replicating a world to spectators. Use one encoder per receiver, and
+ * a {@link ReplicationDecoder} on the other end.
+ * <BR><BR>
+ * Bodies are registered with {@link #add(Body)}, which gives them the id
+ * used on the wire. Each call to {@link #encode()} writes one frame.
+ * Positions are quantized to fixed point with {@link #getPositionScale()}
+ * units per meter. Angles are quantized to 16 bits per turn. Each frame
+ * is a delta against the latest frame the receiver {@link #acknowledge(int)
+ * acknowledged}, so frames may be lost without the stream breaking.
+ * Bodies that have not moved past the tolerance since that baseline are
+ * left out. Sleeping and frozen bodies are quantized once when they come
+ * to rest and then just compared, so they cost almost nothing. Until
+ * something is acknowledged, or once the baseline is older than
+ * {@link #HISTORY} frames, a full frame is sent.
+ * <BR><BR>
+ * A frame is a byte buffer of varints. It is available as a byte array
+ * ({@link #getBuffer()}, {@link #getLength()}), or as a string of one
+ * char per byte ({@link #toMessage()}) that can go through a web worker's
+ * postMessage or a text socket.
+ * <BR><BR>
+ * Frame layout: sequence, baseline + 1 (0 for a full frame), ids removed
+ * since the baseline as id deltas ending in 0, then body entries ending
+ * in 0. Each entry is (id delta &lt;&lt; 1 | full) followed by x, y and angle
+ * as zigzag varints, either absolute (full) or as a difference from the
+ * baseline.
+ */
+public class ReplicationEncoder {
+	/** Frames kept for use as baselines. Must be a power of two. */
+	public static final int HISTORY = 32;
+	/** Default position units per meter, about 4 mm. */
+	public static final float DEFAULT_POSITION_SCALE = 256.0f;
+	/** Angle units per radian, 16 bits per turn. */
+	public static final float ANGLE_SCALE = 65536.0f / MathUtils.TWOPI;
+	/** One past the largest id; decoders reject frames with larger ones. */
+	public static final int MAX_IDS = 1 << 16;
+
+	static final int NO_FRAME = -1;
+	static final int ANGLE_MASK = 0xFFFF;
+
+	private final float m_positionScale;
+	private int m_positionTolerance;
+	private int m_angleTolerance;
+
+	// id -> body, with a free list of ids
+	private Body[] m_bodies;
+	private int m_idCount;
+	private int[] m_freeIds;
+	private int m_freeCount;
+
+	// frame an id was (re)assigned in, and removed in
+	private int[] m_addedSeq;
+	private int[] m_removedSeq;
+
+	// quantized pose of resting bodies, keyed by their state hash
+	private boolean[] m_restValid;
+	private int[] m_restHash;
+	private int[] m_restPose;
+
+	// quantized poses as the receiver will have them, per frame
+	private final int[][] m_frames;
+	private final int[] m_frameSeq;
+
+	private int m_sequence;
+	private int m_acked;
+
+	private byte[] m_buffer;
+	private int m_length;
+	private int m_entryCount;
+
+	public ReplicationEncoder() {
+		this(DEFAULT_POSITION_SCALE);
+	}
+
+	/**
+	 * @param positionScale position units per meter. The decoder must
+	 * use the same scale.
+	 */
+	public ReplicationEncoder(final float positionScale) {
+		assert(positionScale > 0.0f);
+		m_positionScale = positionScale;
+
+		final int capacity = 64;
+		m_bodies = new Body[capacity];
+		m_freeIds = new int[capacity];
+		m_addedSeq = new int[capacity];
+		m_removedSeq = new int[capacity];
+		m_restValid = new boolean[capacity];
+		m_restHash = new int[capacity];
+		m_restPose = new int[capacity * 3];
+		m_frames = new int[HISTORY][];
+		m_frameSeq = new int[HISTORY];
+		for (int i = 0; i < HISTORY; ++i) {
+			m_frames[i] = new int[capacity * 3];
+			m_frameSeq[i] = NO_FRAME;
+		}
+
+		m_buffer = new byte[256];
+		m_acked = NO_FRAME;
+	}
+
+	/** Get the position units per meter. */
+	public float getPositionScale() {
+		return m_positionScale;
+	}
+
+	/**
+	 * Set how far a body may drift from what the receiver has before it
+	 * is sent again. The default is zero: any change of a unit is sent.
+	 * @param linear position tolerance in meters.
+	 * @param angular angle tolerance in radians.
+	 */
+	public void setTolerance(final float linear, final float angular) {
+		m_positionTolerance = (int) (linear * m_positionScale);
+		m_angleTolerance = (int) (angular * ANGLE_SCALE);
+	}
+
+	/**
+	 * Start replicating a body.
+	 * @return the id the body is known by on the wire.
+	 */
+	public int add(final Body body) {
+		assert(body != null);
+		final int id;
+		if (m_freeCount > 0) {
+			id = m_freeIds[--m_freeCount];
+		} else {
+			assert(m_idCount < MAX_IDS) : "Too many replicated bodies";
+			if (m_idCount == m_bodies.length) {
+				grow(m_idCount * 2);
+			}
+			id = m_idCount++;
+		}
+		m_bodies[id] = body;
+		m_addedSeq[id] = m_sequence;
+		m_removedSeq[id] = NO_FRAME;
+		m_restValid[id] = false;
+		return id;
+	}
+
+	/**
+	 * Stop replicating a body. The receiver is told in the next frame,
+	 * and the id may be given to another body.
+	 */
+	public void remove(final int id) {
+		assert(m_bodies[id] != null);
+		m_bodies[id] = null;
+		m_removedSeq[id] = m_sequence;
+		m_freeIds[m_freeCount++] = id;
+	}
+
+	/** Get the body registered with an id, or null. */
+	public Body getBody(final int id) {
+		return id < m_idCount ? m_bodies[id] : null;
+	}
+
+	/**
+	 * The receiver has decoded a frame. Later frames are encoded against
+	 * it, or against a newer acknowledged one.
+	 */
+	public void acknowledge(final int sequence) {
+		if (sequence > m_acked && sequence < m_sequence) {
+			m_acked = sequence;
+		}
+	}
+
+	/** Forget acknowledgements, so the next frame is a full one. */
+	public void reset() {
+		m_acked = NO_FRAME;
+	}
+
+	/**
+	 * Encode a frame of the registered bodies' current poses.
+	 * @return the sequence number of the frame.
+	 */
+	public int encode() {
+		final int seq = m_sequence++;
+		final int slot = seq & (HISTORY - 1);
+		final int[] frame = m_frames[slot];
+
+		int baseline = m_acked;
+		if (baseline == NO_FRAME || seq - baseline >= HISTORY
+				|| m_frameSeq[baseline & (HISTORY - 1)] != baseline) {
+			baseline = NO_FRAME;
+		}
+		final int[] base = baseline == NO_FRAME ? null : m_frames[baseline & (HISTORY - 1)];
+
+		m_length = 0;
+		m_entryCount = 0;
+		writeVarint(seq);
+		writeVarint(baseline + 1);
+
+		int last = -1;
+		if (baseline != NO_FRAME) {
+			for (int id = 0; id < m_idCount; ++id) {
+				if (m_removedSeq[id] > baseline) {
+					writeVarint(id - last);
+					last = id;
+				}
+			}
+		}
+		writeVarint(0);
+
+		last = -1;
+		final int posTol = m_positionTolerance;
+		final int angTol = m_angleTolerance;
+		for (int id = 0; id < m_idCount; ++id) {
+			final Body b = m_bodies[id];
+			if (b == null) {
+				continue;
+			}
+
+			final int k = id * 3;
+			quantize(id, b, frame, k);
+
+			if (base != null && m_addedSeq[id] <= baseline) {
+				final int dx = frame[k] - base[k];
+				final int dy = frame[k + 1] - base[k + 1];
+				final int da = wrapAngle(frame[k + 2] - base[k + 2]);
+				if (Math.abs(dx) <= posTol && Math.abs(dy) <= posTol
+						&& Math.abs(da) <= angTol) {
+					// the receiver keeps what it has
+					frame[k] = base[k];
+					frame[k + 1] = base[k + 1];
+					frame[k + 2] = base[k + 2];
+					continue;
+				}
+				writeVarint((id - last) << 1);
+				writeZigzag(dx);
+				writeZigzag(dy);
+				writeZigzag(da);
+			} else {
+				writeVarint((id - last) << 1 | 1);
+				writeZigzag(frame[k]);
+				writeZigzag(frame[k + 1]);
+				writeZigzag(frame[k + 2]);
+			}
+			last = id;
+			++m_entryCount;
+		}
+		writeVarint(0);
+
+		m_frameSeq[slot] = seq;
+		return seq;
+	}
+
+	/** Get the encoded frame. Only the first {@link #getLength()} bytes are used. */
+	public byte[] getBuffer() {
+		return m_buffer;
+	}
+
+	/** Get the size of the encoded frame in bytes. */
+	public int getLength() {
+		return m_length;
+	}
+
+	/** Get the number of bodies written to the last frame. */
+	public int getEntryCount() {
+		return m_entryCount;
+	}
+
+	/**
+	 * Get the encoded frame as a string of one char per byte, for
+	 * transports that only carry text.
+	 */
+	public String toMessage() {
+		final char[] chars = new char[m_length];
+		for (int i = 0; i < m_length; ++i) {
+			chars[i] = (char) (m_buffer[i] & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	private void quantize(final int id, final Body b, final int[] out, final int k) {
+		final int r = id * 3;
+		final boolean resting = (b.m_flags & (Body.e_sleepFlag | Body.e_frozenFlag)) != 0;
+		if (resting && m_restValid[id] && m_restHash[id] == b.m_stateHash) {
+			out[k] = m_restPose[r];
+			out[k + 1] = m_restPose[r + 1];
+			out[k + 2] = m_restPose[r + 2];
+			return;
+		}
+
+		final float scale = m_positionScale;
+		out[k] = (int) Math.floor(b.m_xf.position.x * scale + 0.5f);
+		out[k + 1] = (int) Math.floor(b.m_xf.position.y * scale + 0.5f);
+		out[k + 2] = (int) Math.floor(b.m_sweep.a * ANGLE_SCALE + 0.5f) & ANGLE_MASK;
+
+		m_restValid[id] = resting;
+		if (resting) {
+			m_restHash[id] = b.m_stateHash;
+			m_restPose[r] = out[k];
+			m_restPose[r + 1] = out[k + 1];
+			m_restPose[r + 2] = out[k + 2];
+		}
+	}
+
+	static int wrapAngle(final int a) {
+		return ((a + 0x8000) & ANGLE_MASK) - 0x8000;
+	}
+
+	private void writeZigzag(final int v) {
+		writeVarint((v << 1) ^ (v >> 31));
+	}
+
+	private void writeVarint(int v) {
+		if (m_length + 5 > m_buffer.length) {
+			final byte[] buffer = new byte[m_buffer.length * 2];
+			System.arraycopy(m_buffer, 0, buffer, 0, m_length);
+			m_buffer = buffer;
+		}
+		while ((v & ~0x7F) != 0) {
+			m_buffer[m_length++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		m_buffer[m_length++] = (byte) v;
+	}
+
+	private void grow(final int capacity) {
+		final Body[] bodies = new Body[capacity];
+		System.arraycopy(m_bodies, 0, bodies, 0, m_idCount);
+		m_bodies = bodies;
+		m_freeIds = growInts(m_freeIds, capacity, m_freeCount);
+		m_addedSeq = growInts(m_addedSeq, capacity, m_idCount);
+		m_removedSeq = growInts(m_removedSeq, capacity, m_idCount);
+		m_restHash = growInts(m_restHash, capacity, m_idCount);
+		m_restPose = growInts(m_restPose, capacity * 3, m_idCount * 3);
+		final boolean[] restValid = new boolean[capacity];
+		System.arraycopy(m_restValid, 0, restValid, 0, m_idCount);
+		m_restValid = restValid;
+		for (int i = 0; i < HISTORY; ++i) {
+			m_frames[i] = growInts(m_frames[i], capacity * 3, m_idCount * 3);
+		}
+	}
+
+	static int[] growInts(final int[] a, final int capacity, final int count) {
+		final int[] b = new int[capacity];
+		System.arraycopy(a, 0, b, 0, count);
+		return b;
+	}
+}
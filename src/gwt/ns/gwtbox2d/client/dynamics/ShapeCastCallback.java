@@ -0,0 +1,25 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+
+/**
+ * Receives the hits of {@link World#shapeCast(Shape, gwt.ns.gwtbox2d.client.common.XForm, Vec2, ShapeCastCallback)}.
+ * Hits are reported roughly nearest first, but not strictly, so to find
+ * the first hit return the fraction to clip the cast to it.
+ */
+public interface ShapeCastCallback {
+	/**
+	 * Called for each shape the cast shape hits.
+	 * <BR><BR><em>Warning</em>: the point and normal are reused, copy them
+	 * to keep them. You can't modify the world inside this callback.
+	 * @param shape the shape hit.
+	 * @param point about where the shapes touch, in world coordinates.
+	 * @param normal the normal of the hit surface, pointing back towards the cast shape.
+	 * @param fraction the fraction of the translation at which they touch.
+	 * @return -1 to ignore this shape and go on, 0 to stop the cast,
+	 * the fraction to only look for nearer hits from now on, or 1 to go on
+	 * without clipping.
+	 */
+	public float reportHit(Shape shape, Vec2 point, Vec2 normal, float fraction);
+}
@@ -0,0 +1,207 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.common.Clock;
+
+/**
+ * Where the time of each {@link World#step(float, int)} went. Register
+ * one with {@link World#setStepProfile(StepProfile)}; without one the
+ * step makes no clock calls at all.
+ * <BR><BR>
+ * The phases don't overlap and add up to the whole step, so a spike in
+ * {@link #getLast(int) e_step} can be attributed to one of them. Times
+ * are in milliseconds. For each phase the last step's time, the average
+ * and the maximum since the last {@link #reset()} are kept, along with
+ * the world's counts for the last step.
+ */
+public class StepProfile {
+	/** Contact narrow phase, ContactManager.collide(). */
+	public static final int e_collide = 0;
+	/** Controllers. */
+	public static final int e_controllers = 1;
+	/** Island building, integration and constraint solving. */
+	public static final int e_solve = 2;
+	/** Broad-phase commits of moved proxies, including those during TOI. */
+	public static final int e_broadPhase = 3;
+	/** Continuous collision, except its broad-phase commits. */
+	public static final int e_solveTOI = 4;
+	/** Registered Steppables. */
+	public static final int e_postStep = 5;
+	/** The whole step. */
+	public static final int e_step = 6;
+	public static final int e_phaseCount = 7;
+
+	static final String[] s_names = {
+		"collide", "controllers", "solve", "broadPhase", "solveTOI", "postStep", "step"
+	};
+
+	private final double[] m_last = new double[e_phaseCount];
+	private final double[] m_total = new double[e_phaseCount];
+	private final double[] m_max = new double[e_phaseCount];
+	private int m_stepCount;
+
+	private double m_start;
+	private double m_mark;
+
+	private int m_awakeBodyCount;
+	private int m_islandCount;
+	private int m_sleptIslandCount;
+	private float m_minIslandSleepTime;
+	private int m_contactCount;
+	private int m_toiCount;
+	private int m_subStepCount;
+
+	private int m_maxAwakeBodyCount;
+	private int m_maxToiCount;
+
+	/** Get a phase's name, for reports. */
+	public static String getPhaseName(final int phase) {
+		return s_names[phase];
+	}
+
+	/** Get a phase's time in the last step. */
+	public float getLast(final int phase) {
+		return (float) m_last[phase];
+	}
+
+	/** Get a phase's average time per step since the last reset. */
+	public float getAverage(final int phase) {
+		return m_stepCount == 0 ? 0.0f : (float) (m_total[phase] / m_stepCount);
+	}
+
+	/** Get a phase's longest time in one step since the last reset. */
+	public float getMax(final int phase) {
+		return (float) m_max[phase];
+	}
+
+	/** Get the number of steps since the last reset. */
+	public int getStepCount() {
+		return m_stepCount;
+	}
+
+	/** Get the number of awake dynamic bodies after the last step. */
+	public int getAwakeBodyCount() {
+		return m_awakeBodyCount;
+	}
+
+	/** Get the number of islands solved in the last step. */
+	public int getIslandCount() {
+		return m_islandCount;
+	}
+
+	/** Get the number of islands put to sleep in the last step. */
+	public int getSleptIslandCount() {
+		return m_sleptIslandCount;
+	}
+
+	/**
+	 * Get the least time at rest of the islands solved in the last step.
+	 * @see World#getMinIslandSleepTime()
+	 */
+	public float getMinIslandSleepTime() {
+		return m_minIslandSleepTime;
+	}
+
+	/** Get the number of contacts after the last step. */
+	public int getContactCount() {
+		return m_contactCount;
+	}
+
+	/** Get the number of TOI events solved in the last step. */
+	public int getTOICount() {
+		return m_toiCount;
+	}
+
+	/** Get the number of steps taken by the last {@link World#update(float)}. */
+	public int getSubStepCount() {
+		return m_subStepCount;
+	}
+
+	/** Get the most awake bodies after one step since the last reset. */
+	public int getMaxAwakeBodyCount() {
+		return m_maxAwakeBodyCount;
+	}
+
+	/** Get the most TOI events in one step since the last reset. */
+	public int getMaxTOICount() {
+		return m_maxToiCount;
+	}
+
+	/** Forget the averages and maxima. */
+	public void reset() {
+		for (int i = 0; i < e_phaseCount; ++i) {
+			m_total[i] = 0.0;
+			m_max[i] = 0.0;
+		}
+		m_stepCount = 0;
+		m_maxAwakeBodyCount = 0;
+		m_maxToiCount = 0;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < e_phaseCount; ++i) {
+			sb.append(s_names[i]).append(": ").append(getLast(i))
+				.append(" avg ").append(getAverage(i))
+				.append(" max ").append(getMax(i)).append('\n');
+		}
+		sb.append("awake bodies ").append(m_awakeBodyCount)
+			.append(", islands ").append(m_islandCount)
+			.append(" (").append(m_sleptIslandCount).append(" slept, least rest ")
+			.append(m_minIslandSleepTime).append(" s)")
+			.append(", contacts ").append(m_contactCount)
+			.append(", TOI events ").append(m_toiCount)
+			.append(", sub-steps ").append(m_subStepCount);
+		return sb.toString();
+	}
+
+	void beginStep() {
+		for (int i = 0; i < e_phaseCount; ++i) {
+			m_last[i] = 0.0;
+		}
+		m_toiCount = 0;
+		m_start = Clock.now();
+		m_mark = m_start;
+	}
+
+	/** Charge the time since the last mark to a phase. */
+	void lap(final int phase) {
+		final double now = Clock.now();
+		m_last[phase] += now - m_mark;
+		m_mark = now;
+	}
+
+	void addTOI() {
+		++m_toiCount;
+	}
+
+	void endStep(final World world) {
+		m_last[e_step] = Clock.now() - m_start;
+
+		for (int i = 0; i < e_phaseCount; ++i) {
+			m_total[i] += m_last[i];
+			if (m_last[i] > m_max[i]) {
+				m_max[i] = m_last[i];
+			}
+		}
+		++m_stepCount;
+
+		int awake = 0;
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			if ((b.m_flags & (Body.e_sleepFlag | Body.e_frozenFlag)) == 0 && b.isStatic() == false) {
+				++awake;
+			}
+		}
+		m_awakeBodyCount = awake;
+		m_islandCount = world.m_islandCount;
+		m_sleptIslandCount = world.m_sleptIslandCount;
+		m_minIslandSleepTime = world.m_minIslandSleepTime;
+		m_contactCount = world.m_contactCount;
+		m_maxAwakeBodyCount = Math.max(m_maxAwakeBodyCount, awake);
+		m_maxToiCount = Math.max(m_maxToiCount, m_toiCount);
+	}
+
+	void setSubStepCount(final int count) {
+		m_subStepCount = count;
+	}
+}
@@ -44,22 +44,44 @@ package gwt.ns.gwtbox2d.client.dynamics;
 
 import gwt.ns.gwtbox2d.client.collision.AABB;
 import gwt.ns.gwtbox2d.client.collision.BroadPhase;
+import gwt.ns.gwtbox2d.client.collision.OBB;
+import gwt.ns.gwtbox2d.client.collision.Pair;
+import gwt.ns.gwtbox2d.client.collision.PairManager;
+import gwt.ns.gwtbox2d.client.collision.Proxy;
 import gwt.ns.gwtbox2d.client.collision.Segment;
 import gwt.ns.gwtbox2d.client.collision.SegmentCollide;
 import gwt.ns.gwtbox2d.client.collision.SortKeyFunc;
 import gwt.ns.gwtbox2d.client.collision.TOI;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.CircleShape;
+import gwt.ns.gwtbox2d.client.collision.shapes.EdgeShape;
+import gwt.ns.gwtbox2d.client.collision.shapes.PointShape;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.PolygonShape;
 import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
+import gwt.ns.gwtbox2d.client.collision.shapes.ShapeDef;
+import gwt.ns.gwtbox2d.client.collision.shapes.ShapeType;
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
+import gwt.ns.gwtbox2d.client.common.Color3f;
+import gwt.ns.gwtbox2d.client.common.IViewportTransform;
+import gwt.ns.gwtbox2d.client.common.Mat22;
+import gwt.ns.gwtbox2d.client.common.MathUtils;
 import gwt.ns.gwtbox2d.client.common.RaycastResult;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.common.XForm;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.Contact;
 import gwt.ns.gwtbox2d.client.dynamics.contacts.ContactEdge;
+import gwt.ns.gwtbox2d.client.dynamics.contacts.WarmStartCache;
 import gwt.ns.gwtbox2d.client.dynamics.controllers.Controller;
 import gwt.ns.gwtbox2d.client.dynamics.controllers.ControllerDef;
 import gwt.ns.gwtbox2d.client.dynamics.controllers.ControllerEdge;
 import gwt.ns.gwtbox2d.client.dynamics.joints.Joint;
 import gwt.ns.gwtbox2d.client.dynamics.joints.JointDef;
 import gwt.ns.gwtbox2d.client.dynamics.joints.JointEdge;
+import gwt.ns.gwtbox2d.client.dynamics.joints.JointType;
+import gwt.ns.gwtbox2d.client.dynamics.joints.PulleyJoint;
+import gwt.ns.gwtbox2d.client.pooling.SingletonPool;
 import gwt.ns.gwtbox2d.client.pooling.TLTimeStep;
 import gwt.ns.gwtbox2d.client.pooling.stacks.IslandStack;
 import gwt.ns.gwtbox2d.client.pooling.stacks.TimeStepStack;
@@ -98,6 +120,12 @@ public class World {
 	
 	int m_controllerCount;
 
+	DebugDraw m_debugDraw;
+
+	StepProfile m_profile;
+
+	BodyStateExport m_stateExport;
+
 	int m_bodyCount;
 
 	int m_contactCount;
@@ -108,6 +136,26 @@ public class World {
 
 	boolean m_allowSleep;
 
+	/** The time an island must be at rest before it will go to sleep. */
+	float m_timeToSleep;
+	/** A body cannot sleep if its linear velocity is above this tolerance. */
+	float m_linearSleepTolerance;
+	/** A body cannot sleep if its angular velocity is above this tolerance. */
+	float m_angularSleepTolerance;
+
+	/** Sleeping bodies woken by contact events or island propagation. */
+	int m_contactWakeCount;
+	/** Sleeping bodies woken by user calls (forces, impulses, wakeUp(), joint changes). */
+	int m_userWakeCount;
+
+	/** Number of awake islands solved during the last step. */
+	int m_islandCount;
+	/** Number of islands put to sleep during the last step. */
+	int m_sleptIslandCount;
+	/** Least and most time at rest of the islands solved during the last step. */
+	float m_minIslandSleepTime;
+	float m_maxIslandSleepTime;
+
 	Body m_groundBody;
 
 	int m_positionIterationCount;
@@ -119,15 +167,32 @@ public class World {
 	/** Should we enable continuous gwt.ns.gwtbox2d.collision detection? */
 	boolean m_continuousPhysics;
 
+	/** Impulses of recently separated contact points, or null if disabled. */
+	WarmStartCache m_warmStartCache;
+
 	DestructionListener m_destructionListener;
 	BoundaryListener m_boundaryListener;
 	ContactFilter m_contactFilter;
 	ContactListener m_contactListener;
 
-	private float m_inv_dt0;
+	float m_inv_dt0;
+
+	/** Sum of the bodies' state hashes, see {@link #stateHash()}. */
+	int m_stateHash;
 
 	private final ArrayList<Steppable> postStepList;
 
+	// Fixed-timestep accumulator used by update(float)
+	float m_fixedTimeStep;
+	int m_fixedIterations;
+	int m_maxSubSteps;
+	float m_accumulator;
+	/** Fraction of a fixed step left in the accumulator, in [0,1). */
+	float m_interpolationAlpha;
+	int m_subStepCount;
+	int m_maxSubStepCount;
+	int m_droppedStepCount;
+
 	/** Get the number of bodies. */
 	public int getBodyCount() {
 		return m_bodyCount;
@@ -143,6 +208,119 @@ public class World {
 		return m_contactCount;
 	}
 
+	/**
+	 * Set the time a body must be at rest before it will go to sleep.
+	 * Sleep is decided per island, so every body in the island must be
+	 * at rest this long. Defaults to {@link Settings#timeToSleep}.
+	 */
+	public void setTimeToSleep(final float timeToSleep) {
+		m_timeToSleep = timeToSleep;
+	}
+
+	/** Get the time a body must be at rest before it will go to sleep. */
+	public float getTimeToSleep() {
+		return m_timeToSleep;
+	}
+
+	/**
+	 * Set the linear velocity below which bodies may fall asleep. Bodies
+	 * with their own tolerance ignore this. Defaults to
+	 * {@link Settings#linearSleepTolerance}.
+	 */
+	public void setLinearSleepTolerance(final float tolerance) {
+		m_linearSleepTolerance = tolerance;
+	}
+
+	/** Get the linear velocity below which bodies may fall asleep. */
+	public float getLinearSleepTolerance() {
+		return m_linearSleepTolerance;
+	}
+
+	/**
+	 * Set the angular velocity below which bodies may fall asleep. Bodies
+	 * with their own tolerance ignore this. Defaults to
+	 * {@link Settings#angularSleepTolerance}.
+	 */
+	public void setAngularSleepTolerance(final float tolerance) {
+		m_angularSleepTolerance = tolerance;
+	}
+
+	/** Get the angular velocity below which bodies may fall asleep. */
+	public float getAngularSleepTolerance() {
+		return m_angularSleepTolerance;
+	}
+
+	/** Enable/disable sleeping of inactive bodies. */
+	public void setAllowSleep(final boolean flag) {
+		m_allowSleep = flag;
+		if (flag == false) {
+			for (Body b = m_bodyList; b != null; b = b.m_next) {
+				b.wakeUp();
+			}
+		}
+	}
+
+	/** Is sleeping of inactive bodies enabled? */
+	public boolean getAllowSleep() {
+		return m_allowSleep;
+	}
+
+	/**
+	 * Get the number of sleeping bodies woken by contacts, either because a
+	 * touching contact began, ended or was destroyed, or because the body was
+	 * pulled into an awake island.
+	 * @see #resetWakeCounts()
+	 */
+	public int getContactWakeCount() {
+		return m_contactWakeCount;
+	}
+
+	/**
+	 * Get the number of sleeping bodies woken by user calls, such as
+	 * Body.wakeUp(), applying forces or impulses, destroying joints or
+	 * {@link #wakeUpRegion(AABB)}.
+	 * @see #resetWakeCounts()
+	 */
+	public int getUserWakeCount() {
+		return m_userWakeCount;
+	}
+
+	/** Reset the contact and user wake-up counters to zero. */
+	public void resetWakeCounts() {
+		m_contactWakeCount = 0;
+		m_userWakeCount = 0;
+	}
+
+	/** Get the number of awake islands solved during the last step. */
+	public int getIslandCount() {
+		return m_islandCount;
+	}
+
+	/** Get the number of islands that fell asleep during the last step. */
+	public int getSleptIslandCount() {
+		return m_sleptIslandCount;
+	}
+
+	/**
+	 * Get the least time at rest of the islands solved during the last
+	 * step. An island's time at rest is that of its most recently moving
+	 * body; it sleeps once this reaches {@link #getTimeToSleep()}. Zero if
+	 * sleeping is off or no island was solved.
+	 */
+	public float getMinIslandSleepTime() {
+		return m_minIslandSleepTime;
+	}
+
+	/**
+	 * Get the most time at rest of the islands solved during the last step,
+	 * those put to sleep included. Zero if sleeping is off or no island was
+	 * solved.
+	 * @see #getMinIslandSleepTime()
+	 */
+	public float getMaxIslandSleepTime() {
+		return m_maxIslandSleepTime;
+	}
+
 	/** Change the global gravity vector. */
 	public void setGravity(final Vec2 gravity) {
 		m_gravity = gravity;
@@ -162,6 +340,52 @@ public class World {
 		return m_groundBody;
 	}
 
+	/**
+	 * Move the world origin to newOrigin: every position, the world bounds,
+	 * mouse joint targets and controller surfaces are moved by -newOrigin,
+	 * velocities and contacts are kept. Floats lose precision away from the
+	 * origin, so a large world that follows its player around can keep the
+	 * simulation near zero by shifting now and then. This is the JVM's
+	 * answer to large worlds: a double precision JVM build is out of scope,
+	 * see {@link Settings}.
+	 * <BR><BR>
+	 * Snapshots, replication receivers and anything else holding positions
+	 * are left in the old coordinates: a snapshot saved before a shift must
+	 * not be restored after it, and receivers must be shifted by the same
+	 * amount. The broad-phase moves along with the bounds, so no contacts
+	 * are lost or made.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 */
+	public void shiftOrigin(final Vec2 newOrigin) {
+		assert(m_lock == false);
+		if (m_lock == true) {
+			return;
+		}
+
+		for (Body b = m_bodyList; b != null; b = b.m_next) {
+			b.m_xf.position.subLocal(newOrigin);
+			b.m_xf0.position.subLocal(newOrigin);
+			b.m_sweep.c0.subLocal(newOrigin);
+			b.m_sweep.c.subLocal(newOrigin);
+			for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+				s.m_proxyAABB.lowerBound.subLocal(newOrigin);
+				s.m_proxyAABB.upperBound.subLocal(newOrigin);
+			}
+			b.updateStateHash();
+		}
+
+		for (Joint j = m_jointList; j != null; j = j.m_next) {
+			j.shiftOrigin(newOrigin);
+		}
+
+		for (Controller c = m_controllerList; c != null; c = c.m_next) {
+			c.shiftOrigin(newOrigin);
+		}
+
+		// also drops the query cache, whose cells are in world space
+		m_broadPhase.shiftOrigin(newOrigin);
+	}
+
 	/**
 	 * Get the world body list. With the returned body, use Body.getNext() to get
 	 * the next body in the world list. A NULL body indicates the end of the list.
@@ -210,6 +434,11 @@ public class World {
 		m_lock = false;
 
 		m_allowSleep = doSleep;
+		m_timeToSleep = Settings.timeToSleep;
+		m_linearSleepTolerance = Settings.linearSleepTolerance;
+		m_angularSleepTolerance = Settings.angularSleepTolerance;
+		m_contactWakeCount = 0;
+		m_userWakeCount = 0;
 
 		m_gravity = gravity;
 
@@ -220,6 +449,19 @@ public class World {
 		final BodyDef bd = new BodyDef();
 		m_groundBody = createBody(bd);
 		postStepList = new ArrayList<Steppable>();
+
+		for (int i = 0; i < m_drawVertices.length; ++i) {
+			m_drawVertices[i] = new Vec2();
+		}
+
+		m_fixedTimeStep = 1.0f / 60.0f;
+		m_fixedIterations = 10;
+		m_maxSubSteps = 5;
+		m_accumulator = 0.0f;
+		m_interpolationAlpha = 1.0f;
+		m_subStepCount = 0;
+		m_maxSubStepCount = 0;
+		m_droppedStepCount = 0;
 	}
 
 	/** Register a destruction listener. */
@@ -268,6 +510,7 @@ public class World {
 		}
 		m_bodyList = b;
 		++m_bodyCount;
+		b.updateStateHash();
 
 		return b;
 	}
@@ -336,6 +579,12 @@ public class World {
 		}
 
 		--m_bodyCount;
+		m_stateHash -= b.m_stateHash;
+
+		if (b.m_chunk != null) {
+			b.m_chunk.m_bodies[b.m_chunkIndex] = null;
+			b.m_chunk = null;
+		}
 		//b->~b2Body();
 	}
 
@@ -457,6 +706,11 @@ public class World {
 		assert m_jointCount > 0;
 		--m_jointCount;
 
+		if (j.m_chunk != null) {
+			j.m_chunk.m_joints[j.m_chunkIndex] = null;
+			j.m_chunk = null;
+		}
+
 		// If the joint prevents collisions, then reset gwt.ns.gwtbox2d.collision filtering.
 		if (collideConnected == false) {
 			// Reset the proxies on the body with the minimum number of shapes.
@@ -466,6 +720,313 @@ public class World {
 			}
 		}
 	}
+
+	/**
+	 * Create the bodies, shapes and joints of a chunk definition in one
+	 * call. All the shapes go into the broad-phase together, which is much
+	 * cheaper than adding them one by one.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 * @param def the chunk definition. It is not retained.
+	 * @param offset added to the body positions, or null. Joint anchors
+	 * given in world coordinates (pulley ground anchors, mouse targets)
+	 * are not moved.
+	 */
+	public Chunk createChunk(final ChunkDef def, final Vec2 offset) {
+		assert(m_lock == false);
+		if (m_lock == true) {
+			return null;
+		}
+
+		final int bodyCount = def.m_bodies.size();
+		final int jointCount = def.m_joints.size();
+		final Chunk chunk = new Chunk(this, bodyCount, jointCount);
+
+		final Vec2 position = new Vec2();
+		for (int i = 0; i < bodyCount; ++i) {
+			final BodyDef bd = def.m_bodies.get(i);
+			if (offset != null) {
+				position.set(bd.position);
+				bd.position.addLocal(offset);
+				chunk.m_bodies[i] = createBody(bd);
+				bd.position.set(position);
+			} else {
+				chunk.m_bodies[i] = createBody(bd);
+			}
+			chunk.m_bodies[i].m_chunk = chunk;
+			chunk.m_bodies[i].m_chunkIndex = i;
+		}
+
+		// Shapes and joints go in before any proxy exists, so nothing is refiltered.
+		for (int i = 0; i < def.m_shapes.size(); ++i) {
+			chunk.m_bodies[def.m_shapeBodies.get(i)].createShape(def.m_shapes.get(i), false);
+		}
+
+		for (int i = 0; i < jointCount; ++i) {
+			final JointDef jd = def.m_joints.get(i);
+			final Body body1 = jd.body1;
+			final Body body2 = jd.body2;
+			jd.body1 = chunk.m_bodies[def.m_jointBodies.get(2 * i)];
+			jd.body2 = chunk.m_bodies[def.m_jointBodies.get(2 * i + 1)];
+			chunk.m_joints[i] = createJoint(jd);
+			chunk.m_joints[i].m_chunk = chunk;
+			chunk.m_joints[i].m_chunkIndex = i;
+			jd.body1 = body1;
+			jd.body2 = body2;
+		}
+
+		for (int i = 0; i < bodyCount; ++i) {
+			if (def.m_bodies.get(i).massData.mass == 0.0f) {
+				chunk.m_bodies[i].setMassFromShapes();
+			}
+		}
+
+		createProxies(chunk.m_bodies);
+		return chunk;
+	}
+
+	/**
+	 * Create many single-shape bodies from parallel arrays in one call.
+	 * The definitions are reused from body to body, masses are computed
+	 * once all the shapes are made, and all the shapes go into the
+	 * broad-phase together, so this is much cheaper than creating the
+	 * bodies and shapes one by one.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 * @param def the bodies. It is not retained.
+	 * @return the bodies, in the order of the arrays.
+	 */
+	public Body[] createBodies(final BodyBatchDef def) {
+		assert(m_lock == false);
+		if (m_lock == true) {
+			return null;
+		}
+
+		final int count = def.count;
+		assert(def.positions.length >= 2 * count && def.dimensions.length >= 2 * count);
+		final Body[] bodies = new Body[count];
+
+		final BodyDef bd = new BodyDef();
+		bd.linearDamping = def.linearDamping;
+		bd.angularDamping = def.angularDamping;
+
+		final PolygonDef box = new PolygonDef();
+		box.setAsBox(1.0f, 1.0f);
+		final CircleDef circle = new CircleDef();
+		box.friction = circle.friction = def.friction;
+		box.restitution = circle.restitution = def.restitution;
+
+		for (int i = 0; i < count; ++i) {
+			bd.position.set(def.positions[2 * i], def.positions[2 * i + 1]);
+			bd.angle = def.angles == null ? 0.0f : def.angles[i];
+			bd.userData = def.userData == null ? null : def.userData[i];
+			final Body b = createBody(bd);
+			bodies[i] = b;
+
+			final float d1 = def.dimensions[2 * i];
+			final float d2 = def.dimensions[2 * i + 1];
+			final ShapeDef sd;
+			if (def.shapeTypes == null || def.shapeTypes[i] == BodyBatchDef.e_box) {
+				box.vertices.get(0).set(-d1, -d2);
+				box.vertices.get(1).set(d1, -d2);
+				box.vertices.get(2).set(d1, d2);
+				box.vertices.get(3).set(-d1, d2);
+				sd = box;
+			} else {
+				assert(def.shapeTypes[i] == BodyBatchDef.e_circle);
+				circle.radius = d1;
+				sd = circle;
+			}
+			sd.density = def.densities == null ? 0.0f : def.densities[i];
+			sd.filter.categoryBits = def.categoryBits == null ? 0x0001 : def.categoryBits[i];
+			sd.filter.maskBits = def.maskBits == null ? 0xFFFF : def.maskBits[i];
+			sd.filter.groupIndex = def.groupIndices == null ? 0 : def.groupIndices[i];
+			b.createShape(sd, false);
+		}
+
+		// No proxies yet, so a body turning dynamic refilters nothing.
+		if (def.densities != null) {
+			for (int i = 0; i < count; ++i) {
+				if (def.densities[i] > 0.0f) {
+					bodies[i].setMassFromShapes();
+				}
+			}
+		}
+
+		createProxies(bodies);
+		return bodies;
+	}
+
+	/**
+	 * Destroy a chunk's joints and bodies. The shapes leave the broad-phase
+	 * together, then the bodies are destroyed as with {@link #destroyBody(Body)}.
+	 * Bodies and joints of the chunk already destroyed on their own are
+	 * skipped.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 */
+	public void destroyChunk(final Chunk chunk) {
+		assert(m_lock == false);
+		assert(chunk.m_world == this && chunk.m_destroyed == false);
+		if (m_lock == true) {
+			return;
+		}
+
+		if (chunk.m_frozen == false) {
+			destroyProxies(chunk.m_bodies);
+		}
+
+		// destroying takes each one out of the chunk
+		for (int i = 0; i < chunk.m_joints.length; ++i) {
+			if (chunk.m_joints[i] != null) {
+				destroyJoint(chunk.m_joints[i]);
+			}
+		}
+
+		for (int i = chunk.m_bodies.length - 1; i >= 0; --i) {
+			if (chunk.m_bodies[i] != null) {
+				destroyBody(chunk.m_bodies[i]);
+			}
+		}
+
+		chunk.m_destroyed = true;
+	}
+
+	/**
+	 * Take a chunk out of the simulation while keeping its bodies, shapes
+	 * and joints. Its shapes leave the broad-phase, destroying their
+	 * contacts, and its bodies are frozen with their velocities kept.
+	 * Joints to bodies outside the chunk stop acting.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 */
+	public void freezeChunk(final Chunk chunk) {
+		assert(m_lock == false);
+		assert(chunk.m_world == this && chunk.m_destroyed == false);
+		if (m_lock == true || chunk.m_frozen) {
+			return;
+		}
+
+		final Body[] bodies = chunk.m_bodies;
+		for (int i = 0; i < bodies.length; ++i) {
+			if (bodies[i] != null) {
+				chunk.m_savedFlags[i] = bodies[i].m_flags;
+				chunk.m_savedSleepTimes[i] = bodies[i].m_sleepTime;
+			}
+		}
+
+		// Destroying the contacts wakes bodies, so restore the flags after.
+		destroyProxies(bodies);
+
+		for (int i = 0; i < bodies.length; ++i) {
+			if (bodies[i] != null) {
+				bodies[i].m_flags = chunk.m_savedFlags[i] | Body.e_frozenFlag;
+				bodies[i].m_sleepTime = chunk.m_savedSleepTimes[i];
+			}
+		}
+		chunk.m_frozen = true;
+	}
+
+	/**
+	 * Put a frozen chunk back into the simulation as it was when frozen.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 */
+	public void thawChunk(final Chunk chunk) {
+		assert(m_lock == false);
+		assert(chunk.m_world == this && chunk.m_destroyed == false);
+		if (m_lock == true || chunk.m_frozen == false) {
+			return;
+		}
+
+		final Body[] bodies = chunk.m_bodies;
+		for (int i = 0; i < bodies.length; ++i) {
+			// Bodies that had left the world stay frozen.
+			if (bodies[i] != null) {
+				bodies[i].m_flags = chunk.m_savedFlags[i];
+			}
+		}
+
+		createProxies(bodies);
+		chunk.m_frozen = false;
+	}
+
+	// scratch for bulk proxy creation and destruction
+	private Shape[] m_bulkShapes = new Shape[16];
+	private AABB[] m_bulkAABBs = new AABB[16];
+	private int[] m_bulkProxyIds = new int[16];
+
+	/**
+	 * Add the shapes of unfrozen bodies to the broad-phase in one batch.
+	 * A body with a shape outside the world is frozen, as in
+	 * {@link Body#setXForm(Vec2, float)}. Null entries are skipped.
+	 */
+	private void createProxies(final Body[] bodies) {
+		int count = 0;
+		for (int i = 0; i < bodies.length; ++i) {
+			final Body b = bodies[i];
+			if (b == null || b.isFrozen()) {
+				continue;
+			}
+
+			boolean inRange = true;
+			for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+				s.computeAABB(s.m_proxyAABB, b.m_xf);
+				inRange = inRange && m_broadPhase.inRange(s.m_proxyAABB);
+			}
+			if (inRange == false) {
+				b.m_flags |= Body.e_frozenFlag;
+				b.m_linearVelocity.setZero();
+				b.m_angularVelocity = 0.0f;
+				b.updateStateHash();
+				continue;
+			}
+
+			for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+				if (count == m_bulkShapes.length) {
+					growBulk(count * 2);
+				}
+				m_bulkShapes[count] = s;
+				m_bulkAABBs[count] = s.m_proxyAABB;
+				++count;
+			}
+		}
+
+		m_broadPhase.createProxies(m_bulkAABBs, m_bulkShapes, count, m_bulkProxyIds);
+		for (int i = 0; i < count; ++i) {
+			m_bulkShapes[i].m_proxyId = m_bulkProxyIds[i];
+			m_bulkShapes[i] = null;
+			m_bulkAABBs[i] = null;
+		}
+	}
+
+	/** Take the shapes of the bodies out of the broad-phase in one batch. Null entries are skipped. */
+	private void destroyProxies(final Body[] bodies) {
+		int count = 0;
+		for (int i = 0; i < bodies.length; ++i) {
+			if (bodies[i] == null) {
+				continue;
+			}
+			for (Shape s = bodies[i].m_shapeList; s != null; s = s.m_next) {
+				if (s.m_proxyId == PairManager.NULL_PROXY) {
+					continue;
+				}
+				if (count == m_bulkProxyIds.length) {
+					growBulk(count * 2);
+				}
+				m_bulkProxyIds[count++] = s.m_proxyId;
+				s.m_proxyId = PairManager.NULL_PROXY;
+			}
+		}
+		m_broadPhase.destroyProxies(m_bulkProxyIds, count);
+	}
+
+	private void growBulk(final int capacity) {
+		final Shape[] shapes = new Shape[capacity];
+		System.arraycopy(m_bulkShapes, 0, shapes, 0, m_bulkShapes.length);
+		m_bulkShapes = shapes;
+		final AABB[] aabbs = new AABB[capacity];
+		System.arraycopy(m_bulkAABBs, 0, aabbs, 0, m_bulkAABBs.length);
+		m_bulkAABBs = aabbs;
+		final int[] ids = new int[capacity];
+		System.arraycopy(m_bulkProxyIds, 0, ids, 0, m_bulkProxyIds.length);
+		m_bulkProxyIds = ids;
+	}
 	
 	public Controller createController( final ControllerDef def) {
 		Controller controller = def.create();
@@ -508,6 +1069,13 @@ public class World {
 
 	// djm gwt.ns.gwtbox2d.pooling
 	private static final TLTimeStep tlStep = new TLTimeStep();
+
+	static {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.setPhaseNames(StepProfile.s_names);
+		}
+	}
+
 	/**
 	 * Take a time step. This performs gwt.ns.gwtbox2d.collision detection, integration,
 	 * and constraint solution.
@@ -531,8 +1099,22 @@ public class World {
 		step.positionCorrection = m_positionCorrection;
 		step.warmStarting = m_warmStarting;
 
+		final StepProfile profile = m_profile;
+		if (profile != null) {
+			profile.beginStep();
+		}
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.beginStep(StepProfile.e_collide);
+		}
+		if (m_stateExport != null) {
+			m_stateExport.applyForces();
+		}
+
 		// Update contacts.
 		m_contactManager.collide();
+		if (profile != null) {
+			profile.lap(StepProfile.e_collide);
+		}
 
 		// Integrate velocities, solve velocity constraints, and integrate positions.
 		if (step.dt > 0.0f) {
@@ -545,11 +1127,178 @@ public class World {
 		}
 
 		m_inv_dt0 = step.inv_dt;
+		if (m_warmStartCache != null) {
+			m_warmStartCache.tick();
+		}
 		m_lock = false;
 		
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.setPhase(StepProfile.e_postStep);
+		}
 		postStep(dt,iterations);
+		if (m_stateExport != null) {
+			m_stateExport.capture(this);
+		}
+
+		if (profile != null) {
+			profile.lap(StepProfile.e_postStep);
+			profile.endStep(this);
+		}
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.endStep();
+		}
+		assert(SingletonPool.getStackAllocator().getDepth() == 0) : "Stack frames leaked by the step";
+	}
+
+	/**
+	 * Set a profile to be filled in by each step, or null (the default)
+	 * to stop profiling.
+	 */
+	public void setStepProfile(final StepProfile profile) {
+		m_profile = profile;
+	}
+
+	public StepProfile getStepProfile() {
+		return m_profile;
+	}
+
+	/**
+	 * Count what the world holds on to: bodies, shapes, the broad-phase
+	 * tables, contacts and their manifolds, joints, island scratch and
+	 * pools, with estimated bytes and unused capacity for each. Walks
+	 * everything, so call it between steps for budgeting and leak checks,
+	 * not every frame.
+	 */
+	public MemoryReport memoryReport() {
+		final MemoryReport report = new MemoryReport();
+		report.measure(this);
+		return report;
 	}
 
+	/**
+	 * Set an export to receive a copy of the state of all bodies after each
+	 * step, and to take forces for the next, or null (the default) for
+	 * none. The export is filled straight away. The bodies keep their own
+	 * state; the export is only a copy of it.
+	 */
+	public void setBodyStateExport(final BodyStateExport export) {
+		m_stateExport = export;
+		if (export != null) {
+			export.capture(this);
+		}
+	}
+
+	public BodyStateExport getBodyStateExport() {
+		return m_stateExport;
+	}
+
+
+	/**
+	 * Advance the world by a variable frame time using fixed sub-steps. The
+	 * frame time is added to an accumulator, and as many fixed steps as fit
+	 * are taken, up to the sub-step cap. If more would be needed, the excess
+	 * whole steps are dropped rather than carried over, so a slow frame can't
+	 * snowball into ever longer frames.
+	 * <BR><BR>
+	 * The leftover fraction of a step is exposed as the interpolation alpha,
+	 * and Body.getInterpolatedXFormToOut blends the last two sub-steps with it
+	 * for smooth rendering.
+	 * @param frameDt the time elapsed since the last frame, in seconds.
+	 * @return the number of fixed sub-steps taken.
+	 * @see #setFixedTimeStep(float, int)
+	 * @see #setMaxSubSteps(int)
+	 */
+	public int update(final float frameDt) {
+		assert(m_lock == false);
+
+		if (frameDt > 0.0f) {
+			m_accumulator += frameDt;
+		}
+
+		int count = (int) (m_accumulator / m_fixedTimeStep);
+		m_accumulator -= count * m_fixedTimeStep;
+		if (m_accumulator < 0.0f) {
+			m_accumulator = 0.0f;
+		}
+
+		// Spiral of death protection.
+		if (count > m_maxSubSteps) {
+			m_droppedStepCount += count - m_maxSubSteps;
+			count = m_maxSubSteps;
+		}
+
+		for (int i = 0; i < count; ++i) {
+			if (i == count - 1) {
+				// Only the last sub-step matters for interpolation.
+				for (Body b = m_bodyList; b != null; b = b.m_next) {
+					b.m_xf0.set(b.m_xf);
+				}
+			}
+			step(m_fixedTimeStep, m_fixedIterations);
+		}
+
+		m_interpolationAlpha = MathUtils.clamp(m_accumulator / m_fixedTimeStep, 0.0f, 1.0f);
+		m_subStepCount = count;
+		m_maxSubStepCount = Math.max(m_maxSubStepCount, count);
+		if (m_profile != null) {
+			m_profile.setSubStepCount(count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Set the fixed step used by {@link #update(float)}.
+	 * @param dt the fixed time step, in seconds.
+	 * @param iterations the number of constraint solver iterations per step.
+	 */
+	public void setFixedTimeStep(final float dt, final int iterations) {
+		assert(dt > 0.0f);
+		m_fixedTimeStep = dt;
+		m_fixedIterations = iterations;
+	}
+
+	/** Get the fixed step used by {@link #update(float)}. */
+	public float getFixedTimeStep() {
+		return m_fixedTimeStep;
+	}
+
+	/** Set the maximum number of fixed sub-steps {@link #update(float)} may take in one call. */
+	public void setMaxSubSteps(final int maxSubSteps) {
+		assert(maxSubSteps > 0);
+		m_maxSubSteps = maxSubSteps;
+	}
+
+	/** Get the maximum number of fixed sub-steps per update. */
+	public int getMaxSubSteps() {
+		return m_maxSubSteps;
+	}
+
+	/** Get the interpolation factor between the previous and current sub-step, in [0,1]. */
+	public float getInterpolationAlpha() {
+		return m_interpolationAlpha;
+	}
+
+	/** Get the number of fixed sub-steps taken by the last update. */
+	public int getSubStepCount() {
+		return m_subStepCount;
+	}
+
+	/** Get the most sub-steps taken by a single update since the last reset. */
+	public int getMaxSubStepCount() {
+		return m_maxSubStepCount;
+	}
+
+	/** Get the number of fixed steps dropped by spiral of death protection since the last reset. */
+	public int getDroppedStepCount() {
+		return m_droppedStepCount;
+	}
+
+	/** Reset the sub-step statistics. */
+	public void resetSubStepStats() {
+		m_maxSubStepCount = 0;
+		m_droppedStepCount = 0;
+	}
 
 	/** Goes through the registered postStep functions and calls them. */
 	private void postStep(final float dt, final int iterations) {
@@ -579,6 +1328,58 @@ public class World {
 		}
 	}
 
+	/**
+	 * Wake up every body with a shape overlapping the given box.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 * @param aabb the region to wake.
+	 * @return the number of bodies that were woken.
+	 */
+	public int wakeUpRegion(final AABB aabb) {
+		assert(m_lock == false);
+		if (m_lock == true) {
+			return 0;
+		}
+
+		final Object[] shapes = m_broadPhase.query(aabb, Settings.maxProxies);
+		int count = 0;
+		for (int i = 0; i < shapes.length; ++i) {
+			final Body b = ((Shape) shapes[i]).getBody();
+			if (b.isSleeping()) {
+				b.wakeUp();
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Put every dynamic body with a shape overlapping the given box to sleep,
+	 * zeroing its velocity. Bodies that don't allow sleeping are skipped.
+	 * Note that a sleeping body touching an awake one outside the region will
+	 * be woken again by the next step, so regions should cover whole islands.
+	 * <BR><em>Warning</em>: This function is locked during callbacks.
+	 * @param aabb the region to put to sleep.
+	 * @return the number of bodies that were put to sleep.
+	 */
+	public int putRegionToSleep(final AABB aabb) {
+		assert(m_lock == false);
+		if (m_lock == true) {
+			return 0;
+		}
+
+		final Object[] shapes = m_broadPhase.query(aabb, Settings.maxProxies);
+		int count = 0;
+		for (int i = 0; i < shapes.length; ++i) {
+			final Body b = ((Shape) shapes[i]).getBody();
+			if (b.isStatic() || b.isSleeping() || b.isFrozen() || (b.m_flags & Body.e_allowSleepFlag) == 0) {
+				continue;
+			}
+			b.putToSleep();
+			++count;
+		}
+		return count;
+	}
+
 	/** Re-filter a shape. This re-runs contact filtering on a shape. */
 	public void refilter(final Shape shape) {
 		shape.refilterProxy(m_broadPhase, shape.getBody().getMemberXForm());
@@ -603,6 +1404,137 @@ public class World {
 		return ret;
 	}
 
+	// point and overlap query scratch, one candidate array per nesting
+	// level so callbacks can query too
+	private QueryCache m_queryCache;
+	private Object[][] m_queryShapes = new Object[2][];
+	private int m_queryDepth;
+	private int m_queryCount;
+	private final AABB m_queryAABB = new AABB();
+
+	/**
+	 * Report every shape containing a point. Unlike {@link #query(AABB, int)}
+	 * the shapes are tested exactly, and nothing is allocated. The callback
+	 * may run queries of its own.
+	 * @param point the point, in world coordinates.
+	 * @param callback receives the shapes.
+	 */
+	public void queryPoint(final Vec2 point, final QueryCallback callback) {
+		m_queryAABB.lowerBound.set(point);
+		m_queryAABB.upperBound.set(point);
+
+		final Object[] shapes = queryCandidates(m_queryAABB);
+		final int count = m_queryCount;
+		try {
+			for (int i = 0; i < count; ++i) {
+				final Shape shape = (Shape) shapes[i];
+				if (shape.testPoint(shape.m_body.m_xf, point)) {
+					if (!callback.reportShape(shape)) {
+						break;
+					}
+				}
+			}
+		} finally {
+			releaseCandidates(shapes, count);
+		}
+	}
+
+	/**
+	 * Report every shape overlapping a shape, as decided by the contact
+	 * narrow phase (see {@link Shape#testOverlap(Shape, XForm, Shape, XForm)}).
+	 * The shape may belong to a body, in which case it isn't reported
+	 * itself, or be made for the purpose with
+	 * {@link Shape#create(gwt.ns.gwtbox2d.client.collision.shapes.ShapeDef)}.
+	 * Allocates nothing. The callback may run queries of its own.
+	 * @param shape the shape to test.
+	 * @param xf the shape's transform.
+	 * @param callback receives the shapes.
+	 */
+	public void overlapShape(final Shape shape, final XForm xf, final QueryCallback callback) {
+		shape.computeAABB(m_queryAABB, xf);
+
+		final Object[] shapes = queryCandidates(m_queryAABB);
+		final int count = m_queryCount;
+		try {
+			for (int i = 0; i < count; ++i) {
+				final Shape other = (Shape) shapes[i];
+				if (other == shape) {
+					continue;
+				}
+				if (Shape.testOverlap(shape, xf, other, other.m_body.m_xf)) {
+					if (!callback.reportShape(other)) {
+						break;
+					}
+				}
+			}
+		} finally {
+			releaseCandidates(shapes, count);
+		}
+	}
+
+	/**
+	 * Cache the broad-phase results of {@link #queryPoint(Vec2, QueryCallback)}
+	 * and {@link #overlapShape(Shape, XForm, QueryCallback)} in square cells,
+	 * so repeated queries in the same cell don't touch the broad-phase until
+	 * something moves. Worth it when many small queries fall in the same
+	 * place between steps, like picking on mouse moves. Queries larger than a
+	 * cell, or straddling cells, go to the broad-phase as usual.
+	 * @param cellSize the cell size in meters, or 0 for no cache (the default).
+	 */
+	public void setQueryCache(final float cellSize) {
+		m_queryCache = cellSize > 0.0f ? new QueryCache(cellSize) : null;
+	}
+
+	/** Get the query cache cell size, 0 if there is no cache. */
+	public float getQueryCacheCellSize() {
+		return m_queryCache == null ? 0.0f : m_queryCache.getCellSize();
+	}
+
+	/** Get the number of queries answered from the cache. */
+	public int getQueryCacheHits() {
+		return m_queryCache == null ? 0 : m_queryCache.m_hits;
+	}
+
+	/** Get the number of queries that went to the broad-phase through the cache. */
+	public int getQueryCacheMisses() {
+		return m_queryCache == null ? 0 : m_queryCache.m_misses;
+	}
+
+	/**
+	 * Find the broad-phase candidates for an AABB into this nesting level's
+	 * array, the count goes in m_queryCount. Cached cells are copied, as a
+	 * nested query may refill them. Pair with releaseCandidates().
+	 */
+	private Object[] queryCandidates(final AABB aabb) {
+		final int depth = m_queryDepth++;
+		if (depth == m_queryShapes.length) {
+			final Object[][] old = m_queryShapes;
+			m_queryShapes = new Object[2 * old.length][];
+			System.arraycopy(old, 0, m_queryShapes, 0, old.length);
+		}
+		Object[] shapes = m_queryShapes[depth];
+		if (shapes == null) {
+			shapes = new Object[Settings.maxProxies];
+			m_queryShapes[depth] = shapes;
+		}
+
+		if (m_queryCache != null && m_queryCache.lookup(m_broadPhase, aabb)) {
+			m_queryCount = m_queryCache.m_lastCount;
+			System.arraycopy(m_queryCache.m_lastShapes, 0, shapes, 0, m_queryCount);
+		} else {
+			m_queryCount = m_broadPhase.query(aabb, shapes, Settings.maxProxies);
+		}
+		return shapes;
+	}
+
+	private void releaseCandidates(final Object[] shapes, final int count) {
+		for (int i = 0; i < count; ++i) {
+			shapes[i] = null;
+		}
+		--m_queryDepth;
+		assert(shapes == m_queryShapes[m_queryDepth]);
+	}
+
 
 	//--------------- Internals Below -------------------
 	// Internal yet public to make life easier.
@@ -611,20 +1543,36 @@ public class World {
 	// the C++ version does otherwise so that we can maintain the engine...
 
 	// djm gwt.ns.gwtbox2d.pooling
-	private static final IslandStack islands = new IslandStack();
+	static final IslandStack islands = new IslandStack();
 	
 	/** For internal use */
 	public void solve(final TimeStep step) {
 		m_positionIterationCount = 0;
+		m_islandCount = 0;
+		m_sleptIslandCount = 0;
+		float minSleepTime = Float.MAX_VALUE;
+		float maxSleepTime = 0.0f;
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.setPhase(StepProfile.e_controllers);
+		}
 		
 		// Step all controllers
 		for(Controller controller = m_controllerList; controller != null; controller = controller.m_next) {
 			controller.step(step);
 		}
+		if (m_profile != null) {
+			m_profile.lap(StepProfile.e_controllers);
+		}
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.setPhase(StepProfile.e_solve);
+		}
 
 		// Size the island for the worst case.
 		final Island island = islands.get();
 		island.init(m_bodyCount, m_contactCount, m_jointCount, m_contactListener);
+		island.m_timeToSleep = m_timeToSleep;
+		island.m_linearSleepTolerance = m_linearSleepTolerance;
+		island.m_angularSleepTolerance = m_angularSleepTolerance;
 
 		// Clear all the island flags.
 		for (Body b = m_bodyList; b != null; b = b.m_next) {
@@ -639,7 +1587,7 @@ public class World {
 
 		// Build and simulate all awake islands.
 		final int stackSize = m_bodyCount;
-		final Body[] stack = new Body[stackSize];
+		final Body[] stack = getBodyScratch(stackSize);
 		for (Body seed = m_bodyList; seed != null; seed = seed.m_next) {
 			if ( (seed.m_flags & (Body.e_islandFlag | Body.e_sleepFlag | Body.e_frozenFlag)) > 0){
 				continue;
@@ -662,6 +1610,9 @@ public class World {
 				island.add(b);
 
 				// Make sure the body is awake.
+				if ((b.m_flags & Body.e_sleepFlag) != 0 && b.isStatic() == false) {
+					++m_contactWakeCount;
+				}
 				b.m_flags &= ~Body.e_sleepFlag;
 
 				// To keep islands as small as possible, we don't
@@ -702,6 +1653,11 @@ public class World {
 						continue;
 					}
 
+					// Frozen bodies are out of the simulation, and so are their joints.
+					if ((jn.other.m_flags & Body.e_frozenFlag) != 0) {
+						continue;
+					}
+
 					island.add(jn.joint);
 					jn.joint.m_islandFlag = true;
 
@@ -718,7 +1674,14 @@ public class World {
 
 			island.solve(step, m_gravity, m_positionCorrection, m_allowSleep);
 
-			m_positionIterationCount = Math.max(m_positionIterationCount, Island.m_positionIterationCount);
+			++m_islandCount;
+			if (island.m_sleeping) {
+				++m_sleptIslandCount;
+			}
+			minSleepTime = Math.min(minSleepTime, island.m_sleepTime);
+			maxSleepTime = Math.max(maxSleepTime, island.m_sleepTime);
+
+			m_positionIterationCount = Math.max(m_positionIterationCount, island.m_positionIterationCount);
 
 			// Post solve cleanup.
 			for (int i = 0; i < island.m_bodyCount; ++i) {
@@ -730,6 +1693,9 @@ public class World {
 			}
 		}
 
+		m_minIslandSleepTime = m_islandCount == 0 ? 0.0f : minSleepTime;
+		m_maxIslandSleepTime = maxSleepTime;
+
 		//m_broadPhase.commit();
 
 		// Synchronize shapes, check for out of range bodies.
@@ -746,6 +1712,10 @@ public class World {
 			// the world AABB then shapes and contacts may be destroyed,
 			// including contacts that are
 			final boolean inRange = b.synchronizeShapes();
+			if (inRange == false) {
+				// frozen, velocities were cleared
+				b.updateStateHash();
+			}
 
 			// Did the body's shapes leave the world?
 			if (inRange == false && m_boundaryListener != null) {
@@ -753,9 +1723,19 @@ public class World {
 			}
 		}
 
+		if (m_profile != null) {
+			m_profile.lap(StepProfile.e_solve);
+		}
+
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.setPhase(StepProfile.e_broadPhase);
+		}
 		// Commit shape proxy movements to the broad-phase so that new contacts are created.
 		// Also, some contacts can be destroyed.
 		m_broadPhase.commit();
+		if (m_profile != null) {
+			m_profile.lap(StepProfile.e_broadPhase);
+		}
 		
 		islands.recycle(island);
 	}
@@ -763,6 +1743,20 @@ public class World {
 	
 	// djm gwt.ns.gwtbox2d.pooling
 	private static final TimeStepStack steps = new TimeStepStack();
+
+	// the island search stack in solve() and the queue in solveTOI(), kept
+	// between steps. Only one of them is in use at a time.
+	private Body[] m_bodyScratch;
+
+	private Body[] getBodyScratch(final int capacity) {
+		if (m_bodyScratch == null || m_bodyScratch.length < capacity) {
+			m_bodyScratch = new Body[capacity * 2];
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+		}
+		return m_bodyScratch;
+	}
 	
 	/** For internal use: find TOI contacts and solve them. */
 	public void solveTOI(final TimeStep step) {
@@ -770,6 +1764,10 @@ public class World {
 		// djm do we always have to make a new island? or can we make
 		// it static?
 		
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.setPhase(StepProfile.e_solveTOI);
+		}
+
 		// Size the island for the worst case.
 		final Island island = islands.get();
 		island.init(m_bodyCount, Settings.maxTOIContactsPerIsland, Settings.maxTOIJointsPerIsland, m_contactListener);
@@ -783,7 +1781,7 @@ public class World {
 		//	poppedElement = queue[queueStart++];
 		//  --queueSize;
 		final int queueCapacity = m_bodyCount;
-		final Body[] queue = new Body[queueCapacity];
+		final Body[] queue = getBodyScratch(queueCapacity);
 
 		for (Body b = m_bodyList; b != null; b = b.m_next) {
 			b.m_flags &= ~Body.e_islandFlag;
@@ -866,6 +1864,10 @@ public class World {
 				break;
 			}
 
+			if (m_profile != null) {
+				m_profile.addTOI();
+			}
+
 			// Advance the bodies to the TOI.
 			final Shape s1 = minContact.getShape1();
 			final Shape s2 = minContact.getShape2();
@@ -945,7 +1947,7 @@ public class World {
 					// March forward, this can do no harm since this is the min TOI.
 					if (other.isStatic() == false) {
 						other.advance(minTOI);
-						other.wakeUp();
+						other.wakeUpFromContact();
 					}
 
 					//push to the queue
@@ -977,7 +1979,7 @@ public class World {
 					if (other.isStatic() == false) {
 						//System.out.println(minTOI);
 						other.advance(minTOI);
-						other.wakeUp();
+						other.wakeUpFromContact();
 					}
 
 					assert (queueSize < queueCapacity);
@@ -1015,6 +2017,7 @@ public class World {
 				// the world AABB then shapes and contacts may be destroyed,
 				// including contacts that are
 				final boolean inRange = b.synchronizeShapes();
+				b.updateStateHash();
 
 				// Did the body's shapes leave the world?
 				if (inRange == false && m_boundaryListener != null) {
@@ -1041,16 +2044,79 @@ public class World {
 				j.m_islandFlag = false;
 			}
 
+			if (m_profile != null) {
+				m_profile.lap(StepProfile.e_solveTOI);
+			}
+
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.setPhase(StepProfile.e_broadPhase);
+			}
 			// Commit shape proxy movements to the broad-phase so that new contacts are created.
 			// Also, some contacts can be destroyed.
 			m_broadPhase.commit();
+			if (m_profile != null) {
+				m_profile.lap(StepProfile.e_broadPhase);
+			}
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.setPhase(StepProfile.e_solveTOI);
+			}
 		}
 		islands.recycle(island);
+		if (m_profile != null) {
+			m_profile.lap(StepProfile.e_solveTOI);
+		}
 	}
 
 	/** Enable/disable warm starting. For testing. */
 	public void setWarmStarting(final boolean flag) { m_warmStarting = flag; }
 
+	/**
+	 * Enable the warm-start cache, which keeps the impulses of contact points
+	 * that disappear and uses them to warm start matching points that come
+	 * back, such as when resting bodies jitter apart and touch again.
+	 * @param capacity the number of contact points to remember, or 0 to disable the cache.
+	 */
+	public void setWarmStartCacheCapacity(final int capacity) {
+		m_warmStartCache = capacity > 0 ? new WarmStartCache(capacity) : null;
+	}
+
+	/**
+	 * Get the warm-start cache, for its hit-rate statistics.
+	 * @return the cache, or null if it is disabled.
+	 */
+	public WarmStartCache getWarmStartCache() {
+		return m_warmStartCache;
+	}
+
+	/**
+	 * Capture the simulation state into a snapshot, for rollback.
+	 * Reuse the snapshot object to avoid allocating.
+	 * @see WorldSnapshot
+	 */
+	public void saveState(final WorldSnapshot snapshot) {
+		snapshot.save(this);
+	}
+
+	/**
+	 * Restore a snapshot taken from this world. Bodies, shapes and
+	 * joints must be the same as when it was taken.
+	 * @see WorldSnapshot
+	 */
+	public void restoreState(final WorldSnapshot snapshot) {
+		snapshot.restore(this);
+	}
+
+	/**
+	 * Get a hash of every body's position, angle and velocities. It is kept
+	 * up to date as bodies move, so this is O(1) and cheap enough to compare
+	 * between client and server every frame. The hash is order independent,
+	 * and with {@link Settings#deterministic} set, equal inputs give equal
+	 * hashes within one build.
+	 */
+	public int stateHash() {
+		return m_stateHash;
+	}
+
 	/** Enable/disable position correction. For testing. */
 	public void setPositionCorrection(final boolean flag) { m_positionCorrection = flag; }
 
@@ -1182,4 +2248,392 @@ public class World {
 
 		return lambda;
 	}
+
+	// shape cast scratch
+	private Object[] m_castShapes;
+	private float[] m_castFractions;
+	private final AABB m_castAABB = new AABB();
+	private final Vec2 m_castNormal = new Vec2();
+	private final Vec2 m_castPoint = new Vec2();
+
+	/**
+	 * Move a shape along a translation, without rotating, and report the
+	 * shapes it hits on the way. The cast shape may belong to a body, in
+	 * which case that body's shapes are skipped, or be made for the
+	 * purpose with {@link Shape#create(gwt.ns.gwtbox2d.client.collision.shapes.ShapeDef)}.
+	 * Candidates come from the broad-phase, in the order the shape's box
+	 * enters theirs, and are then tested with conservative advancement.
+	 * Allocates nothing.
+	 * <BR><BR>
+	 * To find the first hit, have the callback return the fraction it is
+	 * given; to find all hits, return 1. Edge and point shapes can only
+	 * hit, or be hit by, circles and polygons.
+	 * @param shape the shape to move.
+	 * @param xf the shape's starting transform.
+	 * @param translation how far to move it.
+	 * @param callback receives the hits.
+	 */
+	public void shapeCast(final Shape shape, final XForm xf, final Vec2 translation,
+	                      final ShapeCastCallback callback) {
+		if (m_castShapes == null) {
+			m_castShapes = new Object[Settings.maxProxies];
+			m_castFractions = new float[Settings.maxProxies];
+		}
+
+		shape.computeAABB(m_castAABB, xf);
+		final int count = m_broadPhase.querySweptAABB(m_castAABB, translation,
+				m_castShapes, m_castFractions, Settings.maxProxies);
+
+		final Body body = shape.m_body;
+		float maxFraction = 1.0f;
+		for (int i = 0; i < count; ++i) {
+			if (m_castFractions[i] > maxFraction) {
+				// sorted, no nearer hits after this
+				break;
+			}
+			final Shape other = (Shape) m_castShapes[i];
+			if (other == shape || (body != null && other.m_body == body)) {
+				continue;
+			}
+
+			final float fraction = TOI.castShape(shape, xf, translation, other,
+					other.m_body.m_xf, m_castNormal, m_castPoint);
+			if (fraction >= 1.0f || fraction > maxFraction) {
+				continue;
+			}
+
+			final float result = callback.reportHit(other, m_castPoint, m_castNormal, fraction);
+			if (result == 0.0f) {
+				break;
+			}
+			if (result > 0.0f && result < maxFraction) {
+				maxFraction = result;
+			}
+		}
+
+		for (int j = 0; j < count; ++j) {
+			m_castShapes[j] = null;
+		}
+	}
+
+	/**
+	 * Register a routine for debug drawing. The debug draw functions are
+	 * called inside {@link #drawDebugData()}.
+	 */
+	public void setDebugDraw(final DebugDraw debugDraw) {
+		m_debugDraw = debugDraw;
+	}
+
+	public DebugDraw getDebugDraw() {
+		return m_debugDraw;
+	}
+
+	private static final Color3f s_staticColor = new Color3f(255f * 0.5f, 255f * 0.9f, 255f * 0.5f);
+	private static final Color3f s_sleepingColor = new Color3f(255f * 0.5f, 255f * 0.5f, 255f * 0.9f);
+	private static final Color3f s_dynamicColor = new Color3f(255f * 0.9f, 255f * 0.9f, 255f * 0.9f);
+	private static final Color3f s_coreColor = new Color3f(255f * 0.9f, 255f * 0.6f, 255f * 0.6f);
+	private static final Color3f s_jointColor = new Color3f(255f * 0.5f, 255f * 0.8f, 255f * 0.8f);
+	private static final Color3f s_pairColor = new Color3f(255f * 0.9f, 255f * 0.9f, 255f * 0.3f);
+	private static final Color3f s_aabbColor = new Color3f(255f, 255f, 255f);
+	private static final Color3f s_worldColor = new Color3f(255f * 0.3f, 255f * 0.9f, 255f * 0.9f);
+	private static final Color3f s_obbColor = new Color3f(255f * 0.5f, 255f * 0.3f, 255f * 0.5f);
+	/** Point shapes' size on screen. */
+	private static final float s_pointSize = 2.0f;
+
+	// debug draw scratch
+	private final Vec2[] m_drawVertices = new Vec2[Settings.maxPolygonVertices];
+	private final AABB m_drawView = new AABB();
+	private final AABB m_drawAABB = new AABB();
+	private final XForm m_drawXForm = new XForm();
+	private final Vec2 m_drawP1 = new Vec2();
+	private final Vec2 m_drawP2 = new Vec2();
+	private boolean m_drawCull;
+
+	/**
+	 * Call this to draw shapes and other debug draw data, as selected by
+	 * the {@link DebugDraw} flags. Anything whose bounding box is outside
+	 * the debug draw's viewport is skipped. Ends with {@link DebugDraw#flush()}.
+	 */
+	public void drawDebugData() {
+		if (m_debugDraw == null) {
+			return;
+		}
+
+		final DebugDraw draw = m_debugDraw;
+		final int flags = draw.getFlags();
+		m_drawCull = computeDrawView(draw.getViewportTranform());
+
+		if ((flags & DebugDraw.e_shapeBit) != 0) {
+			final boolean core = (flags & DebugDraw.e_coreShapeBit) != 0;
+
+			for (Body b = m_bodyList; b != null; b = b.m_next) {
+				final XForm xf = b.m_xf;
+				final Color3f color;
+				if (b.isStatic()) {
+					color = s_staticColor;
+				} else if (b.isSleeping()) {
+					color = s_sleepingColor;
+				} else {
+					color = s_dynamicColor;
+				}
+
+				for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+					if (m_drawCull) {
+						// proxy boxes are kept current by the step, others we compute
+						if (s.m_proxyId != PairManager.NULL_PROXY) {
+							m_drawAABB.set(s.m_proxyAABB);
+						} else {
+							s.computeAABB(m_drawAABB, xf);
+						}
+						if (isDrawn(m_drawAABB) == false) {
+							continue;
+						}
+					}
+					drawShape(s, xf, color, core);
+				}
+			}
+		}
+
+		if ((flags & DebugDraw.e_jointBit) != 0) {
+			for (Joint j = m_jointList; j != null; j = j.m_next) {
+				if (j.getType() != JointType.MOUSE_JOINT) {
+					drawJoint(j);
+				}
+			}
+		}
+
+		final BroadPhase bp = m_broadPhase;
+		final float invQx = 1.0f / bp.m_quantizationFactor.x;
+		final float invQy = 1.0f / bp.m_quantizationFactor.y;
+
+		if ((flags & DebugDraw.e_pairBit) != 0) {
+			final PairManager pm = bp.m_pairManager;
+			for (int i = 0; i < PairManager.TABLE_CAPACITY; ++i) {
+				for (int index = pm.m_hashTable[i]; index != PairManager.NULL_PAIR; index = pm.m_pairs[index].next) {
+					final Pair pair = pm.m_pairs[index];
+					proxyCenter(bp.m_proxyPool[pair.proxyId1], invQx, invQy, m_drawP1);
+					proxyCenter(bp.m_proxyPool[pair.proxyId2], invQx, invQy, m_drawP2);
+					if (isSegmentDrawn(m_drawP1, m_drawP2)) {
+						draw.drawSegment(m_drawP1, m_drawP2, s_pairColor);
+					}
+				}
+			}
+		}
+
+		if ((flags & DebugDraw.e_aabbBit) != 0) {
+			drawAABB(bp.m_worldAABB, s_worldColor);
+			for (int i = 0; i < Settings.maxProxies; ++i) {
+				final Proxy p = bp.m_proxyPool[i];
+				if (p.isValid() == false) {
+					continue;
+				}
+				proxyAABB(p, invQx, invQy, m_drawAABB);
+				if (isDrawn(m_drawAABB)) {
+					drawAABB(m_drawAABB, s_aabbColor);
+				}
+			}
+		}
+
+		if ((flags & DebugDraw.e_obbBit) != 0) {
+			final Vec2[] vs = m_drawVertices;
+			for (Body b = m_bodyList; b != null; b = b.m_next) {
+				final XForm xf = b.m_xf;
+				for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+					if (s.getType() != ShapeType.POLYGON_SHAPE) {
+						continue;
+					}
+					if (m_drawCull && s.m_proxyId != PairManager.NULL_PROXY && isDrawn(s.m_proxyAABB) == false) {
+						continue;
+					}
+					final OBB obb = ((PolygonShape) s).m_obb;
+					final Vec2 h = obb.extents;
+					vs[0].set(-h.x, -h.y);
+					vs[1].set(h.x, -h.y);
+					vs[2].set(h.x, h.y);
+					vs[3].set(-h.x, h.y);
+					for (int i = 0; i < 4; ++i) {
+						Mat22.mulToOut(obb.R, vs[i], vs[i]);
+						vs[i].addLocal(obb.center);
+						XForm.mulToOut(xf, vs[i], vs[i]);
+					}
+					draw.drawPolygon(vs, 4, s_obbColor);
+				}
+			}
+		}
+
+		if ((flags & DebugDraw.e_centerOfMassBit) != 0) {
+			for (Body b = m_bodyList; b != null; b = b.m_next) {
+				final Vec2 c = b.m_sweep.c;
+				if (m_drawCull && (c.x < m_drawView.lowerBound.x || c.y < m_drawView.lowerBound.y
+						|| c.x > m_drawView.upperBound.x || c.y > m_drawView.upperBound.y)) {
+					continue;
+				}
+				m_drawXForm.R.set(b.m_xf.R);
+				m_drawXForm.position.set(c);
+				draw.drawXForm(m_drawXForm);
+			}
+		}
+
+		if ((flags & DebugDraw.e_controllerBit) != 0) {
+			for (Controller c = m_controllerList; c != null; c = c.m_next) {
+				c.draw(draw);
+			}
+		}
+
+		draw.flush();
+	}
+
+	/** Find the world box seen through the viewport, or return false to draw everything. */
+	private boolean computeDrawView(final IViewportTransform viewport) {
+		if (viewport == null) {
+			return false;
+		}
+		final Vec2 extents = viewport.getExtents();
+		if (extents.x <= 0.0f || extents.y <= 0.0f) {
+			return false;
+		}
+
+		final Vec2 lower = m_drawView.lowerBound;
+		final Vec2 upper = m_drawView.upperBound;
+		lower.set(Float.MAX_VALUE, Float.MAX_VALUE);
+		upper.set(-Float.MAX_VALUE, -Float.MAX_VALUE);
+		// the screen spans [0, 2 * extents], the world box may be rotated in it
+		for (int i = 0; i < 4; ++i) {
+			m_drawP1.set((i & 1) * 2.0f * extents.x, (i >> 1) * 2.0f * extents.y);
+			viewport.getScreenToWorld(m_drawP1, m_drawP1);
+			Vec2.minToOut(lower, m_drawP1, lower);
+			Vec2.maxToOut(upper, m_drawP1, upper);
+		}
+		return true;
+	}
+
+	private boolean isDrawn(final AABB aabb) {
+		return m_drawCull == false || aabb.testOverlap(m_drawView);
+	}
+
+	private boolean isSegmentDrawn(final Vec2 p1, final Vec2 p2) {
+		if (m_drawCull == false) {
+			return true;
+		}
+		Vec2.minToOut(p1, p2, m_drawAABB.lowerBound);
+		Vec2.maxToOut(p1, p2, m_drawAABB.upperBound);
+		return m_drawAABB.testOverlap(m_drawView);
+	}
+
+	private void proxyAABB(final Proxy p, final float invQx, final float invQy, final AABB out) {
+		final BroadPhase bp = m_broadPhase;
+		final Vec2 worldLower = bp.m_worldAABB.lowerBound;
+		out.lowerBound.x = worldLower.x + invQx * bp.m_bounds[0][p.lowerBounds[0]].value;
+		out.lowerBound.y = worldLower.y + invQy * bp.m_bounds[1][p.lowerBounds[1]].value;
+		out.upperBound.x = worldLower.x + invQx * bp.m_bounds[0][p.upperBounds[0]].value;
+		out.upperBound.y = worldLower.y + invQy * bp.m_bounds[1][p.upperBounds[1]].value;
+	}
+
+	private void proxyCenter(final Proxy p, final float invQx, final float invQy, final Vec2 out) {
+		proxyAABB(p, invQx, invQy, m_drawAABB);
+		out.x = 0.5f * (m_drawAABB.lowerBound.x + m_drawAABB.upperBound.x);
+		out.y = 0.5f * (m_drawAABB.lowerBound.y + m_drawAABB.upperBound.y);
+	}
+
+	private void drawAABB(final AABB aabb, final Color3f color) {
+		final Vec2[] vs = m_drawVertices;
+		vs[0].set(aabb.lowerBound.x, aabb.lowerBound.y);
+		vs[1].set(aabb.upperBound.x, aabb.lowerBound.y);
+		vs[2].set(aabb.upperBound.x, aabb.upperBound.y);
+		vs[3].set(aabb.lowerBound.x, aabb.upperBound.y);
+		m_debugDraw.drawPolygon(vs, 4, color);
+	}
+
+	private void drawShape(final Shape shape, final XForm xf, final Color3f color, final boolean core) {
+		final DebugDraw draw = m_debugDraw;
+		final Vec2[] vs = m_drawVertices;
+
+		if (shape.getType() == ShapeType.CIRCLE_SHAPE) {
+			final CircleShape circle = (CircleShape) shape;
+			XForm.mulToOut(xf, circle.getLocalPosition(), m_drawP1);
+			final float radius = circle.getRadius();
+			draw.drawSolidCircle(m_drawP1, radius, xf.R.col1, color);
+			if (core) {
+				draw.drawCircle(m_drawP1, radius - Settings.toiSlop, s_coreColor);
+			}
+		} else if (shape.getType() == ShapeType.POINT_SHAPE) {
+			final PointShape point = (PointShape) shape;
+			XForm.mulToOut(xf, point.getLocalPosition(), m_drawP1);
+			draw.drawPoint(m_drawP1, s_pointSize, color);
+		} else if (shape.getType() == ShapeType.POLYGON_SHAPE) {
+			final PolygonShape poly = (PolygonShape) shape;
+			final int vertexCount = poly.getVertexCount();
+			final Vec2[] localVertices = poly.getVertices();
+			for (int i = 0; i < vertexCount; ++i) {
+				XForm.mulToOut(xf, localVertices[i], vs[i]);
+			}
+			draw.drawSolidPolygon(vs, vertexCount, color);
+
+			if (core) {
+				final Vec2[] localCoreVertices = poly.getCoreVertices();
+				for (int i = 0; i < vertexCount; ++i) {
+					XForm.mulToOut(xf, localCoreVertices[i], vs[i]);
+				}
+				draw.drawPolygon(vs, vertexCount, s_coreColor);
+			}
+		} else if (shape.getType() == ShapeType.EDGE_SHAPE) {
+			final EdgeShape edge = (EdgeShape) shape;
+			XForm.mulToOut(xf, edge.getVertex1(), m_drawP1);
+			XForm.mulToOut(xf, edge.getVertex2(), m_drawP2);
+			draw.drawSegment(m_drawP1, m_drawP2, color);
+
+			if (core) {
+				XForm.mulToOut(xf, edge.getCoreVertex1(), m_drawP1);
+				XForm.mulToOut(xf, edge.getCoreVertex2(), m_drawP2);
+				draw.drawSegment(m_drawP1, m_drawP2, s_coreColor);
+			}
+		}
+	}
+
+	// djm not a hot method, the anchors are allocated by the joints
+	private void drawJoint(final Joint joint) {
+		final DebugDraw draw = m_debugDraw;
+		final Vec2 x1 = joint.m_body1.m_xf.position;
+		final Vec2 x2 = joint.m_body2.m_xf.position;
+		final Vec2 p1 = joint.getAnchor1();
+		final Vec2 p2 = joint.getAnchor2();
+
+		if (m_drawCull) {
+			Vec2.minToOut(x1, x2, m_drawAABB.lowerBound);
+			Vec2.maxToOut(x1, x2, m_drawAABB.upperBound);
+			Vec2.minToOut(m_drawAABB.lowerBound, p1, m_drawAABB.lowerBound);
+			Vec2.maxToOut(m_drawAABB.upperBound, p1, m_drawAABB.upperBound);
+			Vec2.minToOut(m_drawAABB.lowerBound, p2, m_drawAABB.lowerBound);
+			Vec2.maxToOut(m_drawAABB.upperBound, p2, m_drawAABB.upperBound);
+			if (m_drawAABB.testOverlap(m_drawView) == false) {
+				return;
+			}
+		}
+
+		switch (joint.getType()) {
+			case DISTANCE_JOINT:
+				draw.drawSegment(p1, p2, s_jointColor);
+				break;
+
+			case PULLEY_JOINT: {
+				final PulleyJoint pulley = (PulleyJoint) joint;
+				final Vec2 s1 = pulley.getGroundAnchor1();
+				final Vec2 s2 = pulley.getGroundAnchor2();
+				draw.drawSegment(s1, p1, s_jointColor);
+				draw.drawSegment(s2, p2, s_jointColor);
+				draw.drawSegment(s1, s2, s_jointColor);
+			}
+				break;
+
+			case CONSTANT_VOLUME_JOINT:
+			case MOUSE_JOINT:
+				// don't draw this
+				break;
+
+			default:
+				draw.drawSegment(x1, p1, s_jointColor);
+				draw.drawSegment(p1, p2, s_jointColor);
+				draw.drawSegment(x2, p2, s_jointColor);
+		}
+	}
 }
@@ -0,0 +1,638 @@
+package gwt.ns.gwtbox2d.client.dynamics;
+
+import gwt.ns.gwtbox2d.client.collision.AABB;
+import gwt.ns.gwtbox2d.client.collision.Bound;
+import gwt.ns.gwtbox2d.client.collision.BroadPhase;
+import gwt.ns.gwtbox2d.client.collision.Manifold;
+import gwt.ns.gwtbox2d.client.collision.ManifoldPoint;
+import gwt.ns.gwtbox2d.client.collision.PairManager;
+import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
+import gwt.ns.gwtbox2d.client.common.Sweep;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.common.XForm;
+import gwt.ns.gwtbox2d.client.dynamics.contacts.Contact;
+import gwt.ns.gwtbox2d.client.dynamics.contacts.ContactEdge;
+import gwt.ns.gwtbox2d.client.dynamics.joints.Joint;
+import gwt.ns.gwtbox2d.client.dynamics.joints.LimitState;
+
+import java.util.List;
+
+/**
+ * A binary copy of a world's simulation state, for rollback. It holds
+ * body motion, broad-phase proxy bounds, contact manifolds with their
+ * warm starting impulses, and joint impulses, in two flat primitive
+ * buffers that can be sent or stored as they are.
+ * <BR><BR>
+ * A snapshot only holds state, not structure: it must be restored into
+ * the world it was taken from, or one built the same way, with the same
+ * bodies, shapes and joints created in the same order. Restoring
+ * writes the state back in place. Proxies are moved rather than
+ * recreated, and the contact list and each body's contact edges are
+ * put back in their saved order, so stepping after a restore gives
+ * bit-identical results to stepping after the save.
+ * <BR><BR>
+ * The optional warm start cache is not part of the snapshot and is
+ * cleared on restore.
+ * <BR><BR>
+ * Buffers grow as needed and are reused, so taking snapshots of a
+ * steady world does not allocate.
+ */
+public class WorldSnapshot {
+	private static final int VERSION = 1;
+
+	private static final LimitState[] limitStates = LimitState.values();
+
+	private float[] m_floats;
+	private int m_floatCount;
+	private int m_floatPos;
+
+	private int[] m_ints;
+	private int m_intCount;
+	private int m_intPos;
+
+	// save scratch: shape uid -> shape index, open addressing
+	private int[] m_uidKeys;
+	private int[] m_uidValues;
+
+	// restore scratch
+	private Shape[] m_shapes;
+	private final AABB m_aabb;
+
+	public WorldSnapshot() {
+		this(1024);
+	}
+
+	/**
+	 * @param floatCapacity initial size of the float buffer. Roughly 32
+	 * floats per body plus 12 per contact point is enough.
+	 */
+	public WorldSnapshot(final int floatCapacity) {
+		m_floats = new float[Math.max(floatCapacity, 16)];
+		m_ints = new int[Math.max(floatCapacity / 4, 16)];
+		m_uidKeys = new int[64];
+		m_uidValues = new int[64];
+		m_shapes = new Shape[64];
+		m_aabb = new AABB();
+	}
+
+	/** Empty the snapshot. Buffers are kept. */
+	public void clear() {
+		m_floatCount = 0;
+		m_intCount = 0;
+		rewind();
+	}
+
+	/** Move the read position back to the start. */
+	public void rewind() {
+		m_floatPos = 0;
+		m_intPos = 0;
+	}
+
+	/** The float buffer. Only the first {@link #getFloatCount()} entries are used. */
+	public float[] getFloats() {
+		return m_floats;
+	}
+
+	public int getFloatCount() {
+		return m_floatCount;
+	}
+
+	/** The int buffer. Only the first {@link #getIntCount()} entries are used. */
+	public int[] getInts() {
+		return m_ints;
+	}
+
+	public int getIntCount() {
+		return m_intCount;
+	}
+
+	/** Size of the snapshot in bytes, as four bytes per entry. */
+	public int getByteCount() {
+		return (m_floatCount + m_intCount) * 4;
+	}
+
+	/**
+	 * Load data previously taken from {@link #getFloats()} and
+	 * {@link #getInts()}, e.g. after it came over the network.
+	 */
+	public void load(final float[] floats, final int floatCount, final int[] ints, final int intCount) {
+		clear();
+		ensureFloats(floatCount);
+		ensureInts(intCount);
+		System.arraycopy(floats, 0, m_floats, 0, floatCount);
+		System.arraycopy(ints, 0, m_ints, 0, intCount);
+		m_floatCount = floatCount;
+		m_intCount = intCount;
+	}
+
+	/** Make this a copy of another snapshot. */
+	public void set(final WorldSnapshot other) {
+		load(other.m_floats, other.m_floatCount, other.m_ints, other.m_intCount);
+	}
+
+	/**
+	 * Capture the state of a world, replacing the current contents.
+	 * Not allowed during a step.
+	 */
+	public void save(final World world) {
+		assert(world.m_lock == false);
+		clear();
+
+		int shapeCount = 0;
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			shapeCount += b.m_shapeCount;
+		}
+		buildUidTable(world, shapeCount);
+
+		putInt(VERSION);
+		putInt(world.m_bodyCount);
+		putInt(shapeCount);
+		putInt(world.m_jointCount);
+		putInt(world.m_contactCount);
+
+		putFloat(world.m_inv_dt0);
+		putFloat(world.m_accumulator);
+		putFloat(world.m_interpolationAlpha);
+
+		// Proxies come first: restoring them creates and destroys
+		// contacts, which can wake bodies, so body state is written after.
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			putInt(b.m_shapeCount);
+			for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+				putInt(s.m_proxyId);
+				if (s.m_proxyId != PairManager.NULL_PROXY) {
+					putVec2(s.m_proxyAABB.lowerBound);
+					putVec2(s.m_proxyAABB.upperBound);
+				}
+			}
+		}
+
+		// Proxies with equal quantized bounds are kept in the order they
+		// were moved in, and that order decides the order new pairs are
+		// reported in. Moving proxies back doesn't restore it, so the
+		// sorted bound arrays are saved as they are.
+		final BroadPhase broadPhase = world.m_broadPhase;
+		final int boundCount = 2 * broadPhase.m_proxyCount;
+		putInt(broadPhase.m_proxyCount);
+		for (int axis = 0; axis < 2; ++axis) {
+			final Bound[] bounds = broadPhase.m_bounds[axis];
+			for (int i = 0; i < boundCount; ++i) {
+				putInt(bounds[i].value);
+				putInt(bounds[i].proxyId);
+				putInt(bounds[i].stabbingCount);
+			}
+		}
+
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			putInt(b.m_flags);
+
+			final Sweep sweep = b.m_sweep;
+			putVec2(sweep.localCenter);
+			putVec2(sweep.c0);
+			putVec2(sweep.c);
+			putFloat(sweep.a0);
+			putFloat(sweep.a);
+			putFloat(sweep.t0);
+
+			putXForm(b.m_xf);
+			putXForm(b.m_xf0);
+
+			putVec2(b.m_linearVelocity);
+			putFloat(b.m_angularVelocity);
+			putVec2(b.m_force);
+			putFloat(b.m_torque);
+			putFloat(b.m_sleepTime);
+		}
+
+		for (Joint j = world.m_jointList; j != null; j = j.m_next) {
+			putInt(j.m_type.ordinal());
+			j.saveState(this);
+		}
+
+		for (Contact c = world.m_contactList; c != null; c = c.m_next) {
+			putInt(shapeIndex(c.m_shape1));
+			putInt(shapeIndex(c.m_shape2));
+			putInt(c.m_flags);
+			putFloat(c.m_toi);
+			putInt(c.m_manifoldCount);
+
+			final List<Manifold> manifolds = c.getManifolds();
+			for (int i = 0; i < c.m_manifoldCount; ++i) {
+				final Manifold m = manifolds.get(i);
+				putVec2(m.normal);
+				putInt(m.pointCount);
+				for (int k = 0; k < m.pointCount; ++k) {
+					final ManifoldPoint mp = m.points[k];
+					putVec2(mp.localPoint1);
+					putVec2(mp.localPoint2);
+					putFloat(mp.separation);
+					putFloat(mp.normalImpulse);
+					putFloat(mp.tangentImpulse);
+					putInt(mp.id.features.referenceEdge);
+					putInt(mp.id.features.incidentEdge);
+					putInt(mp.id.features.incidentVertex);
+					putInt(mp.id.features.flip);
+				}
+			}
+		}
+
+		// The order of each body's contact edges decides the island
+		// traversal order, so it is kept too.
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			int edgeCount = 0;
+			for (ContactEdge ce = b.m_contactList; ce != null; ce = ce.next) {
+				++edgeCount;
+			}
+			putInt(edgeCount);
+			for (ContactEdge ce = b.m_contactList; ce != null; ce = ce.next) {
+				putInt(shapeIndex(ce.contact.m_shape1));
+				putInt(shapeIndex(ce.contact.m_shape2));
+			}
+		}
+	}
+
+	/**
+	 * Write the snapshot back into a world. Not allowed during a step.
+	 * @throws IllegalStateException if the world's bodies, shapes or
+	 * joints don't match the snapshot.
+	 */
+	public void restore(final World world) {
+		assert(world.m_lock == false);
+		rewind();
+
+		if (getInt() != VERSION) {
+			throw new IllegalStateException("Unknown snapshot version");
+		}
+		final int bodyCount = getInt();
+		final int shapeCount = getInt();
+		final int jointCount = getInt();
+		final int contactCount = getInt();
+		if (bodyCount != world.m_bodyCount || jointCount != world.m_jointCount) {
+			throw new IllegalStateException("Snapshot does not match the world");
+		}
+
+		world.m_inv_dt0 = getFloat();
+		world.m_accumulator = getFloat();
+		world.m_interpolationAlpha = getFloat();
+
+		if (m_shapes.length < shapeCount) {
+			m_shapes = new Shape[shapeCount * 2];
+		}
+
+		final BroadPhase broadPhase = world.m_broadPhase;
+		boolean sameProxies = true;
+		int shapeIndex = 0;
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			if (getInt() != b.m_shapeCount || shapeIndex + b.m_shapeCount > shapeCount) {
+				throw new IllegalStateException("Snapshot does not match the world");
+			}
+
+			for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+				m_shapes[shapeIndex++] = s;
+
+				final int proxyId = getInt();
+				if (proxyId == PairManager.NULL_PROXY) {
+					if (s.m_proxyId != PairManager.NULL_PROXY) {
+						s.destroyProxy(broadPhase);
+					}
+					continue;
+				}
+
+				final AABB aabb = m_aabb;
+				getVec2(aabb.lowerBound);
+				getVec2(aabb.upperBound);
+				if (s.m_proxyId == PairManager.NULL_PROXY) {
+					// the body froze since the save
+					s.m_proxyId = broadPhase.createProxy(new AABB(aabb), s);
+				} else if (!sameBounds(s.m_proxyAABB, aabb)) {
+					broadPhase.moveProxy(s.m_proxyId, aabb);
+				}
+				s.m_proxyAABB.set(aabb);
+				sameProxies = sameProxies && s.m_proxyId == proxyId;
+			}
+		}
+		if (shapeIndex != shapeCount) {
+			throw new IllegalStateException("Snapshot does not match the world");
+		}
+
+		// Create and destroy contacts to match the proxies.
+		broadPhase.commit();
+
+		// Put back the bound order, if the proxies are the ones that
+		// were saved. Otherwise the moved proxies are left as they are.
+		final int proxyCount = getInt();
+		final int boundCount = 2 * proxyCount;
+		if (sameProxies && proxyCount == broadPhase.m_proxyCount) {
+			for (int axis = 0; axis < 2; ++axis) {
+				final Bound[] bounds = broadPhase.m_bounds[axis];
+				for (int i = 0; i < boundCount; ++i) {
+					final Bound bound = bounds[i];
+					bound.value = getInt();
+					bound.proxyId = getInt();
+					bound.stabbingCount = getInt();
+					if (bound.isLower()) {
+						broadPhase.m_proxyPool[bound.proxyId].lowerBounds[axis] = i;
+					} else {
+						broadPhase.m_proxyPool[bound.proxyId].upperBounds[axis] = i;
+					}
+				}
+			}
+		} else {
+			m_intPos += 2 * 3 * boundCount;
+		}
+
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			b.m_flags = getInt();
+
+			final Sweep sweep = b.m_sweep;
+			getVec2(sweep.localCenter);
+			getVec2(sweep.c0);
+			getVec2(sweep.c);
+			sweep.a0 = getFloat();
+			sweep.a = getFloat();
+			sweep.t0 = getFloat();
+
+			getXForm(b.m_xf);
+			getXForm(b.m_xf0);
+
+			getVec2(b.m_linearVelocity);
+			b.m_angularVelocity = getFloat();
+			getVec2(b.m_force);
+			b.m_torque = getFloat();
+			b.m_sleepTime = getFloat();
+			b.updateStateHash();
+		}
+
+		if (world.m_warmStartCache != null) {
+			world.m_warmStartCache.clear();
+		}
+
+		for (Joint j = world.m_jointList; j != null; j = j.m_next) {
+			if (getInt() != j.m_type.ordinal()) {
+				throw new IllegalStateException("Snapshot does not match the world");
+			}
+			j.restoreState(this);
+		}
+
+		// Move the saved contacts, in order, from the world's list onto
+		// a new one. Anything left over goes at the end.
+		Contact head = null;
+		Contact tail = null;
+		for (int i = 0; i < contactCount; ++i) {
+			final Shape s1 = m_shapes[getInt()];
+			final Shape s2 = m_shapes[getInt()];
+			final Contact c = findContact(s1, s2);
+
+			final int flags = getInt();
+			final float toi = getFloat();
+			final int manifoldCount = getInt();
+			final List<Manifold> manifolds = c == null ? null : c.getManifolds();
+			for (int k = 0; k < manifoldCount; ++k) {
+				final Manifold m = manifolds == null ? null : manifolds.get(k);
+				readManifold(m);
+			}
+
+			if (c == null) {
+				// The pair no longer overlaps, e.g. the filter changed.
+				continue;
+			}
+			c.m_flags = flags;
+			c.m_toi = toi;
+			c.m_manifoldCount = manifoldCount;
+			// unused manifolds must be empty, or stale points would be
+			// matched for warm starting on the next update
+			for (int k = manifoldCount; k < manifolds.size(); ++k) {
+				manifolds.get(k).pointCount = 0;
+			}
+
+			unlink(world, c);
+			c.m_prev = tail;
+			c.m_next = null;
+			if (tail == null) {
+				head = c;
+			} else {
+				tail.m_next = c;
+			}
+			tail = c;
+		}
+		if (tail == null) {
+			head = world.m_contactList;
+		} else {
+			tail.m_next = world.m_contactList;
+			if (world.m_contactList != null) {
+				world.m_contactList.m_prev = tail;
+			}
+		}
+		world.m_contactList = head;
+
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			final int edgeCount = getInt();
+			ContactEdge edgeHead = null;
+			ContactEdge edgeTail = null;
+			for (int i = 0; i < edgeCount; ++i) {
+				final Shape s1 = m_shapes[getInt()];
+				final Shape s2 = m_shapes[getInt()];
+				ContactEdge ce = b.m_contactList;
+				while (ce != null && (ce.contact.m_shape1 != s1 || ce.contact.m_shape2 != s2)) {
+					ce = ce.next;
+				}
+				if (ce == null) {
+					continue;
+				}
+
+				// unlink from the body
+				if (ce.prev != null) {
+					ce.prev.next = ce.next;
+				}
+				if (ce.next != null) {
+					ce.next.prev = ce.prev;
+				}
+				if (ce == b.m_contactList) {
+					b.m_contactList = ce.next;
+				}
+
+				ce.prev = edgeTail;
+				ce.next = null;
+				if (edgeTail == null) {
+					edgeHead = ce;
+				} else {
+					edgeTail.next = ce;
+				}
+				edgeTail = ce;
+			}
+			if (edgeTail != null) {
+				edgeTail.next = b.m_contactList;
+				if (b.m_contactList != null) {
+					b.m_contactList.prev = edgeTail;
+				}
+				b.m_contactList = edgeHead;
+			}
+		}
+
+		for (int i = 0; i < shapeCount; ++i) {
+			m_shapes[i] = null;
+		}
+		assert(m_floatPos == m_floatCount && m_intPos == m_intCount);
+	}
+
+	public void putFloat(final float f) {
+		if (m_floatCount == m_floats.length) {
+			ensureFloats(m_floatCount + 1);
+		}
+		m_floats[m_floatCount++] = f;
+	}
+
+	public void putInt(final int i) {
+		if (m_intCount == m_ints.length) {
+			ensureInts(m_intCount + 1);
+		}
+		m_ints[m_intCount++] = i;
+	}
+
+	public void putVec2(final Vec2 v) {
+		putFloat(v.x);
+		putFloat(v.y);
+	}
+
+	/** Write a limit state, which may be null. */
+	public void putLimitState(final LimitState state) {
+		putInt(state == null ? -1 : state.ordinal());
+	}
+
+	public float getFloat() {
+		assert(m_floatPos < m_floatCount);
+		return m_floats[m_floatPos++];
+	}
+
+	public int getInt() {
+		assert(m_intPos < m_intCount);
+		return m_ints[m_intPos++];
+	}
+
+	public void getVec2(final Vec2 out) {
+		out.x = getFloat();
+		out.y = getFloat();
+	}
+
+	public LimitState getLimitState() {
+		final int ordinal = getInt();
+		return ordinal < 0 ? null : limitStates[ordinal];
+	}
+
+	private void putXForm(final XForm xf) {
+		putVec2(xf.position);
+		putVec2(xf.R.col1);
+		putVec2(xf.R.col2);
+	}
+
+	private void getXForm(final XForm xf) {
+		getVec2(xf.position);
+		getVec2(xf.R.col1);
+		getVec2(xf.R.col2);
+	}
+
+	/** Reads a saved manifold into m, or skips it if m is null. */
+	private void readManifold(final Manifold m) {
+		if (m == null) {
+			m_floatPos += 2;
+			final int pointCount = getInt();
+			m_floatPos += 7 * pointCount;
+			m_intPos += 4 * pointCount;
+			return;
+		}
+
+		getVec2(m.normal);
+		m.pointCount = getInt();
+		for (int k = 0; k < m.pointCount; ++k) {
+			final ManifoldPoint mp = m.points[k];
+			getVec2(mp.localPoint1);
+			getVec2(mp.localPoint2);
+			mp.separation = getFloat();
+			mp.normalImpulse = getFloat();
+			mp.tangentImpulse = getFloat();
+			mp.id.features.referenceEdge = getInt();
+			mp.id.features.incidentEdge = getInt();
+			mp.id.features.incidentVertex = getInt();
+			mp.id.features.flip = getInt();
+		}
+	}
+
+	private static Contact findContact(final Shape s1, final Shape s2) {
+		for (ContactEdge ce = s1.getBody().m_contactList; ce != null; ce = ce.next) {
+			if (ce.contact.m_shape1 == s1 && ce.contact.m_shape2 == s2) {
+				return ce.contact;
+			}
+		}
+		return null;
+	}
+
+	private static void unlink(final World world, final Contact c) {
+		if (c.m_prev != null) {
+			c.m_prev.m_next = c.m_next;
+		}
+		if (c.m_next != null) {
+			c.m_next.m_prev = c.m_prev;
+		}
+		if (c == world.m_contactList) {
+			world.m_contactList = c.m_next;
+		}
+	}
+
+	private static boolean sameBounds(final AABB a, final AABB b) {
+		return a.lowerBound.x == b.lowerBound.x && a.lowerBound.y == b.lowerBound.y
+			&& a.upperBound.x == b.upperBound.x && a.upperBound.y == b.upperBound.y;
+	}
+
+	private void buildUidTable(final World world, final int shapeCount) {
+		int size = m_uidKeys.length;
+		while (size < shapeCount * 2) {
+			size *= 2;
+		}
+		if (size != m_uidKeys.length) {
+			m_uidKeys = new int[size];
+			m_uidValues = new int[size];
+		}
+		for (int i = 0; i < size; ++i) {
+			m_uidKeys[i] = -1;
+		}
+
+		final int mask = size - 1;
+		int index = 0;
+		for (Body b = world.m_bodyList; b != null; b = b.m_next) {
+			for (Shape s = b.m_shapeList; s != null; s = s.m_next) {
+				int slot = (s.uid * 0x9E3779B1 >>> 16) & mask;
+				while (m_uidKeys[slot] != -1) {
+					slot = (slot + 1) & mask;
+				}
+				m_uidKeys[slot] = s.uid;
+				m_uidValues[slot] = index++;
+			}
+		}
+	}
+
+	private int shapeIndex(final Shape s) {
+		final int mask = m_uidKeys.length - 1;
+		int slot = (s.uid * 0x9E3779B1 >>> 16) & mask;
+		while (m_uidKeys[slot] != s.uid) {
+			assert(m_uidKeys[slot] != -1) : "shape not in world";
+			slot = (slot + 1) & mask;
+		}
+		return m_uidValues[slot];
+	}
+
+	private void ensureFloats(final int size) {
+		if (size > m_floats.length) {
+			final float[] old = m_floats;
+			m_floats = new float[Math.max(size, old.length * 2)];
+			System.arraycopy(old, 0, m_floats, 0, m_floatCount);
+		}
+	}
+
+	private void ensureInts(final int size) {
+		if (size > m_ints.length) {
+			final int[] old = m_ints;
+			m_ints = new int[Math.max(size, old.length * 2)];
+			System.arraycopy(old, 0, m_ints, 0, m_intCount);
+		}
+	}
+}
@@ -43,8 +43,10 @@
 package gwt.ns.gwtbox2d.client.dynamics.contacts;
 
 import gwt.ns.gwtbox2d.client.collision.Manifold;
+import gwt.ns.gwtbox2d.client.collision.ManifoldPoint;
 import gwt.ns.gwtbox2d.client.collision.shapes.Shape;
 import gwt.ns.gwtbox2d.client.collision.shapes.ShapeType;
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.ContactListener;
 import gwt.ns.gwtbox2d.client.dynamics.World;
@@ -69,7 +71,8 @@ public abstract class Contact {
 
 	static ArrayList<ContactRegister> s_registers;
 
-	static boolean s_initialized;
+	static volatile boolean s_initialized;
+	private static final Object s_registerLock = new Object();
 
 	/** The parent world. */
 	public World m_world;
@@ -122,6 +125,9 @@ public abstract class Contact {
 
 
 	public Contact() {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_contact);
+		}
 		m_node1 = new ContactEdge();
 		m_node2 = new ContactEdge();
 	}
@@ -179,8 +185,8 @@ public abstract class Contact {
 		final Body body2 = m_shape2.getBody();
 
 		if (newCount == 0 && oldCount > 0) {
-			body1.wakeUp();
-			body2.wakeUp();
+			body1.wakeUpFromContact();
+			body2.wakeUpFromContact();
 		}
 
 		// Slow contacts don't generate TOI events.
@@ -240,8 +246,13 @@ public abstract class Contact {
 	 */
 	public static final Contact createContact(final Shape shape1, final Shape shape2) {
 		if (s_initialized == false) {
-			Contact.initializeRegisters();
-			s_initialized = true;
+			// worlds may be stepped on several threads
+			synchronized (s_registerLock) {
+				if (s_initialized == false) {
+					Contact.initializeRegisters();
+					s_initialized = true;
+				}
+			}
 		}
 
 		final ShapeType type1 = shape1.m_type;
@@ -280,12 +291,34 @@ public abstract class Contact {
 		return null;
 	}
 
+	/**
+	 * Seed a newly appeared manifold point from the world's warm-start
+	 * cache, if one is enabled.
+	 */
+	protected final void warmStartFromCache(final ManifoldPoint mp) {
+		final WarmStartCache cache = m_shape1.getBody().getWorld().getWarmStartCache();
+		if (cache != null) {
+			cache.warmStart(m_shape1.uid, m_shape2.uid, mp);
+		}
+	}
+
+	/**
+	 * Remember the impulses of a manifold point that went away, if the
+	 * world's warm-start cache is enabled.
+	 */
+	protected final void storeInCache(final ManifoldPoint mp0) {
+		final WarmStartCache cache = m_shape1.getBody().getWorld().getWarmStartCache();
+		if (cache != null) {
+			cache.store(m_shape1.uid, m_shape2.uid, mp0);
+		}
+	}
+
 	public static final void destroy(final Contact contact) {
 		assert (s_initialized == true);
 
 		if (contact.getManifoldCount() > 0) {
-			contact.getShape1().getBody().wakeUp();
-			contact.getShape2().getBody().wakeUp();
+			contact.getShape1().getBody().wakeUpFromContact();
+			contact.getShape2().getBody().wakeUpFromContact();
 		}
 	}
 }
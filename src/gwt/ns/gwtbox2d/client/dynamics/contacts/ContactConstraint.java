@@ -26,6 +26,7 @@
 package gwt.ns.gwtbox2d.client.dynamics.contacts;
 
 import gwt.ns.gwtbox2d.client.collision.Manifold;
+import gwt.ns.gwtbox2d.client.common.Mat22;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
@@ -48,6 +49,15 @@ public class ContactConstraint {
 
     public int pointCount;
 
+    /** Effective mass of the two normal constraints, for the block solver. */
+    public final Mat22 K;
+
+    /** Inverse of K. */
+    public final Mat22 normalMass;
+
+    /** True if both points are solved together as a 2x2 LCP. */
+    public boolean blockSolve;
+
     public ContactConstraint() {
         points = new ContactConstraintPoint[Settings.maxManifoldPoints];
         for (int i = 0; i < Settings.maxManifoldPoints; i++) {
@@ -56,6 +66,9 @@ public class ContactConstraint {
         pointCount = 0;
         normal = new Vec2();
         manifold = new Manifold();
+        K = new Mat22();
+        normalMass = new Mat22();
+        blockSolve = false;
     }
     
     public void set(final ContactConstraint cp){
@@ -66,6 +79,9 @@ public class ContactConstraint {
     	restitution = cp.restitution;
     	body1 = cp.body1;
     	body2 = cp.body2;
+    	K.set(cp.K);
+    	normalMass.set(cp.normalMass);
+    	blockSolve = cp.blockSolve;
     	for(int i=0; i<cp.pointCount; i++){
     		points[i].set(cp.points[i]);
     	}
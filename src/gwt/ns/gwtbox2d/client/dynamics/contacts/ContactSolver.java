@@ -44,9 +44,12 @@ package gwt.ns.gwtbox2d.client.dynamics.contacts;
 
 import gwt.ns.gwtbox2d.client.collision.Manifold;
 import gwt.ns.gwtbox2d.client.collision.ManifoldPoint;
+import gwt.ns.gwtbox2d.client.common.FloatArray;
+import gwt.ns.gwtbox2d.client.common.Mat22;
 import gwt.ns.gwtbox2d.client.common.MathUtils;
 import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
 
@@ -55,7 +58,6 @@ import java.util.List;
 
 
 //Updated to rev 131->149 of b2ContactSolver.cpp/.h
-// TODO djm: make this not be created all the time
 public class ContactSolver {
 	public TimeStep m_step;
 
@@ -71,9 +73,39 @@ public class ContactSolver {
 
 	public int m_constraintCount;
 
+	/*
+	 * djm the velocity solver's per point data, packed. Point j of
+	 * constraint i is at i * Settings.maxManifoldPoints + j. The solver
+	 * reads and writes only these; the impulses are copied back to the
+	 * constraint points by storeImpulses(). Solvers are pooled, so the
+	 * arrays are kept and only grow.
+	 */
+	private int m_pointCapacity;
+	private FloatArray m_r1x, m_r1y, m_r2x, m_r2y;
+	private FloatArray m_normalMass, m_tangentMass, m_velocityBias;
+	private FloatArray m_normalImpulse, m_tangentImpulse;
+
 	public ContactSolver(){
 		
 	}
+
+	private void allocatePoints(final int capacity) {
+		m_pointCapacity = capacity;
+		m_r1x = FloatArray.create(capacity);
+		m_r1y = FloatArray.create(capacity);
+		m_r2x = FloatArray.create(capacity);
+		m_r2y = FloatArray.create(capacity);
+		m_normalMass = FloatArray.create(capacity);
+		m_tangentMass = FloatArray.create(capacity);
+		m_velocityBias = FloatArray.create(capacity);
+		m_normalImpulse = FloatArray.create(capacity);
+		m_tangentImpulse = FloatArray.create(capacity);
+		if (AllocationProfiler.ENABLED) {
+			for (int i = 0; i < 9; ++i) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+		}
+	}
 	
 	public final void init(final TimeStep step, final Contact[] contacts, final int contactCount) {
 		m_step = step;
@@ -84,9 +116,24 @@ public class ContactSolver {
 			m_constraintCount += contacts[i].getManifoldCount();
 		}
 
-		m_constraints = new ContactConstraint[m_constraintCount];
-		for (int i = 0; i < m_constraintCount; i++) {
-			m_constraints[i] = new ContactConstraint();
+		// djm solvers are pooled, so keep the constraints and only grow.
+		// The array may be longer than m_constraintCount.
+		if (m_constraints == null || m_constraints.length < m_constraintCount) {
+			final ContactConstraint[] old = m_constraints;
+			final int oldLength = old == null ? 0 : old.length;
+			m_constraints = new ContactConstraint[m_constraintCount * 2];
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+			for (int i = 0; i < oldLength; i++) {
+				m_constraints[i] = old[i];
+			}
+			for (int i = oldLength; i < m_constraints.length; i++) {
+				m_constraints[i] = new ContactConstraint();
+			}
+		}
+		if (m_pointCapacity < m_constraintCount * Settings.maxManifoldPoints) {
+			allocatePoints(m_constraintCount * Settings.maxManifoldPoints * 2);
 		}
 
 		int count = 0;
@@ -124,6 +171,7 @@ public class ContactSolver {
 				c.manifold = manifold; //no copy here!
 				c.normal.set(normal);// = normal.clone();
 				c.pointCount = manifold.pointCount;
+				c.blockSolve = false;
 
 				c.friction = friction;
 				c.restitution = restitution;
@@ -200,6 +248,17 @@ public class ContactSolver {
 						ccp.velocityBias += -c.restitution * vRel;
 					}
 
+					final int p = count * Settings.maxManifoldPoints + k;
+					m_r1x.set(p, ccp.r1.x);
+					m_r1y.set(p, ccp.r1.y);
+					m_r2x.set(p, ccp.r2.x);
+					m_r2y.set(p, ccp.r2.y);
+					m_normalMass.set(p, ccp.normalMass);
+					m_tangentMass.set(p, ccp.tangentMass);
+					m_velocityBias.set(p, ccp.velocityBias);
+					m_normalImpulse.set(p, ccp.normalImpulse);
+					m_tangentImpulse.set(p, ccp.tangentImpulse);
+
 				}
 
 				++count;
@@ -211,6 +270,8 @@ public class ContactSolver {
 
 	public void initVelocityConstraints(final TimeStep step) {
 		// Zero temp objects created - ewjordan
+		final FloatArray r1x = m_r1x, r1y = m_r1y, r2x = m_r2x, r2y = m_r2y;
+		final FloatArray normalImpulse = m_normalImpulse, tangentImpulse = m_tangentImpulse;
 
 		// Warm start.
 		for (int i = 0; i < m_constraintCount; ++i) {
@@ -220,6 +281,7 @@ public class ContactSolver {
 			/*/
         	ContactConstraint c = m_constraints.get(i);
         	//*/
+			final int p0 = i * Settings.maxManifoldPoints;
 
 			final Body b1 = c.body1;
 			final Body b2 = c.body2;
@@ -232,31 +294,55 @@ public class ContactSolver {
 			final float tangentx = normaly;
 			final float tangenty = -normalx;
 
+			// Prepare the 2x2 block solver, if the two points are not
+			// nearly redundant.
+			c.blockSolve = false;
+			if (c.pointCount == 2 && Settings.blockSolve) {
+				final float rn11 = r1x.get(p0) * normaly - r1y.get(p0) * normalx;
+				final float rn12 = r2x.get(p0) * normaly - r2y.get(p0) * normalx;
+				final float rn21 = r1x.get(p0 + 1) * normaly - r1y.get(p0 + 1) * normalx;
+				final float rn22 = r2x.get(p0 + 1) * normaly - r2y.get(p0 + 1) * normalx;
+
+				final float k11 = invMass1 + invMass2 + invI1 * rn11 * rn11 + invI2 * rn12 * rn12;
+				final float k22 = invMass1 + invMass2 + invI1 * rn21 * rn21 + invI2 * rn22 * rn22;
+				final float k12 = invMass1 + invMass2 + invI1 * rn11 * rn21 + invI2 * rn12 * rn22;
+
+				// Ensure a reasonable condition number, otherwise the
+				// points are solved one at a time as before.
+				if (k11 * k11 < Settings.maxBlockConditionNumber * (k11 * k22 - k12 * k12)) {
+					c.K.col1.set(k11, k12);
+					c.K.col2.set(k12, k22);
+					c.K.invertToOut(c.normalMass);
+					c.blockSolve = true;
+				}
+			}
+
 			if (step.warmStarting) {
 
 				for (int j = 0; j < c.pointCount; ++j) {
-					final ContactConstraintPoint ccp = c.points[j];
+					final int p = p0 + j;
 
 					//Inlined all vector ops here
-					ccp.normalImpulse *= step.dtRatio;
-					ccp.tangentImpulse *= step.dtRatio;
+					final float ni = normalImpulse.get(p) * step.dtRatio;
+					final float ti = tangentImpulse.get(p) * step.dtRatio;
+					normalImpulse.set(p, ni);
+					tangentImpulse.set(p, ti);
 
-					final float px = (ccp.normalImpulse * normalx + ccp.tangentImpulse * tangentx);
-					final float py = (ccp.normalImpulse * normaly + ccp.tangentImpulse * tangenty);
+					final float px = (ni * normalx + ti * tangentx);
+					final float py = (ni * normaly + ti * tangenty);
 
-					b1.m_angularVelocity -= invI1 * (ccp.r1.x * py - ccp.r1.y * px);
+					b1.m_angularVelocity -= invI1 * (r1x.get(p) * py - r1y.get(p) * px);
 					b1.m_linearVelocity.x -= px * invMass1;
 					b1.m_linearVelocity.y -= py * invMass1;
-					b2.m_angularVelocity += invI2 * (ccp.r2.x * py - ccp.r2.y * px);
+					b2.m_angularVelocity += invI2 * (r2x.get(p) * py - r2y.get(p) * px);
 					b2.m_linearVelocity.x += px * invMass2;
 					b2.m_linearVelocity.y += py * invMass2;
 				}
 
 			} else {
 				for (int j = 0; j < c.pointCount; ++j) {
-					final ContactConstraintPoint ccp = c.points[j];
-					ccp.normalImpulse = 0.0f;
-					ccp.tangentImpulse = 0.0f;
+					normalImpulse.set(p0 + j, 0.0f);
+					tangentImpulse.set(p0 + j, 0.0f);
 				}
 			}
 		}
@@ -264,6 +350,11 @@ public class ContactSolver {
 
 	public void solveVelocityConstraints() {
 		// ewj: now clean of temp objects
+		final FloatArray r1x = m_r1x, r1y = m_r1y, r2x = m_r2x, r2y = m_r2y;
+		final FloatArray normalMass = m_normalMass, tangentMass = m_tangentMass;
+		final FloatArray velocityBias = m_velocityBias;
+		final FloatArray normalImpulse = m_normalImpulse, tangentImpulse = m_tangentImpulse;
+
 		for (int i=0; i<this.m_constraintCount; ++i) {
 
 			//*
@@ -271,6 +362,7 @@ public class ContactSolver {
 			/*/
         	ContactConstraint c = m_constraints.get(i);
         	//*/
+			final int p0 = i * Settings.maxManifoldPoints;
 			final Body b1 = c.body1;
 			final Body b2 = c.body2;
 			float w1 = b1.m_angularVelocity;
@@ -301,44 +393,140 @@ public class ContactSolver {
 			//            		float b2_angularVelocity = b2.m_angularVelocity;
 			//}
 
-			// Solver normal constraints
-			for (int j=0; j<c.pointCount; ++j) {
+			if (c.blockSolve) {
+				// Block solver developed in 2D by Erin Catto, ported from later
+				// versions of b2ContactSolver.cpp. Solves the 2x2 LCP
+				// vn = A * x + b, vn >= 0, x >= 0 and vn_i * x_i = 0
+				// by trying each of the four cases in turn. Everything is
+				// relative to the accumulated impulse a, so the incremental
+				// impulse is d = x - a.
+				final int p1 = p0;
+				final int p2 = p0 + 1;
+				final float cp1r1x = r1x.get(p1), cp1r1y = r1y.get(p1);
+				final float cp1r2x = r2x.get(p1), cp1r2y = r2y.get(p1);
+				final float cp2r1x = r1x.get(p2), cp2r1y = r1y.get(p2);
+				final float cp2r2x = r2x.get(p2), cp2r2y = r2y.get(p2);
+
+				final float ax = normalImpulse.get(p1);
+				final float ay = normalImpulse.get(p2);
+				assert(ax >= 0.0f && ay >= 0.0f);
+
+				// Relative velocity at the contacts
+				final float dv1x = v2x - w2 * cp1r2y - v1x + w1 * cp1r1y;
+				final float dv1y = v2y + w2 * cp1r2x - v1y - w1 * cp1r1x;
+				final float dv2x = v2x - w2 * cp2r2y - v1x + w1 * cp2r1y;
+				final float dv2y = v2y + w2 * cp2r2x - v1y - w1 * cp2r1x;
+
+				// Compute normal velocity
+				final float vn1 = dv1x * normalx + dv1y * normaly;
+				final float vn2 = dv2x * normalx + dv2y * normaly;
+
+				// b = vn_0 - velocityBias - K * a
+				final Mat22 K = c.K;
+				final float bx = vn1 - velocityBias.get(p1) - (K.col1.x * ax + K.col2.x * ay);
+				final float by = vn2 - velocityBias.get(p2) - (K.col1.y * ax + K.col2.y * ay);
+
+				float xx, xy;
+				boolean solved = false;
+
+				// Case 1: vn = 0, x = -inv(A) * b
+				final Mat22 M = c.normalMass;
+				xx = -(M.col1.x * bx + M.col2.x * by);
+				xy = -(M.col1.y * bx + M.col2.y * by);
+				if (xx >= 0.0f && xy >= 0.0f) {
+					solved = true;
+				}
 
-				final ContactConstraintPoint ccp = c.points[j];
+				// Case 2: vn1 = 0 and x2 = 0
+				if (!solved) {
+					xx = -normalMass.get(p1) * bx;
+					xy = 0.0f;
+					if (xx >= 0.0f && K.col1.y * xx + by >= 0.0f) {
+						solved = true;
+					}
+				}
 
-				// Relative velocity at contact
-				//Vec2 dv = v2.add(Vec2.cross(w2,ccp.r2));
-				//dv.subLocal(v1);
-				//Vec2 a = ccp.r1;
-				//dv.subLocal(new Vec2(-w1 * a.y, w1 * a.x));
-				final float dvx = v2x - w2 * ccp.r2.y - v1x + w1*ccp.r1.y;
-				final float dvy = v2y + w2 * ccp.r2.x - v1y - w1*ccp.r1.x;
+				// Case 3: vn2 = 0 and x1 = 0
+				if (!solved) {
+					xx = 0.0f;
+					xy = -normalMass.get(p2) * by;
+					if (xy >= 0.0f && K.col2.x * xy + bx >= 0.0f) {
+						solved = true;
+					}
+				}
 
-				// Compute normal impulse
-				final float vn = dvx*normalx + dvy*normaly;//Vec2.dot(dv, normal);
-				float lambda = - ccp.normalMass * (vn - ccp.velocityBias);
+				// Case 4: x1 = x2 = 0
+				if (!solved) {
+					xx = 0.0f;
+					xy = 0.0f;
+					if (bx >= 0.0f && by >= 0.0f) {
+						solved = true;
+					}
+				}
 
-				// b2Clamp the accumulated force
-				final float newImpulse = Math.max(ccp.normalImpulse + lambda, 0.0f);
-				lambda = newImpulse - ccp.normalImpulse;
+				// No solution, leave the impulses alone.
+				if (solved) {
+					final float d1 = xx - ax;
+					final float d2 = xy - ay;
 
-				// Apply contact impulse
-				//Vec2 P = new Vec2(lambda * normal.x, lambda * normal.y);
-				final float Px = lambda * normalx;
-				final float Py = lambda * normaly;
+					final float P1x = d1 * normalx;
+					final float P1y = d1 * normaly;
+					final float P2x = d2 * normalx;
+					final float P2y = d2 * normaly;
 
-				v1x -= invMass1*Px;
-				v1y -= invMass1*Py;
-				w1 -= invI1 * (ccp.r1.x * Py - ccp.r1.y * Px);
-				//Vec2.cross(ccp.r1,P);
+					v1x -= invMass1 * (P1x + P2x);
+					v1y -= invMass1 * (P1y + P2y);
+					w1 -= invI1 * (cp1r1x * P1y - cp1r1y * P1x + cp2r1x * P2y - cp2r1y * P2x);
 
-				v2x += invMass2*Px;
-				v2y += invMass2*Py;
-				w2 += invI2 * (ccp.r2.x * Py - ccp.r2.y * Px);
-				//Vec2.cross(ccp.r2,P);
+					v2x += invMass2 * (P1x + P2x);
+					v2y += invMass2 * (P1y + P2y);
+					w2 += invI2 * (cp1r2x * P1y - cp1r2y * P1x + cp2r2x * P2y - cp2r2y * P2x);
 
-				ccp.normalImpulse = newImpulse;
+					normalImpulse.set(p1, xx);
+					normalImpulse.set(p2, xy);
+				}
+			} else {
+				// Solver normal constraints
+				for (int j=0; j<c.pointCount; ++j) {
+					final int p = p0 + j;
+					final float ccpr1x = r1x.get(p), ccpr1y = r1y.get(p);
+					final float ccpr2x = r2x.get(p), ccpr2y = r2y.get(p);
+
+					// Relative velocity at contact
+					//Vec2 dv = v2.add(Vec2.cross(w2,ccp.r2));
+					//dv.subLocal(v1);
+					//Vec2 a = ccp.r1;
+					//dv.subLocal(new Vec2(-w1 * a.y, w1 * a.x));
+					final float dvx = v2x - w2 * ccpr2y - v1x + w1*ccpr1y;
+					final float dvy = v2y + w2 * ccpr2x - v1y - w1*ccpr1x;
+
+					// Compute normal impulse
+					final float vn = dvx*normalx + dvy*normaly;//Vec2.dot(dv, normal);
+					float lambda = - normalMass.get(p) * (vn - velocityBias.get(p));
+
+					// b2Clamp the accumulated force
+					final float oldImpulse = normalImpulse.get(p);
+					final float newImpulse = Math.max(oldImpulse + lambda, 0.0f);
+					lambda = newImpulse - oldImpulse;
+
+					// Apply contact impulse
+					//Vec2 P = new Vec2(lambda * normal.x, lambda * normal.y);
+					final float Px = lambda * normalx;
+					final float Py = lambda * normaly;
+
+					v1x -= invMass1*Px;
+					v1y -= invMass1*Py;
+					w1 -= invI1 * (ccpr1x * Py - ccpr1y * Px);
+					//Vec2.cross(ccp.r1,P);
+
+					v2x += invMass2*Px;
+					v2y += invMass2*Py;
+					w2 += invI2 * (ccpr2x * Py - ccpr2y * Px);
+					//Vec2.cross(ccp.r2,P);
+
+					normalImpulse.set(p, newImpulse);
 
+				}
 			}
 
 			//            //#ifdef DEFERRED_UPDATE
@@ -351,23 +539,26 @@ public class ContactSolver {
 			// Solver tangent constraints
 			for (int j=0; j<c.pointCount; ++j) {
 				//ContactConstraintPoint ccp : c.points) {
-				final ContactConstraintPoint ccp = c.points[j];
+				final int p = p0 + j;
+				final float ccpr1x = r1x.get(p), ccpr1y = r1y.get(p);
+				final float ccpr2x = r2x.get(p), ccpr2y = r2y.get(p);
 
 				// Relative velocity at contact
 				//Vec2 dv = v2.add(Vec2.cross(w2, ccp.r2));
 				//dv.subLocal(v1);
 				//dv.subLocal(Vec2.cross(w1,ccp.r1));
-				final float dvx = v2x - w2 * ccp.r2.y - v1x + w1*ccp.r1.y;
-				final float dvy = v2y + w2 * ccp.r2.x - v1y - w1*ccp.r1.x;
+				final float dvx = v2x - w2 * ccpr2y - v1x + w1*ccpr1y;
+				final float dvy = v2y + w2 * ccpr2x - v1y - w1*ccpr1x;
 
 				// Compute tangent force
 				final float vt = dvx * tangentx + dvy * tangenty;
-				float lambda = ccp.tangentMass * (-vt);
+				float lambda = tangentMass.get(p) * (-vt);
 
 				// b2Clamp the accumulated force
-				final float maxFriction = friction * ccp.normalImpulse;
-				final float newImpulse = Math.max(-maxFriction, Math.min(ccp.tangentImpulse + lambda, maxFriction));
-				lambda = newImpulse - ccp.tangentImpulse;
+				final float maxFriction = friction * normalImpulse.get(p);
+				final float oldImpulse = tangentImpulse.get(p);
+				final float newImpulse = Math.max(-maxFriction, Math.min(oldImpulse + lambda, maxFriction));
+				lambda = newImpulse - oldImpulse;
 
 				// Apply contact impulse
 				//Vec2 P = lambda * tangent;
@@ -378,15 +569,15 @@ public class ContactSolver {
 				v1x -= px * invMass1;
 				v1y -= py * invMass1;
 				// b1.m_angularVelocity -= invI1 * Vec2.cross(r1, P);
-				w1 -= invI1 * (ccp.r1.x * py - ccp.r1.y * px);
+				w1 -= invI1 * (ccpr1x * py - ccpr1y * px);
 
 				// b2.m_linearVelocity.addLocal(P.mul(invMass2));
 				v2x += px * invMass2;
 				v2y += py * invMass2;
 				// b2.m_angularVelocity += invI2 * Vec2.cross(r2, P);
-				w2 += invI2 * (ccp.r2.x * py - ccp.r2.y * px);
+				w2 += invI2 * (ccpr2x * py - ccpr2y * px);
 
-				ccp.tangentImpulse = newImpulse;
+				tangentImpulse.set(p, newImpulse);
 			}
 			b1.m_linearVelocity.x = v1x;
 			b1.m_linearVelocity.y = v1y;
@@ -397,7 +588,23 @@ public class ContactSolver {
 		}
 	}
 
+	/**
+	 * Copy the solved impulses from the packed arrays back to the
+	 * constraint points, where contact results read them.
+	 */
+	public void storeImpulses() {
+		for (int i = 0; i < m_constraintCount; ++i) {
+			final ContactConstraint c = m_constraints[i];
+			final int p0 = i * Settings.maxManifoldPoints;
+			for (int j = 0; j < c.pointCount; ++j) {
+				c.points[j].normalImpulse = m_normalImpulse.get(p0 + j);
+				c.points[j].tangentImpulse = m_tangentImpulse.get(p0 + j);
+			}
+		}
+	}
+
 	public void finalizeVelocityConstraints() {
+		storeImpulses();
 		for (int i = 0; i < m_constraintCount; ++i) {
 			//*
 			final ContactConstraint c = m_constraints[i];
@@ -108,6 +108,7 @@ public class EdgeAndCircleContact extends Contact implements ContactCreateFcn {
 			if (m0.pointCount == 0) {
 				mp.normalImpulse = 0.0f;
 				mp.tangentImpulse = 0.0f;
+				warmStartFromCache(mp);
 
 				if (listener != null) {
 					b1.getWorldLocationToOut(mp.localPoint1, cp.position);
@@ -146,6 +147,9 @@ public class EdgeAndCircleContact extends Contact implements ContactCreateFcn {
 			}
 		} else {
 			m_manifoldCount = 0;
+			if (m0.pointCount > 0) {
+				storeInCache(m0.points[0]);
+			}
 			if (m0.pointCount > 0 && (listener != null)) {
 				final ManifoldPoint mp0 = m0.points[0];
 				b1.getWorldLocationToOut(mp0.localPoint1, cp.position);
@@ -116,6 +116,7 @@ public class PointAndCircleContact extends Contact implements ContactCreateFcn {
 			if (m0.pointCount == 0) {
 				mp.normalImpulse = 0.0f;
 				mp.tangentImpulse = 0.0f;
+				warmStartFromCache(mp);
 
 				if (listener != null) {
 					b1.getWorldLocationToOut(mp.localPoint1, cp.position);
@@ -154,6 +155,9 @@ public class PointAndCircleContact extends Contact implements ContactCreateFcn {
 		}
 		else {
 			m_manifoldCount = 0;
+			if (m0.pointCount > 0) {
+				storeInCache(m0.points[0]);
+			}
 			if (m0.pointCount > 0 && (listener != null)) {
 				final ManifoldPoint mp0 = m0.points[0];
 
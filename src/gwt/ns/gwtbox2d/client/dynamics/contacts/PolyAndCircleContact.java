@@ -174,6 +174,10 @@ class PolyAndCircleContact extends Contact implements ContactCreateFcn {
 					}
 				}
 
+				if (found == false) {
+					warmStartFromCache(mp);
+				}
+
 				// Report added point.
 				if (found == false && listener != null) {
 					b1.getWorldLocationToOut(mp.localPoint1, cp.position);
@@ -196,6 +200,14 @@ class PolyAndCircleContact extends Contact implements ContactCreateFcn {
 			m_manifoldCount = 0;
 		}
 
+
+		// Keep the impulses of points that went away, in case they come back.
+		for (int i = 0; i < m0.pointCount; ++i) {
+			if (!persisted[i]) {
+				storeInCache(m0.points[i]);
+			}
+		}
+
 		if (listener == null) {
 			return;
 		}
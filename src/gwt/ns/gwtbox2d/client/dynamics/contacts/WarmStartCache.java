@@ -0,0 +1,304 @@
+package gwt.ns.gwtbox2d.client.dynamics.contacts;
+
+import gwt.ns.gwtbox2d.client.collision.ContactID;
+import gwt.ns.gwtbox2d.client.collision.ManifoldPoint;
+import gwt.ns.gwtbox2d.client.common.FloatArray;
+import gwt.ns.gwtbox2d.client.common.MathUtils;
+
+/**
+ * A fixed-size LRU cache of contact impulses, keyed by the two shape uids
+ * and the contact feature. When a manifold point disappears (the shapes
+ * separate or the contact is destroyed) its impulses are stored here, and
+ * a matching point that appears again shortly after is warm started from
+ * them instead of from zero.
+ * <BR><BR>
+ * All storage is preallocated in parallel primitive arrays, so stores and
+ * lookups don't allocate. Entries older than the maximum age, in steps,
+ * are treated as misses.
+ */
+public class WarmStartCache {
+	private static final int NULL_ENTRY = -1;
+
+	private final int m_capacity;
+	private final int m_mask;
+
+	private final int[] m_buckets;
+	/** Next entry in the same bucket, or in the free list. */
+	private final int[] m_chain;
+	private final int[] m_uid1;
+	private final int[] m_uid2;
+	private final int[] m_feature;
+	private final FloatArray m_normalImpulse;
+	private final FloatArray m_tangentImpulse;
+	private final int[] m_stamp;
+	/** LRU list links. */
+	private final int[] m_older;
+	private final int[] m_newer;
+
+	private int m_newest;
+	private int m_oldest;
+	private int m_free;
+	private int m_count;
+
+	private int m_time;
+	private int m_maxAge;
+
+	private int m_hitCount;
+	private int m_missCount;
+	private int m_storeCount;
+	private int m_evictCount;
+
+	/**
+	 * Create a cache holding up to capacity contact points.
+	 * @param capacity the maximum number of cached points.
+	 */
+	public WarmStartCache(final int capacity) {
+		assert(capacity > 0);
+		m_capacity = capacity;
+		final int bucketCount = MathUtils.nextPowerOfTwo(capacity);
+		m_mask = bucketCount - 1;
+
+		m_buckets = new int[bucketCount];
+		m_chain = new int[capacity];
+		m_uid1 = new int[capacity];
+		m_uid2 = new int[capacity];
+		m_feature = new int[capacity];
+		m_normalImpulse = FloatArray.create(capacity);
+		m_tangentImpulse = FloatArray.create(capacity);
+		m_stamp = new int[capacity];
+		m_older = new int[capacity];
+		m_newer = new int[capacity];
+
+		m_maxAge = 30;
+		clear();
+	}
+
+	/** Remove all entries. Statistics are kept. */
+	public void clear() {
+		for (int i = 0; i < m_buckets.length; ++i) {
+			m_buckets[i] = NULL_ENTRY;
+		}
+		for (int i = 0; i < m_capacity - 1; ++i) {
+			m_chain[i] = i + 1;
+		}
+		m_chain[m_capacity - 1] = NULL_ENTRY;
+		m_free = 0;
+		m_newest = NULL_ENTRY;
+		m_oldest = NULL_ENTRY;
+		m_count = 0;
+	}
+
+	/** Advance the cache clock by one step. Called by the world. */
+	public void tick() {
+		++m_time;
+	}
+
+	/**
+	 * Set how many steps a stored impulse stays usable.
+	 * @param steps the maximum age in steps.
+	 */
+	public void setMaxAge(final int steps) {
+		m_maxAge = steps;
+	}
+
+	/** Get how many steps a stored impulse stays usable. */
+	public int getMaxAge() {
+		return m_maxAge;
+	}
+
+	/**
+	 * Store the impulses of a manifold point that is going away.
+	 * Points with no accumulated impulse are ignored.
+	 */
+	public void store(final int uid1, final int uid2, final ManifoldPoint mp) {
+		if (mp.normalImpulse == 0.0f && mp.tangentImpulse == 0.0f) {
+			return;
+		}
+
+		final int feature = featureKey(mp.id);
+		final int bucket = hash(uid1, uid2, feature);
+
+		int e = find(bucket, uid1, uid2, feature);
+		if (e == NULL_ENTRY) {
+			if (m_free == NULL_ENTRY) {
+				evictOldest();
+			}
+			e = m_free;
+			m_free = m_chain[e];
+
+			m_uid1[e] = uid1;
+			m_uid2[e] = uid2;
+			m_feature[e] = feature;
+			m_chain[e] = m_buckets[bucket];
+			m_buckets[bucket] = e;
+			++m_count;
+		} else {
+			unlinkLru(e);
+		}
+
+		m_normalImpulse.set(e, mp.normalImpulse);
+		m_tangentImpulse.set(e, mp.tangentImpulse);
+		m_stamp[e] = m_time;
+		linkNewest(e);
+		++m_storeCount;
+	}
+
+	/**
+	 * Seed a new manifold point with stored impulses, if a fresh
+	 * entry exists. A matching entry is consumed either way.
+	 * @return true on a hit.
+	 */
+	public boolean warmStart(final int uid1, final int uid2, final ManifoldPoint mp) {
+		final int feature = featureKey(mp.id);
+		final int bucket = hash(uid1, uid2, feature);
+
+		int prev = NULL_ENTRY;
+		for (int e = m_buckets[bucket]; e != NULL_ENTRY; prev = e, e = m_chain[e]) {
+			if (m_uid1[e] != uid1 || m_uid2[e] != uid2 || m_feature[e] != feature) {
+				continue;
+			}
+
+			final boolean fresh = m_time - m_stamp[e] <= m_maxAge;
+			if (fresh) {
+				mp.normalImpulse = m_normalImpulse.get(e);
+				mp.tangentImpulse = m_tangentImpulse.get(e);
+			}
+
+			unlinkBucket(bucket, prev, e);
+			unlinkLru(e);
+			release(e);
+
+			if (fresh) {
+				++m_hitCount;
+				return true;
+			}
+			break;
+		}
+
+		++m_missCount;
+		return false;
+	}
+
+	/** Get the number of new contact points seeded from the cache. */
+	public int getHitCount() {
+		return m_hitCount;
+	}
+
+	/** Get the number of new contact points that found nothing usable in the cache. */
+	public int getMissCount() {
+		return m_missCount;
+	}
+
+	/** Get the fraction of lookups that were hits, or 0 if there were none. */
+	public float getHitRate() {
+		final int lookups = m_hitCount + m_missCount;
+		return lookups == 0 ? 0.0f : (float) m_hitCount / lookups;
+	}
+
+	/** Get the number of points stored. */
+	public int getStoreCount() {
+		return m_storeCount;
+	}
+
+	/** Get the number of entries pushed out because the cache was full. */
+	public int getEvictCount() {
+		return m_evictCount;
+	}
+
+	/** Get the number of entries currently held. */
+	public int getCount() {
+		return m_count;
+	}
+
+	/** Get the maximum number of entries. */
+	public int getCapacity() {
+		return m_capacity;
+	}
+
+	/** Reset the hit/miss/store/evict counters. */
+	public void resetStats() {
+		m_hitCount = 0;
+		m_missCount = 0;
+		m_storeCount = 0;
+		m_evictCount = 0;
+	}
+
+	/** Packs the contact features the way the C++ union key does. */
+	private static int featureKey(final ContactID id) {
+		final ContactID.Features f = id.features;
+		return (f.referenceEdge & 0xFF)
+			| (f.incidentEdge & 0xFF) << 8
+			| (f.incidentVertex & 0xFF) << 16
+			| (f.flip & 0xFF) << 24;
+	}
+
+	private int hash(final int uid1, final int uid2, final int feature) {
+		int h = uid1 * 31 + uid2;
+		h = h * 31 + feature;
+		h ^= h >>> 16;
+		return h & m_mask;
+	}
+
+	private int find(final int bucket, final int uid1, final int uid2, final int feature) {
+		for (int e = m_buckets[bucket]; e != NULL_ENTRY; e = m_chain[e]) {
+			if (m_uid1[e] == uid1 && m_uid2[e] == uid2 && m_feature[e] == feature) {
+				return e;
+			}
+		}
+		return NULL_ENTRY;
+	}
+
+	private void evictOldest() {
+		final int e = m_oldest;
+		assert(e != NULL_ENTRY);
+
+		final int bucket = hash(m_uid1[e], m_uid2[e], m_feature[e]);
+		int prev = NULL_ENTRY;
+		for (int i = m_buckets[bucket]; i != e; i = m_chain[i]) {
+			prev = i;
+		}
+		unlinkBucket(bucket, prev, e);
+		unlinkLru(e);
+		release(e);
+		++m_evictCount;
+	}
+
+	private void unlinkBucket(final int bucket, final int prev, final int e) {
+		if (prev == NULL_ENTRY) {
+			m_buckets[bucket] = m_chain[e];
+		} else {
+			m_chain[prev] = m_chain[e];
+		}
+	}
+
+	private void release(final int e) {
+		m_chain[e] = m_free;
+		m_free = e;
+		--m_count;
+	}
+
+	private void linkNewest(final int e) {
+		m_older[e] = m_newest;
+		m_newer[e] = NULL_ENTRY;
+		if (m_newest != NULL_ENTRY) {
+			m_newer[m_newest] = e;
+		}
+		m_newest = e;
+		if (m_oldest == NULL_ENTRY) {
+			m_oldest = e;
+		}
+	}
+
+	private void unlinkLru(final int e) {
+		if (m_older[e] != NULL_ENTRY) {
+			m_newer[m_older[e]] = m_newer[e];
+		} else {
+			m_oldest = m_newer[e];
+		}
+		if (m_newer[e] != NULL_ENTRY) {
+			m_older[m_newer[e]] = m_older[e];
+		} else {
+			m_newest = m_older[e];
+		}
+	}
+}
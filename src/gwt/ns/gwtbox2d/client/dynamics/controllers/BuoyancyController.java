@@ -107,6 +107,11 @@ public class BuoyancyController extends Controller {
 		}
 	}
 	
+	@Override
+	public void shiftOrigin(final Vec2 newOrigin) {
+		offset -= Vec2.dot(normal, newOrigin);
+	}
+
 	@Override
 	public void draw(DebugDraw debugDraw) {
 		float r = 1000;
@@ -3,6 +3,7 @@
  */
 package gwt.ns.gwtbox2d.client.dynamics.controllers;
 
+import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.DebugDraw;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
@@ -21,6 +22,9 @@ public class Controller {
 		/** Controllers override this to provide debug drawing. */
 		public void draw(DebugDraw debugDraw) {;}
 
+		/** Controllers keeping world space positions override this to move them by -newOrigin. */
+		public void shiftOrigin(final Vec2 newOrigin) {;}
+
 		/** Adds a body to the controller list. */
 		public void addBody(Body body) {
 			ControllerEdge edge = new ControllerEdge();
@@ -47,7 +47,7 @@ import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
 import gwt.ns.gwtbox2d.client.dynamics.World;
-import gwt.ns.gwtbox2d.client.pooling.arrays.Vec2Array;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
 
 public class ConstantVolumeJoint extends Joint {
 	Body[] bodies;
@@ -58,6 +58,9 @@ public class ConstantVolumeJoint extends Joint {
 
 	Vec2[] normals;
 
+	/** Scratch for the velocity solver, one per body. */
+	private final Vec2[] m_d;
+
 	TimeStep m_step;
 	private float m_impulse = 0.0f;
 
@@ -102,8 +105,10 @@ public class ConstantVolumeJoint extends Joint {
 		}
 
 		normals = new Vec2[bodies.length];
+		m_d = new Vec2[bodies.length];
 		for (int i=0; i<normals.length; ++i) {
 			normals[i] = new Vec2();
+			m_d[i] = new Vec2();
 		}
 
 		this.m_body1 = bodies[0];
@@ -156,18 +161,19 @@ public class ConstantVolumeJoint extends Joint {
 		boolean done = true;
 		for (int i=0; i<bodies.length; ++i) {
 			final int next = (i==bodies.length-1)?0:i+1;
-			final Vec2 delta = new Vec2(toExtrude * (normals[i].x + normals[next].x),
-			                            toExtrude * (normals[i].y + normals[next].y));
+			float deltax = toExtrude * (normals[i].x + normals[next].x);
+			float deltay = toExtrude * (normals[i].y + normals[next].y);
 			//sumdeltax += dx;
-			final float norm = delta.length();
+			final float norm = (float) Math.sqrt(deltax*deltax+deltay*deltay);
 			if (norm > Settings.maxLinearCorrection){
-				delta.mulLocal(Settings.maxLinearCorrection/norm);
+				deltax *= Settings.maxLinearCorrection/norm;
+				deltay *= Settings.maxLinearCorrection/norm;
 			}
 			if (norm > Settings.linearSlop){
 				done = false;
 			}
-			bodies[next].m_sweep.c.x += delta.x;
-			bodies[next].m_sweep.c.y += delta.y;
+			bodies[next].m_sweep.c.x += deltax;
+			bodies[next].m_sweep.c.y += deltay;
 			bodies[next].synchronizeTransform();
 			//bodies[next].m_linearVelocity.x += delta.x * step.inv_dt;
 			//bodies[next].m_linearVelocity.y += delta.y * step.inv_dt;
@@ -176,13 +182,11 @@ public class ConstantVolumeJoint extends Joint {
 		return done;
 	}
 
-	// djm pooled
-	private static final Vec2Array tlD = new Vec2Array();
 	@Override
 	public void initVelocityConstraints(final TimeStep step) {
 		m_step = step;
 		
-		final Vec2[] d = tlD.get(bodies.length);
+		final Vec2[] d = m_d;
 		
 		for (int i=0; i<bodies.length; ++i) {
 			final int prev = (i==0)?bodies.length-1:i-1;
@@ -216,7 +220,7 @@ public class ConstantVolumeJoint extends Joint {
 		float crossMassSum = 0.0f;
 		float dotMassSum = 0.0f;
 		
-		final Vec2 d[] = tlD.get(bodies.length);
+		final Vec2 d[] = m_d;
 
 		for (int i=0; i<bodies.length; ++i) {
 			final int prev = (i==0)?bodies.length-1:i-1;
@@ -261,4 +265,17 @@ public class ConstantVolumeJoint extends Joint {
 		return 0;
 	}
 
+	@Override
+	public void saveState(final WorldSnapshot snapshot) {
+		super.saveState(snapshot);
+		snapshot.putFloat(m_impulse);
+		snapshot.putFloat(targetVolume);
+	}
+
+	@Override
+	public void restoreState(final WorldSnapshot snapshot) {
+		super.restoreState(snapshot);
+		m_impulse = snapshot.getFloat();
+		targetVolume = snapshot.getFloat();
+	}
 }
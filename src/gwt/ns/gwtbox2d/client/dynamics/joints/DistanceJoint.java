@@ -48,7 +48,9 @@ import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
 import gwt.ns.gwtbox2d.client.pooling.TLVec2;
+import gwt.ns.gwtbox2d.client.pooling.notThreadLocal;
 
 
 //Updated to rev 56->130->142 of b2DistanceJoint.cpp/.h
@@ -132,17 +134,44 @@ public class DistanceJoint extends Joint {
 		return 0.0f;
 	}
 
-	// djm pooled
-	private static final TLVec2 tlr1 = new TLVec2();
-	private static final TLVec2 tlr2 = new TLVec2();
-	private static final TLVec2 tlP = new TLVec2();
+	// djm pooled, the solver's temporaries, fetched once per run of joints
+	private static final class Scratch {
+		final Vec2 r1 = new Vec2();
+		final Vec2 r2 = new Vec2();
+		final Vec2 P = new Vec2();
+		final Vec2 v1 = new Vec2();
+		final Vec2 v2 = new Vec2();
+		final Vec2 d = new Vec2();
+	}
+
+	private static final class TLScratch extends notThreadLocal<Scratch> {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	}
+
+	private static final TLScratch tlScratch = new TLScratch();
+
 	@Override
 	public void initVelocityConstraints(final TimeStep step) {
+		initVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void initVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((DistanceJoint) joints[i]).initVelocityConstraints(step, s);
+		}
+	}
+
+	private void initVelocityConstraints(final TimeStep step, final Scratch s) {
 		m_inv_dt = step.inv_dt;
 		
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
-		final Vec2 P = tlP.get();
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
+		final Vec2 P = s.P;
 
 		//TODO: fully inline temp Vec2 ops
 		final Body b1 = m_body1;
@@ -205,18 +234,30 @@ public class DistanceJoint extends Joint {
 		}
 	}
 
-	// djm pooled, and use pooled objects above
-	private static final TLVec2 tld = new TLVec2();
-	
 	@Override
 	public boolean solvePositionConstraints() {
+		return solvePositionConstraints(tlScratch.get());
+	}
+
+	@Override
+	public boolean solvePositionConstraints(final Joint[] joints, final int start, final int end) {
+		final Scratch s = tlScratch.get();
+		boolean okay = true;
+		for (int i = start; i < end; ++i) {
+			final boolean jointOkay = ((DistanceJoint) joints[i]).solvePositionConstraints(s);
+			okay = okay && jointOkay;
+		}
+		return okay;
+	}
+
+	private boolean solvePositionConstraints(final Scratch s) {
 		if (m_frequencyHz > 0.0f) {
 			return true;
 		}
 		
-		final Vec2 d = tld.get();
-		final Vec2 r2 = tlr2.get();
-		final Vec2 r1 = tlr1.get();
+		final Vec2 d = s.d;
+		final Vec2 r2 = s.r2;
+		final Vec2 r1 = s.r1;
 
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
@@ -249,18 +290,27 @@ public class DistanceJoint extends Joint {
 		return Math.abs(C) < Settings.linearSlop;
 	}
 
-	// djm pooled, and use pool above
-	private static final TLVec2 tlv1 = new TLVec2();
-	private static final TLVec2 tlv2 = new TLVec2();
 	@Override
 	public void solveVelocityConstraints(final TimeStep step) {
+		solveVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void solveVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((DistanceJoint) joints[i]).solveVelocityConstraints(step, s);
+		}
+	}
+
+	private void solveVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 
-		final Vec2 v1 = tlv1.get();
-		final Vec2 v2 = tlv2.get();
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
+		final Vec2 v1 = s.v1;
+		final Vec2 v2 = s.v2;
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
 		
 		Mat22.mulToOut(b1.m_xf.R, m_localAnchor1.sub(b1.getMemberLocalCenter()), r1);
 		Mat22.mulToOut(b2.m_xf.R, m_localAnchor2.sub(b2.getMemberLocalCenter()), r2);
@@ -286,4 +336,16 @@ public class DistanceJoint extends Joint {
 		b2.m_linearVelocity.y += b2.m_invMass * Py;
 		b2.m_angularVelocity += b2.m_invI * (r2.x*Py - r2.y*Px);//b2Cross(r2, P);
 	}
+
+	@Override
+	public void saveState(final WorldSnapshot snapshot) {
+		super.saveState(snapshot);
+		snapshot.putFloat(m_impulse);
+	}
+
+	@Override
+	public void restoreState(final WorldSnapshot snapshot) {
+		super.restoreState(snapshot);
+		m_impulse = snapshot.getFloat();
+	}
 }
\ No newline at end of file
@@ -28,7 +28,8 @@ import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
-import gwt.ns.gwtbox2d.client.pooling.TLVec2;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
+import gwt.ns.gwtbox2d.client.pooling.notThreadLocal;
 
 
 //Updated to rev 56->97->137 of b2GearJoint.cpp/.h
@@ -152,18 +153,42 @@ public class GearJoint extends Joint {
 		m_force = 0.0f;
 	}
 
-	// djm pooled
-	private final TLVec2 tlug = new TLVec2();
-	private final TLVec2 tlr = new TLVec2();
+	// djm pooled, the solver's temporaries, fetched once per run of joints
+	private static final class Scratch {
+		final Vec2 ug = new Vec2();
+		final Vec2 r = new Vec2();
+	}
+
+	private static final class TLScratch extends notThreadLocal<Scratch> {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	}
+
+	private static final TLScratch tlScratch = new TLScratch();
+
 	@Override
 	public void initVelocityConstraints(final TimeStep step) {
+		initVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void initVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((GearJoint) joints[i]).initVelocityConstraints(step, s);
+		}
+	}
+
+	private void initVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body g1 = m_ground1;
 		final Body g2 = m_ground2;
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 
-		final Vec2 ug = tlug.get();
-		final Vec2 r = tlr.get();
+		final Vec2 ug = s.ug;
+		final Vec2 r = s.r;
 		
 		float K = 0.0f;
 		m_J.setZero();
@@ -318,4 +343,16 @@ public class GearJoint extends Joint {
 	public float getRatio() {
 		return m_ratio;
 	}
+
+	@Override
+	public void saveState(final WorldSnapshot snapshot) {
+		super.saveState(snapshot);
+		snapshot.putFloat(m_force);
+	}
+
+	@Override
+	public void restoreState(final WorldSnapshot snapshot) {
+		super.restoreState(snapshot);
+		m_force = snapshot.getFloat();
+	}
 }
\ No newline at end of file
@@ -25,7 +25,9 @@ package gwt.ns.gwtbox2d.client.dynamics.joints;
 
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
+import gwt.ns.gwtbox2d.client.dynamics.Chunk;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
 
 
 //Updated to rev 56->97->144 of b2Joint.cpp/.h
@@ -57,6 +59,10 @@ public abstract class Joint {
 
 	public float m_inv_dt;
 
+	/** The chunk this joint was created in and its index there, or null. */
+	public Chunk m_chunk;
+	public int m_chunkIndex;
+
 	public Joint(final JointDef description) {
 		m_type = description.type;
 		m_prev = null;
@@ -169,4 +175,58 @@ public abstract class Joint {
 	/** This returns true if the position errors are within tolerance. */
 	public abstract boolean solvePositionConstraints();
 
+	/**
+	 * Initialize the velocity constraints of joints[start] to joints[end - 1],
+	 * in order. The island calls this on the first joint of each run of one
+	 * type, so overrides may cast, fetch their scratch once for the run and
+	 * make one direct call per joint instead of a virtual one.
+	 */
+	public void initVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		for (int i = start; i < end; ++i) {
+			joints[i].initVelocityConstraints(step);
+		}
+	}
+
+	/** Solve the velocity constraints of a run of joints of this type, see above. */
+	public void solveVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		for (int i = start; i < end; ++i) {
+			joints[i].solveVelocityConstraints(step);
+		}
+	}
+
+	/**
+	 * Solve the position constraints of a run of joints of this type, see above.
+	 * @return true if all of their position errors are within tolerance.
+	 */
+	public boolean solvePositionConstraints(final Joint[] joints, final int start, final int end) {
+		boolean okay = true;
+		for (int i = start; i < end; ++i) {
+			final boolean jointOkay = joints[i].solvePositionConstraints();
+			okay = okay && jointOkay;
+		}
+		return okay;
+	}
+
+	/**
+	 * Write the solver state (accumulated impulses, limit states) to a
+	 * snapshot. Overrides must call super and read back in the same
+	 * order in {@link #restoreState(WorldSnapshot)}.
+	 */
+	public void saveState(final WorldSnapshot snapshot) {
+		snapshot.putFloat(m_inv_dt);
+	}
+
+	/** Read back the state written by {@link #saveState(WorldSnapshot)}. */
+	public void restoreState(final WorldSnapshot snapshot) {
+		m_inv_dt = snapshot.getFloat();
+	}
+
+	/**
+	 * Move any world space points this joint keeps by -newOrigin. Called
+	 * by {@link gwt.ns.gwtbox2d.client.dynamics.World#shiftOrigin(Vec2)}.
+	 */
+	public void shiftOrigin(final Vec2 newOrigin) {
+		return;
+	}
+
 }
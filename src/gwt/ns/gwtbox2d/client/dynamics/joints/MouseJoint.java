@@ -47,8 +47,9 @@ import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.common.XForm;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
-import gwt.ns.gwtbox2d.client.pooling.TLMat22;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
 import gwt.ns.gwtbox2d.client.pooling.TLVec2;
+import gwt.ns.gwtbox2d.client.pooling.notThreadLocal;
 
 //Updated to rev 56->130 of b2MouseJoint.cpp/.h
 
@@ -133,18 +134,45 @@ public class MouseJoint extends Joint {
 		return anchor2;
 	}
 
-	// djm pooled
-	private static final TLVec2 tlr = new TLVec2();
-	private static final TLMat22 tlK1 = new TLMat22();
-	private static final TLMat22 tlK2 = new TLMat22();
+	// djm pooled, the solver's temporaries, fetched once per run of joints
+	private static final class Scratch {
+		final Vec2 r = new Vec2();
+		final Mat22 K1 = new Mat22();
+		final Mat22 K2 = new Mat22();
+		final Vec2 Cdot = new Vec2();
+		final Vec2 force = new Vec2();
+		final Vec2 oldForce = new Vec2();
+		final Vec2 P = new Vec2();
+	}
+
+	private static final class TLScratch extends notThreadLocal<Scratch> {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	}
+
+	private static final TLScratch tlScratch = new TLScratch();
 
 	@Override
 	public void initVelocityConstraints(final TimeStep step) {
+		initVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void initVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((MouseJoint) joints[i]).initVelocityConstraints(step, s);
+		}
+	}
+
+	private void initVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b = m_body2;
 
-		final Vec2 r = tlr.get();
-		final Mat22 K1 = tlK1.get();
-		final Mat22 K2 = tlK2.get();
+		final Vec2 r = s.r;
+		final Mat22 K1 = s.K1;
+		final Mat22 K2 = s.K2;
 		
 		// Compute the effective mass matrix.
 		r.set(m_localAnchor);
@@ -192,21 +220,27 @@ public class MouseJoint extends Joint {
 		return true;
 	}
 
-	// djm pooled, from above too
-	private static final TLVec2 tlCdot = new TLVec2();
-	private static final TLVec2 tlforce = new TLVec2();
-	private static final TLVec2 tloldForce = new TLVec2();
-	private static final TLVec2 tlP = new TLVec2();
-
 	@Override
 	public void solveVelocityConstraints(final TimeStep step) {
+		solveVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void solveVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((MouseJoint) joints[i]).solveVelocityConstraints(step, s);
+		}
+	}
+
+	private void solveVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b = m_body2;
 		
-		final Vec2 r = tlr.get();
-		final Vec2 Cdot = tlCdot.get();
-		final Vec2 force = tlforce.get();
-		final Vec2 oldForce = tloldForce.get();
-		final Vec2 P = tlP.get();
+		final Vec2 r = s.r;
+		final Vec2 Cdot = s.Cdot;
+		final Vec2 force = s.force;
+		final Vec2 oldForce = s.oldForce;
+		final Vec2 P = s.P;
 		
 		r.set(m_localAnchor);
 		r.subLocal(b.getMemberLocalCenter());
@@ -254,5 +288,23 @@ public class MouseJoint extends Joint {
 	public float getReactionTorque() {
 		return 0.0f;
 	}
-}
 
+	@Override
+	public void saveState(final WorldSnapshot snapshot) {
+		super.saveState(snapshot);
+		snapshot.putVec2(m_force);
+		snapshot.putVec2(m_target);
+	}
+
+	@Override
+	public void restoreState(final WorldSnapshot snapshot) {
+		super.restoreState(snapshot);
+		snapshot.getVec2(m_force);
+		snapshot.getVec2(m_target);
+	}
+
+	@Override
+	public void shiftOrigin(final Vec2 newOrigin) {
+		m_target.subLocal(newOrigin);
+	}
+}
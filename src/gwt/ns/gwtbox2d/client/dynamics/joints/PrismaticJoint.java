@@ -48,7 +48,9 @@ import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
 import gwt.ns.gwtbox2d.client.pooling.TLVec2;
+import gwt.ns.gwtbox2d.client.pooling.notThreadLocal;
 
 
 //Updated to rev 56->130 of b2PrismaticJoint.cpp/.h
@@ -135,26 +137,62 @@ public class PrismaticJoint extends Joint {
 	// djm pooled
 	private static final TLVec2 tlr1 = new TLVec2();
 	private static final TLVec2 tlr2 = new TLVec2();
-	private static final TLVec2 tlax1 = new TLVec2();
-	private static final TLVec2 tlay1 = new TLVec2();
-	private static final TLVec2 tle = new TLVec2();
-	private static final TLVec2 tlax1Neg = new TLVec2();
-	private static final TLVec2 tlay1Neg = new TLVec2();
 	private static final TLVec2 tld = new TLVec2();
 	
+	// djm pooled, the solver's temporaries, fetched once per run of joints
+	private static final class Scratch {
+		final Vec2 r1 = new Vec2();
+		final Vec2 r2 = new Vec2();
+		final Vec2 ax1 = new Vec2();
+		final Vec2 ay1 = new Vec2();
+		final Vec2 e = new Vec2();
+		final Vec2 ax1Neg = new Vec2();
+		final Vec2 ay1Neg = new Vec2();
+		final Vec2 d = new Vec2();
+		final Vec2 temp = new Vec2();
+		final Vec2 p1 = new Vec2();
+		final Vec2 p2 = new Vec2();
+		final Vec2 r1z = new Vec2();
+		final Vec2 r2z = new Vec2();
+		final Vec2 p1z = new Vec2();
+		final Vec2 p2z = new Vec2();
+		final Vec2 dz = new Vec2();
+	}
+
+	private static final class TLScratch extends notThreadLocal<Scratch> {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	}
+
+	private static final TLScratch tlScratch = new TLScratch();
+
 	@Override
 	public void initVelocityConstraints(final TimeStep step) {
+		initVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void initVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((PrismaticJoint) joints[i]).initVelocityConstraints(step, s);
+		}
+	}
+
+	private void initVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
-		final Vec2 ax1 = tlax1.get();
-		final Vec2 ay1 = tlay1.get();
-		final Vec2 e = tle.get();
-		final Vec2 ax1Neg = tlax1Neg.get();
-		final Vec2 ay1Neg = tlay1Neg.get();
-		final Vec2 d = tld.get();
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
+		final Vec2 ax1 = s.ax1;
+		final Vec2 ay1 = s.ay1;
+		final Vec2 e = s.e;
+		final Vec2 ax1Neg = s.ax1Neg;
+		final Vec2 ay1Neg = s.ay1Neg;
+		final Vec2 d = s.d;
 		
 		// Compute the effective masses.
 		Mat22.mulToOut(b1.m_xf.R, m_localAnchor1.sub(b1.getMemberLocalCenter()), r1);
@@ -270,6 +308,13 @@ public class PrismaticJoint extends Joint {
 
 	private float m_lastWarmStartingForce, m_lastWarmStartingTorque;
 
+	@Override
+	public void solveVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		for (int i = start; i < end; ++i) {
+			((PrismaticJoint) joints[i]).solveVelocityConstraints(step);
+		}
+	}
+
 	@Override
 	public void solveVelocityConstraints(final TimeStep step) {
 		final Body b1 = m_body1;
@@ -363,32 +408,41 @@ public class PrismaticJoint extends Joint {
 	}
 
 	// djm pooled, using pool above too
-	private static final TLVec2 tltemp = new TLVec2();
 	private static final TLVec2 tlp1 = new TLVec2();
 	private static final TLVec2 tlp2 = new TLVec2();
-	private static final TLVec2 tlr1z = new TLVec2();
-	private static final TLVec2 tlr2z = new TLVec2();
-	private static final TLVec2 tlp1z = new TLVec2();
-	private static final TLVec2 tlp2z = new TLVec2();
-	private static final TLVec2 tldz = new TLVec2();
 	@Override
 	public boolean solvePositionConstraints() {
+		return solvePositionConstraints(tlScratch.get());
+	}
+
+	@Override
+	public boolean solvePositionConstraints(final Joint[] joints, final int start, final int end) {
+		final Scratch s = tlScratch.get();
+		boolean okay = true;
+		for (int i = start; i < end; ++i) {
+			final boolean jointOkay = ((PrismaticJoint) joints[i]).solvePositionConstraints(s);
+			okay = okay && jointOkay;
+		}
+		return okay;
+	}
+
+	private boolean solvePositionConstraints(final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 
-		final Vec2 temp = tltemp.get();
-		final Vec2 p1 = tlp1.get();
-		final Vec2 p2 = tlp2.get();
-		final Vec2 r1z = tlr1z.get();
-		final Vec2 r2z = tlr2z.get();
-		final Vec2 p1z = tlp1z.get();
-		final Vec2 p2z = tlp2z.get();
-		final Vec2 dz = tldz.get();
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
-		final Vec2 d = tld.get();
-		final Vec2 ax1 = tlax1.get();
-		final Vec2 ay1 = tlay1.get();
+		final Vec2 temp = s.temp;
+		final Vec2 p1 = s.p1;
+		final Vec2 p2 = s.p2;
+		final Vec2 r1z = s.r1z;
+		final Vec2 r2z = s.r2z;
+		final Vec2 p1z = s.p1z;
+		final Vec2 p2z = s.p2z;
+		final Vec2 dz = s.dz;
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
+		final Vec2 d = s.d;
+		final Vec2 ax1 = s.ax1;
+		final Vec2 ay1 = s.ay1;
 		
 		final float invMass1 = b1.m_invMass, invMass2 = b2.m_invMass;
 		final float invI1 = b1.m_invI, invI2 = b2.m_invI;
@@ -679,4 +733,30 @@ public class PrismaticJoint extends Joint {
 	public float getMotorForce() {
 		return m_motorForce;
 	}
+
+	@Override
+	public void saveState(final WorldSnapshot snapshot) {
+		super.saveState(snapshot);
+		snapshot.putFloat(m_force);
+		snapshot.putFloat(m_torque);
+		snapshot.putFloat(m_motorForce);
+		snapshot.putFloat(m_limitForce);
+		snapshot.putFloat(m_limitPositionImpulse);
+		snapshot.putFloat(m_lastWarmStartingForce);
+		snapshot.putFloat(m_lastWarmStartingTorque);
+		snapshot.putLimitState(m_limitState);
+	}
+
+	@Override
+	public void restoreState(final WorldSnapshot snapshot) {
+		super.restoreState(snapshot);
+		m_force = snapshot.getFloat();
+		m_torque = snapshot.getFloat();
+		m_motorForce = snapshot.getFloat();
+		m_limitForce = snapshot.getFloat();
+		m_limitPositionImpulse = snapshot.getFloat();
+		m_lastWarmStartingForce = snapshot.getFloat();
+		m_lastWarmStartingTorque = snapshot.getFloat();
+		m_limitState = snapshot.getLimitState();
+	}
 }
\ No newline at end of file
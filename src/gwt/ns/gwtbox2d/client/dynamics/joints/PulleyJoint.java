@@ -47,7 +47,8 @@ import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
-import gwt.ns.gwtbox2d.client.pooling.TLVec2;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
+import gwt.ns.gwtbox2d.client.pooling.notThreadLocal;
 
 
 //Updated to rev. 56->130 of b2PulleyJoint.cpp/.h
@@ -140,28 +141,54 @@ public class PulleyJoint extends Joint {
 		m_limitForce2 = 0.0f;
 	}
 
-	// djm pooled
-	private static final TLVec2 tlr1 = new TLVec2();
-	private static final TLVec2 tlr2 = new TLVec2();
-	private static final TLVec2 tlp1 = new TLVec2();
-	private static final TLVec2 tlp2 = new TLVec2();
-	private static final TLVec2 tls1 = new TLVec2();
-	private static final TLVec2 tls2 = new TLVec2();
-	private static final TLVec2 tlP1 = new TLVec2();
-	private static final TLVec2 tlP2 = new TLVec2();
+	// djm pooled, the solver's temporaries, fetched once per run of joints
+	private static final class Scratch {
+		final Vec2 r1 = new Vec2();
+		final Vec2 r2 = new Vec2();
+		final Vec2 p1 = new Vec2();
+		final Vec2 p2 = new Vec2();
+		final Vec2 s1 = new Vec2();
+		final Vec2 s2 = new Vec2();
+		final Vec2 P1 = new Vec2();
+		final Vec2 P2 = new Vec2();
+		final Vec2 v1 = new Vec2();
+		final Vec2 v2 = new Vec2();
+	}
+
+	private static final class TLScratch extends notThreadLocal<Scratch> {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	}
+
+	private static final TLScratch tlScratch = new TLScratch();
+
 	@Override
 	public void initVelocityConstraints(final TimeStep step) {
+		initVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void initVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((PulleyJoint) joints[i]).initVelocityConstraints(step, s);
+		}
+	}
+
+	private void initVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 		
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
-		final Vec2 p1 = tlp1.get();
-		final Vec2 p2 = tlp2.get();
-		final Vec2 s1 = tls1.get();
-		final Vec2 s2 = tls2.get();
-		final Vec2 P1 = tlP1.get();
-		final Vec2 P2 = tlP2.get();
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
+		final Vec2 p1 = s.p1;
+		final Vec2 p2 = s.p2;
+		final Vec2 s1 = s.s1;
+		final Vec2 s2 = s.s2;
+		final Vec2 P1 = s.P1;
+		final Vec2 P2 = s.P2;
 
 		r1.set(b1.getMemberLocalCenter());
 		r2.set(b2.getMemberLocalCenter());
@@ -258,21 +285,29 @@ public class PulleyJoint extends Joint {
 		}
 	}
 
-	// djm pooled, some from above
-	private static final TLVec2 tlv1 = new TLVec2();
-	private static final TLVec2 tlv2 = new TLVec2();
-	
 	@Override
 	public void solveVelocityConstraints(final TimeStep step) {
+		solveVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void solveVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((PulleyJoint) joints[i]).solveVelocityConstraints(step, s);
+		}
+	}
+
+	private void solveVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 
-		final Vec2 v1 = tlv1.get();
-		final Vec2 v2 = tlv2.get();
-		final Vec2 P1 = tlP1.get();
-		final Vec2 P2 = tlP2.get();
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
+		final Vec2 v1 = s.v1;
+		final Vec2 v2 = s.v2;
+		final Vec2 P1 = s.P1;
+		final Vec2 P2 = s.P2;
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
 
 		r1.set(b1.getMemberLocalCenter());
 		r2.set(b2.getMemberLocalCenter());
@@ -346,21 +381,34 @@ public class PulleyJoint extends Joint {
 		}
 	}
 
-	//djm pooled, some from above
-
 	@Override
 	public boolean solvePositionConstraints() {
+		return solvePositionConstraints(tlScratch.get());
+	}
+
+	@Override
+	public boolean solvePositionConstraints(final Joint[] joints, final int start, final int end) {
+		final Scratch s = tlScratch.get();
+		boolean okay = true;
+		for (int i = start; i < end; ++i) {
+			final boolean jointOkay = ((PulleyJoint) joints[i]).solvePositionConstraints(s);
+			okay = okay && jointOkay;
+		}
+		return okay;
+	}
+
+	private boolean solvePositionConstraints(final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
-		final Vec2 p1 = tlp1.get();
-		final Vec2 p2 = tlp2.get();
-		final Vec2 s1 = tls1.get();
-		final Vec2 s2 = tls2.get();
-		final Vec2 P1 = tlP1.get();
-		final Vec2 P2 = tlP2.get();
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
+		final Vec2 p1 = s.p1;
+		final Vec2 p2 = s.p2;
+		final Vec2 s1 = s.s1;
+		final Vec2 s2 = s.s2;
+		final Vec2 P1 = s.P1;
+		final Vec2 P2 = s.P2;
 		
 		s1.set(m_ground.m_xf.position);
 		s1.addLocal(m_groundAnchor1);
@@ -554,4 +602,31 @@ public class PulleyJoint extends Joint {
 		return m_ratio;
 	}
 
+	@Override
+	public void saveState(final WorldSnapshot snapshot) {
+		super.saveState(snapshot);
+		snapshot.putFloat(m_force);
+		snapshot.putFloat(m_limitForce1);
+		snapshot.putFloat(m_limitForce2);
+		snapshot.putFloat(m_positionImpulse);
+		snapshot.putFloat(m_limitPositionImpulse1);
+		snapshot.putFloat(m_limitPositionImpulse2);
+		snapshot.putLimitState(m_state);
+		snapshot.putLimitState(m_limitState1);
+		snapshot.putLimitState(m_limitState2);
+	}
+
+	@Override
+	public void restoreState(final WorldSnapshot snapshot) {
+		super.restoreState(snapshot);
+		m_force = snapshot.getFloat();
+		m_limitForce1 = snapshot.getFloat();
+		m_limitForce2 = snapshot.getFloat();
+		m_positionImpulse = snapshot.getFloat();
+		m_limitPositionImpulse1 = snapshot.getFloat();
+		m_limitPositionImpulse2 = snapshot.getFloat();
+		m_state = snapshot.getLimitState();
+		m_limitState1 = snapshot.getLimitState();
+		m_limitState2 = snapshot.getLimitState();
+	}
 }
\ No newline at end of file
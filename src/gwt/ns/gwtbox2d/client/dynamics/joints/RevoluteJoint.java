@@ -47,8 +47,8 @@ import gwt.ns.gwtbox2d.client.common.Settings;
 import gwt.ns.gwtbox2d.client.common.Vec2;
 import gwt.ns.gwtbox2d.client.dynamics.Body;
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
-import gwt.ns.gwtbox2d.client.pooling.TLMat22;
-import gwt.ns.gwtbox2d.client.pooling.TLVec2;
+import gwt.ns.gwtbox2d.client.dynamics.WorldSnapshot;
+import gwt.ns.gwtbox2d.client.pooling.notThreadLocal;
 
 
 //Updated to rev. 56->108 of b2RevoluteJoint.cpp/.h
@@ -107,22 +107,53 @@ public class RevoluteJoint extends Joint {
 		m_enableMotor = def.enableMotor;
 	}
 
-	// djm pooled
-	private static final TLVec2 tlr1 = new TLVec2();
-	private static final TLVec2 tlr2 = new TLVec2();
-	private static final TLMat22 tlK1 = new TLMat22();
-	private static final TLMat22 tlK2 = new TLMat22();
-	private static final TLMat22 tlK3 = new TLMat22();
+	// djm pooled, the solver's temporaries, fetched once per run of joints
+	private static final class Scratch {
+		final Vec2 r1 = new Vec2();
+		final Vec2 r2 = new Vec2();
+		final Mat22 K1 = new Mat22();
+		final Mat22 K2 = new Mat22();
+		final Mat22 K3 = new Mat22();
+		final Vec2 temp = new Vec2();
+		final Vec2 pivotCdot = new Vec2();
+		final Vec2 pivotForce = new Vec2();
+		final Vec2 p1 = new Vec2();
+		final Vec2 p2 = new Vec2();
+		final Vec2 ptpC = new Vec2();
+		final Vec2 impulse = new Vec2();
+	}
+
+	private static final class TLScratch extends notThreadLocal<Scratch> {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	}
+
+	private static final TLScratch tlScratch = new TLScratch();
+
 	@Override
 	public void initVelocityConstraints(final TimeStep step) {
+		initVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void initVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((RevoluteJoint) joints[i]).initVelocityConstraints(step, s);
+		}
+	}
+
+	private void initVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 		
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
-		final Mat22 K1 = tlK1.get();
-		final Mat22 K2 = tlK2.get();
-		final Mat22 K3 = tlK3.get();
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
+		final Mat22 K1 = s.K1;
+		final Mat22 K2 = s.K2;
+		final Mat22 K3 = s.K3;
 
 		// Compute the effective mass matrix.
 		//Vec2 r1 = Mat22.mul(b1.m_xf.R, m_localAnchor1.sub(b1.getMemberLocalCenter()));
@@ -205,20 +236,28 @@ public class RevoluteJoint extends Joint {
 	//private float m_lastWarmStartingLimitForce = 0.0f;
 	//private boolean m_warmStartingOld = true;
 
-	// djm pooled, some from above
-	private static final TLVec2 tltemp = new TLVec2();
-	private static final TLVec2 tlpivotCdot = new TLVec2();
-	private static final TLVec2 tlpivotForce = new TLVec2();
 	@Override
 	public void solveVelocityConstraints(final TimeStep step) {
+		solveVelocityConstraints(step, tlScratch.get());
+	}
+
+	@Override
+	public void solveVelocityConstraints(final Joint[] joints, final int start, final int end, final TimeStep step) {
+		final Scratch s = tlScratch.get();
+		for (int i = start; i < end; ++i) {
+			((RevoluteJoint) joints[i]).solveVelocityConstraints(step, s);
+		}
+	}
+
+	private void solveVelocityConstraints(final TimeStep step, final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 		
-		final Vec2 temp = tltemp.get();
-		final Vec2 pivotCdot = tlpivotCdot.get();
-		final Vec2 pivotForce = tlpivotForce.get();
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
+		final Vec2 temp = s.temp;
+		final Vec2 pivotCdot = s.pivotCdot;
+		final Vec2 pivotForce = s.pivotForce;
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
 
 		//Vec2 r1 = Mat22.mul(b1.m_xf.R, m_localAnchor1.sub(b1.getMemberLocalCenter()));
 		//Vec2 r2 = Mat22.mul(b2.m_xf.R, m_localAnchor2.sub(b2.getMemberLocalCenter()));
@@ -298,25 +337,35 @@ public class RevoluteJoint extends Joint {
 		}
 	}
 
-	// djm pooled, some from above
-	private static final TLVec2 tlp1 = new TLVec2();
-	private static final TLVec2 tlp2 = new TLVec2();
-	private static final TLVec2 tlptpC = new TLVec2();
-	private static final TLVec2 tlimpulse = new TLVec2();
 	@Override
 	public boolean solvePositionConstraints() {
+		return solvePositionConstraints(tlScratch.get());
+	}
+
+	@Override
+	public boolean solvePositionConstraints(final Joint[] joints, final int start, final int end) {
+		final Scratch s = tlScratch.get();
+		boolean okay = true;
+		for (int i = start; i < end; ++i) {
+			final boolean jointOkay = ((RevoluteJoint) joints[i]).solvePositionConstraints(s);
+			okay = okay && jointOkay;
+		}
+		return okay;
+	}
+
+	private boolean solvePositionConstraints(final Scratch s) {
 		final Body b1 = m_body1;
 		final Body b2 = m_body2;
 
-		final Vec2 p1 = tlp1.get();
-		final Vec2 p2 = tlp2.get();
-		final Vec2 ptpC = tlptpC.get();
-		final Vec2 impulse = tlimpulse.get();
-		final Vec2 r1 = tlr1.get();
-		final Vec2 r2 = tlr2.get();
-		final Mat22 K1 = tlK1.get();
-		final Mat22 K2 = tlK2.get();
-		final Mat22 K3 = tlK3.get();
+		final Vec2 p1 = s.p1;
+		final Vec2 p2 = s.p2;
+		final Vec2 ptpC = s.ptpC;
+		final Vec2 impulse = s.impulse;
+		final Vec2 r1 = s.r1;
+		final Vec2 r2 = s.r2;
+		final Mat22 K1 = s.K1;
+		final Mat22 K2 = s.K2;
+		final Mat22 K3 = s.K3;
 		
 		float positionError = 0f;
 
@@ -488,4 +537,24 @@ public class RevoluteJoint extends Joint {
 		m_lowerAngle = lower;
 		m_upperAngle = upper;
 	}
+
+	@Override
+	public void saveState(final WorldSnapshot snapshot) {
+		super.saveState(snapshot);
+		snapshot.putVec2(m_pivotForce);
+		snapshot.putFloat(m_motorForce);
+		snapshot.putFloat(m_limitForce);
+		snapshot.putFloat(m_limitPositionImpulse);
+		snapshot.putLimitState(m_limitState);
+	}
+
+	@Override
+	public void restoreState(final WorldSnapshot snapshot) {
+		super.restoreState(snapshot);
+		snapshot.getVec2(m_pivotForce);
+		m_motorForce = snapshot.getFloat();
+		m_limitForce = snapshot.getFloat();
+		m_limitPositionImpulse = snapshot.getFloat();
+		m_limitState = snapshot.getLimitState();
+	}
 }
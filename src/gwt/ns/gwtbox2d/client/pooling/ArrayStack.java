@@ -0,0 +1,62 @@
+package gwt.ns.gwtbox2d.client.pooling;
+
+/**
+ * An unsynchronized stack on a growing array, in place of java.util.Stack
+ * for the pools: no monitor on the JVM, no Vector emulation in GWT.
+ * Popping an empty stack is an error, checked only by assertion; check
+ * {@link #isEmpty()} first.
+ */
+public final class ArrayStack<T> {
+	private static final int INITIAL_SIZE = 8;
+
+	private Object[] m_items;
+	private int m_size;
+
+	public ArrayStack() {
+		this(INITIAL_SIZE);
+	}
+
+	public ArrayStack(final int capacity) {
+		m_items = new Object[Math.max(capacity, 1)];
+		m_size = 0;
+	}
+
+	public final void push(final T item) {
+		if (m_size == m_items.length) {
+			final Object[] old = m_items;
+			m_items = new Object[2 * old.length];
+			System.arraycopy(old, 0, m_items, 0, old.length);
+		}
+		m_items[m_size++] = item;
+	}
+
+	@SuppressWarnings("unchecked")
+	public final T pop() {
+		assert(m_size > 0) : "Pop of an empty stack";
+		final T item = (T) m_items[--m_size];
+		m_items[m_size] = null;
+		return item;
+	}
+
+	@SuppressWarnings("unchecked")
+	public final T peek() {
+		assert(m_size > 0) : "Peek of an empty stack";
+		return (T) m_items[m_size - 1];
+	}
+
+	public final boolean isEmpty() {
+		return m_size == 0;
+	}
+
+	public final int size() {
+		return m_size;
+	}
+
+	/** Drop all the items. The array is kept. */
+	public final void clear() {
+		for (int i = 0; i < m_size; ++i) {
+			m_items[i] = null;
+		}
+		m_size = 0;
+	}
+}
@@ -7,13 +7,12 @@ import gwt.ns.gwtbox2d.client.collision.shapes.CollidePoly;
 public final class SingletonPool {
 
 	private static final class Singletons{
-		public final CollideCircle collideCircle = new CollideCircle();
-		public final CollidePoly collidePoly = new CollidePoly();
-		public final Distance distance = new Distance();
+		public final StackAllocator stackAllocator = new StackAllocator();
+		public final CollideCircle collideCircle = new CollideCircle(stackAllocator);
+		public final CollidePoly collidePoly = new CollidePoly(stackAllocator);
+		public final Distance distance = new Distance(stackAllocator);
 	}
 	
-	//XXX change for gwt
-	//private static final class Pool extends ThreadLocal<Singletons>{
 	private static final class Pool extends notThreadLocal<Singletons>{
 		protected Singletons initialValue(){
 			return new Singletons();
@@ -22,6 +21,10 @@ public final class SingletonPool {
 	
 	private static final Pool pool = new Pool();
 	
+	public static final StackAllocator getStackAllocator(){
+		return pool.get().stackAllocator;
+	}
+	
 	public static final CollideCircle getCollideCircle(){
 		return pool.get().collideCircle;
 	}
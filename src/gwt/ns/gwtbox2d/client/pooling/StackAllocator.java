@@ -0,0 +1,188 @@
+package gwt.ns.gwtbox2d.client.pooling;
+
+import gwt.ns.gwtbox2d.client.common.Mat22;
+import gwt.ns.gwtbox2d.client.common.Vec2;
+import gwt.ns.gwtbox2d.client.common.XForm;
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
+
+/**
+ * A frame scoped stack of temporaries. A function takes a {@link #mark()}
+ * on entry, gets what it needs with {@link #getVec2()} and the others, and
+ * gives it all back at once with {@link #release(int)} on every way out:
+ * <pre>
+ * final int mark = stack.mark();
+ * final Vec2 d = stack.getVec2();
+ * ...
+ * stack.release(mark);
+ * </pre>
+ * Objects are made the first time the stack gets that deep and reused
+ * from then on, so a warmed up stack never allocates. They are handed out
+ * as they were left, not cleared. Nothing got from a frame may be kept
+ * after its release.
+ * <BR><BR>
+ * With assertions on, getting outside of a frame, releasing an outer frame
+ * while an inner one is still open (a missed release) and releasing a
+ * frame twice all fail. Without them, releasing an outer frame releases
+ * the inner ones too, and a second release does nothing.
+ * <BR><BR>
+ * One per thread, from {@link SingletonPool#getStackAllocator()}; the
+ * collision singletons there share it.
+ */
+public final class StackAllocator {
+	private static final int INITIAL_SIZE = 16;
+	private static final int FRAME_SIZE = 4;
+
+	private Vec2[] m_vec2s = new Vec2[INITIAL_SIZE];
+	private Mat22[] m_mat22s = new Mat22[INITIAL_SIZE];
+	private XForm[] m_xforms = new XForm[INITIAL_SIZE];
+	private float[][] m_floats = new float[INITIAL_SIZE][];
+	private int m_vec2Top;
+	private int m_mat22Top;
+	private int m_xformTop;
+	private int m_floatTop;
+
+	// the tops at each open mark
+	private int[] m_frames = new int[FRAME_SIZE * INITIAL_SIZE];
+	private int m_depth;
+
+	/** Open a frame. Pass the result to {@link #release(int)}. */
+	public final int mark() {
+		final int base = m_depth * FRAME_SIZE;
+		if (base == m_frames.length) {
+			final int[] old = m_frames;
+			m_frames = new int[2 * old.length];
+			System.arraycopy(old, 0, m_frames, 0, old.length);
+		}
+		m_frames[base] = m_vec2Top;
+		m_frames[base + 1] = m_mat22Top;
+		m_frames[base + 2] = m_xformTop;
+		m_frames[base + 3] = m_floatTop;
+		return m_depth++;
+	}
+
+	/** Give back everything got since the mark, and close its frame. */
+	public final void release(final int mark) {
+		assert(mark < m_depth) : "Stack frame " + mark + " released twice";
+		assert(mark == m_depth - 1) : "Stack frame " + (m_depth - 1) + " was not released";
+		if (mark < 0 || mark >= m_depth) {
+			return;
+		}
+		final int base = mark * FRAME_SIZE;
+		m_vec2Top = m_frames[base];
+		m_mat22Top = m_frames[base + 1];
+		m_xformTop = m_frames[base + 2];
+		m_floatTop = m_frames[base + 3];
+		m_depth = mark;
+	}
+
+	/** Get the number of open frames, zero between steps. */
+	public final int getDepth() {
+		return m_depth;
+	}
+
+	public final Vec2 getVec2() {
+		assert(m_depth > 0) : "Stack allocation outside of a frame";
+		if (m_vec2Top == m_vec2s.length) {
+			final Vec2[] old = m_vec2s;
+			m_vec2s = new Vec2[2 * old.length];
+			System.arraycopy(old, 0, m_vec2s, 0, old.length);
+		}
+		Vec2 v = m_vec2s[m_vec2Top];
+		if (v == null) {
+			v = new Vec2();
+			m_vec2s[m_vec2Top] = v;
+		}
+		++m_vec2Top;
+		return v;
+	}
+
+	public final Mat22 getMat22() {
+		assert(m_depth > 0) : "Stack allocation outside of a frame";
+		if (m_mat22Top == m_mat22s.length) {
+			final Mat22[] old = m_mat22s;
+			m_mat22s = new Mat22[2 * old.length];
+			System.arraycopy(old, 0, m_mat22s, 0, old.length);
+		}
+		Mat22 m = m_mat22s[m_mat22Top];
+		if (m == null) {
+			m = new Mat22();
+			m_mat22s[m_mat22Top] = m;
+		}
+		++m_mat22Top;
+		return m;
+	}
+
+	public final XForm getXForm() {
+		assert(m_depth > 0) : "Stack allocation outside of a frame";
+		if (m_xformTop == m_xforms.length) {
+			final XForm[] old = m_xforms;
+			m_xforms = new XForm[2 * old.length];
+			System.arraycopy(old, 0, m_xforms, 0, old.length);
+		}
+		XForm xf = m_xforms[m_xformTop];
+		if (xf == null) {
+			xf = new XForm();
+			m_xforms[m_xformTop] = xf;
+		}
+		++m_xformTop;
+		return xf;
+	}
+
+	/** Get a float array of at least length elements. */
+	public final float[] getFloats(final int length) {
+		assert(m_depth > 0) : "Stack allocation outside of a frame";
+		if (m_floatTop == m_floats.length) {
+			final float[][] old = m_floats;
+			m_floats = new float[2 * old.length][];
+			System.arraycopy(old, 0, m_floats, 0, old.length);
+		}
+		float[] a = m_floats[m_floatTop];
+		if (a == null || a.length < length) {
+			if (AllocationProfiler.ENABLED) {
+				AllocationProfiler.count(AllocationProfiler.e_array);
+			}
+			a = new float[Math.max(length, a == null ? 0 : 2 * a.length)];
+			m_floats[m_floatTop] = a;
+		}
+		++m_floatTop;
+		return a;
+	}
+
+	/** Get the number of Vec2s, Mat22s, XForms and float arrays made so far. */
+	public final int getObjectCount() {
+		return getVec2Count() + getMat22Count() + getXFormCount() + getFloatArrayCount();
+	}
+
+	public final int getVec2Count() {
+		return count(m_vec2s);
+	}
+
+	public final int getMat22Count() {
+		return count(m_mat22s);
+	}
+
+	public final int getXFormCount() {
+		return count(m_xforms);
+	}
+
+	public final int getFloatArrayCount() {
+		return count(m_floats);
+	}
+
+	/** Get the total length of the float arrays made so far. */
+	public final int getFloatCount() {
+		int n = 0;
+		for (int i = 0; i < m_floats.length && m_floats[i] != null; ++i) {
+			n += m_floats[i].length;
+		}
+		return n;
+	}
+
+	private static int count(final Object[] objects) {
+		int n = 0;
+		while (n < objects.length && objects[n] != null) {
+			++n;
+		}
+		return n;
+	}
+}
@@ -7,9 +7,3 @@ public class TLAABB extends notThreadLocal<AABB> {
 		return new AABB();
 	}
 }
-
-//public class TLAABB extends ThreadLocal<AABB> {
-//	protected AABB initialValue(){
-//		return new AABB();
-//	}
-//}
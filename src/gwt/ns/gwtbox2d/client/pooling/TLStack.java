@@ -1,16 +1,7 @@
 package gwt.ns.gwtbox2d.client.pooling;
 
-import java.util.Stack;
-
-//XXX change for gwt
-public class TLStack<T> extends notThreadLocal<Stack<T>> {
-	protected Stack<T> initialValue(){
-		return new Stack<T>();
+public class TLStack<T> extends notThreadLocal<ArrayStack<T>> {
+	protected ArrayStack<T> initialValue(){
+		return new ArrayStack<T>();
 	}
 }
-
-//public class TLStack<T> extends ThreadLocal<Stack<T>> {
-//	protected Stack<T> initialValue(){
-//		return new Stack<T>();
-//	}
-//}
\ No newline at end of file
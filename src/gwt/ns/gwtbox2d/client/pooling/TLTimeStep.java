@@ -2,7 +2,6 @@ package gwt.ns.gwtbox2d.client.pooling;
 
 import gwt.ns.gwtbox2d.client.dynamics.TimeStep;
 
-//XXX change for gwt
 public class TLTimeStep extends notThreadLocal<TimeStep> {
 	@Override
 	protected TimeStep initialValue(){
@@ -10,9 +9,3 @@ public class TLTimeStep extends notThreadLocal<TimeStep> {
 	}
 }
 
-//public class TLTimeStep extends ThreadLocal<TimeStep> {
-//	@Override
-//	protected TimeStep initialValue(){
-//		return new TimeStep();
-//	}
-//}
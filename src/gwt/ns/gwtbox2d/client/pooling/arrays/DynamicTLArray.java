@@ -1,42 +1,182 @@
 package gwt.ns.gwtbox2d.client.pooling.arrays;
 
+import gwt.ns.gwtbox2d.client.common.AllocationProfiler;
 import gwt.ns.gwtbox2d.client.pooling.notThreadLocal;
 
-import java.util.HashMap;
+/**
+ * Per thread pools of arrays, in power of two size classes. A request for
+ * n elements is served from the class of the smallest power of two at
+ * least n, found with {@link Integer#numberOfLeadingZeros(int)}, so the
+ * arrays returned are <em>at least</em> the length asked for and callers
+ * must not rely on their length.
+ * <BR><BR>
+ * {@link #get(int)} returns the scratch array kept for the class, the same
+ * one on every call from a thread, as before; it is valid until the next
+ * get of that class. For arrays that are held while others of the same
+ * class are in use, {@link #take(int)} hands one out of the class's free
+ * list (allocating only when it is empty) and {@link #recycle(Object[])}
+ * puts it back. Arrays are not cleared on the way in or out.
+ * <BR><BR>
+ * The statistics are those of the calling thread.
+ */
+public abstract class DynamicTLArray<I> {
+	/** The most free arrays kept per size class, the rest are dropped. */
+	public static final int MAX_FREE_PER_CLASS = 8;
 
+	private static final int CLASS_COUNT = 32;
 
-public abstract class DynamicTLArray<I> {
-	
-	//XXX change for gwt
-	private static class TLHashMap<K, V> extends notThreadLocal<HashMap<K, V>>{
-		protected HashMap<K, V> initialValue(){
-			return new HashMap<K, V>();
-		}
-	}
-//	private static class TLHashMap<K, V> extends ThreadLocal<HashMap<K, V>>{
-//		protected HashMap<K, V> initialValue(){
-//			return new HashMap<K, V>();
-//		}
-//	}
-	
-	private final TLHashMap<Integer, I[]> tlMap = new TLHashMap<Integer, I[]>();
-	
+	private static final class SizeClasses<I> {
+		// the get() scratch arrays, by class
+		final Object[][] scratch = new Object[CLASS_COUNT][];
+		// the take()/recycle() free lists, by class
+		final Object[][][] free = new Object[CLASS_COUNT][][];
+		final int[] freeCount = new int[CLASS_COUNT];
+
+		int allocations;
+		int hits;
+		int misses;
+		int recycles;
+		int drops;
+	}
+
+	private static class TLSizeClasses<I> extends notThreadLocal<SizeClasses<I>>{
+		protected SizeClasses<I> initialValue(){
+			return new SizeClasses<I>();
+		}
+	}
+
+	private final TLSizeClasses<I> tlClasses = new TLSizeClasses<I>();
+
+	/** Get the size class of a length: the log2 of the smallest power of two at least argLength. */
+	public static final int sizeClass(final int argLength) {
+		return 32 - Integer.numberOfLeadingZeros(argLength - 1);
+	}
+
+	/**
+	 * Get this thread's scratch array of at least argLength elements. The
+	 * same array is returned for every length of its size class.
+	 */
+	@SuppressWarnings("unchecked")
 	public I[] get( int argLength){
 		assert(argLength > 0);
-		
-		HashMap<Integer, I[]> map = tlMap.get();
-		
-		if(!map.containsKey(argLength)){
-			map.put(argLength, getInitializedArray(argLength));
+
+		final SizeClasses<I> classes = tlClasses.get();
+		final int c = sizeClass(argLength);
+		Object[] array = classes.scratch[c];
+		if (array == null) {
+			array = allocate(classes, c);
+			classes.scratch[c] = array;
 		}
-		
-		assert(map.get(argLength).length == argLength) : "Array not built of correct length";
-		return map.get(argLength);
+
+		assert(array.length >= argLength) : "Array not built of correct length";
+		return (I[]) array;
 	}
-	
+
+	/**
+	 * Take an array of at least argLength elements for this thread's
+	 * exclusive use, until it is given back with {@link #recycle(Object[])}.
+	 */
+	@SuppressWarnings("unchecked")
+	public I[] take( int argLength){
+		assert(argLength > 0);
+
+		final SizeClasses<I> classes = tlClasses.get();
+		final int c = sizeClass(argLength);
+		final int n = classes.freeCount[c];
+		if (n == 0) {
+			++classes.misses;
+			return (I[]) allocate(classes, c);
+		}
+
+		++classes.hits;
+		final Object[][] list = classes.free[c];
+		final Object[] array = list[n - 1];
+		list[n - 1] = null;
+		classes.freeCount[c] = n - 1;
+		return (I[]) array;
+	}
+
+	/**
+	 * Give back an array from {@link #take(int)}. Arrays whose length is not
+	 * a size class, or past {@link #MAX_FREE_PER_CLASS} free ones, are dropped.
+	 */
 	public void recycle( I[] argArray){
-		
+		final int length = argArray.length;
+		if (length == 0 || (length & (length - 1)) != 0) {
+			return;
+		}
+
+		final SizeClasses<I> classes = tlClasses.get();
+		final int c = sizeClass(length);
+		final int n = classes.freeCount[c];
+		if (n == MAX_FREE_PER_CLASS) {
+			++classes.drops;
+			return;
+		}
+
+		Object[][] list = classes.free[c];
+		if (list == null) {
+			list = new Object[MAX_FREE_PER_CLASS][];
+			classes.free[c] = list;
+		}
+		assert(n == 0 || list[n - 1] != argArray) : "Array recycled twice";
+		list[n] = argArray;
+		classes.freeCount[c] = n + 1;
+		++classes.recycles;
+	}
+
+	/** Get the number of arrays allocated by this pool. */
+	public int getAllocationCount() {
+		return tlClasses.get().allocations;
+	}
+
+	/** Get the number of takes served from a free list. */
+	public int getHitCount() {
+		return tlClasses.get().hits;
+	}
+
+	/** Get the number of takes that had to allocate. */
+	public int getMissCount() {
+		return tlClasses.get().misses;
+	}
+
+	/** Get the number of arrays given back and kept. */
+	public int getRecycleCount() {
+		return tlClasses.get().recycles;
 	}
-	
+
+	/** Get the number of arrays given back and dropped, their class being full. */
+	public int getDropCount() {
+		return tlClasses.get().drops;
+	}
+
+	/** Get the number of arrays waiting in the free lists. */
+	public int getFreeCount() {
+		final int[] freeCount = tlClasses.get().freeCount;
+		int count = 0;
+		for (int i = 0; i < CLASS_COUNT; ++i) {
+			count += freeCount[i];
+		}
+		return count;
+	}
+
+	/** Zero the counts. Pooled arrays are kept. */
+	public void resetStats() {
+		final SizeClasses<I> classes = tlClasses.get();
+		classes.allocations = 0;
+		classes.hits = 0;
+		classes.misses = 0;
+		classes.recycles = 0;
+		classes.drops = 0;
+	}
+
+	private Object[] allocate(final SizeClasses<I> classes, final int sizeClass) {
+		if (AllocationProfiler.ENABLED) {
+			AllocationProfiler.count(AllocationProfiler.e_array);
+		}
+		++classes.allocations;
+		return getInitializedArray(1 << sizeClass);
+	}
+
 	protected abstract I[] getInitializedArray(int argLength);
 }
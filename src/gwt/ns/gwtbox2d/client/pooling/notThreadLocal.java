@@ -1,16 +1,44 @@
 package gwt.ns.gwtbox2d.client.pooling;
 
-//a very simple replacement for threadlocal since there is no threading in javascript
-// (or support in gwt). As with ThreadLocal, notThreadLocal will need to be subclassed
-// and initialvalue overridden
+// The one place the engine's pools choose between the JVM and the browser.
+// Every pool in this package (the TL* holders, SingletonPool, DynamicTLArray
+// and DynamicTLStack) keeps its state in one of these, so none of them has
+// a version of its own per platform.
+//
+// On the JVM this is a real ThreadLocal, so several worlds can be stepped
+// on different threads at once. GWT compiles the single slot version under
+// translatable/ instead (see the super-source path in GwtBox2d.gwt.xml),
+// since there is no threading in javascript. As with ThreadLocal,
+// notThreadLocal will need to be subclassed and initialvalue overridden
 public class notThreadLocal<T> {
-	private T var;
+	private static final class Slot<T> {
+		final Thread owner;
+		final T value;
+		
+		Slot(Thread owner, T value) {
+			this.owner = owner;
+			this.value = value;
+		}
+	}
+	
+	private final ThreadLocal<Slot<T>> local = new ThreadLocal<Slot<T>>() {
+		@Override
+		protected Slot<T> initialValue() {
+			return new Slot<T>(Thread.currentThread(), notThreadLocal.this.initialValue());
+		}
+	};
+	
+	// the slot last used, so a single stepping thread skips the
+	// ThreadLocal lookup, which is most of the cost in hot paths
+	private volatile Slot<T> last;
 	
 	public T get() {
-		if (var == null)
-			var = this.initialValue();
-		
-		return var;
+		Slot<T> slot = last;
+		if (slot == null || slot.owner != Thread.currentThread()) {
+			slot = local.get();
+			last = slot;
+		}
+		return slot.value;
 	}
 	
 	protected T initialValue() {
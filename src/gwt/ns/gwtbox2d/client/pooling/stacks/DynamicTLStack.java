@@ -1,16 +1,15 @@
 package gwt.ns.gwtbox2d.client.pooling.stacks;
 
+import gwt.ns.gwtbox2d.client.pooling.ArrayStack;
 import gwt.ns.gwtbox2d.client.pooling.TLStack;
 
-import java.util.Stack;
-
 
 public abstract class DynamicTLStack<T> {
 
 	private final TLStack<T> tlStack = new TLStack<T>();
 	
 	public T get(){
-		Stack<T> stack = tlStack.get();
+		ArrayStack<T> stack = tlStack.get();
 		
 		if(stack.isEmpty()){
 			stack.push(newObjectInstance());
@@ -24,6 +23,11 @@ public abstract class DynamicTLStack<T> {
 	public void recycle(T argObject){
 		tlStack.get().push(argObject);
 	}
+
+	/** Get the number of objects waiting in this thread's pool. */
+	public int getPooledCount(){
+		return tlStack.get().size();
+	}
 	
 	protected abstract T newObjectInstance();
 }
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gwt.ns.gwtbox2d.server;
+
+import gwt.ns.gwtbox2d.client.dynamics.World;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Steps many independent worlds across a fixed pool of threads, for
+ * servers running one small world per game room. JVM only.
+ * <BR><BR>
+ * Each {@link #step(float, int)} or {@link #update(float)} is one tick:
+ * every registered world is advanced exactly once, by a single thread,
+ * and the call returns when all of them are done. Worlds are handed out
+ * one at a time to whichever thread is free, so a few expensive rooms
+ * don't hold up the rest. A world may be stepped on a different thread
+ * each tick; the engine's scratch pools are per thread on the JVM.
+ * <BR><BR>
+ * Worlds must not be touched from other threads during a tick, and must
+ * not share bodies, joints or listeners that keep state between them.
+ * Adding and removing worlds is only allowed between ticks.
+ */
+public class WorldScheduler {
+	/** Step times of one world, in nanoseconds. */
+	public static class WorldStats {
+		final World world;
+		long m_last;
+		long m_max;
+		long m_total;
+		int m_steps;
+
+		WorldStats(final World world) {
+			this.world = world;
+		}
+
+		public World getWorld() {
+			return world;
+		}
+
+		/** Get the time of the last tick's step. */
+		public long getLastStepNanos() {
+			return m_last;
+		}
+
+		/** Get the longest step since the last reset. */
+		public long getMaxStepNanos() {
+			return m_max;
+		}
+
+		/** Get the average step since the last reset. */
+		public long getAverageStepNanos() {
+			return m_steps == 0 ? 0 : m_total / m_steps;
+		}
+
+		/** Get the number of steps since the last reset. */
+		public int getStepCount() {
+			return m_steps;
+		}
+
+		public void reset() {
+			m_last = 0;
+			m_max = 0;
+			m_total = 0;
+			m_steps = 0;
+		}
+
+		void record(final long nanos) {
+			m_last = nanos;
+			if (nanos > m_max) {
+				m_max = nanos;
+			}
+			m_total += nanos;
+			++m_steps;
+		}
+	}
+
+	private final ExecutorService m_executor;
+	private final int m_threadCount;
+	private final ArrayList<WorldStats> m_worlds = new ArrayList<WorldStats>();
+
+	// the current tick
+	private WorldStats[] m_tickWorlds = new WorldStats[0];
+	private final AtomicInteger m_next = new AtomicInteger();
+	private volatile boolean m_fixed;
+	private volatile float m_dt;
+	private volatile int m_iterations;
+	private volatile Throwable m_error;
+	private long m_lastTickNanos;
+
+	/**
+	 * Create a scheduler with one thread per available processor.
+	 */
+	public WorldScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a scheduler with a fixed number of daemon threads.
+	 */
+	public WorldScheduler(final int threadCount) {
+		assert(threadCount > 0);
+		m_threadCount = threadCount;
+		m_executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "WorldScheduler-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	public int getThreadCount() {
+		return m_threadCount;
+	}
+
+	/**
+	 * Add a world to be stepped each tick.
+	 * @return the world's step times.
+	 */
+	public WorldStats add(final World world) {
+		assert(getStats(world) == null);
+		final WorldStats stats = new WorldStats(world);
+		m_worlds.add(stats);
+		return stats;
+	}
+
+	/** Stop stepping a world. */
+	public void remove(final World world) {
+		for (int i = 0; i < m_worlds.size(); ++i) {
+			if (m_worlds.get(i).world == world) {
+				m_worlds.remove(i);
+				return;
+			}
+		}
+	}
+
+	public int getWorldCount() {
+		return m_worlds.size();
+	}
+
+	/** Get a world's step times, or null if it isn't scheduled. */
+	public WorldStats getStats(final World world) {
+		for (int i = 0; i < m_worlds.size(); ++i) {
+			if (m_worlds.get(i).world == world) {
+				return m_worlds.get(i);
+			}
+		}
+		return null;
+	}
+
+	/** Get the step times of the world at an index, in the order added. */
+	public WorldStats getStats(final int index) {
+		return m_worlds.get(index);
+	}
+
+	/** Get the wall time of the last tick, in nanoseconds. */
+	public long getLastTickNanos() {
+		return m_lastTickNanos;
+	}
+
+	/**
+	 * Step every world once.
+	 * @see World#step(float, int)
+	 */
+	public void step(final float dt, final int iterations) {
+		m_fixed = false;
+		m_dt = dt;
+		m_iterations = iterations;
+		tick();
+	}
+
+	/**
+	 * Advance every world by a frame of real time, in fixed steps.
+	 * @see World#update(float)
+	 */
+	public void update(final float frameDt) {
+		m_fixed = true;
+		m_dt = frameDt;
+		tick();
+	}
+
+	/** Stop the threads. The scheduler can't be used afterwards. */
+	public void shutdown() {
+		m_executor.shutdown();
+	}
+
+	private void tick() {
+		final long start = System.nanoTime();
+		final int count = m_worlds.size();
+		if (m_tickWorlds.length != count) {
+			m_tickWorlds = new WorldStats[count];
+		}
+		m_worlds.toArray(m_tickWorlds);
+		m_next.set(0);
+		m_error = null;
+
+		final int threads = Math.min(m_threadCount, count);
+		if (threads <= 1) {
+			runTick();
+		} else {
+			final CountDownLatch done = new CountDownLatch(threads);
+			for (int i = 0; i < threads; ++i) {
+				m_executor.execute(new Runnable() {
+					public void run() {
+						try {
+							runTick();
+						} finally {
+							done.countDown();
+						}
+					}
+				});
+			}
+			try {
+				done.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while stepping worlds", e);
+			}
+		}
+		m_lastTickNanos = System.nanoTime() - start;
+
+		final Throwable error = m_error;
+		if (error != null) {
+			if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			}
+			if (error instanceof Error) {
+				throw (Error) error;
+			}
+			throw new RuntimeException(error);
+		}
+	}
+
+	private void runTick() {
+		final WorldStats[] worlds = m_tickWorlds;
+		final boolean fixed = m_fixed;
+		final float dt = m_dt;
+		final int iterations = m_iterations;
+
+		for (int i = m_next.getAndIncrement(); i < worlds.length; i = m_next.getAndIncrement()) {
+			final WorldStats stats = worlds[i];
+			final long start = System.nanoTime();
+			try {
+				if (fixed) {
+					stats.world.update(dt);
+				} else {
+					stats.world.step(dt, iterations);
+				}
+			} catch (final Throwable t) {
+				// keep the first, the other worlds still get stepped
+				if (m_error == null) {
+					m_error = t;
+				}
+			}
+			stats.record(System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gwt.ns.gwtbox2d.client.common;
+
+/**
+ * A high resolution clock for profiling. Browser version: uses
+ * performance.now() where available, falling back to Date's milliseconds.
+ */
+public final class Clock {
+	private Clock() {
+	}
+
+	/**
+	 * Get the current time in milliseconds, from an arbitrary origin.
+	 * Only differences between two calls are meaningful.
+	 */
+	public static native double now() /*-{
+		var perf = $wnd.performance;
+		if (perf && perf.now) {
+			return perf.now();
+		}
+		return (new Date()).getTime();
+	}-*/;
+}
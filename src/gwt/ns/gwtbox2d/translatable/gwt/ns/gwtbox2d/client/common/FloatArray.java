@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gwt.ns.gwtbox2d.client.common;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * A fixed length array of floats. Browser version: an overlay on a native
+ * array, made by the {@link FloatArrayFactory} picked for the browser by
+ * deferred binding (see GwtBox2d.gwt.xml). With typed arrays it is a
+ * Float32Array, which is packed, created zero-filled, and rounds stores to
+ * float as Java does, or a Float64Array when gwtbox2d.precision is double;
+ * otherwise a plain Array filled with zeros. Accessors
+ * are one-line JSNI, which the compiler inlines to plain indexing.
+ */
+public final class FloatArray extends JavaScriptObject {
+	private static FloatArrayFactory s_factory;
+
+	protected FloatArray() {
+	}
+
+	/** Create an array of the given length, all zeros. */
+	public static FloatArray create(final int length) {
+		if (s_factory == null) {
+			if (GWT.isScript()) {
+				s_factory = GWT.create(FloatArrayFactory.class);
+			} else {
+				s_factory = new FloatArrayFactory();
+			}
+		}
+		return s_factory.create(length);
+	}
+
+	public final native int length() /*-{
+		return this.length;
+	}-*/;
+
+	public final native float get(int index) /*-{
+		return this[index];
+	}-*/;
+
+	public final native void set(int index, float value) /*-{
+		this[index] = value;
+	}-*/;
+
+	/** Copy count entries of src, starting at srcIndex, into this array at index. */
+	public final native void copy(int index, FloatArray src, int srcIndex, int count) /*-{
+		for (var i = 0; i < count; ++i) {
+			this[index + i] = src[srcIndex + i];
+		}
+	}-*/;
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gwt.ns.gwtbox2d.client.common;
+
+/**
+ * Makes the storage behind {@link FloatArray}. This default makes plain
+ * zero-filled Arrays, for browsers without typed arrays; GwtBox2d.gwt.xml
+ * replaces it with {@link FloatArrayFactoryTyped} where they are present.
+ */
+class FloatArrayFactory {
+	native FloatArray create(int length) /*-{
+		var a = new Array(length);
+		for (var i = 0; i < length; ++i) {
+			a[i] = 0;
+		}
+		return a;
+	}-*/;
+}
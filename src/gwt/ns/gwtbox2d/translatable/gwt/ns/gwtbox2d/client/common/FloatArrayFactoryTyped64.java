@@ -0,0 +1,27 @@
+/*
+ * Copyright 2010 Brendan Kenny
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gwt.ns.gwtbox2d.client.common;
+
+/**
+ * Makes Float64Arrays for {@link FloatArray}, in browsers with typed
+ * arrays when the module sets gwtbox2d.precision to double.
+ */
+class FloatArrayFactoryTyped64 extends FloatArrayFactory {
+	@Override
+	native FloatArray create(int length) /*-{
+		return new $wnd.Float64Array(length);
+	}-*/;
+}